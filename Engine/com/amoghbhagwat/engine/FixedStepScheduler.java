@@ -0,0 +1,232 @@
+package com.amoghbhagwat.engine;
+
+/**
+ * Turns elapsed real time into a number of fixed-length update ticks, with a bound on how many ticks one frame may run
+ * so that a stall (a GC pause, a slow asset load) cannot snowball into ever longer frames.
+ * <p>
+ * Once a frame would need more than the maximum number of ticks, the {@link CatchUpStrategy} decides what happens to
+ * the rest. In adaptive mode the tick rate is also lowered step by step while the simulation cannot keep up, and
+ * raised back to the target once the measured tick cost would fit again.
+ * <p>
+ * Time is in nanoseconds. {@link #advance(long)} and {@link #recordTickCost(long)} belong to the thread running the
+ * ticks; the settings and metrics may be read and changed from any thread.
+ */
+public class FixedStepScheduler {
+    public static final int DEFAULT_MAX_STEPS_PER_FRAME = 5;
+    public static final int DEFAULT_MAX_BACKLOG_STEPS = 30;
+
+    // Fraction of real time the simulation may spend updating before a frame counts as overloaded
+    private static final float OVERLOAD_LOAD = 0.9f;
+    // Load the simulation would have at the next higher rate for the rate to be raised again
+    private static final float RECOVERY_LOAD = 0.6f;
+    private static final int OVERLOAD_FRAMES = 30;
+    private static final int RECOVERY_FRAMES = 120;
+    private static final int COST_AVERAGE_SHIFT = 3;
+
+    public enum CatchUpStrategy {
+        /**
+         * Ticks beyond the per-frame maximum are dropped, so the simulation falls behind real time by the stall.
+         */
+        DROP,
+        /**
+         * Ticks beyond the per-frame maximum are carried over and run in later frames, so the simulation plays slower
+         * than real time until it has caught up. Carried ticks beyond the backlog limit are dropped.
+         */
+        SLOW_MOTION
+    }
+
+    private volatile int targetUps;
+    private volatile int currentUps;
+    private volatile int maxStepsPerFrame;
+    private volatile int maxBacklogSteps;
+    private volatile CatchUpStrategy strategy;
+    private volatile boolean adaptive;
+    private volatile int minUps;
+
+    private long accumulator;
+    private long averageTickCost;
+    private int overloadedFrames;
+    private int recoveredFrames;
+
+    private volatile long droppedTicks;
+    private volatile long rateChanges;
+
+    public FixedStepScheduler(int targetUps) {
+        this.maxStepsPerFrame = DEFAULT_MAX_STEPS_PER_FRAME;
+        this.maxBacklogSteps = DEFAULT_MAX_BACKLOG_STEPS;
+        this.strategy = CatchUpStrategy.DROP;
+        this.minUps = Math.max(1, targetUps / 2);
+        setTargetUps(targetUps);
+    }
+
+    /**
+     * Adds elapsed time and returns how many ticks to run now, each {@link #getIntervalNanos()} long.
+     */
+    public int advance(long elapsedNanos) {
+        long interval = getIntervalNanos();
+        accumulator += Math.max(elapsedNanos, 0);
+
+        long due = accumulator / interval;
+        int maxSteps = maxStepsPerFrame;
+        int steps = (int) Math.min(due, maxSteps);
+        long excess = due - steps;
+
+        if (excess > 0) {
+            long dropped = strategy == CatchUpStrategy.SLOW_MOTION ? Math.max(0, excess - maxBacklogSteps) : excess;
+            accumulator -= dropped * interval;
+            droppedTicks += dropped;
+        }
+        accumulator -= steps * interval;
+
+        if (adaptive) {
+            adapt(excess > 0);
+        }
+        return steps;
+    }
+
+    /**
+     * Reports how long one tick took, which drives the adaptive rate.
+     */
+    public void recordTickCost(long nanos) {
+        averageTickCost += (nanos - averageTickCost) >> COST_AVERAGE_SHIFT;
+    }
+
+    private void adapt(boolean fellBehind) {
+        int ups = currentUps;
+        float load = (float) averageTickCost * ups / 1_000_000_000f;
+
+        if (fellBehind || load > OVERLOAD_LOAD) {
+            recoveredFrames = 0;
+            if (++overloadedFrames >= OVERLOAD_FRAMES && ups > minUps) {
+                setCurrentUps(Math.max(minUps, ups * 3 / 4));
+                overloadedFrames = 0;
+            }
+            return;
+        }
+
+        overloadedFrames = 0;
+        int target = targetUps;
+        if (ups < target) {
+            int raised = Math.min(target, Math.max(ups + 1, ups * 4 / 3));
+            float raisedLoad = (float) averageTickCost * raised / 1_000_000_000f;
+            if (raisedLoad < RECOVERY_LOAD && ++recoveredFrames >= RECOVERY_FRAMES) {
+                setCurrentUps(raised);
+                recoveredFrames = 0;
+            }
+        } else {
+            recoveredFrames = 0;
+        }
+    }
+
+    private void setCurrentUps(int ups) {
+        long oldInterval = getIntervalNanos();
+        currentUps = ups;
+        // Keep the progress into the current tick when the interval changes
+        accumulator = accumulator * getIntervalNanos() / oldInterval;
+        rateChanges++;
+    }
+
+    /**
+     * Fraction of a tick that has built up since the last one, clamped to 1 while a backlog is being worked off.
+     */
+    public float getAlpha() {
+        return Math.min(1f, (float) accumulator / getIntervalNanos());
+    }
+
+    /**
+     * Time until the next tick is due, 0 if one is due already.
+     */
+    public long getNanosUntilNextStep() {
+        return Math.max(0, getIntervalNanos() - accumulator);
+    }
+
+    public void reset() {
+        accumulator = 0;
+        overloadedFrames = 0;
+        recoveredFrames = 0;
+    }
+
+    public long getIntervalNanos() {
+        return 1_000_000_000L / currentUps;
+    }
+
+    public float getInterval() {
+        return 1f / currentUps;
+    }
+
+    /**
+     * Sets the rate to aim for, which is also the rate used right away.
+     *
+     * @throws IllegalArgumentException if {@code targetUps} is not positive
+     */
+    public void setTargetUps(int targetUps) {
+        if (targetUps <= 0) {
+            throw new IllegalArgumentException("Target updates per second must be positive: " + targetUps);
+        }
+        this.targetUps = targetUps;
+        this.currentUps = targetUps;
+    }
+
+    public int getTargetUps() {
+        return targetUps;
+    }
+
+    /**
+     * Rate in use, below the target while adaptive mode is shedding load.
+     */
+    public int getCurrentUps() {
+        return currentUps;
+    }
+
+    public void setMaxStepsPerFrame(int maxStepsPerFrame) {
+        this.maxStepsPerFrame = Math.max(1, maxStepsPerFrame);
+    }
+
+    public int getMaxStepsPerFrame() {
+        return maxStepsPerFrame;
+    }
+
+    /**
+     * Ticks {@link CatchUpStrategy#SLOW_MOTION} may carry over to later frames.
+     */
+    public void setMaxBacklogSteps(int maxBacklogSteps) {
+        this.maxBacklogSteps = Math.max(0, maxBacklogSteps);
+    }
+
+    public void setCatchUpStrategy(CatchUpStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public CatchUpStrategy getCatchUpStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @param minUps lowest rate adaptive mode may drop to
+     */
+    public void setAdaptive(boolean adaptive, int minUps) {
+        this.minUps = Math.max(1, Math.min(minUps, targetUps));
+        this.adaptive = adaptive;
+        if (!adaptive) {
+            currentUps = targetUps;
+        }
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Ticks that were due but never run.
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    /**
+     * Times adaptive mode changed the rate.
+     */
+    public long getRateChanges() {
+        return rateChanges;
+    }
+}
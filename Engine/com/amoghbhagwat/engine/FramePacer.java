@@ -0,0 +1,136 @@
+package com.amoghbhagwat.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces frames to a target rate. {@link #sync()} parks the thread until shortly before the next frame deadline and
+ * spins the rest of the way; how early it stops parking follows the wake-up overshoot measured on this machine. All
+ * times are {@link System#nanoTime()} nanoseconds.
+ * <p>
+ * The lateness of every frame start against its deadline is kept for the last {@link #JITTER_WINDOW} frames and
+ * reported as percentiles. Neither pacing nor the statistics allocate.
+ */
+public class FramePacer {
+    public static final int JITTER_WINDOW = 1024;
+
+    private static final long MIN_SPIN_NANOS = 50_000L;
+    private static final long MAX_SPIN_NANOS = 2_000_000L;
+    private static final long SPIN_MARGIN_NANOS = 50_000L;
+    private static final int OVERSHOOT_DECAY_SHIFT = 4;
+
+    private volatile long frameNanos;
+    private long deadline;
+    private long overshootEstimate;
+
+    private final long[] jitter;
+    private final long[] sortedJitter;
+    private int jitterCount;
+    private int jitterCursor;
+
+    public FramePacer(int targetFps) {
+        this.jitter = new long[JITTER_WINDOW];
+        this.sortedJitter = new long[JITTER_WINDOW];
+        this.overshootEstimate = MIN_SPIN_NANOS;
+        setTargetFps(targetFps);
+    }
+
+    /**
+     * @param targetFps frames per second, or 0 for no limit
+     */
+    public void setTargetFps(int targetFps) {
+        this.frameNanos = targetFps > 0 ? 1_000_000_000L / targetFps : 0;
+    }
+
+    public int getTargetFps() {
+        long nanos = frameNanos;
+        return nanos > 0 ? (int) (1_000_000_000L / nanos) : 0;
+    }
+
+    /**
+     * Starts the deadlines from now, e.g. after a pause.
+     */
+    public void reset() {
+        deadline = System.nanoTime() + frameNanos;
+    }
+
+    /**
+     * Waits until the next frame deadline. Frames that are already late start right away, and when a whole frame was
+     * missed the schedule restarts from now instead of rushing to catch up.
+     *
+     * @return the time the frame starts
+     */
+    public long sync() {
+        long nanos = frameNanos;
+        long now = System.nanoTime();
+        if (nanos == 0) {
+            return now;
+        }
+        if (deadline == 0) {
+            deadline = now;
+        }
+
+        long remaining;
+        while ((remaining = deadline - now) > overshootEstimate + SPIN_MARGIN_NANOS) {
+            long park = remaining - overshootEstimate - SPIN_MARGIN_NANOS;
+            LockSupport.parkNanos(park);
+            long woke = System.nanoTime();
+            updateOvershoot(woke - now - park);
+            now = woke;
+        }
+        while (deadline - now > 0) {
+            now = System.nanoTime();
+        }
+
+        recordJitter(now - deadline);
+        deadline += nanos;
+        if (now - deadline >= 0) {
+            deadline = now + nanos;
+        }
+        return now;
+    }
+
+    private void updateOvershoot(long overshoot) {
+        if (overshoot > overshootEstimate) {
+            overshootEstimate = Math.min(overshoot, MAX_SPIN_NANOS);
+        } else {
+            overshootEstimate = Math.max(overshootEstimate - ((overshootEstimate - overshoot) >> OVERSHOOT_DECAY_SHIFT), MIN_SPIN_NANOS);
+        }
+    }
+
+    private void recordJitter(long lateness) {
+        jitter[jitterCursor] = lateness;
+        jitterCursor = (jitterCursor + 1) % JITTER_WINDOW;
+        if (jitterCount < JITTER_WINDOW) {
+            jitterCount++;
+        }
+    }
+
+    /**
+     * Lateness of frame starts against their deadlines in nanoseconds, e.g. {@code getJitterPercentile(99)}.
+     * Returns 0 until a frame has been paced.
+     */
+    public long getJitterPercentile(double percentile) {
+        int count = jitterCount;
+        if (count == 0) {
+            return 0;
+        }
+
+        System.arraycopy(jitter, 0, sortedJitter, 0, count);
+        Arrays.sort(sortedJitter, 0, count);
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sortedJitter[Math.max(0, Math.min(rank, count - 1))];
+    }
+
+    public void clearJitter() {
+        jitterCount = 0;
+        jitterCursor = 0;
+    }
+
+    /**
+     * Current estimate of how late a park wakes up, which is how long the pacer spins before each deadline.
+     */
+    public long getSpinNanos() {
+        return overshootEstimate + SPIN_MARGIN_NANOS;
+    }
+}
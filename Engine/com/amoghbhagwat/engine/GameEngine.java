@@ -1,23 +1,146 @@
 package com.amoghbhagwat.engine;
 
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.engine.profiler.ChromeTrace;
+import com.amoghbhagwat.engine.profiler.FrameProfiler;
+import com.amoghbhagwat.engine.profiler.GpuTimer;
+import com.amoghbhagwat.engine.utils.TripleBuffer;
 import com.amoghbhagwat.game.utils.MouseInput;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 public class GameEngine implements Runnable {
-    public static final int TARGET_FPS = 75;
-    public static final int TARGET_UPS = 30;
+    public static final int DEFAULT_TARGET_FPS = 75;
+    public static final int DEFAULT_TARGET_UPS = 30;
 
     private final Window window;
     private final Thread gameLoopThread;
     private final Timer timer;
     private final GameLogic gameLogic;
     private final MouseInput mouseInput;
+    private final TripleBuffer<InputSnapshot> inputSnapshots;
+    private final JobSystem jobSystem;
+    private final boolean threadedSimulation;
+    private final FramePacer framePacer;
+    private final FixedStepScheduler scheduler;
+    private final FrameProfiler profiler;
+    private final FrameProfiler simulationProfiler;
+    private final FrameProfiler updateProfiler;
+    private final int inputScope;
+    private final int updateScope;
+    private final int updateJobsScope;
+    private final int publishScope;
+    private final int renderScope;
+    private final int swapScope;
+    private final int paceScope;
+
+    private volatile String chromeTraceFile;
+    private InputSnapshot input;
+    private long inputFrame;
 
     public GameEngine(String windowTitle, int width, int height, boolean vSync, GameLogic gameLogic) {
+        this(windowTitle, width, height, vSync, gameLogic, false);
+    }
+
+    /**
+     * @param threadedSimulation run input and updates on their own thread at the target UPS, with the game loop
+     *                           thread only rendering what the game logic publishes
+     */
+    public GameEngine(String windowTitle, int width, int height, boolean vSync, GameLogic gameLogic, boolean threadedSimulation) {
+        this.threadedSimulation = threadedSimulation;
         this.gameLoopThread = new Thread(this, "GAME_LOOP_THREAD");
         this.window = new Window(windowTitle, width, height, vSync);
         this.timer = new Timer();
         this.gameLogic = gameLogic;
         this.mouseInput = new MouseInput();
+        this.inputSnapshots = new TripleBuffer<>(InputSnapshot::new);
+        this.input = inputSnapshots.acquire();
+        this.jobSystem = new JobSystem();
+        this.framePacer = new FramePacer(DEFAULT_TARGET_FPS);
+        this.scheduler = new FixedStepScheduler(DEFAULT_TARGET_UPS);
+        this.profiler = new FrameProfiler("GAME_LOOP_THREAD");
+        this.simulationProfiler = new FrameProfiler("SIMULATION_THREAD");
+        this.updateProfiler = threadedSimulation ? simulationProfiler : profiler;
+        this.inputScope = updateProfiler.scope("input");
+        this.updateScope = updateProfiler.scope("update");
+        this.updateJobsScope = updateProfiler.scope("update jobs");
+        this.publishScope = updateProfiler.scope("publish");
+        this.renderScope = profiler.scope("render");
+        this.swapScope = profiler.scope("swap buffers");
+        this.paceScope = profiler.scope("frame pacing");
+    }
+
+    /**
+     * Frame rate limit used when vsync is off, 0 for none. Can be changed while running.
+     */
+    public void setTargetFps(int targetFps) {
+        framePacer.setTargetFps(targetFps);
+    }
+
+    public int getTargetFps() {
+        return framePacer.getTargetFps();
+    }
+
+    /**
+     * Fixed update rate, which has to be positive. Can be changed while running and takes effect from the next tick.
+     */
+    public void setTargetUps(int targetUps) {
+        scheduler.setTargetUps(targetUps);
+    }
+
+    public int getTargetUps() {
+        return scheduler.getTargetUps();
+    }
+
+    public FramePacer getFramePacer() {
+        return framePacer;
+    }
+
+    /**
+     * Catch-up policy and adaptive rate of the update loop. Can be changed while running.
+     */
+    public FixedStepScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Updates that were due but skipped to keep frames from piling up after a stall.
+     */
+    public long getDroppedTicks() {
+        return scheduler.getDroppedTicks();
+    }
+
+    /**
+     * Profiler of the game loop thread, which also covers input and updates unless the simulation is threaded.
+     */
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Profiler of the simulation thread, one frame per tick. Only used with a threaded simulation.
+     */
+    public FrameProfiler getSimulationProfiler() {
+        return simulationProfiler;
+    }
+
+    /**
+     * Turns both profilers on or off from their next frame.
+     */
+    public void setProfilingEnabled(boolean enabled) {
+        profiler.setEnabled(enabled);
+        simulationProfiler.setEnabled(enabled);
+    }
+
+    /**
+     * File to write a Chrome trace of the last profiled frames to on shutdown, or {@code null} for none.
+     */
+    public void setChromeTraceFile(String chromeTraceFile) {
+        this.chromeTraceFile = chromeTraceFile;
     }
 
     public void start() {
@@ -33,63 +156,152 @@ public class GameEngine implements Runnable {
         window.init();
         timer.init();
         mouseInput.init(window);
+        if (GpuTimer.isSupported()) {
+            profiler.setGpuTimer(new GpuTimer());
+        }
+        gameLogic.attachProfiler(profiler);
         gameLogic.init(window);
+        gameLogic.registerUpdateJobs(jobSystem);
+        gameLogic.publish();
     }
 
-    protected void gameLoop() {
-        float elapsedTime;
-        float accumulator = 0.0f;
-        float interval = 1f / TARGET_UPS;
+    protected void gameLoop() throws Exception {
+        if (threadedSimulation) {
+            threadedGameLoop();
+            return;
+        }
 
+        scheduler.reset();
+        framePacer.reset();
+        timer.getElapsedNanos();
         boolean running = true;
         while (running && !window.windowShouldClose()) {
-            elapsedTime = timer.getElapsedTime();
-            accumulator += elapsedTime;
+            profiler.beginFrame();
+            int steps = scheduler.advance(timer.getElapsedNanos());
 
+            captureInput();
             input();
 
-            while (accumulator > interval) {
-                update(interval);
-                accumulator -= interval;
+            for (int i = 0; i < steps; i++) {
+                long start = System.nanoTime();
+                update(scheduler.getInterval());
+                scheduler.recordTickCost(System.nanoTime() - start);
             }
 
-            render();
+            render(scheduler.getAlpha());
 
             if (!window.isVSync()) {
-                sync();
+                profiler.begin(paceScope);
+                framePacer.sync();
+                profiler.end(paceScope);
             }
+            profiler.endFrame();
         }
     }
 
-    private void sync() {
-        float loopShot = 1.0f / TARGET_FPS;
-        double endTime = timer.getLastLoopTime() + loopShot;
+    private void threadedGameLoop() throws Exception {
+        SimulationLoop simulation = new SimulationLoop(this::tick, scheduler, "SIMULATION_THREAD");
+        simulation.start();
+        framePacer.reset();
+        try {
+            while (simulation.isRunning() && !window.windowShouldClose()) {
+                profiler.beginFrame();
+                captureInput();
+                render(simulation.getAlpha());
 
-        while (timer.getTime() < endTime) {
-            try {
-                Thread.sleep(1);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                if (!window.isVSync()) {
+                    profiler.begin(paceScope);
+                    framePacer.sync();
+                    profiler.end(paceScope);
+                }
+                profiler.endFrame();
             }
+        } finally {
+            simulation.stop();
         }
+
+        Throwable failure = simulation.getFailure();
+        if (failure instanceof Exception) {
+            throw (Exception) failure;
+        } else if (failure != null) {
+            throw new Exception("Simulation failed", failure);
+        }
+    }
+
+    private void tick(float interval) {
+        simulationProfiler.beginFrame();
+        input();
+        update(interval);
+        simulationProfiler.endFrame();
     }
 
     protected void cleanUp() {
+        writeChromeTrace();
+        jobSystem.cleanUp();
         gameLogic.cleanUp();
+        if (profiler.getGpuTimer() != null) {
+            profiler.getGpuTimer().cleanUp();
+        }
+    }
+
+    private void writeChromeTrace() {
+        String file = chromeTraceFile;
+        if (file == null) {
+            return;
+        }
+
+        try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            if (threadedSimulation) {
+                ChromeTrace.write(writer, profiler, simulationProfiler);
+            } else {
+                ChromeTrace.write(writer, profiler);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Publishes what the last poll of events saw. Runs on the game loop thread, the only one allowed to ask GLFW.
+     */
+    private void captureInput() {
+        InputSnapshot snapshot = inputSnapshots.getWriteBuffer();
+        snapshot.setFrame(++inputFrame);
+        window.captureInput(snapshot);
+        mouseInput.capture(snapshot);
+        inputSnapshots.publish();
     }
 
     protected void input() {
-        gameLogic.input(window, mouseInput);
+        updateProfiler.begin(inputScope);
+        input = inputSnapshots.acquire();
+        gameLogic.input(input, mouseInput);
+        updateProfiler.end(inputScope);
     }
 
     protected void update(float interval) {
-        mouseInput.input(window);
+        updateProfiler.begin(updateScope);
+        mouseInput.input(input);
         gameLogic.update(interval, mouseInput);
+
+        updateProfiler.begin(updateJobsScope);
+        jobSystem.runUpdateJobs(interval);
+        updateProfiler.end(updateJobsScope);
+
+        updateProfiler.begin(publishScope);
+        gameLogic.publish();
+        updateProfiler.end(publishScope);
+        updateProfiler.end(updateScope);
     }
 
-    protected void render() {
-        gameLogic.render(window);
+    protected void render(float alpha) {
+        profiler.begin(renderScope);
+        gameLogic.render(window, alpha);
+        profiler.end(renderScope);
+
+        profiler.begin(swapScope);
         window.update();
+        profiler.end(swapScope);
     }
 
     @Override
@@ -1,15 +1,52 @@
 package com.amoghbhagwat.engine;
 
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.engine.profiler.FrameProfiler;
 import com.amoghbhagwat.game.utils.MouseInput;
 
 public interface GameLogic {
+    /**
+     * Called before {@link #init(Window)} with the profiler of the thread that renders, so the game can time its own
+     * rendering phases. Ignored by default.
+     */
+    default void attachProfiler(FrameProfiler profiler) {
+    }
+
     void init(Window window) throws Exception;
 
-    void input(Window window, MouseInput mouseInput);
+    /**
+     * Reads the keyboard through a snapshot taken on the game loop thread, since with a threaded simulation this runs
+     * on the simulation thread, where GLFW must not be asked.
+     */
+    void input(InputSnapshot input, MouseInput mouseInput);
 
     void update(float interval, MouseInput mouseInput);
 
+    /**
+     * Called once after {@link #init(Window)} to register jobs that run in parallel after every
+     * {@link #update(float, MouseInput)}, and to hand the workers to other parallel work such as light binning.
+     * Nothing is registered by default.
+     */
+    default void registerUpdateJobs(JobSystem jobSystem) {
+    }
+
+    /**
+     * Called at the end of every tick, after the update jobs, to hand the new state over to {@link #render(Window)}.
+     * With a threaded simulation this runs on the simulation thread while rendering carries on, so render must only
+     * read what was published here.
+     */
+    default void publish() {
+    }
+
     void render(Window window);
 
+    /**
+     * Renders a frame that lies {@code alpha} in [0, 1] of the way from the previous tick to the latest one, so that
+     * motion stays smooth when frames outnumber ticks. Ignores {@code alpha} by default.
+     */
+    default void render(Window window, float alpha) {
+        render(window);
+    }
+
     void cleanUp();
 }
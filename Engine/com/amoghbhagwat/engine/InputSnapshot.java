@@ -0,0 +1,79 @@
+package com.amoghbhagwat.engine;
+
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Keyboard and mouse state as of one frame. GLFW may only be asked on the thread that polls events, so the engine
+ * captures a snapshot there once per frame and hands it to the simulation through a
+ * {@link com.amoghbhagwat.engine.utils.TripleBuffer}.
+ */
+public class InputSnapshot {
+    private final boolean[] keys;
+    private long frame;
+    private double cursorX;
+    private double cursorY;
+    private boolean inWindow;
+    private boolean leftButtonPressed;
+    private boolean rightButtonPressed;
+
+    public InputSnapshot() {
+        this.keys = new boolean[GLFW.GLFW_KEY_LAST + 1];
+    }
+
+    public boolean isKeyPressed(int keyCode) {
+        return keyCode >= 0 && keyCode < keys.length && keys[keyCode];
+    }
+
+    public void setKeys(boolean[] pressed) {
+        System.arraycopy(pressed, 0, keys, 0, Math.min(pressed.length, keys.length));
+    }
+
+    public void setKeyPressed(int keyCode, boolean pressed) {
+        keys[keyCode] = pressed;
+    }
+
+    /**
+     * Number of the frame the snapshot was captured in, counting from 1.
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    public void setFrame(long frame) {
+        this.frame = frame;
+    }
+
+    public double getCursorX() {
+        return cursorX;
+    }
+
+    public double getCursorY() {
+        return cursorY;
+    }
+
+    public void setCursor(double x, double y) {
+        this.cursorX = x;
+        this.cursorY = y;
+    }
+
+    public boolean isInWindow() {
+        return inWindow;
+    }
+
+    public void setInWindow(boolean inWindow) {
+        this.inWindow = inWindow;
+    }
+
+    public boolean isLeftButtonPressed() {
+        return leftButtonPressed;
+    }
+
+    public boolean isRightButtonPressed() {
+        return rightButtonPressed;
+    }
+
+    public void setButtons(boolean leftButtonPressed, boolean rightButtonPressed) {
+        this.leftButtonPressed = leftButtonPressed;
+        this.rightButtonPressed = rightButtonPressed;
+    }
+}
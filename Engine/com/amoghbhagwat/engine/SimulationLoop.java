@@ -0,0 +1,133 @@
+package com.amoghbhagwat.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs fixed-step simulation ticks on a dedicated thread, independently of rendering. The tick itself is supplied by
+ * the caller, which makes the loop usable without a window; {@link #runTicks(int)} runs a deterministic number of ticks
+ * on the calling thread. How many ticks run after a stall is bounded by the {@link FixedStepScheduler}.
+ */
+public class SimulationLoop implements Runnable {
+    private final Tick tick;
+    private final FixedStepScheduler scheduler;
+    private final Thread thread;
+
+    private volatile boolean running;
+    private volatile long ticks;
+    private volatile long lastTickNanos;
+    private volatile Throwable failure;
+
+    public SimulationLoop(Tick tick, int ticksPerSecond, String threadName) {
+        this(tick, new FixedStepScheduler(ticksPerSecond), threadName);
+    }
+
+    public SimulationLoop(Tick tick, FixedStepScheduler scheduler, String threadName) {
+        this.tick = tick;
+        this.scheduler = scheduler;
+        this.thread = new Thread(this, threadName);
+    }
+
+    /**
+     * Changes the tick rate, taking effect from the next tick.
+     */
+    public void setTicksPerSecond(int ticksPerSecond) {
+        scheduler.setTargetUps(ticksPerSecond);
+    }
+
+    public int getTicksPerSecond() {
+        return scheduler.getCurrentUps();
+    }
+
+    public FixedStepScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Asks the loop to finish the current tick and waits for the thread to end.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        if (thread.isAlive() && thread != Thread.currentThread()) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Runs ticks back to back on the calling thread.
+     */
+    public void runTicks(int count) {
+        for (int i = 0; i < count; i++) {
+            runTick();
+        }
+    }
+
+    @Override
+    public void run() {
+        scheduler.reset();
+        long last = System.nanoTime();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                int steps = scheduler.advance(now - last);
+                last = now;
+
+                for (int i = 0; i < steps && running; i++) {
+                    runTick();
+                }
+
+                long wait;
+                while (running && (wait = scheduler.getNanosUntilNextStep() - (System.nanoTime() - last)) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            running = false;
+        }
+    }
+
+    private void runTick() {
+        long start = System.nanoTime();
+        tick.run(scheduler.getInterval());
+        lastTickNanos = System.nanoTime();
+        scheduler.recordTickCost(lastTickNanos - start);
+        ticks++;
+    }
+
+    /**
+     * Fraction of a tick interval that has passed since the latest tick finished, clamped to [0, 1].
+     */
+    public float getAlpha() {
+        if (ticks == 0) {
+            return 1;
+        }
+        float alpha = (float) (System.nanoTime() - lastTickNanos) / scheduler.getIntervalNanos();
+        return Math.max(0, Math.min(alpha, 1));
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Exception that ended the loop, if any.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public interface Tick {
+        void run(float interval);
+    }
+}
@@ -1,24 +1,19 @@
 package com.amoghbhagwat.engine;
 
 public class Timer {
-    private double lastLoopTime;
+    private long lastLoopNanos;
 
     public void init() {
-        lastLoopTime = getTime();
+        lastLoopNanos = System.nanoTime();
     }
 
-    public double getTime() {
-        return System.nanoTime() / 1000_000_000.0;
-    }
-
-    public float getElapsedTime() {
-        double time = getTime();
-        float elapsedTime = (float) (time - lastLoopTime);
-        lastLoopTime = time;
-        return elapsedTime;
-    }
-
-    public double getLastLoopTime() {
-        return lastLoopTime;
+    /**
+     * Nanoseconds since the previous call, or since {@link #init()}.
+     */
+    public long getElapsedNanos() {
+        long now = System.nanoTime();
+        long elapsed = now - lastLoopNanos;
+        lastLoopNanos = now;
+        return elapsed;
     }
 }
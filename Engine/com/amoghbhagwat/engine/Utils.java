@@ -1,8 +1,11 @@
 package com.amoghbhagwat.engine;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -28,4 +31,29 @@ public class Utils {
 
         return list;
     }
+
+    public static ReadableByteChannel openResourceChannel(String fileName) throws Exception {
+        InputStream in = Utils.class.getResourceAsStream(fileName);
+        if (in == null) {
+            throw new Exception("Could not find resource: " + fileName);
+        }
+
+        return Channels.newChannel(in);
+    }
+
+    public static byte[] readAllBytes(String fileName) throws Exception {
+        try (InputStream in = Utils.class.getResourceAsStream(fileName)) {
+            if (in == null) {
+                throw new Exception("Could not find resource: " + fileName);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 4096));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
 }
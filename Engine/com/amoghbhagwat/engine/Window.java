@@ -16,6 +16,7 @@ public class Window {
     private long windowHandle;
     private boolean resized;
     private boolean vSync;
+    private final boolean[] keys = new boolean[GLFW.GLFW_KEY_LAST + 1];
 
     public Window(String title, int width, int height, boolean vSync) {
         this.title = title;
@@ -52,6 +53,9 @@ public class Window {
         });
 
         GLFW.glfwSetKeyCallback(windowHandle, (window, key, scancode, action, mods) -> {
+            if (key >= 0 && key < keys.length) {
+                keys[key] = action != GLFW.GLFW_RELEASE;
+            }
             if (key == GLFW.GLFW_KEY_ESCAPE && action == GLFW.GLFW_RELEASE)
                 GLFW.glfwSetWindowShouldClose(window, true);
         });
@@ -76,10 +80,20 @@ public class Window {
         GL11.glClearColor(r, g, b, alpha);
     }
 
+    /**
+     * Asks GLFW directly, so only call it on the thread that polls events. Other threads read an {@link InputSnapshot}.
+     */
     public boolean isKeyPressed(int keyCode) {
         return GLFW.glfwGetKey(windowHandle, keyCode) == GLFW_PRESS;
     }
 
+    /**
+     * Copies the keys the key callback saw into a snapshot. Call on the thread that polls events.
+     */
+    public void captureInput(InputSnapshot snapshot) {
+        snapshot.setKeys(keys);
+    }
+
     public boolean windowShouldClose() {
         return GLFW.glfwWindowShouldClose(windowHandle);
     }
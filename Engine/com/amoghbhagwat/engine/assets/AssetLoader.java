@@ -0,0 +1,168 @@
+package com.amoghbhagwat.engine.assets;
+
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.models.MeshCache;
+import com.amoghbhagwat.game.entities.Texture;
+import com.amoghbhagwat.game.entities.TextureData;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Decodes meshes and textures on a worker pool and hands the CPU-side payloads through a bounded queue to the thread
+ * owning the GL context, which creates the GPU resources in {@link #drain(long)} or {@link #await(CompletableFuture)}.
+ * Workers block once the queue is full, so decoded data never runs far ahead of the uploads.
+ */
+public class AssetLoader {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private final MeshCache meshCache;
+    private final UploadSink uploadSink;
+    private final ExecutorService workers;
+    private final BlockingQueue<PendingUpload<?, ?>> uploads;
+    private final Set<CompletableFuture<?>> pending;
+
+    public AssetLoader(MeshCache meshCache) {
+        this(meshCache, new GLUploadSink(), createWorkerPool(Runtime.getRuntime().availableProcessors()), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public AssetLoader(MeshCache meshCache, UploadSink uploadSink, ExecutorService workers, int queueCapacity) {
+        this.meshCache = meshCache;
+        this.uploadSink = uploadSink;
+        this.workers = workers;
+        this.uploads = new ArrayBlockingQueue<>(queueCapacity);
+        this.pending = ConcurrentHashMap.newKeySet();
+    }
+
+    public static ExecutorService createWorkerPool(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ASSET_LOADER_" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Mesh> loadMesh(String fileName) {
+        return submit(() -> meshCache.loadBakedMesh(fileName), uploadSink::createMesh);
+    }
+
+    public CompletableFuture<Texture> loadTexture(String fileName) {
+        return submit(() -> TextureData.decode(fileName), uploadSink::createTexture);
+    }
+
+    /**
+     * Runs queued uploads until the queue is empty or the budget is spent. At least one upload runs if any is queued.
+     */
+    public int drain(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int uploaded = 0;
+
+        PendingUpload<?, ?> upload;
+        while ((upload = uploads.poll()) != null) {
+            upload.run();
+            uploaded++;
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+
+        return uploaded;
+    }
+
+    /**
+     * Blocks until the asset is ready, running uploads on the calling thread in the meantime.
+     */
+    public <T> T await(CompletableFuture<T> future) throws Exception {
+        while (!future.isDone()) {
+            PendingUpload<?, ?> upload = uploads.poll(1, TimeUnit.MILLISECONDS);
+            if (upload != null) {
+                upload.run();
+            }
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    public int getPendingUploads() {
+        return uploads.size();
+    }
+
+    /**
+     * Stops the workers and cancels every asset that is not loaded yet, so nothing waits on it forever.
+     */
+    public void cleanUp() {
+        workers.shutdownNow();
+        for (CompletableFuture<?> future : pending) {
+            future.cancel(false);
+        }
+        uploads.clear();
+    }
+
+    private <P, T> CompletableFuture<T> submit(Callable<P> decoder, Function<P, T> uploader) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pending.add(future);
+        future.whenComplete((result, error) -> pending.remove(future));
+        try {
+            workers.execute(() -> {
+                P payload;
+                try {
+                    payload = decoder.call();
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                    return;
+                }
+
+                try {
+                    uploads.put(new PendingUpload<>(payload, uploader, future));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private static class PendingUpload<P, T> {
+        private final P payload;
+        private final Function<P, T> uploader;
+        private final CompletableFuture<T> future;
+
+        PendingUpload(P payload, Function<P, T> uploader, CompletableFuture<T> future) {
+            this.payload = payload;
+            this.uploader = uploader;
+            this.future = future;
+        }
+
+        void run() {
+            try {
+                future.complete(uploader.apply(payload));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
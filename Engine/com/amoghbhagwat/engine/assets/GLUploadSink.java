@@ -0,0 +1,18 @@
+package com.amoghbhagwat.engine.assets;
+
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.models.MeshCache;
+import com.amoghbhagwat.game.entities.Texture;
+import com.amoghbhagwat.game.entities.TextureData;
+
+public class GLUploadSink implements UploadSink {
+    @Override
+    public Mesh createMesh(MeshCache.BakedMesh bakedMesh) {
+        return new Mesh(bakedMesh.getVertices(), MeshCache.BAKED_FORMAT, bakedMesh.getIndices());
+    }
+
+    @Override
+    public Texture createTexture(TextureData textureData) {
+        return new Texture(textureData);
+    }
+}
@@ -0,0 +1,16 @@
+package com.amoghbhagwat.engine.assets;
+
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.models.MeshCache;
+import com.amoghbhagwat.game.entities.Texture;
+import com.amoghbhagwat.game.entities.TextureData;
+
+/**
+ * Turns decoded CPU-side assets into GPU resources. Only ever called from the thread draining the
+ * {@link AssetLoader}, which must own the GL context.
+ */
+public interface UploadSink {
+    Mesh createMesh(MeshCache.BakedMesh bakedMesh);
+
+    Texture createTexture(TextureData textureData);
+}
@@ -0,0 +1,198 @@
+package com.amoghbhagwat.engine.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Small headless benchmark harness. Each case is warmed up, then timed over several fixed-length rounds, and its
+ * throughput is the median over the rounds in operations per second. The interquartile range of the rounds, relative
+ * to the median, is kept as the case's spread.
+ * <p>
+ * Results can be saved as a baseline and compared against one later: a case whose throughput fell by more than the
+ * threshold counts as a regression, which {@link #runCommandLine(String[])} turns into a non-zero exit code
+ * for CI. The threshold is widened to twice the spread of a noisy case, so noise alone does not fail the run, and a
+ * case the baseline does not have fails it too. Baselines only mean something on the machine they were recorded on.
+ */
+public class BenchmarkRunner {
+    public static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+    private static final long WARM_UP_NANOS = 1_000_000_000L;
+    private static final long ROUND_NANOS = 100_000_000L;
+    private static final int ROUNDS = 20;
+    private static final String SPREAD_SUFFIX = ".spread";
+
+    private final Map<String, Case> cases;
+    private final Map<String, Double> results;
+    private final Map<String, Double> spreads;
+
+    // Results of the cases are folded in here so the JIT cannot remove the measured work
+    private long sink;
+
+    public interface Case {
+        /**
+         * Runs one operation and returns a value derived from its result.
+         */
+        long run() throws Exception;
+    }
+
+    public BenchmarkRunner() {
+        this.cases = new LinkedHashMap<>();
+        this.results = new LinkedHashMap<>();
+        this.spreads = new LinkedHashMap<>();
+    }
+
+    public void add(String name, Case benchmarkCase) {
+        cases.put(name, benchmarkCase);
+    }
+
+    /**
+     * Runs the cases whose name contains {@code filter}, all of them if it is {@code null}, and prints each result.
+     */
+    public Map<String, Double> run(String filter) throws Exception {
+        for (Map.Entry<String, Case> entry : cases.entrySet()) {
+            String name = entry.getKey();
+            if (filter != null && !name.contains(filter)) {
+                continue;
+            }
+
+            Case benchmarkCase = entry.getValue();
+            runFor(benchmarkCase, WARM_UP_NANOS);
+            double[] rounds = new double[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                rounds[i] = runFor(benchmarkCase, ROUND_NANOS);
+            }
+            record(name, rounds);
+
+            double median = results.get(name);
+            System.out.printf("%-28s %14.1f ops/s  (%.3f us/op, rounds %.1f..%.1f, spread %.1f%%)%n",
+                    name, median, 1e6 / median, rounds[0], rounds[rounds.length - 1], spreads.get(name));
+        }
+        return results;
+    }
+
+    /**
+     * Keeps the median and the spread of a case's rounds, in operations per second. Sorts {@code rounds}.
+     */
+    void record(String name, double[] rounds) {
+        Arrays.sort(rounds);
+        double median = rounds[rounds.length / 2];
+        double interquartileRange = rounds[rounds.length * 3 / 4] - rounds[rounds.length / 4];
+        results.put(name, median);
+        spreads.put(name, interquartileRange / median * 100);
+    }
+
+    private double runFor(Case benchmarkCase, long nanos) throws Exception {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink += benchmarkCase.run();
+            operations++;
+        } while ((elapsed = System.nanoTime() - start) < nanos);
+        return operations * 1e9 / elapsed;
+    }
+
+    public void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            properties.setProperty(result.getKey(), Double.toString(result.getValue()));
+            properties.setProperty(result.getKey() + SPREAD_SUFFIX, Double.toString(spreads.get(result.getKey())));
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Benchmark throughput in operations per second");
+        }
+    }
+
+    /**
+     * Compares the results against a saved baseline and returns a description of every case that got slower by more
+     * than {@code thresholdPercent}, or by more than twice the larger of its spreads in the run and the baseline, and
+     * of every case the baseline does not have. Baseline cases that were not run are skipped.
+     */
+    public List<String> compare(Path baselineFile, double thresholdPercent) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+        return compare(baseline, thresholdPercent);
+    }
+
+    List<String> compare(Properties baseline, double thresholdPercent) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> result : results.entrySet()) {
+            String name = result.getKey();
+            String value = baseline.getProperty(name);
+            if (value == null) {
+                regressions.add(name + ": not in the baseline");
+                continue;
+            }
+
+            double expected = Double.parseDouble(value);
+            double baselineSpread = Double.parseDouble(baseline.getProperty(name + SPREAD_SUFFIX, "0"));
+            double threshold = Math.max(thresholdPercent, 2 * Math.max(spreads.get(name), baselineSpread));
+            double change = (result.getValue() - expected) / expected * 100;
+            if (change < -threshold) {
+                regressions.add(String.format("%s: %.1f ops/s against %.1f in the baseline (%.1f%%, threshold %.1f%%)",
+                        name, result.getValue(), expected, change, threshold));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Runs the benchmarks as a command line tool and exits with 1 on a regression.
+     * <p>
+     * Arguments: {@code [--filter <text>] [--save <file>] [--baseline <file>] [--threshold <percent>]}.
+     */
+    public void runCommandLine(String[] args) throws Exception {
+        String filter = null;
+        Path saveFile = null;
+        Path baselineFile = null;
+        double threshold = DEFAULT_THRESHOLD_PERCENT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--filter":
+                    filter = args[++i];
+                    break;
+                case "--save":
+                    saveFile = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baselineFile = Paths.get(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.err.println("Arguments: [--filter <text>] [--save <file>] [--baseline <file>] [--threshold <percent>]");
+                    System.exit(2);
+            }
+        }
+
+        run(filter);
+        if (saveFile != null) {
+            save(saveFile);
+        }
+        if (baselineFile != null) {
+            List<String> regressions = compare(baselineFile, threshold);
+            for (String regression : regressions) {
+                System.err.println("Regression: " + regression);
+            }
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+            System.out.printf("No regressions beyond %.1f%% against %s%n", threshold, baselineFile);
+        }
+    }
+}
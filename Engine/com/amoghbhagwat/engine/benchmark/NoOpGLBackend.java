@@ -0,0 +1,163 @@
+package com.amoghbhagwat.engine.benchmark;
+
+import com.amoghbhagwat.engine.graph.GLBackend;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Drops every GL call, so the frame path can be measured without a context. Object names are handed out from a
+ * counter and queries read as 0.
+ */
+public class NoOpGLBackend implements GLBackend {
+    private int nextName = 1;
+
+    @Override
+    public void useProgram(int programId) {
+    }
+
+    @Override
+    public void bindVertexArray(int vaoId) {
+    }
+
+    @Override
+    public void activeTexture(int textureUnit) {
+    }
+
+    @Override
+    public void bindTexture(int target, int textureId) {
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+    }
+
+    @Override
+    public void uniform1f(int location, float value) {
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, FloatBuffer value) {
+    }
+
+    @Override
+    public int genBuffer() {
+        return nextName++;
+    }
+
+    @Override
+    public void deleteBuffer(int bufferId) {
+    }
+
+    @Override
+    public void bindBuffer(int target, int bufferId) {
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, FloatBuffer data) {
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int bufferId) {
+    }
+
+    @Override
+    public void bindBufferRange(int target, int index, int bufferId, long offset, long size) {
+    }
+
+    @Override
+    public int genTexture() {
+        return nextName++;
+    }
+
+    @Override
+    public void deleteTexture(int textureId) {
+    }
+
+    @Override
+    public void texBuffer(int target, int internalFormat, int bufferId) {
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instanceCount) {
+    }
+
+    @Override
+    public void enable(int capability) {
+    }
+
+    @Override
+    public void clear(int mask) {
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+    }
+
+    @Override
+    public int getInteger(int name) {
+        return 0;
+    }
+
+    @Override
+    public long getInteger64(int name) {
+        return 0;
+    }
+
+    @Override
+    public void genQueries(int[] queryIds) {
+        for (int i = 0; i < queryIds.length; i++) {
+            queryIds[i] = nextName++;
+        }
+    }
+
+    @Override
+    public void deleteQueries(int[] queryIds) {
+    }
+
+    @Override
+    public void queryCounter(int queryId, int target) {
+    }
+
+    @Override
+    public int getQueryObjecti(int queryId, int name) {
+        return 0;
+    }
+
+    @Override
+    public long getQueryObjectui64(int queryId, int name) {
+        return 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.amoghbhagwat.engine.graph;
+
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Object space axis aligned box and bounding sphere of a mesh. The sphere is centred on the box and just encloses
+ * every vertex.
+ */
+public class Bounds {
+    private final Vector3f min;
+    private final Vector3f max;
+    private final Vector3f center;
+    private float radius;
+
+    public Bounds() {
+        this.min = new Vector3f();
+        this.max = new Vector3f();
+        this.center = new Vector3f();
+        this.radius = 0;
+    }
+
+    public static Bounds fromPositions(float[] positions) {
+        Bounds bounds = new Bounds();
+        int vertexCount = positions.length / 3;
+        if (vertexCount == 0) {
+            return bounds;
+        }
+
+        bounds.min.set(Float.POSITIVE_INFINITY);
+        bounds.max.set(Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vertexCount; i++) {
+            bounds.include(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+        }
+        bounds.min.add(bounds.max, bounds.center).mul(0.5f);
+
+        float radiusSquared = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            radiusSquared = Math.max(radiusSquared, bounds.center.distanceSquared(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]));
+        }
+        bounds.radius = (float) Math.sqrt(radiusSquared);
+
+        return bounds;
+    }
+
+    /**
+     * Reads float positions out of an interleaved vertex block without copying it.
+     */
+    public static Bounds fromVertices(ByteBuffer vertices, int stride, int positionOffset) {
+        Bounds bounds = new Bounds();
+        ByteBuffer buffer = vertices.duplicate().order(ByteOrder.nativeOrder());
+        int start = buffer.position();
+        int vertexCount = buffer.remaining() / stride;
+        if (vertexCount == 0) {
+            return bounds;
+        }
+
+        bounds.min.set(Float.POSITIVE_INFINITY);
+        bounds.max.set(Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < vertexCount; i++) {
+            int offset = start + i * stride + positionOffset;
+            bounds.include(buffer.getFloat(offset), buffer.getFloat(offset + 4), buffer.getFloat(offset + 8));
+        }
+        bounds.min.add(bounds.max, bounds.center).mul(0.5f);
+
+        float radiusSquared = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            int offset = start + i * stride + positionOffset;
+            radiusSquared = Math.max(radiusSquared, bounds.center.distanceSquared(buffer.getFloat(offset), buffer.getFloat(offset + 4), buffer.getFloat(offset + 8)));
+        }
+        bounds.radius = (float) Math.sqrt(radiusSquared);
+
+        return bounds;
+    }
+
+    private void include(float x, float y, float z) {
+        min.set(Math.min(min.x, x), Math.min(min.y, y), Math.min(min.z, z));
+        max.set(Math.max(max.x, x), Math.max(max.y, y), Math.max(max.z, z));
+    }
+
+    public Vector3f getMin() {
+        return min;
+    }
+
+    public Vector3f getMax() {
+        return max;
+    }
+
+    public Vector3f getCenter() {
+        return center;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+}
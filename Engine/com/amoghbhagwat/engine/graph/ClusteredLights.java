@@ -0,0 +1,175 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.engine.light.LightClusters;
+import com.amoghbhagwat.engine.light.LightStore;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL30.GL_R32UI;
+import static org.lwjgl.opengl.GL30.GL_RG32UI;
+import static org.lwjgl.opengl.GL30.GL_RGBA32F;
+
+/**
+ * Point and spot lights for clustered forward shading: the lights of a {@link LightStore} in view space, their
+ * {@link LightClusters} and the three buffer textures the fragment shader reads them from. Lights keep their index in
+ * the store.
+ * <pre>
+ *   lightData     RGBA32F, four texels per light: position and range, color and intensity,
+ *                 attenuation and cosine of the cut off angle (below -1 for point lights), cone direction
+ *   clusterGrid   RG32UI, offset and count per cluster into lightIndices
+ *   lightIndices  R32UI, the light lists of all clusters back to back
+ * </pre>
+ * Packing and binning need no GL context; {@link #init(GLBackend)} creates the buffers.
+ */
+public class ClusteredLights {
+    public static final int LIGHT_DATA_UNIT = 1;
+    public static final int CLUSTER_GRID_UNIT = 2;
+    public static final int LIGHT_INDICES_UNIT = 3;
+
+    private static final int FLOATS_PER_LIGHT = 16;
+
+    private final LightClusters clusters;
+    private final Vector3f scratch;
+    private float[] lightData;
+    private float[] lightSpheres;
+    private int lightCount;
+
+    private float fov;
+    private float aspectRatio;
+    private float zNear;
+    private float zFar;
+
+    private TextureBuffer lightDataBuffer;
+    private TextureBuffer clusterGridBuffer;
+    private TextureBuffer lightIndicesBuffer;
+
+    public ClusteredLights() {
+        this(new LightClusters());
+    }
+
+    public ClusteredLights(LightClusters clusters) {
+        this.clusters = clusters;
+        this.scratch = new Vector3f();
+        this.lightData = new float[64 * FLOATS_PER_LIGHT];
+        this.lightSpheres = new float[64 * 4];
+    }
+
+    public void init(GLBackend backend) {
+        lightDataBuffer = new TextureBuffer(backend, GL_RGBA32F, lightData.length * 4);
+        clusterGridBuffer = new TextureBuffer(backend, GL_RG32UI, clusters.getClusterCount() * 8);
+        lightIndicesBuffer = new TextureBuffer(backend, GL_R32UI, 4096);
+    }
+
+    /**
+     * Sets the projection the clusters divide, only rebuilding the grid when it changed.
+     */
+    public void setProjection(float fov, float aspectRatio, float zNear, float zFar) {
+        if (fov == this.fov && aspectRatio == this.aspectRatio && zNear == this.zNear && zFar == this.zFar) {
+            return;
+        }
+        this.fov = fov;
+        this.aspectRatio = aspectRatio;
+        this.zNear = zNear;
+        this.zFar = zFar;
+        clusters.setProjection(fov, aspectRatio, zNear, zFar);
+    }
+
+    /**
+     * Copies the stored lights into view space.
+     */
+    public void setLights(Matrix4fc viewMatrix, LightStore lights) {
+        lightCount = lights.size();
+        ensureCapacity(lightCount);
+
+        float[] spheres = lights.getSpheres();
+        float[] colors = lights.getColors();
+        float[] attenuations = lights.getAttenuations();
+        float[] directions = lights.getDirections();
+        for (int light = 0; light < lightCount; light++) {
+            int offset = light * 4;
+            int data = light * FLOATS_PER_LIGHT;
+
+            viewMatrix.transformPosition(scratch.set(spheres[offset], spheres[offset + 1], spheres[offset + 2]));
+            lightData[data] = lightSpheres[offset] = scratch.x;
+            lightData[data + 1] = lightSpheres[offset + 1] = scratch.y;
+            lightData[data + 2] = lightSpheres[offset + 2] = scratch.z;
+            lightData[data + 3] = lightSpheres[offset + 3] = spheres[offset + 3];
+
+            System.arraycopy(colors, offset, lightData, data + 4, 4);
+            System.arraycopy(attenuations, offset, lightData, data + 8, 4);
+
+            viewMatrix.transformDirection(scratch.set(directions[offset], directions[offset + 1], directions[offset + 2]));
+            lightData[data + 12] = scratch.x;
+            lightData[data + 13] = scratch.y;
+            lightData[data + 14] = scratch.z;
+            lightData[data + 15] = 0;
+        }
+    }
+
+    private void ensureCapacity(int lights) {
+        if (lights * FLOATS_PER_LIGHT > lightData.length) {
+            int capacity = Math.max(lights, lightData.length / FLOATS_PER_LIGHT * 2);
+            lightData = Arrays.copyOf(lightData, capacity * FLOATS_PER_LIGHT);
+            lightSpheres = Arrays.copyOf(lightSpheres, capacity * 4);
+        }
+    }
+
+    /**
+     * Bins the lights of the last {@link #setLights} into the clusters.
+     */
+    public void assign() {
+        clusters.assign(lightSpheres, lightCount);
+    }
+
+    /**
+     * Sends the lights, the cluster grid and the light lists, one buffer update each.
+     */
+    public void upload() {
+        uploadLights();
+
+        int[] grid = clusters.getClusters();
+        ByteBuffer gridData = clusterGridBuffer.getData();
+        gridData.asIntBuffer().put(grid, 0, clusters.getClusterCount() * 2);
+        clusterGridBuffer.upload(clusters.getClusterCount() * 8);
+
+        int indexBytes = clusters.getLightIndexCount() * 4;
+        lightIndicesBuffer.ensureCapacity(indexBytes);
+        lightIndicesBuffer.getData().asIntBuffer().put(clusters.getLightIndices(), 0, clusters.getLightIndexCount());
+        lightIndicesBuffer.upload(indexBytes);
+    }
+
+    private void uploadLights() {
+        int lightBytes = lightCount * FLOATS_PER_LIGHT * 4;
+        lightDataBuffer.ensureCapacity(lightBytes);
+        lightDataBuffer.getData().asFloatBuffer().put(lightData, 0, lightCount * FLOATS_PER_LIGHT);
+        lightDataBuffer.upload(lightBytes);
+    }
+
+    public void bind(RenderState renderState) {
+        lightDataBuffer.bind(renderState, LIGHT_DATA_UNIT);
+        clusterGridBuffer.bind(renderState, CLUSTER_GRID_UNIT);
+        lightIndicesBuffer.bind(renderState, LIGHT_INDICES_UNIT);
+    }
+
+    public LightClusters getClusters() {
+        return clusters;
+    }
+
+    /**
+     * Lights packed by the last {@link #setLights}.
+     */
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    public void cleanUp() {
+        if (lightDataBuffer != null) {
+            lightDataBuffer.cleanUp();
+            clusterGridBuffer.cleanUp();
+            lightIndicesBuffer.cleanUp();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.amoghbhagwat.engine.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * The GL calls of the frame path: the ones {@link RenderState} filters, plus the buffer, draw and query calls the
+ * renderer issues directly. Swapping the implementation lets a frame run without a context. Shader compilation and
+ * mesh uploads are not part of it.
+ */
+public interface GLBackend {
+    void useProgram(int programId);
+
+    void bindVertexArray(int vaoId);
+
+    void activeTexture(int textureUnit);
+
+    void bindTexture(int target, int textureId);
+
+    void uniform1i(int location, int value);
+
+    void uniform1f(int location, float value);
+
+    void uniform3f(int location, float x, float y, float z);
+
+    void uniform4f(int location, float x, float y, float z, float w);
+
+    void uniformMatrix4fv(int location, FloatBuffer value);
+
+    int genBuffer();
+
+    void deleteBuffer(int bufferId);
+
+    void bindBuffer(int target, int bufferId);
+
+    void bufferData(int target, long size, int usage);
+
+    void bufferSubData(int target, long offset, ByteBuffer data);
+
+    void bufferSubData(int target, long offset, FloatBuffer data);
+
+    void bindBufferBase(int target, int index, int bufferId);
+
+    void bindBufferRange(int target, int index, int bufferId, long offset, long size);
+
+    int genTexture();
+
+    void deleteTexture(int textureId);
+
+    void texBuffer(int target, int internalFormat, int bufferId);
+
+    void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer);
+
+    void vertexAttribDivisor(int index, int divisor);
+
+    void enableVertexAttribArray(int index);
+
+    void drawElements(int mode, int count, int type, long indices);
+
+    void drawElementsInstanced(int mode, int count, int type, long indices, int instanceCount);
+
+    void enable(int capability);
+
+    void clear(int mask);
+
+    void viewport(int x, int y, int width, int height);
+
+    int getInteger(int name);
+
+    long getInteger64(int name);
+
+    void genQueries(int[] queryIds);
+
+    void deleteQueries(int[] queryIds);
+
+    void queryCounter(int queryId, int target);
+
+    int getQueryObjecti(int queryId, int name);
+
+    long getQueryObjectui64(int queryId, int name);
+}
@@ -0,0 +1,194 @@
+package com.amoghbhagwat.engine.graph;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.glBindTexture;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+
+public class LwjglGLBackend implements GLBackend {
+    @Override
+    public void useProgram(int programId) {
+        glUseProgram(programId);
+    }
+
+    @Override
+    public void bindVertexArray(int vaoId) {
+        glBindVertexArray(vaoId);
+    }
+
+    @Override
+    public void activeTexture(int textureUnit) {
+        glActiveTexture(textureUnit);
+    }
+
+    @Override
+    public void bindTexture(int target, int textureId) {
+        glBindTexture(target, textureId);
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        glUniform1i(location, value);
+    }
+
+    @Override
+    public void uniform1f(int location, float value) {
+        glUniform1f(location, value);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        glUniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniformMatrix4fv(int location, FloatBuffer value) {
+        glUniformMatrix4fv(location, false, value);
+    }
+
+    @Override
+    public int genBuffer() {
+        return GL15.glGenBuffers();
+    }
+
+    @Override
+    public void deleteBuffer(int bufferId) {
+        GL15.glDeleteBuffers(bufferId);
+    }
+
+    @Override
+    public void bindBuffer(int target, int bufferId) {
+        GL15.glBindBuffer(target, bufferId);
+    }
+
+    @Override
+    public void bufferData(int target, long size, int usage) {
+        GL15.glBufferData(target, size, usage);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, ByteBuffer data) {
+        GL15.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bufferSubData(int target, long offset, FloatBuffer data) {
+        GL15.glBufferSubData(target, offset, data);
+    }
+
+    @Override
+    public void bindBufferBase(int target, int index, int bufferId) {
+        GL30.glBindBufferBase(target, index, bufferId);
+    }
+
+    @Override
+    public void bindBufferRange(int target, int index, int bufferId, long offset, long size) {
+        GL30.glBindBufferRange(target, index, bufferId, offset, size);
+    }
+
+    @Override
+    public int genTexture() {
+        return GL11.glGenTextures();
+    }
+
+    @Override
+    public void deleteTexture(int textureId) {
+        GL11.glDeleteTextures(textureId);
+    }
+
+    @Override
+    public void texBuffer(int target, int internalFormat, int bufferId) {
+        GL31.glTexBuffer(target, internalFormat, bufferId);
+    }
+
+    @Override
+    public void vertexAttribPointer(int index, int size, int type, boolean normalized, int stride, long pointer) {
+        glVertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void vertexAttribDivisor(int index, int divisor) {
+        GL33.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void enableVertexAttribArray(int index) {
+        glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void drawElements(int mode, int count, int type, long indices) {
+        GL11.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void drawElementsInstanced(int mode, int count, int type, long indices, int instanceCount) {
+        GL31.glDrawElementsInstanced(mode, count, type, indices, instanceCount);
+    }
+
+    @Override
+    public void enable(int capability) {
+        GL11.glEnable(capability);
+    }
+
+    @Override
+    public void clear(int mask) {
+        GL11.glClear(mask);
+    }
+
+    @Override
+    public void viewport(int x, int y, int width, int height) {
+        GL11.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public int getInteger(int name) {
+        return GL11.glGetInteger(name);
+    }
+
+    @Override
+    public long getInteger64(int name) {
+        return GL32.glGetInteger64(name);
+    }
+
+    @Override
+    public void genQueries(int[] queryIds) {
+        GL15.glGenQueries(queryIds);
+    }
+
+    @Override
+    public void deleteQueries(int[] queryIds) {
+        GL15.glDeleteQueries(queryIds);
+    }
+
+    @Override
+    public void queryCounter(int queryId, int target) {
+        GL33.glQueryCounter(queryId, target);
+    }
+
+    @Override
+    public int getQueryObjecti(int queryId, int name) {
+        return GL15.glGetQueryObjecti(queryId, name);
+    }
+
+    @Override
+    public long getQueryObjectui64(int queryId, int name) {
+        return GL33.glGetQueryObjectui64(queryId, name);
+    }
+}
@@ -1,30 +1,37 @@
 package com.amoghbhagwat.engine.graph;
 
 import com.amoghbhagwat.engine.models.Material;
+import com.amoghbhagwat.engine.models.MeshData;
 import com.amoghbhagwat.game.entities.Texture;
 import org.joml.Vector3f;
 import org.lwjgl.system.MemoryUtil;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
-import static org.lwjgl.opengl.GL13.glActiveTexture;
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
 
 public class Mesh {
     private static final Vector3f DEFAULT_COLOUR = new Vector3f(1.0f, 1.0f, 1.0f);
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id = NEXT_ID.getAndIncrement();
 
     private final int vaoId;
     private final int vertexCount;
     private final List<Integer> vboIdList;
+    private final VertexFormat vertexFormat;
+    private final Bounds bounds;
 
     private Material material;
+    private int instanceVboId;
 
     public Mesh(float[] positions, float[] textCoords, float[] normals, int[] indices) {
         FloatBuffer positionsBuffer = null;
@@ -35,6 +42,8 @@ public class Mesh {
         try {
             vertexCount = indices.length;
             vboIdList = new ArrayList<>();
+            vertexFormat = VertexFormat.POSITION_TEXTURE_NORMAL;
+            bounds = Bounds.fromPositions(positions);
 
             vaoId = glGenVertexArrays();
             glBindVertexArray(vaoId);
@@ -74,6 +83,11 @@ public class Mesh {
             glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
             glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
 
+            // Enabled arrays are VAO state, so they only need enabling once
+            glEnableVertexAttribArray(0);
+            glEnableVertexAttribArray(1);
+            glEnableVertexAttribArray(2);
+
             glBindBuffer(GL_ARRAY_BUFFER, 0);
             glBindVertexArray(0);
         } finally {
@@ -92,6 +106,83 @@ public class Mesh {
         }
     }
 
+    public Mesh(MeshData meshData, VertexFormat vertexFormat) {
+        ByteBuffer verticesBuffer = null;
+        ByteBuffer indicesBuffer = null;
+
+        try {
+            int[] indices = meshData.getIndices();
+            verticesBuffer = MemoryUtil.memAlloc(VertexPacker.getPackedSize(meshData, vertexFormat));
+            VertexPacker.pack(meshData, vertexFormat, verticesBuffer).flip();
+            indicesBuffer = MemoryUtil.memAlloc(indices.length * 4);
+            indicesBuffer.asIntBuffer().put(indices);
+
+            vertexCount = indices.length;
+            vboIdList = new ArrayList<>();
+            this.vertexFormat = vertexFormat;
+            this.bounds = Bounds.fromPositions(meshData.getPositions());
+            vaoId = upload(verticesBuffer, indicesBuffer);
+        } finally {
+            if (verticesBuffer != null) {
+                MemoryUtil.memFree(verticesBuffer);
+            }
+            if (indicesBuffer != null) {
+                MemoryUtil.memFree(indicesBuffer);
+            }
+        }
+    }
+
+    /**
+     * Uploads an already interleaved vertex block and a 32 bit index block, e.g. straight from a mapped file.
+     */
+    public Mesh(ByteBuffer interleavedVertices, VertexFormat vertexFormat, ByteBuffer indices) {
+        this.vertexCount = indices.remaining() / 4;
+        this.vboIdList = new ArrayList<>();
+        this.vertexFormat = vertexFormat;
+        this.bounds = Bounds.fromVertices(interleavedVertices, vertexFormat.getStride(), vertexFormat.getOffset(VertexFormat.Usage.POSITION));
+        this.vaoId = upload(interleavedVertices, indices);
+    }
+
+    /**
+     * A mesh with bounds but no GL objects, for headless code such as culling benchmarks. It cannot be drawn or
+     * cleaned up.
+     */
+    public Mesh(Bounds bounds, VertexFormat vertexFormat, int vertexCount) {
+        this.vaoId = 0;
+        this.vertexCount = vertexCount;
+        this.vboIdList = new ArrayList<>();
+        this.vertexFormat = vertexFormat;
+        this.bounds = bounds;
+    }
+
+    private int upload(ByteBuffer interleavedVertices, ByteBuffer indices) {
+        int vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+
+        // Interleaved vertex VBO
+        int vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, interleavedVertices, GL_STATIC_DRAW);
+        List<VertexFormat.Attribute> attributes = vertexFormat.getAttributes();
+        for (int i = 0; i < attributes.size(); i++) {
+            VertexFormat.Attribute attribute = attributes.get(i);
+            glVertexAttribPointer(attribute.getLocation(), attribute.getComponents(), attribute.getType(), attribute.isNormalized(), vertexFormat.getStride(), vertexFormat.getOffset(i));
+            glEnableVertexAttribArray(attribute.getLocation());
+        }
+
+        // Index VBO
+        vboId = glGenBuffers();
+        vboIdList.add(vboId);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glBindVertexArray(0);
+
+        return vaoId;
+    }
+
     public boolean isTextured() {
         return material.getTexture() != null;
     }
@@ -104,6 +195,13 @@ public class Mesh {
         material.setTexture(texture);
     }
 
+    /**
+     * Small sequential id, used to sort draws by mesh.
+     */
+    public int getId() {
+        return id;
+    }
+
     public int getVaoId() {
         return vaoId;
     }
@@ -112,27 +210,52 @@ public class Mesh {
         return vertexCount;
     }
 
-    public void render() {
-        Texture texture = material.getTexture();
-        if (texture != null) {
-            glActiveTexture(GL_TEXTURE0);
-            glBindTexture(GL_TEXTURE_2D, texture.getId());
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public VertexFormat getVertexFormat() {
+        return vertexFormat;
+    }
+
+    public void render(RenderState renderState) {
+        bindState(renderState);
+        renderState.getBackend().drawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+    }
+
+    /**
+     * Points the instance matrix attributes of this mesh's VAO at the given buffer of column major 4x4 matrices.
+     */
+    public void setInstanceBuffer(RenderState renderState, int vboId) {
+        if (instanceVboId == vboId) {
+            return;
         }
 
-        // Draw the mesh
-        glBindVertexArray(getVaoId());
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
-        glEnableVertexAttribArray(2);
+        GLBackend backend = renderState.getBackend();
+        renderState.bindVertexArray(vaoId);
+        backend.bindBuffer(GL_ARRAY_BUFFER, vboId);
+        for (int column = 0; column < 4; column++) {
+            int location = VertexFormat.INSTANCE_MATRIX_LOCATION + column;
+            backend.vertexAttribPointer(location, 4, GL_FLOAT, false, 16 * 4, column * 4 * 4);
+            backend.vertexAttribDivisor(location, 1);
+            backend.enableVertexAttribArray(location);
+        }
+        backend.bindBuffer(GL_ARRAY_BUFFER, 0);
 
-        glDrawElements(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0);
+        instanceVboId = vboId;
+    }
 
-        // Restore state
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glDisableVertexAttribArray(2);
-        glBindVertexArray(0);
-        glBindTexture(GL_TEXTURE_2D, 0);
+    public void renderInstanced(RenderState renderState, int instanceCount) {
+        bindState(renderState);
+        renderState.getBackend().drawElementsInstanced(GL_TRIANGLES, getVertexCount(), GL_UNSIGNED_INT, 0, instanceCount);
+    }
+
+    private void bindState(RenderState renderState) {
+        Texture texture = material.getTexture();
+        if (texture != null) {
+            renderState.bindTexture(0, texture.getId());
+        }
+        renderState.bindVertexArray(vaoId);
     }
 
     public Material getMaterial() {
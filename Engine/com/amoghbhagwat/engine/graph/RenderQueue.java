@@ -0,0 +1,189 @@
+package com.amoghbhagwat.engine.graph;
+
+import java.util.Arrays;
+
+/**
+ * Draw submissions packed as 64 bit sort keys next to the index of the submitted item, radix sorted so that draws
+ * sharing state end up adjacent.
+ * <p>
+ * Opaque keys are {@code layer(4) | shader(8) | material(16) | mesh(16) | depth(20)}, so state changes are minimised
+ * first and equal state draws go front to back. Transparent keys move the inverted depth right after the layer so
+ * they draw back to front regardless of state.
+ */
+public class RenderQueue {
+    public static final int DEPTH_BITS = 20;
+    public static final int MESH_BITS = 16;
+    public static final int MATERIAL_BITS = 16;
+    public static final int SHADER_BITS = 8;
+    public static final int LAYER_BITS = 4;
+
+    private static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int PASSES = 64 / RADIX_BITS;
+    private static final int INSERTION_SORT_THRESHOLD = 64;
+
+    private long[] keys;
+    private int[] items;
+    private long[] keysScratch;
+    private int[] itemsScratch;
+    private final int[] counts;
+    private int size;
+
+    public RenderQueue() {
+        this(1024);
+    }
+
+    public RenderQueue(int capacity) {
+        this.keys = new long[capacity];
+        this.items = new int[capacity];
+        this.keysScratch = new long[capacity];
+        this.itemsScratch = new int[capacity];
+        this.counts = new int[RADIX];
+    }
+
+    public static long opaqueKey(int layer, int shader, int material, int mesh, float depth) {
+        long key = layer & ((1L << LAYER_BITS) - 1);
+        key = (key << SHADER_BITS) | (shader & ((1L << SHADER_BITS) - 1));
+        key = (key << MATERIAL_BITS) | (material & ((1L << MATERIAL_BITS) - 1));
+        key = (key << MESH_BITS) | (mesh & ((1L << MESH_BITS) - 1));
+        return (key << DEPTH_BITS) | quantizeDepth(depth);
+    }
+
+    public static long transparentKey(int layer, int shader, int material, int mesh, float depth) {
+        long key = layer & ((1L << LAYER_BITS) - 1);
+        key = (key << DEPTH_BITS) | (MAX_DEPTH - quantizeDepth(depth));
+        key = (key << SHADER_BITS) | (shader & ((1L << SHADER_BITS) - 1));
+        key = (key << MATERIAL_BITS) | (material & ((1L << MATERIAL_BITS) - 1));
+        return (key << MESH_BITS) | (mesh & ((1L << MESH_BITS) - 1));
+    }
+
+    /**
+     * Layer, shader, material and mesh of an opaque key, i.e. everything but the depth.
+     */
+    public static long opaqueState(long key) {
+        return key >>> DEPTH_BITS;
+    }
+
+    /**
+     * Shader bits of an opaque key.
+     */
+    public static int opaqueShader(long key) {
+        return (int) (key >>> (DEPTH_BITS + MESH_BITS + MATERIAL_BITS)) & ((1 << SHADER_BITS) - 1);
+    }
+
+    /**
+     * @param depth view depth normalised to [0, 1], clamped
+     */
+    public static int quantizeDepth(float depth) {
+        if (!(depth > 0)) {
+            return 0;
+        }
+        if (depth >= 1) {
+            return MAX_DEPTH;
+        }
+        return (int) (depth * MAX_DEPTH);
+    }
+
+    public void submit(long key, int item) {
+        if (size == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            items = Arrays.copyOf(items, capacity);
+            keysScratch = new long[capacity];
+            itemsScratch = new int[capacity];
+        }
+        keys[size] = key;
+        items[size] = item;
+        size++;
+    }
+
+    /**
+     * Stable LSD radix sort on unsigned keys, 16 bits per pass. Passes where every key has the same digit are skipped.
+     * Small queues use an insertion sort instead.
+     */
+    public void sort() {
+        if (size < INSERTION_SORT_THRESHOLD) {
+            insertionSort();
+            return;
+        }
+
+        for (int pass = 0; pass < PASSES; pass++) {
+            int shift = pass * RADIX_BITS;
+
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+            }
+            if (size == 0 || counts[(int) (keys[0] >>> shift) & (RADIX - 1)] == size) {
+                continue;
+            }
+
+            int sum = 0;
+            for (int d = 0; d < RADIX; d++) {
+                int count = counts[d];
+                counts[d] = sum;
+                sum += count;
+            }
+
+            for (int i = 0; i < size; i++) {
+                int digit = (int) (keys[i] >>> shift) & (RADIX - 1);
+                int target = counts[digit]++;
+                keysScratch[target] = keys[i];
+                itemsScratch[target] = items[i];
+            }
+
+            long[] swapKeys = keys;
+            keys = keysScratch;
+            keysScratch = swapKeys;
+            int[] swapItems = items;
+            items = itemsScratch;
+            itemsScratch = swapItems;
+        }
+    }
+
+    private void insertionSort() {
+        for (int i = 1; i < size; i++) {
+            long key = keys[i];
+            int item = items[i];
+            int j = i - 1;
+            while (j >= 0 && Long.compareUnsigned(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                items[j + 1] = items[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            items[j + 1] = item;
+        }
+    }
+
+    /**
+     * End (exclusive) of the run of opaque entries starting at {@code start} that share all state bits. Ids are cut to
+     * their field width, so entries with equal bits can still have different meshes or materials; callers that draw a
+     * run with one mesh have to compare the entries too.
+     */
+    public int findStateRunEnd(int start) {
+        long state = opaqueState(keys[start]);
+        int end = start + 1;
+        while (end < size && opaqueState(keys[end]) == state) {
+            end++;
+        }
+        return end;
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public int getItem(int index) {
+        return items[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
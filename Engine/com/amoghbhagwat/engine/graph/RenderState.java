@@ -0,0 +1,166 @@
+package com.amoghbhagwat.engine.graph;
+
+import org.joml.Matrix4f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+
+/**
+ * Tracks the bound program, VAO and textures plus every program's uploaded uniform values, and drops GL calls that
+ * would not change anything. Issued and elided calls are counted per frame.
+ */
+public class RenderState {
+    private static final int UNKNOWN = -1;
+    private static final int MAX_TEXTURE_UNITS = 16;
+
+    private final GLBackend backend;
+    private final FloatBuffer matrixBuffer;
+    private final int[] boundTextures;
+
+    private int program;
+    private int vertexArray;
+    private int activeTextureUnit;
+
+    private int issuedCalls;
+    private int elidedCalls;
+
+    public RenderState() {
+        this(new LwjglGLBackend());
+    }
+
+    public RenderState(GLBackend backend) {
+        this.backend = backend;
+        this.matrixBuffer = ByteBuffer.allocateDirect(16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        this.boundTextures = new int[MAX_TEXTURE_UNITS];
+        invalidate();
+    }
+
+    /**
+     * Resets the per-frame counters and forgets the bindings, since code outside the renderer (e.g. resource
+     * uploads) may have changed them since the last frame. Uniform values stay cached, they belong to the programs.
+     */
+    public void beginFrame() {
+        issuedCalls = 0;
+        elidedCalls = 0;
+        invalidate();
+    }
+
+    public void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeTextureUnit = UNKNOWN;
+        Arrays.fill(boundTextures, UNKNOWN);
+    }
+
+    public void useProgram(int programId) {
+        if (program == programId) {
+            elidedCalls++;
+            return;
+        }
+        backend.useProgram(programId);
+        program = programId;
+        issuedCalls++;
+    }
+
+    public void bindVertexArray(int vaoId) {
+        if (vertexArray == vaoId) {
+            elidedCalls++;
+            return;
+        }
+        backend.bindVertexArray(vaoId);
+        vertexArray = vaoId;
+        issuedCalls++;
+    }
+
+    public void bindTexture(int unit, int textureId) {
+        bindTexture(unit, GL_TEXTURE_2D, textureId);
+    }
+
+    /**
+     * Binds a texture of any target. Units are tracked by texture name only, so keep each unit to one target.
+     */
+    public void bindTexture(int unit, int target, int textureId) {
+        if (boundTextures[unit] == textureId) {
+            elidedCalls++;
+            return;
+        }
+        if (activeTextureUnit != unit) {
+            backend.activeTexture(GL_TEXTURE0 + unit);
+            activeTextureUnit = unit;
+            issuedCalls++;
+        }
+        backend.bindTexture(target, textureId);
+        boundTextures[unit] = textureId;
+        issuedCalls++;
+    }
+
+    /**
+     * Uploads a uniform of the bound program unless its slot in the program's cache already holds the value. A slot
+     * of {@link UniformCache#NO_SLOT} is ignored.
+     */
+    public void uniform(UniformCache cache, int slot, int value) {
+        if (!cache.update(slot, value)) {
+            elidedCalls++;
+            return;
+        }
+        backend.uniform1i(cache.getLocation(slot), value);
+        issuedCalls++;
+    }
+
+    public void uniform(UniformCache cache, int slot, float value) {
+        if (!cache.update(slot, value)) {
+            elidedCalls++;
+            return;
+        }
+        backend.uniform1f(cache.getLocation(slot), value);
+        issuedCalls++;
+    }
+
+    public void uniform(UniformCache cache, int slot, float x, float y, float z) {
+        if (!cache.update(slot, x, y, z)) {
+            elidedCalls++;
+            return;
+        }
+        backend.uniform3f(cache.getLocation(slot), x, y, z);
+        issuedCalls++;
+    }
+
+    public void uniform(UniformCache cache, int slot, float x, float y, float z, float w) {
+        if (!cache.update(slot, x, y, z, w)) {
+            elidedCalls++;
+            return;
+        }
+        backend.uniform4f(cache.getLocation(slot), x, y, z, w);
+        issuedCalls++;
+    }
+
+    public void uniform(UniformCache cache, int slot, Matrix4f value) {
+        if (!cache.update(slot, value)) {
+            elidedCalls++;
+            return;
+        }
+        value.get(0, matrixBuffer);
+        backend.uniformMatrix4fv(cache.getLocation(slot), matrixBuffer);
+        issuedCalls++;
+    }
+
+    /**
+     * The backend the calls go to, for the frame path calls this class does not filter, e.g. draws.
+     */
+    public GLBackend getBackend() {
+        return backend;
+    }
+
+    public int getIssuedCalls() {
+        return issuedCalls;
+    }
+
+    public int getElidedCalls() {
+        return elidedCalls;
+    }
+}
@@ -0,0 +1,48 @@
+package com.amoghbhagwat.engine.graph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Variant keys of the scene shaders and the defines they compile with. A key is a bitmask of feature flags, so the
+ * smallest program for a material and light setup is one key away: untextured materials skip the texture lookup and
+ * lights that are off are compiled out instead of evaluated at zero intensity.
+ */
+public final class SceneVariants {
+    public static final int TEXTURED = 1;
+    public static final int INSTANCED = 1 << 1;
+    public static final int DIRECTIONAL_LIGHT = 1 << 2;
+    /**
+     * Point and spot lights read from the clusters of {@link ClusteredLights}.
+     */
+    public static final int CLUSTERED_LIGHTS = 1 << 3;
+    /**
+     * Point and spot lights read from the per-item lists of {@link com.amoghbhagwat.engine.light.ItemLights}, for
+     * single draws.
+     */
+    public static final int ITEM_LIGHTS = 1 << 4;
+
+    /**
+     * Number of distinct keys, for sizing a {@link ShaderVariants}.
+     */
+    public static final int COUNT = 1 << 5;
+
+    private SceneVariants() {
+    }
+
+    public static Map<String, String> getDefines(int variant) {
+        Map<String, String> defines = new LinkedHashMap<>();
+        putFlag(defines, variant, TEXTURED, "TEXTURED");
+        putFlag(defines, variant, INSTANCED, "INSTANCED");
+        putFlag(defines, variant, DIRECTIONAL_LIGHT, "DIRECTIONAL_LIGHT");
+        putFlag(defines, variant, CLUSTERED_LIGHTS, "CLUSTERED_LIGHTS");
+        putFlag(defines, variant, ITEM_LIGHTS, "ITEM_LIGHTS");
+        return defines;
+    }
+
+    private static void putFlag(Map<String, String> defines, int variant, int flag, String name) {
+        if ((variant & flag) != 0) {
+            defines.put(name, "");
+        }
+    }
+}
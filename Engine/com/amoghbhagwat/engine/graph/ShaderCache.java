@@ -0,0 +1,184 @@
+package com.amoghbhagwat.engine.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache of linked program binaries, one file per program name, laid out as
+ * <pre>
+ *   header   magic, version, key, binary format, binary length
+ *   binary   as returned by glGetProgramBinary
+ *   checksum CRC32 of everything before it
+ * </pre>
+ * The key covers the shader sources, the defines they were compiled with and the driver, so editing a shader or
+ * updating the driver makes the cached file stale; a stale or damaged file is deleted when it is found. Binaries are
+ * only valid for the driver that produced them, which the key takes care of. Needs no GL context.
+ */
+public class ShaderCache {
+    public static final String FILE_EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x4253574C; // "LWSB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int CHECKSUM_SIZE = 8;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Path directory;
+
+    public ShaderCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * 64 bit FNV-1a hash over every part, each prefixed with its length so that moving text from one part to the next
+     * changes the key. Parts may be {@code null}.
+     */
+    public static long computeKey(String... parts) {
+        long hash = FNV_OFFSET_BASIS;
+        for (String part : parts) {
+            byte[] bytes = part != null ? part.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            hash = hashInt(hash, part != null ? bytes.length : -1);
+            for (byte b : bytes) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static long hashInt(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public Path getCacheFile(String programName) {
+        String name = programName.replaceAll("^[/\\\\]+", "").replaceAll("[/\\\\:]", "_");
+        return directory.resolve(name + FILE_EXTENSION);
+    }
+
+    /**
+     * Reads the cached binary of a program, or returns {@code null} when there is none for this key. A file that is
+     * stale or damaged is invalidated on the way.
+     */
+    public ProgramBinary load(String programName, long key) throws IOException {
+        Path file = getCacheFile(programName);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        ProgramBinary binary = read(file, key);
+        if (binary == null) {
+            invalidate(programName);
+        }
+        return binary;
+    }
+
+    private static ProgramBinary read(Path file, long key) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + CHECKSUM_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            buffer = ByteBuffer.allocateDirect((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading
+            }
+            buffer.flip();
+        }
+
+        if (buffer.limit() < HEADER_SIZE + CHECKSUM_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getLong(8) != key) {
+            return null;
+        }
+        int format = buffer.getInt(16);
+        int length = buffer.getInt(20);
+        if (length < 0 || HEADER_SIZE + (long) length + CHECKSUM_SIZE != buffer.limit()) {
+            return null;
+        }
+
+        int checksumOffset = HEADER_SIZE + length;
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(0).limit(checksumOffset);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (crc.getValue() != buffer.getLong(checksumOffset)) {
+            return null;
+        }
+
+        ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_SIZE).limit(checksumOffset);
+        return new ProgramBinary(format, data.slice());
+    }
+
+    public void store(String programName, long key, ProgramBinary binary) throws IOException {
+        ByteBuffer data = binary.getData().duplicate();
+        int length = data.remaining();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + length + CHECKSUM_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(key);
+        buffer.putInt(binary.getFormat());
+        buffer.putInt(length);
+        buffer.put(data);
+
+        ByteBuffer payload = buffer.duplicate();
+        payload.flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path file = getCacheFile(programName);
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the cached binary of a program, e.g. after the driver rejected it.
+     */
+    public void invalidate(String programName) throws IOException {
+        Files.deleteIfExists(getCacheFile(programName));
+    }
+
+    public static class ProgramBinary {
+        private final int format;
+        private final ByteBuffer data;
+
+        /**
+         * @param data direct buffer holding the binary between its position and limit
+         */
+        public ProgramBinary(int format, ByteBuffer data) {
+            this.format = format;
+            this.data = data;
+        }
+
+        public int getFormat() {
+            return format;
+        }
+
+        public ByteBuffer getData() {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.engine.Utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Builds shader programs from sources run through a {@link ShaderPreprocessor}, restoring them from a {@link ShaderCache} when the driver supports program binaries and
+ * compiling from source otherwise or when the cached binary is stale or rejected. Freshly compiled programs are
+ * stored in the cache for the next launch.
+ * <p>
+ * During development the sources can be read from a directory instead of the classpath with
+ * {@link #watchSourceDirectory(Path)}: a background thread then watches the files and reads the new sources when one
+ * changes, and {@link #processReloads()} rebuilds the affected programs on the GL thread, keeping the old program if
+ * the new one fails to compile. Programs are handed out as {@link ProgramHandle}s so that users pick up a reloaded
+ * program on their next {@link ProgramHandle#get()}. Edits to included files reload every program including them.
+ */
+public class ShaderManager {
+    private static final long SETTLE_MILLIS = 50;
+
+    private final RenderState renderState;
+    private final ShaderCache cache;
+    private final boolean binarySupported;
+    private final String driver;
+    private final List<ProgramHandle> programs;
+    private final ShaderPreprocessor preprocessor;
+
+    private volatile Path sourceDirectory;
+    private WatchService watchService;
+    private final Set<Path> watchedDirectories = new HashSet<>();
+    private Thread watcherThread;
+
+    private int cacheHits;
+    private int cacheMisses;
+
+    public ShaderManager(RenderState renderState, ShaderCache cache) {
+        this.renderState = renderState;
+        this.cache = cache;
+        this.binarySupported = ShaderProgram.isBinarySupported();
+        this.driver = glGetString(GL_VENDOR) + "\n" + glGetString(GL_RENDERER) + "\n" + glGetString(GL_VERSION);
+        this.programs = new CopyOnWriteArrayList<>();
+        this.preprocessor = new ShaderPreprocessor(this::readSource);
+    }
+
+    /**
+     * Reads shader resources from {@code directory}, e.g. {@code Shaders} for {@code /shaders/vertex.glsl}, and
+     * reloads programs whenever one of their files changes. Call before loading programs.
+     */
+    public void watchSourceDirectory(Path directory) throws IOException {
+        this.sourceDirectory = directory;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.watcherThread = new Thread(this::watchSources, "SHADER_WATCHER");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * @param setup creates the uniforms of a freshly built program; runs again for every reload
+     */
+    public ProgramHandle load(String name, String vertexResource, String fragmentResource, ProgramSetup setup) throws Exception {
+        return load(name, vertexResource, fragmentResource, Collections.emptyMap(), setup);
+    }
+
+    /**
+     * @param defines injected into both sources, see {@link ShaderPreprocessor}
+     */
+    public ProgramHandle load(String name, String vertexResource, String fragmentResource, Map<String, String> defines,
+                              ProgramSetup setup) throws Exception {
+        ProgramHandle handle = new ProgramHandle(name, vertexResource, fragmentResource, defines, setup);
+        Sources sources = preprocess(handle);
+        handle.program = build(handle, sources);
+        handle.dependencies = sources.dependencies;
+
+        watch(sources.dependencies);
+        programs.add(handle);
+        return handle;
+    }
+
+    /**
+     * Variants of one program selected by an integer key, built on first use. See {@link ShaderVariants}.
+     */
+    public ShaderVariants loadVariants(String name, String vertexResource, String fragmentResource, int variantCount,
+                                       ShaderVariants.DefineMapper defines, ShaderVariants.Setup setup) {
+        return new ShaderVariants(this, name, vertexResource, fragmentResource, variantCount, defines, setup);
+    }
+
+    private Sources preprocess(ProgramHandle handle) throws Exception {
+        Set<String> dependencies = new LinkedHashSet<>();
+        String vertexSource = preprocessor.process(handle.vertexResource, handle.defines, dependencies);
+        Set<String> fragmentDependencies = new LinkedHashSet<>();
+        String fragmentSource = preprocessor.process(handle.fragmentResource, handle.defines, fragmentDependencies);
+        dependencies.addAll(fragmentDependencies);
+        return new Sources(vertexSource, fragmentSource, dependencies);
+    }
+
+    private ShaderProgram build(ProgramHandle handle, Sources sources) throws Exception {
+        long key = ShaderCache.computeKey(sources.vertex, sources.fragment, handle.defines.toString(), driver);
+
+        if (binarySupported) {
+            ShaderCache.ProgramBinary binary = cache.load(handle.name, key);
+            if (binary != null) {
+                ShaderProgram program = new ShaderProgram(renderState);
+                if (program.loadBinary(binary)) {
+                    setUp(handle, program);
+                    cacheHits++;
+                    return program;
+                }
+                // Rejected by the driver, e.g. after an update that kept the version string
+                program.cleanUp();
+                cache.invalidate(handle.name);
+            }
+        }
+
+        cacheMisses++;
+        ShaderProgram program = new ShaderProgram(renderState);
+        try {
+            program.createVertexShader(sources.vertex);
+            program.createFragmentShader(sources.fragment);
+            if (binarySupported) {
+                program.setBinaryRetrievable();
+            }
+            program.link();
+        } catch (Exception e) {
+            program.cleanUp();
+            throw e;
+        }
+        setUp(handle, program);
+
+        if (binarySupported) {
+            try {
+                cache.store(handle.name, key, program.getBinary());
+            } catch (IOException e) {
+                System.err.println("Could not cache shader program " + handle.name + ": " + e.getMessage());
+            }
+        }
+        return program;
+    }
+
+    private void setUp(ProgramHandle handle, ShaderProgram program) throws Exception {
+        try {
+            handle.setup.setUp(program);
+        } catch (Exception e) {
+            program.cleanUp();
+            throw e;
+        }
+        if (sourceDirectory != null) {
+            program.validate();
+        }
+    }
+
+    /**
+     * Rebuilds the programs whose sources changed since the last call. Must run on the GL thread, e.g. once a frame.
+     */
+    public void processReloads() {
+        for (ProgramHandle handle : programs) {
+            Sources sources = handle.pendingSources.getAndSet(null);
+            if (sources == null) {
+                continue;
+            }
+
+            try {
+                ShaderProgram program = build(handle, sources);
+                handle.program.cleanUp();
+                handle.program = program;
+                handle.dependencies = sources.dependencies;
+                watch(sources.dependencies);
+                System.out.println("Reloaded shader program " + handle.name);
+            } catch (Exception e) {
+                System.err.println("Could not reload shader program " + handle.name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private String readSource(String resource) throws Exception {
+        if (sourceDirectory == null) {
+            return Utils.loadResource(resource);
+        }
+        return new String(Files.readAllBytes(resolve(resource)), StandardCharsets.UTF_8);
+    }
+
+    private Path resolve(String resource) {
+        return sourceDirectory.resolve(resource.replaceAll("^[/\\\\]+", "")).toAbsolutePath().normalize();
+    }
+
+    private synchronized void watch(Set<String> resources) throws IOException {
+        if (watchService == null) {
+            return;
+        }
+        for (String resource : resources) {
+            Path directory = resolve(resource).getParent();
+            if (watchedDirectories.add(directory)) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private void watchSources() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // Editors often write a file in several steps
+                Thread.sleep(SETTLE_MILLIS);
+
+                Set<Path> changed = new HashSet<>();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path) {
+                        changed.add(directory.resolve((Path) event.context()).toAbsolutePath().normalize());
+                    }
+                }
+                key.reset();
+
+                for (ProgramHandle handle : programs) {
+                    if (dependsOn(handle, changed)) {
+                        try {
+                            handle.pendingSources.set(preprocess(handle));
+                        } catch (Exception e) {
+                            System.err.println("Could not read shader sources of " + handle.name + ": " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private boolean dependsOn(ProgramHandle handle, Set<Path> changed) {
+        for (String resource : handle.dependencies) {
+            if (changed.contains(resolve(resource))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Programs restored from cached binaries and built from sources so far.
+     */
+    public int getCacheHits() {
+        return cacheHits;
+    }
+
+    public int getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public void cleanUp() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        for (ProgramHandle handle : programs) {
+            handle.program.cleanUp();
+        }
+        programs.clear();
+    }
+
+    public interface ProgramSetup {
+        void setUp(ShaderProgram program) throws Exception;
+    }
+
+    private static class Sources {
+        private final String vertex;
+        private final String fragment;
+        private final Set<String> dependencies;
+
+        private Sources(String vertex, String fragment, Set<String> dependencies) {
+            this.vertex = vertex;
+            this.fragment = fragment;
+            this.dependencies = dependencies;
+        }
+    }
+
+    public static class ProgramHandle {
+        private final String name;
+        private final String vertexResource;
+        private final String fragmentResource;
+        private final Map<String, String> defines;
+        private final ProgramSetup setup;
+        private final AtomicReference<Sources> pendingSources;
+        private volatile Set<String> dependencies;
+        private ShaderProgram program;
+
+        private ProgramHandle(String name, String vertexResource, String fragmentResource, Map<String, String> defines,
+                              ProgramSetup setup) {
+            this.name = name;
+            this.vertexResource = vertexResource;
+            this.fragmentResource = fragmentResource;
+            this.defines = defines;
+            this.setup = setup;
+            this.pendingSources = new AtomicReference<>();
+        }
+
+        /**
+         * The current program, which changes when it is reloaded. Only valid on the GL thread.
+         */
+        public ShaderProgram get() {
+            return program;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.amoghbhagwat.engine.graph;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Expands {@code #include "file"} directives and injects {@code #define}s right after the {@code #version} line, so
+ * one source can be compiled into several variants with {@code #ifdef} blocks.
+ * <p>
+ * Include paths are resolved relative to the including file, and every file is included at most once per program, so
+ * headers need no guards. {@code #line} directives keep compiler messages pointing at the original lines; the source
+ * string number in a message is the position of the file in the {@code included} set passed to
+ * {@link #process(String, Map, Set)}. Needs no GL context.
+ */
+public class ShaderPreprocessor {
+    private static final Pattern INCLUDE = Pattern.compile("^\\s*#\\s*include\\s+\"([^\"]+)\"\\s*(//.*)?$");
+    private static final Pattern VERSION = Pattern.compile("^\\s*#\\s*version\\b.*$");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final SourceReader reader;
+
+    public ShaderPreprocessor(SourceReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param resource the main source, e.g. {@code /shaders/fragment.glsl}
+     * @param defines  names and values to define; an empty value defines a flag
+     * @param included receives every resource read, the main one first
+     */
+    public String process(String resource, Map<String, String> defines, Set<String> included) throws Exception {
+        StringBuilder output = new StringBuilder();
+        List<String> files = new ArrayList<>();
+        files.add(resource);
+        included.add(resource);
+
+        String[] lines = split(reader.read(resource));
+        boolean versionFound = false;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (!versionFound && VERSION.matcher(line).matches()) {
+                versionFound = true;
+                output.append(line).append('\n');
+                appendDefines(output, defines);
+                output.append("#line ").append(i + 2).append(" 0\n");
+                continue;
+            }
+            if (!versionFound && !line.trim().isEmpty() && !line.trim().startsWith("//")) {
+                throw new Exception(resource + ":" + (i + 1) + ": #version has to come before anything else");
+            }
+            appendLine(output, resource, i, line, 0, files, included);
+        }
+
+        if (!versionFound) {
+            throw new Exception(resource + ": missing #version");
+        }
+        return output.toString();
+    }
+
+    private void include(StringBuilder output, String resource, List<String> files, Set<String> included) throws Exception {
+        int sourceNumber = files.size();
+        files.add(resource);
+
+        String[] lines = split(reader.read(resource));
+        output.append("#line 1 ").append(sourceNumber).append('\n');
+        for (int i = 0; i < lines.length; i++) {
+            if (VERSION.matcher(lines[i]).matches()) {
+                throw new Exception(resource + ":" + (i + 1) + ": included files cannot have a #version");
+            }
+            appendLine(output, resource, i, lines[i], sourceNumber, files, included);
+        }
+    }
+
+    private void appendLine(StringBuilder output, String resource, int index, String line, int sourceNumber,
+                            List<String> files, Set<String> included) throws Exception {
+        Matcher matcher = INCLUDE.matcher(line);
+        if (!matcher.matches()) {
+            output.append(line).append('\n');
+            return;
+        }
+
+        String target = resolve(resource, matcher.group(1));
+        if (included.add(target)) {
+            include(output, target, files, included);
+        }
+        output.append("#line ").append(index + 2).append(' ').append(sourceNumber).append('\n');
+    }
+
+    private static void appendDefines(StringBuilder output, Map<String, String> defines) {
+        for (Map.Entry<String, String> define : defines.entrySet()) {
+            if (!IDENTIFIER.matcher(define.getKey()).matches()) {
+                throw new IllegalArgumentException("Not a valid define name: " + define.getKey());
+            }
+            output.append("#define ").append(define.getKey());
+            if (define.getValue() != null && !define.getValue().isEmpty()) {
+                output.append(' ').append(define.getValue());
+            }
+            output.append('\n');
+        }
+    }
+
+    /**
+     * Resolves {@code path} against the directory of {@code resource}, or against the root when it starts with a
+     * slash.
+     */
+    static String resolve(String resource, String path) {
+        return URI.create(resource).resolve(path).normalize().getPath();
+    }
+
+    private static String[] split(String source) {
+        return source.split("\r?\n", -1);
+    }
+
+    public interface SourceReader {
+        String read(String resource) throws Exception;
+    }
+}
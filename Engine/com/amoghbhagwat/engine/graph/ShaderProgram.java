@@ -1,126 +1,122 @@
 package com.amoghbhagwat.engine.graph;
 
-import com.amoghbhagwat.engine.light.DirectionalLight;
-import com.amoghbhagwat.engine.light.PointLight;
-import com.amoghbhagwat.engine.light.SpotLight;
-import com.amoghbhagwat.engine.models.Material;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
-import org.lwjgl.system.MemoryStack;
+import org.lwjgl.opengl.GLCapabilities;
 
-import java.nio.FloatBuffer;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL41.*;
 
 public class ShaderProgram {
     private final int programId;
+    private final RenderState renderState;
     private final Map<String, Integer> uniforms;
+    private final UniformCache uniformCache;
     private int vertexShaderId;
     private int fragmentShaderId;
 
-    public ShaderProgram() throws Exception {
-        this.programId = GL20.glCreateProgram();
+    public ShaderProgram(RenderState renderState) throws Exception {
+        this(renderState, GL20.glCreateProgram());
+    }
+
+    /**
+     * Wraps an existing program. Together with {@link #findUniformLocation(String)} this lets the uniform path run
+     * against a {@link RenderState} without a GL context.
+     */
+    protected ShaderProgram(RenderState renderState, int programId) throws Exception {
+        this.programId = programId;
+        this.renderState = renderState;
         this.uniforms = new HashMap<>();
+        this.uniformCache = new UniformCache();
 
         if (programId == 0) {
             throw new Exception("Could not create shader!");
         }
     }
 
-    public void createUniform(String uniformName) throws Exception {
-        int uniformLocation = glGetUniformLocation(programId, uniformName);
+    /**
+     * Looks up a uniform and returns its handle, a compact slot of this program rather than the GL location. Setters
+     * taking the handle skip the name lookup, so per frame code should keep the handle instead of the name. Setting
+     * {@link UniformCache#NO_SLOT} does nothing.
+     */
+    public int createUniform(String uniformName) throws Exception {
+        int uniformLocation = findUniformLocation(uniformName);
         if (uniformLocation < 0) {
             throw new Exception("Could not find uniform: " + uniformName);
         }
 
-        uniforms.put(uniformName, uniformLocation);
-    }
-
-    public void createMaterialUniform(String uniformName) throws Exception {
-        createUniform(uniformName + ".ambient");
-        createUniform(uniformName + ".diffuse");
-        createUniform(uniformName + ".specular");
-        createUniform(uniformName + ".hasTexture");
-        createUniform(uniformName + ".reflectance");
+        int uniform = uniformCache.addUniform(uniformLocation);
+        uniforms.put(uniformName, uniform);
+        return uniform;
     }
 
-    public void createPointLightUniform(String uniformName) throws Exception {
-        createUniform(uniformName + ".color");
-        createUniform(uniformName + ".position");
-        createUniform(uniformName + ".intensity");
-        createUniform(uniformName + ".attenuation.constant");
-        createUniform(uniformName + ".attenuation.linear");
-        createUniform(uniformName + ".attenuation.exponent");
+    protected int findUniformLocation(String uniformName) {
+        return glGetUniformLocation(programId, uniformName);
     }
 
-    public void createSpotLightUniform(String uniformName) throws Exception {
-        createPointLightUniform(uniformName + ".pointLight");
-        createUniform(uniformName + ".coneDirection");
-        createUniform(uniformName + ".cutOffAngle");
-    }
+    /**
+     * Connects a uniform block to a binding point, after checking that the block has the size the Java side writes.
+     */
+    public void bindUniformBlock(String blockName, int binding, int expectedSize) throws Exception {
+        int blockIndex = glGetUniformBlockIndex(programId, blockName);
+        if (blockIndex == GL_INVALID_INDEX) {
+            throw new Exception("Could not find uniform block: " + blockName);
+        }
 
-    public void createDirectionalLightUniform(String uniformName) throws Exception {
-        createUniform(uniformName + ".color");
-        createUniform(uniformName + ".direction");
-        createUniform(uniformName + ".intensity");
+        int size = glGetActiveUniformBlocki(programId, blockIndex, GL_UNIFORM_BLOCK_DATA_SIZE);
+        if (size != expectedSize) {
+            throw new Exception("Uniform block " + blockName + " is " + size + " bytes, expected " + expectedSize);
+        }
+        glUniformBlockBinding(programId, blockIndex, binding);
     }
 
     public void setUniform(String uniformName, Matrix4f value) {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer floatBuffer = stack.mallocFloat(16);
-            value.get(floatBuffer);
-            glUniformMatrix4fv(uniforms.get(uniformName), false, floatBuffer);
-        }
+        renderState.uniform(uniformCache, uniforms.get(uniformName), value);
     }
 
     public void setUniform(String uniformName, int value) {
-        glUniform1i(uniforms.get(uniformName), value);
+        renderState.uniform(uniformCache, uniforms.get(uniformName), value);
     }
 
     public void setUniform(String uniformName, Vector3f value) {
-        glUniform3f(uniforms.get(uniformName), value.x, value.y, value.z);
+        renderState.uniform(uniformCache, uniforms.get(uniformName), value.x, value.y, value.z);
     }
 
     public void setUniform(String uniformName, Vector4f value) {
-        glUniform4f(uniforms.get(uniformName), value.x, value.y, value.z, value.w);
+        renderState.uniform(uniformCache, uniforms.get(uniformName), value.x, value.y, value.z, value.w);
     }
 
     public void setUniform(String uniformName, float value) {
-        glUniform1f(uniforms.get(uniformName), value);
+        renderState.uniform(uniformCache, uniforms.get(uniformName), value);
     }
 
-    public void setUniform(String uniformName, Material material) {
-        setUniform(uniformName + ".ambient", material.getAmbientColor());
-        setUniform(uniformName + ".diffuse", material.getDiffuseColor());
-        setUniform(uniformName + ".specular", material.getSpecularColor());
-        setUniform(uniformName + ".hasTexture", material.isTextured() ? 1 : 0);
-        setUniform(uniformName + ".reflectance", material.getReflectance());
+    public void setUniform(int uniform, Matrix4f value) {
+        renderState.uniform(uniformCache, uniform, value);
     }
 
-    public void setUniform(String uniformName, PointLight pointLight) {
-        setUniform(uniformName + ".color", pointLight.getColor());
-        setUniform(uniformName + ".position", pointLight.getPosition());
-        setUniform(uniformName + ".intensity", pointLight.getIntensity());
-        PointLight.Attenuation attenuation = pointLight.getAttenuation();
-        setUniform(uniformName + ".attenuation.constant", attenuation.getConstant());
-        setUniform(uniformName + ".attenuation.linear", attenuation.getLinear());
-        setUniform(uniformName + ".attenuation.exponent", attenuation.getExponent());
+    public void setUniform(int uniform, int value) {
+        renderState.uniform(uniformCache, uniform, value);
     }
 
-    public void setUniform(String uniformName, SpotLight spotLight) {
-        setUniform(uniformName + ".pointLight", spotLight.getPointLight());
-        setUniform(uniformName + ".coneDirection", spotLight.getConeDirection());
-        setUniform(uniformName + ".cutOffAngle", spotLight.getCutOffAngle());
+    public void setUniform(int uniform, Vector3f value) {
+        renderState.uniform(uniformCache, uniform, value.x, value.y, value.z);
     }
 
-    public void setUniform(String uniformName, DirectionalLight light) {
-        setUniform(uniformName + ".color", light.getColor());
-        setUniform(uniformName + ".direction", light.getDirection());
-        setUniform(uniformName + ".intensity", light.getIntensity());
+    public void setUniform(int uniform, Vector4f value) {
+        renderState.uniform(uniformCache, uniform, value.x, value.y, value.z, value.w);
+    }
+
+    public void setUniform(int uniform, float value) {
+        renderState.uniform(uniformCache, uniform, value);
     }
 
     public void createVertexShader(String shaderCode) throws Exception {
@@ -163,19 +159,65 @@ public class ShaderProgram {
             GL20.glDetachShader(programId, fragmentShaderId);
         }
 
+    }
+
+    /**
+     * Checks whether the program can run in the current GL state. Slow, so only meant for development.
+     */
+    public void validate() {
         GL20.glValidateProgram(programId);
 
         if (GL20.glGetProgrami(programId, GL20.GL_VALIDATE_STATUS) == 0) {
-            System.out.println("Error validating shader source: " + GL20.glGetShaderInfoLog(programId, 1024));
+            System.out.println("Error validating shader source: " + GL20.glGetProgramInfoLog(programId, 1024));
         }
     }
 
+    /**
+     * Whether programs can be saved and restored as binaries, which needs OpenGL 4.1 or ARB_get_program_binary and
+     * at least one binary format.
+     */
+    public static boolean isBinarySupported() {
+        GLCapabilities capabilities = GL.getCapabilities();
+        return (capabilities.OpenGL41 || capabilities.GL_ARB_get_program_binary)
+                && GL11.glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+    }
+
+    /**
+     * Asks the driver to keep the linked binary for {@link #getBinary()}. Has to be called before {@link #link()}.
+     */
+    public void setBinaryRetrievable() {
+        glProgramParameteri(programId, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL11.GL_TRUE);
+    }
+
+    public ShaderCache.ProgramBinary getBinary() {
+        int length = GL20.glGetProgrami(programId, GL_PROGRAM_BINARY_LENGTH);
+        ByteBuffer data = ByteBuffer.allocateDirect(length);
+        int[] writtenLength = new int[1];
+        int[] format = new int[1];
+        glGetProgramBinary(programId, writtenLength, format, data);
+        data.limit(writtenLength[0]);
+        return new ShaderCache.ProgramBinary(format[0], data);
+    }
+
+    /**
+     * Links the program from a binary instead of sources. Returns false if the driver rejects the binary, in which
+     * case the program has to be built from sources.
+     */
+    public boolean loadBinary(ShaderCache.ProgramBinary binary) {
+        glProgramBinary(programId, binary.getFormat(), binary.getData().duplicate());
+        return GL20.glGetProgrami(programId, GL20.GL_LINK_STATUS) != 0;
+    }
+
+    public int getProgramId() {
+        return programId;
+    }
+
     public void bind() {
-        GL20.glUseProgram(programId);
+        renderState.useProgram(programId);
     }
 
     public void unbind() {
-        GL20.glUseProgram(0);
+        renderState.useProgram(0);
     }
 
     public void cleanUp() {
@@ -0,0 +1,69 @@
+package com.amoghbhagwat.engine.graph;
+
+import java.util.Map;
+
+/**
+ * The variants of one shader program, keyed by a bitmask of features, each compiled with the defines its key maps to
+ * the first time it is asked for and kept for later frames. Lookups are an array index, so picking a variant per
+ * draw run costs nothing once it is built.
+ */
+public class ShaderVariants {
+    private final ShaderManager shaderManager;
+    private final String name;
+    private final String vertexResource;
+    private final String fragmentResource;
+    private final DefineMapper defines;
+    private final Setup setup;
+    private final ShaderManager.ProgramHandle[] variants;
+    private int builtVariants;
+
+    ShaderVariants(ShaderManager shaderManager, String name, String vertexResource, String fragmentResource,
+                   int variantCount, DefineMapper defines, Setup setup) {
+        this.shaderManager = shaderManager;
+        this.name = name;
+        this.vertexResource = vertexResource;
+        this.fragmentResource = fragmentResource;
+        this.defines = defines;
+        this.setup = setup;
+        this.variants = new ShaderManager.ProgramHandle[variantCount];
+    }
+
+    /**
+     * The program for {@code variant}, built now if this is the first time it is used. Must run on the GL thread.
+     *
+     * @throws IllegalStateException if the variant does not compile
+     */
+    public ShaderProgram get(int variant) {
+        ShaderManager.ProgramHandle handle = variants[variant];
+        if (handle == null) {
+            try {
+                handle = shaderManager.load(name + "-" + variant, vertexResource, fragmentResource,
+                        defines.getDefines(variant), program -> setup.setUp(program, variant));
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not build variant " + variant + " of shader program " + name, e);
+            }
+            variants[variant] = handle;
+            builtVariants++;
+        }
+        return handle.get();
+    }
+
+    /**
+     * Builds a variant ahead of its first use, e.g. during loading, to avoid a hitch when it first shows up.
+     */
+    public void prepare(int variant) {
+        get(variant);
+    }
+
+    public int getBuiltVariants() {
+        return builtVariants;
+    }
+
+    public interface DefineMapper {
+        Map<String, String> getDefines(int variant);
+    }
+
+    public interface Setup {
+        void setUp(ShaderProgram program, int variant) throws Exception;
+    }
+}
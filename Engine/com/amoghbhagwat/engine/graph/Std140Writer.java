@@ -0,0 +1,131 @@
+package com.amoghbhagwat.engine.graph;
+
+import org.joml.Matrix4fc;
+import org.joml.Vector3fc;
+import org.joml.Vector4fc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes values into a buffer following the std140 uniform block layout rules, so Java code and GLSL agree on every
+ * member's offset. Scalars align to 4 bytes, vec3 and vec4 to 16 (a vec3 takes 12 bytes, so a following scalar packs
+ * into its last 4), a mat4 is four vec4 columns, and structs start and end on a 16 byte boundary.
+ * <p>
+ * Writes are absolute, relative to the base passed to {@link #begin(ByteBuffer, int)}; the buffer's position and limit
+ * are never touched. The buffer has to be direct, as JOML writes matrices through its address. Needs no GL context.
+ */
+public class Std140Writer {
+    public static final int VEC4_ALIGNMENT = 16;
+
+    private ByteBuffer buffer;
+    private int base;
+    private int offset;
+
+    /**
+     * Starts writing a block at {@code base}, which has to be a multiple of 16.
+     */
+    public Std140Writer begin(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+        this.offset = 0;
+        return this;
+    }
+
+    /**
+     * Offset of the next member from the start of the block. After {@link #endStruct()} this is the struct's size.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    public Std140Writer putFloat(float value) {
+        align(4);
+        buffer.putFloat(base + offset, value);
+        offset += 4;
+        return this;
+    }
+
+    public Std140Writer putInt(int value) {
+        align(4);
+        buffer.putInt(base + offset, value);
+        offset += 4;
+        return this;
+    }
+
+    public Std140Writer putVec3(float x, float y, float z) {
+        align(VEC4_ALIGNMENT);
+        int position = base + offset;
+        buffer.putFloat(position, x);
+        buffer.putFloat(position + 4, y);
+        buffer.putFloat(position + 8, z);
+        offset += 12;
+        return this;
+    }
+
+    public Std140Writer putVec3(Vector3fc value) {
+        return putVec3(value.x(), value.y(), value.z());
+    }
+
+    public Std140Writer putVec4(float x, float y, float z, float w) {
+        align(VEC4_ALIGNMENT);
+        int position = base + offset;
+        buffer.putFloat(position, x);
+        buffer.putFloat(position + 4, y);
+        buffer.putFloat(position + 8, z);
+        buffer.putFloat(position + 12, w);
+        offset += 16;
+        return this;
+    }
+
+    public Std140Writer putVec4(Vector4fc value) {
+        return putVec4(value.x(), value.y(), value.z(), value.w());
+    }
+
+    /**
+     * Writes an ivec4 or uvec4.
+     */
+    public Std140Writer putIVec4(int x, int y, int z, int w) {
+        align(VEC4_ALIGNMENT);
+        int position = base + offset;
+        buffer.putInt(position, x);
+        buffer.putInt(position + 4, y);
+        buffer.putInt(position + 8, z);
+        buffer.putInt(position + 12, w);
+        offset += 16;
+        return this;
+    }
+
+    /**
+     * Writes a column-major mat4 in the buffer's byte order.
+     */
+    public Std140Writer putMat4(Matrix4fc value) {
+        align(VEC4_ALIGNMENT);
+        value.get(base + offset, buffer);
+        offset += 64;
+        return this;
+    }
+
+    public Std140Writer beginStruct() {
+        align(VEC4_ALIGNMENT);
+        return this;
+    }
+
+    /**
+     * Pads the struct to a multiple of 16 bytes, as members following a struct start on a new vec4.
+     */
+    public Std140Writer endStruct() {
+        align(VEC4_ALIGNMENT);
+        return this;
+    }
+
+    private void align(int alignment) {
+        offset = alignUp(offset, alignment);
+    }
+
+    /**
+     * Rounds {@code value} up to a multiple of {@code alignment}.
+     */
+    public static int alignUp(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
@@ -0,0 +1,75 @@
+package com.amoghbhagwat.engine.graph;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL31.GL_TEXTURE_BUFFER;
+
+/**
+ * A buffer object read by shaders through a buffer texture ({@code samplerBuffer}, {@code usamplerBuffer}), for
+ * per-frame arrays too large for a uniform block. Like {@link UniformBuffer} it keeps an off-heap copy that is filled
+ * on the CPU and sent with one {@link #upload(int)}, which orphans the previous storage.
+ */
+public class TextureBuffer {
+    private final GLBackend backend;
+    private final int bufferId;
+    private final int textureId;
+    private ByteBuffer data;
+
+    /**
+     * @param internalFormat texel format, e.g. {@code GL_RGBA32F} or {@code GL_R32UI}
+     */
+    public TextureBuffer(GLBackend backend, int internalFormat, int capacity) {
+        this.backend = backend;
+        this.bufferId = backend.genBuffer();
+        this.textureId = backend.genTexture();
+        this.data = MemoryUtil.memCalloc(capacity);
+
+        backend.bindBuffer(GL_TEXTURE_BUFFER, bufferId);
+        backend.bufferData(GL_TEXTURE_BUFFER, capacity, GL_STREAM_DRAW);
+        backend.bindBuffer(GL_TEXTURE_BUFFER, 0);
+
+        backend.bindTexture(GL_TEXTURE_BUFFER, textureId);
+        backend.texBuffer(GL_TEXTURE_BUFFER, internalFormat, bufferId);
+        backend.bindTexture(GL_TEXTURE_BUFFER, 0);
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    /**
+     * Grows the buffer to hold at least {@code capacity} bytes. The contents are not kept.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= data.capacity()) {
+            return;
+        }
+        MemoryUtil.memFree(data);
+        data = MemoryUtil.memCalloc(Math.max(capacity, data.capacity() * 2));
+    }
+
+    /**
+     * Sends the first {@code size} bytes of the data in one buffer update.
+     */
+    public void upload(int size) {
+        backend.bindBuffer(GL_TEXTURE_BUFFER, bufferId);
+        backend.bufferData(GL_TEXTURE_BUFFER, data.capacity(), GL_STREAM_DRAW);
+        data.limit(size);
+        backend.bufferSubData(GL_TEXTURE_BUFFER, 0, data);
+        data.clear();
+        backend.bindBuffer(GL_TEXTURE_BUFFER, 0);
+    }
+
+    public void bind(RenderState renderState, int unit) {
+        renderState.bindTexture(unit, GL_TEXTURE_BUFFER, textureId);
+    }
+
+    public void cleanUp() {
+        backend.deleteTexture(textureId);
+        backend.deleteBuffer(bufferId);
+        MemoryUtil.memFree(data);
+    }
+}
@@ -0,0 +1,80 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.engine.light.DirectionalLight;
+import com.amoghbhagwat.engine.light.LightClusters;
+import com.amoghbhagwat.engine.models.Material;
+import org.joml.Matrix4fc;
+import org.joml.Vector3fc;
+
+/**
+ * The std140 uniform blocks shared by the scene shaders: their names, binding points, sizes and how they are filled.
+ * The writers mirror the block declarations in the shaders member by member, and
+ * {@link ShaderProgram#bindUniformBlock(String, int, int)} checks the sizes against what the driver computed.
+ */
+public final class UniformBlocks {
+    /**
+     * {@code CameraBlock { mat4 projectionMatrix; mat4 viewMatrix; }}
+     */
+    public static final String CAMERA_BLOCK = "CameraBlock";
+    public static final int CAMERA_BINDING = 0;
+    public static final int CAMERA_SIZE = 128;
+
+    /**
+     * {@code LightsBlock { vec3 ambientLight; float specularPower; DirectionalLight directionalLight;
+     * uvec4 clusterCounts; vec4 clusterParams; }}. The point and spot lights live in the buffer textures of
+     * {@link ClusteredLights}; the block holds how to find a fragment's cluster: tiles, slices and light count, then
+     * tile size in pixels and the slice scale and bias.
+     */
+    public static final String LIGHTS_BLOCK = "LightsBlock";
+    public static final int LIGHTS_BINDING = 1;
+    public static final int LIGHTS_SIZE = 80;
+
+    /**
+     * {@code MaterialBlock { Material material; }}
+     */
+    public static final String MATERIAL_BLOCK = "MaterialBlock";
+    public static final int MATERIAL_BINDING = 2;
+    public static final int MATERIAL_SIZE = 64;
+
+    private UniformBlocks() {
+    }
+
+    public static void writeCamera(Std140Writer writer, Matrix4fc projectionMatrix, Matrix4fc viewMatrix) {
+        writer.putMat4(projectionMatrix);
+        writer.putMat4(viewMatrix);
+    }
+
+    /**
+     * @param lightCount    lights binned into {@code clusters}
+     * @param viewportWidth in pixels, as is the height, to turn fragment coordinates into tiles
+     */
+    public static void writeLights(Std140Writer writer, Vector3fc ambientLight, float specularPower,
+                                   DirectionalLight directionalLight, LightClusters clusters, int lightCount,
+                                   int viewportWidth, int viewportHeight) {
+        writer.putVec3(ambientLight);
+        writer.putFloat(specularPower);
+
+        writer.beginStruct();
+        writer.putVec3(directionalLight.getColor());
+        writer.putVec3(directionalLight.getDirection());
+        writer.putFloat(directionalLight.getIntensity());
+        writer.endStruct();
+
+        writer.putIVec4(clusters.getTilesX(), clusters.getTilesY(), clusters.getSlices(), lightCount);
+        writer.putVec4((float) viewportWidth / clusters.getTilesX(), (float) viewportHeight / clusters.getTilesY(),
+                clusters.getSliceScale(), clusters.getSliceBias());
+    }
+
+    /**
+     * Follows the member order of the GLSL {@code Material} struct, which starts with the diffuse color.
+     */
+    public static void writeMaterial(Std140Writer writer, Material material) {
+        writer.beginStruct();
+        writer.putVec4(material.getDiffuseColor());
+        writer.putVec4(material.getAmbientColor());
+        writer.putVec4(material.getSpecularColor());
+        writer.putInt(material.isTextured() ? 1 : 0);
+        writer.putFloat(material.getReflectance());
+        writer.endStruct();
+    }
+}
@@ -0,0 +1,93 @@
+package com.amoghbhagwat.engine.graph;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT;
+
+/**
+ * A uniform buffer object with a persistent off-heap copy. Blocks are written into {@link #getData()} with a
+ * {@link Std140Writer} and sent with a single {@link #upload(int)} per frame, which orphans the previous storage so
+ * the driver does not wait for draws still reading it.
+ */
+public class UniformBuffer {
+    private final GLBackend backend;
+    private final int bufferId;
+    private final int binding;
+    private ByteBuffer data;
+
+    public UniformBuffer(GLBackend backend, int binding, int capacity) {
+        this.backend = backend;
+        this.binding = binding;
+        this.bufferId = backend.genBuffer();
+        this.data = MemoryUtil.memCalloc(capacity);
+
+        backend.bindBuffer(GL_UNIFORM_BUFFER, bufferId);
+        backend.bufferData(GL_UNIFORM_BUFFER, capacity, GL_STREAM_DRAW);
+        backend.bindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    /**
+     * Alignment required for {@link #bind(int, int)} offsets, so several blocks can share one buffer.
+     */
+    public static int getOffsetAlignment(GLBackend backend) {
+        return Math.max(1, backend.getInteger(GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT));
+    }
+
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    public int getCapacity() {
+        return data.capacity();
+    }
+
+    /**
+     * Grows the buffer to hold at least {@code capacity} bytes, keeping what was written so far.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= data.capacity()) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, data.capacity() * 2);
+        ByteBuffer grown = MemoryUtil.memCalloc(newCapacity);
+        MemoryUtil.memCopy(MemoryUtil.memAddress(data), MemoryUtil.memAddress(grown), data.capacity());
+        MemoryUtil.memFree(data);
+        data = grown;
+    }
+
+    /**
+     * Sends the first {@code size} bytes of the data in one buffer update.
+     */
+    public void upload(int size) {
+        backend.bindBuffer(GL_UNIFORM_BUFFER, bufferId);
+        backend.bufferData(GL_UNIFORM_BUFFER, data.capacity(), GL_STREAM_DRAW);
+        data.limit(size);
+        backend.bufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        data.clear();
+        backend.bindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    /**
+     * Binds the whole buffer to the block binding point.
+     */
+    public void bind() {
+        backend.bindBufferBase(GL_UNIFORM_BUFFER, binding, bufferId);
+    }
+
+    /**
+     * Binds one block of the buffer, starting at a multiple of {@link #getOffsetAlignment(GLBackend)}.
+     */
+    public void bind(int offset, int size) {
+        backend.bindBufferRange(GL_UNIFORM_BUFFER, binding, bufferId, offset, size);
+    }
+
+    public void cleanUp() {
+        backend.deleteBuffer(bufferId);
+        MemoryUtil.memFree(data);
+    }
+}
@@ -0,0 +1,133 @@
+package com.amoghbhagwat.engine.graph;
+
+import org.joml.Matrix4f;
+
+import java.util.Arrays;
+
+/**
+ * Last uploaded value of every uniform of one program, compared bitwise so only real changes are uploaded. Uniforms
+ * live in compact slots handed out by {@link #addUniform(int)}, so the cache grows with the number of uniforms, not
+ * with the GL locations, which can be sparse or large.
+ */
+public class UniformCache {
+    /**
+     * Slot of a uniform the program does not have. Updating it never uploads anything, like GL location -1.
+     */
+    public static final int NO_SLOT = -1;
+
+    private static final int SLOT_SIZE = 16;
+
+    private int[] locations;
+    private int[] values;
+    private boolean[] valid;
+    private int size;
+    private final float[] matrix;
+
+    public UniformCache() {
+        this.locations = new int[16];
+        this.values = new int[16 * SLOT_SIZE];
+        this.valid = new boolean[16];
+        this.matrix = new float[16];
+    }
+
+    /**
+     * Returns the slot for a GL location, adding one if the location has none yet. Location -1 maps to
+     * {@link #NO_SLOT}.
+     */
+    public int addUniform(int location) {
+        if (location < 0) {
+            return NO_SLOT;
+        }
+        for (int slot = 0; slot < size; slot++) {
+            if (locations[slot] == location) {
+                return slot;
+            }
+        }
+
+        if (size == locations.length) {
+            locations = Arrays.copyOf(locations, size * 2);
+            values = Arrays.copyOf(values, size * 2 * SLOT_SIZE);
+            valid = Arrays.copyOf(valid, size * 2);
+        }
+        locations[size] = location;
+        return size++;
+    }
+
+    public int getLocation(int slot) {
+        return slot == NO_SLOT ? -1 : locations[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean update(int slot, int value) {
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        int base = slot * SLOT_SIZE;
+        if (valid[slot] && values[base] == value) {
+            return false;
+        }
+        values[base] = value;
+        valid[slot] = true;
+        return true;
+    }
+
+    public boolean update(int slot, float value) {
+        return update(slot, Float.floatToRawIntBits(value));
+    }
+
+    public boolean update(int slot, float x, float y, float z) {
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        int base = slot * SLOT_SIZE;
+        int bx = Float.floatToRawIntBits(x), by = Float.floatToRawIntBits(y), bz = Float.floatToRawIntBits(z);
+        if (valid[slot] && values[base] == bx && values[base + 1] == by && values[base + 2] == bz) {
+            return false;
+        }
+        values[base] = bx;
+        values[base + 1] = by;
+        values[base + 2] = bz;
+        valid[slot] = true;
+        return true;
+    }
+
+    public boolean update(int slot, float x, float y, float z, float w) {
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        int base = slot * SLOT_SIZE;
+        int bw = Float.floatToRawIntBits(w);
+        boolean unchanged = valid[slot] && values[base + 3] == bw;
+        if (update(slot, x, y, z) || !unchanged) {
+            values[base + 3] = bw;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean update(int slot, Matrix4f value) {
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        int base = slot * SLOT_SIZE;
+        value.get(matrix);
+
+        boolean changed = !valid[slot];
+        for (int i = 0; i < 16; i++) {
+            int bits = Float.floatToRawIntBits(matrix[i]);
+            if (values[base + i] != bits) {
+                values[base + i] = bits;
+                changed = true;
+            }
+        }
+        valid[slot] = true;
+        return changed;
+    }
+
+    public void invalidate() {
+        Arrays.fill(valid, false);
+    }
+}
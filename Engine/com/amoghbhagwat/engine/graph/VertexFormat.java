@@ -0,0 +1,150 @@
+package com.amoghbhagwat.engine.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL30.GL_HALF_FLOAT;
+import static org.lwjgl.opengl.GL33.GL_INT_2_10_10_10_REV;
+
+/**
+ * Describes how vertex attributes are packed into a single interleaved buffer. Attributes are immutable and can be
+ * shared between formats; where each one sits in the vertex belongs to the format.
+ */
+public class VertexFormat {
+    public static final int POSITION_LOCATION = 0;
+    public static final int TEXTURE_COORDS_LOCATION = 1;
+    public static final int NORMAL_LOCATION = 2;
+    // A mat4 instance attribute occupies four consecutive locations starting here
+    public static final int INSTANCE_MATRIX_LOCATION = 3;
+
+    /**
+     * Full precision layout: 3 float position, 2 float texture coordinates, 3 float normal (32 bytes).
+     */
+    public static final VertexFormat POSITION_TEXTURE_NORMAL = new VertexFormat(
+            new Attribute(Usage.POSITION, POSITION_LOCATION, 3, GL_FLOAT, false),
+            new Attribute(Usage.TEXTURE_COORDS, TEXTURE_COORDS_LOCATION, 2, GL_FLOAT, false),
+            new Attribute(Usage.NORMAL, NORMAL_LOCATION, 3, GL_FLOAT, false));
+
+    /**
+     * Compact layout: 3 float position, 2 half float texture coordinates, signed normalized 10-10-10-2 normal (20 bytes).
+     */
+    public static final VertexFormat COMPACT = new VertexFormat(
+            new Attribute(Usage.POSITION, POSITION_LOCATION, 3, GL_FLOAT, false),
+            new Attribute(Usage.TEXTURE_COORDS, TEXTURE_COORDS_LOCATION, 2, GL_HALF_FLOAT, false),
+            new Attribute(Usage.NORMAL, NORMAL_LOCATION, 4, GL_INT_2_10_10_10_REV, true));
+
+    private final List<Attribute> attributes;
+    private final int[] offsets;
+    private final int stride;
+
+    public VertexFormat(Attribute... attributes) {
+        this.offsets = new int[attributes.length];
+        int offset = 0;
+        for (int i = 0; i < attributes.length; i++) {
+            offsets[i] = offset;
+            offset += attributes[i].getByteSize();
+        }
+
+        this.attributes = Collections.unmodifiableList(Arrays.asList(attributes.clone()));
+        this.stride = offset;
+    }
+
+    public List<Attribute> getAttributes() {
+        return attributes;
+    }
+
+    public Attribute getAttribute(Usage usage) {
+        for (Attribute attribute : attributes) {
+            if (attribute.getUsage() == usage) {
+                return attribute;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Byte offset within a vertex of the attribute at {@code index} in {@link #getAttributes()}.
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Byte offset within a vertex of the attribute with the given usage, or -1 when the format has none.
+     */
+    public int getOffset(Usage usage) {
+        for (int i = 0; i < offsets.length; i++) {
+            if (attributes.get(i).getUsage() == usage) {
+                return offsets[i];
+            }
+        }
+
+        return -1;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public enum Usage {
+        POSITION,
+        TEXTURE_COORDS,
+        NORMAL
+    }
+
+    public static class Attribute {
+        private final Usage usage;
+        private final int location;
+        private final int components;
+        private final int type;
+        private final boolean normalized;
+
+        public Attribute(Usage usage, int location, int components, int type, boolean normalized) {
+            this.usage = usage;
+            this.location = location;
+            this.components = components;
+            this.type = type;
+            this.normalized = normalized;
+
+            if (type == GL_INT_2_10_10_10_REV && components != 4) {
+                throw new IllegalArgumentException("Packed 10-10-10-2 attributes must have 4 components");
+            }
+        }
+
+        public Usage getUsage() {
+            return usage;
+        }
+
+        public int getLocation() {
+            return location;
+        }
+
+        public int getComponents() {
+            return components;
+        }
+
+        public int getType() {
+            return type;
+        }
+
+        public boolean isNormalized() {
+            return normalized;
+        }
+
+        public int getByteSize() {
+            switch (type) {
+                case GL_FLOAT:
+                    return components * 4;
+                case GL_HALF_FLOAT:
+                    return components * 2;
+                case GL_INT_2_10_10_10_REV:
+                    return 4;
+                default:
+                    throw new IllegalArgumentException("Unsupported attribute type: " + type);
+            }
+        }
+    }
+}
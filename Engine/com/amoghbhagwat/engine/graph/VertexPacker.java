@@ -0,0 +1,164 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.engine.models.MeshData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL30.GL_HALF_FLOAT;
+import static org.lwjgl.opengl.GL33.GL_INT_2_10_10_10_REV;
+
+/**
+ * Packs separate attribute arrays into an interleaved buffer described by a {@link VertexFormat}. Pure CPU code, no
+ * GL context needed.
+ */
+public class VertexPacker {
+    private VertexPacker() {
+    }
+
+    public static int getPackedSize(MeshData meshData, VertexFormat format) {
+        return meshData.getVertexCount() * format.getStride();
+    }
+
+    /**
+     * Writes every vertex at the buffer's position, which is advanced past the packed data.
+     */
+    public static ByteBuffer pack(MeshData meshData, VertexFormat format, ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.nativeOrder());
+
+        int vertexCount = meshData.getVertexCount();
+        int start = buffer.position();
+        int stride = format.getStride();
+
+        List<VertexFormat.Attribute> attributes = format.getAttributes();
+        for (int a = 0; a < attributes.size(); a++) {
+            VertexFormat.Attribute attribute = attributes.get(a);
+            int attributeOffset = format.getOffset(a);
+            float[] source;
+            int sourceComponents;
+            switch (attribute.getUsage()) {
+                case POSITION:
+                    source = meshData.getPositions();
+                    sourceComponents = 3;
+                    break;
+                case TEXTURE_COORDS:
+                    source = meshData.getTextCoords();
+                    sourceComponents = 2;
+                    break;
+                case NORMAL:
+                    source = meshData.getNormals();
+                    sourceComponents = 3;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported attribute usage: " + attribute.getUsage());
+            }
+
+            for (int i = 0; i < vertexCount; i++) {
+                int offset = start + i * stride + attributeOffset;
+                int s = i * sourceComponents;
+                putAttribute(buffer, offset, attribute, source, s, sourceComponents);
+            }
+        }
+
+        buffer.position(start + vertexCount * stride);
+        buffer.order(order);
+        return buffer;
+    }
+
+    private static void putAttribute(ByteBuffer buffer, int offset, VertexFormat.Attribute attribute, float[] source, int s, int sourceComponents) {
+        switch (attribute.getType()) {
+            case GL_FLOAT:
+                for (int c = 0; c < attribute.getComponents(); c++) {
+                    buffer.putFloat(offset + c * 4, c < sourceComponents ? source[s + c] : 0);
+                }
+                break;
+            case GL_HALF_FLOAT:
+                for (int c = 0; c < attribute.getComponents(); c++) {
+                    buffer.putShort(offset + c * 2, toHalfFloat(c < sourceComponents ? source[s + c] : 0));
+                }
+                break;
+            case GL_INT_2_10_10_10_REV:
+                buffer.putInt(offset, packSnorm1010102(source[s], sourceComponents > 1 ? source[s + 1] : 0, sourceComponents > 2 ? source[s + 2] : 0));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported attribute type: " + attribute.getType());
+        }
+    }
+
+    /**
+     * IEEE 754 binary16 conversion with round to nearest even.
+     */
+    public static short toHalfFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int floatExponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        if (floatExponent == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+
+        int exponent = floatExponent - 127 + 15;
+        if (exponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+
+        int half = (exponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    public static float fromHalfFloat(short value) {
+        int bits = value & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+
+        if (exponent == 0) {
+            float subnormal = mantissa * (1.0f / (1 << 24));
+            return sign != 0 ? -subnormal : subnormal;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+
+    /**
+     * Packs a normal into GL_INT_2_10_10_10_REV layout as signed normalized components, x in the lowest bits.
+     */
+    public static int packSnorm1010102(float x, float y, float z) {
+        return (toSnorm10(x)) | (toSnorm10(y) << 10) | (toSnorm10(z) << 20);
+    }
+
+    public static float unpackSnorm10(int packed, int component) {
+        int value = (packed << (22 - component * 10)) >> 22;
+        return Math.max(value / 511.0f, -1.0f);
+    }
+
+    private static int toSnorm10(float value) {
+        float clamped = Math.max(-1.0f, Math.min(1.0f, value));
+        return Math.round(clamped * 511.0f) & 0x3FF;
+    }
+}
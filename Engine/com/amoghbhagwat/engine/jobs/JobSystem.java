@@ -0,0 +1,125 @@
+package com.amoghbhagwat.engine.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs registered {@link UpdateJob}s on a work-stealing pool. Each job's range is split in halves down to a batch
+ * size that leaves a few batches per worker for stealing. Jobs run one after another, and {@link #runUpdateJobs(float)}
+ * returns only when all of them are done, which is the barrier between the update phase and rendering.
+ */
+public class JobSystem {
+    public static final int DEFAULT_MIN_BATCH_SIZE = 256;
+
+    private static final int BATCHES_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+    private final int minBatchSize;
+    private final List<UpdateJob> updateJobs;
+
+    public JobSystem() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MIN_BATCH_SIZE);
+    }
+
+    public JobSystem(int parallelism, int minBatchSize) {
+        this.pool = createPool(parallelism);
+        this.minBatchSize = Math.max(minBatchSize, 1);
+        this.updateJobs = new ArrayList<>();
+    }
+
+    private static ForkJoinPool createPool(int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("UPDATE_WORKER_" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    public void addUpdateJob(UpdateJob job) {
+        updateJobs.add(job);
+    }
+
+    public void removeUpdateJob(UpdateJob job) {
+        updateJobs.remove(job);
+    }
+
+    public boolean hasUpdateJobs() {
+        return !updateJobs.isEmpty();
+    }
+
+    /**
+     * Runs every registered job in registration order and waits for all batches to finish. An exception thrown by a
+     * batch is rethrown here.
+     */
+    public void runUpdateJobs(float interval) {
+        for (int i = 0; i < updateJobs.size(); i++) {
+            run(updateJobs.get(i), interval);
+        }
+    }
+
+    public void run(UpdateJob job, float interval) {
+        int size = job.getSize();
+        if (size <= 0) {
+            return;
+        }
+
+        int batchSize = Math.max(minBatchSize, size / (pool.getParallelism() * BATCHES_PER_WORKER));
+        if (size <= batchSize) {
+            job.update(0, size, interval);
+            return;
+        }
+        pool.invoke(new Batch(job, interval, batchSize, 0, size));
+    }
+
+    /**
+     * Runs a fork/join task on the workers and waits for it, for parallel work that is not an {@link UpdateJob}, e.g.
+     * light assignment. Everything the task forks stays on these workers instead of the common pool.
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return pool.invoke(task);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public void cleanUp() {
+        pool.shutdownNow();
+    }
+
+    private static class Batch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final UpdateJob job;
+        private final float interval;
+        private final int batchSize;
+        private final int from;
+        private final int to;
+
+        Batch(UpdateJob job, float interval, int batchSize, int from, int to) {
+            this.job = job;
+            this.interval = interval;
+            this.batchSize = batchSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= batchSize) {
+                job.update(from, to, interval);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(job, interval, batchSize, from, middle), new Batch(job, interval, batchSize, middle, to));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.amoghbhagwat.engine.jobs;
+
+/**
+ * Update work over a range of independent elements, e.g. entities, that the {@link JobSystem} splits into batches
+ * and runs on several threads at once. Batches of the same job must not touch each other's elements.
+ */
+public interface UpdateJob {
+    /**
+     * Number of elements to update this tick.
+     */
+    int getSize();
+
+    /**
+     * Updates elements {@code [from, to)}.
+     */
+    void update(int from, int to, float interval);
+}
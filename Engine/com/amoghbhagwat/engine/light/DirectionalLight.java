@@ -17,6 +17,26 @@ public class DirectionalLight {
         this(new Vector3f(directionalLight.getColor()), new Vector3f(directionalLight.getDirection()), directionalLight.getIntensity());
     }
 
+    /**
+     * Copies the values of another light into this one, keeping this light's own vectors.
+     */
+    public DirectionalLight set(DirectionalLight directionalLight) {
+        this.color.set(directionalLight.getColor());
+        this.direction.set(directionalLight.getDirection());
+        this.intensity = directionalLight.getIntensity();
+        return this;
+    }
+
+    /**
+     * Sets this light to the blend of two others at {@code alpha} in [0, 1], without allocating.
+     */
+    public DirectionalLight interpolate(DirectionalLight from, DirectionalLight to, float alpha) {
+        from.getColor().lerp(to.getColor(), alpha, this.color);
+        from.getDirection().lerp(to.getDirection(), alpha, this.direction);
+        this.intensity = from.getIntensity() + (to.getIntensity() - from.getIntensity()) * alpha;
+        return this;
+    }
+
     public Vector3f getColor() {
         return color;
     }
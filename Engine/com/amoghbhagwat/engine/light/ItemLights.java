@@ -0,0 +1,188 @@
+package com.amoghbhagwat.engine.light;
+
+import com.amoghbhagwat.engine.jobs.JobSystem;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Picks for every item the few lights that affect it most, so lighting one draw costs a bounded number of lights no
+ * matter how many are in the scene.
+ * <p>
+ * A light reaches an item when its range sphere touches the item's bounding sphere, and it ranks by what it adds at
+ * the nearest point of that sphere. Items come in as world space spheres, four floats each, and the result is one list
+ * per item of {@link #getStride()} ints: the number of lights, then their indices in the {@link LightStore}, strongest
+ * first, ready to upload.
+ * <p>
+ * Items are assigned in batches on the workers of a {@link JobSystem} when one is set. Needs no GL context.
+ */
+public class ItemLights {
+    public static final int DEFAULT_MAX_LIGHTS = 8;
+
+    private static final int BATCH_SIZE = 256;
+
+    private final int maxLights;
+    private final int stride;
+    private int[] lists;
+    private float[] contributions;
+    private int itemCount;
+
+    private float[] items;
+    private LightStore lights;
+
+    private JobSystem jobSystem;
+
+    public ItemLights() {
+        this(DEFAULT_MAX_LIGHTS);
+    }
+
+    public ItemLights(int maxLights) {
+        this.maxLights = maxLights;
+        this.stride = maxLights + 1;
+        this.lists = new int[0];
+        this.contributions = new float[0];
+    }
+
+    /**
+     * Assigns batches of items in parallel on the given workers. Without a job system, or with {@code null}, all items
+     * are assigned on the calling thread.
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * Assigns lights to the items, replacing the previous result.
+     *
+     * @param items world space spheres, {@code x, y, z, radius} per item
+     */
+    public void assign(float[] items, int itemCount, LightStore lights) {
+        this.items = items;
+        this.itemCount = itemCount;
+        this.lights = lights;
+        if (lists.length < itemCount * stride) {
+            lists = new int[Math.max(itemCount, lists.length / stride * 2) * stride];
+            contributions = new float[lists.length / stride * maxLights];
+        }
+
+        if (jobSystem != null && itemCount > BATCH_SIZE) {
+            jobSystem.invoke(new AssignTask(0, itemCount));
+        } else {
+            assign(0, itemCount);
+        }
+
+        this.items = null;
+        this.lights = null;
+    }
+
+    private void assign(int from, int to) {
+        float[] spheres = lights.getSpheres();
+        int lightCount = lights.size();
+        for (int item = from; item < to; item++) {
+            int itemOffset = item * 4;
+            float x = items[itemOffset];
+            float y = items[itemOffset + 1];
+            float z = items[itemOffset + 2];
+            float radius = items[itemOffset + 3];
+
+            int list = item * stride;
+            int ranked = item * maxLights;
+            int count = 0;
+            for (int light = 0; light < lightCount; light++) {
+                int offset = light * 4;
+                float dx = spheres[offset] - x;
+                float dy = spheres[offset + 1] - y;
+                float dz = spheres[offset + 2] - z;
+                float reach = spheres[offset + 3] + radius;
+                float distanceSquared = dx * dx + dy * dy + dz * dz;
+                if (distanceSquared > reach * reach) {
+                    continue;
+                }
+
+                float contribution = lights.getContribution(light, Math.max(0, (float) Math.sqrt(distanceSquared) - radius));
+                if (!(contribution > 0) || count == maxLights && contribution <= contributions[ranked + count - 1]) {
+                    continue;
+                }
+
+                // Insertion into the list sorted by contribution, dropping the weakest when it is full
+                int i = count < maxLights ? count++ : count - 1;
+                while (i > 0 && contributions[ranked + i - 1] < contribution) {
+                    contributions[ranked + i] = contributions[ranked + i - 1];
+                    lists[list + 1 + i] = lists[list + i];
+                    i--;
+                }
+                contributions[ranked + i] = contribution;
+                lists[list + 1 + i] = light;
+            }
+            lists[list] = count;
+        }
+    }
+
+    /**
+     * What a light adds at the nearest point of a world space sphere, or 0 when it does not reach it.
+     */
+    public static float getContribution(LightStore lights, int light, float x, float y, float z, float radius) {
+        float[] spheres = lights.getSpheres();
+        int offset = light * 4;
+        float dx = spheres[offset] - x;
+        float dy = spheres[offset + 1] - y;
+        float dz = spheres[offset + 2] - z;
+        float reach = spheres[offset + 3] + radius;
+        float distanceSquared = dx * dx + dy * dy + dz * dz;
+        if (distanceSquared > reach * reach) {
+            return 0;
+        }
+        return lights.getContribution(light, Math.max(0, (float) Math.sqrt(distanceSquared) - radius));
+    }
+
+    public int getMaxLights() {
+        return maxLights;
+    }
+
+    /**
+     * Ints per item in {@link #getLists()}: the count, then {@link #getMaxLights()} light indices.
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * The lists of all items back to back; only the first {@code getItemCount() * getStride()} entries are valid.
+     */
+    public int[] getLists() {
+        return lists;
+    }
+
+    public int getLightCount(int item) {
+        return lists[item * stride];
+    }
+
+    public int getLight(int item, int index) {
+        return lists[item * stride + 1 + index];
+    }
+
+    private class AssignTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        AssignTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                assign(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AssignTask(from, middle), new AssignTask(middle, to));
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.amoghbhagwat.engine.light;
+
+import com.amoghbhagwat.engine.jobs.JobSystem;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the view frustum into a grid of clusters, screen tiles times depth slices, and lists for every cluster the
+ * lights whose bounding sphere touches it, so a fragment only evaluates the lights of its own cluster.
+ * <p>
+ * Slices are spaced exponentially between the near and far plane, so a slice index follows from the view depth with
+ * one logarithm: {@code slice = log(depth) * getSliceScale() - getSliceBias()}. Lights come in as view space spheres,
+ * four floats each, and the result is one {@code (offset, count)} pair per cluster into a compact list of light
+ * indices, ready to upload. Clusters are numbered {@code (slice * tilesY + tileY) * tilesX + tileX}, and the lights of
+ * a cluster are listed in ascending order.
+ * <p>
+ * Slices are binned in parallel on the workers of a {@link JobSystem}, when one is set and there are enough lights to
+ * pay for it. Needs no GL context.
+ */
+public class LightClusters {
+    public static final int DEFAULT_TILES_X = 16;
+    public static final int DEFAULT_TILES_Y = 9;
+    public static final int DEFAULT_SLICES = 24;
+
+    /**
+     * Cap on the lights listed per cluster, which bounds the fragment shader's loop. The lowest indices are kept.
+     */
+    public static final int MAX_LIGHTS_PER_CLUSTER = 128;
+
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private final int tilesX;
+    private final int tilesY;
+    private final int slices;
+    private final int tilesPerSlice;
+
+    private final float[] tileNdcX;
+    private final float[] tileNdcY;
+    private final float[] sliceDepths;
+    private float projectionX;
+    private float projectionY;
+    private float sliceScale;
+    private float sliceBias;
+
+    private final int[] clusters;
+    private final int[][] slicePairs;
+    private final int[] slicePairCounts;
+    private int[] lightIndices;
+    private int lightIndexCount;
+
+    private float[] lights;
+    private int lightCount;
+
+    private JobSystem jobSystem;
+
+    public LightClusters() {
+        this(DEFAULT_TILES_X, DEFAULT_TILES_Y, DEFAULT_SLICES);
+    }
+
+    public LightClusters(int tilesX, int tilesY, int slices) {
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.slices = slices;
+        this.tilesPerSlice = tilesX * tilesY;
+
+        this.tileNdcX = new float[tilesX + 1];
+        this.tileNdcY = new float[tilesY + 1];
+        for (int i = 0; i <= tilesX; i++) {
+            tileNdcX[i] = -1 + 2f * i / tilesX;
+        }
+        for (int i = 0; i <= tilesY; i++) {
+            tileNdcY[i] = -1 + 2f * i / tilesY;
+        }
+        this.sliceDepths = new float[slices + 1];
+
+        this.clusters = new int[tilesPerSlice * slices * 2];
+        this.slicePairs = new int[slices][64];
+        this.slicePairCounts = new int[slices];
+        this.lightIndices = new int[1024];
+        this.lights = new float[0];
+    }
+
+    /**
+     * Sets the symmetric perspective projection the grid divides.
+     *
+     * @param fov vertical field of view in radians
+     */
+    public void setProjection(float fov, float aspectRatio, float zNear, float zFar) {
+        float tanHalfFov = (float) Math.tan(fov * 0.5f);
+        this.projectionX = 1 / (tanHalfFov * aspectRatio);
+        this.projectionY = 1 / tanHalfFov;
+
+        float logRatio = (float) Math.log(zFar / zNear);
+        this.sliceScale = slices / logRatio;
+        this.sliceBias = (float) (slices * Math.log(zNear) / logRatio);
+        for (int i = 0; i <= slices; i++) {
+            sliceDepths[i] = (float) (zNear * Math.pow(zFar / zNear, i / (double) slices));
+        }
+    }
+
+    /**
+     * Bins the slices of large light sets in parallel on the given workers. Without a job system, or with
+     * {@code null}, binning runs on the calling thread.
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        this.jobSystem = jobSystem;
+    }
+
+    /**
+     * Bins the lights into the clusters, replacing the previous result.
+     *
+     * @param lights view space spheres, {@code x, y, z, radius} per light; kept until the next call
+     */
+    public void assign(float[] lights, int lightCount) {
+        this.lights = lights;
+        this.lightCount = lightCount;
+        Arrays.fill(clusters, 0);
+
+        boolean parallel = jobSystem != null && lightCount >= PARALLEL_THRESHOLD;
+        if (parallel) {
+            jobSystem.invoke(new BinTask(0, slices));
+        } else {
+            for (int slice = 0; slice < slices; slice++) {
+                binSlice(slice);
+            }
+        }
+
+        // Counts to offsets, then every slice scatters into its own part of the list
+        int total = 0;
+        for (int cluster = 0; cluster < clusters.length; cluster += 2) {
+            int count = Math.min(clusters[cluster + 1], MAX_LIGHTS_PER_CLUSTER);
+            clusters[cluster] = total;
+            clusters[cluster + 1] = 0;
+            total += count;
+        }
+        if (lightIndices.length < total) {
+            lightIndices = new int[Math.max(total, lightIndices.length * 2)];
+        }
+        lightIndexCount = total;
+
+        if (parallel) {
+            jobSystem.invoke(new ScatterTask(0, slices));
+        } else {
+            for (int slice = 0; slice < slices; slice++) {
+                scatterSlice(slice);
+            }
+        }
+    }
+
+    /**
+     * Finds the clusters of one slice each light touches, as {@code (cluster, light)} pairs, and counts them.
+     */
+    private void binSlice(int slice) {
+        float near = sliceDepths[slice];
+        float far = sliceDepths[slice + 1];
+        int[] pairs = slicePairs[slice];
+        int pairCount = 0;
+
+        for (int light = 0; light < lightCount; light++) {
+            int base = light * 4;
+            float x = lights[base];
+            float y = lights[base + 1];
+            float depth = -lights[base + 2];
+            float radius = lights[base + 3];
+            if (depth + radius < near || depth - radius > far) {
+                continue;
+            }
+
+            // Tiles whose cluster boxes overlap the sphere's extent; a box spans its tile at both slice depths
+            int minTileX = tileX(Math.min((x - radius) / near, (x - radius) / far) * projectionX);
+            int maxTileX = tileX(Math.max((x + radius) / near, (x + radius) / far) * projectionX);
+            int minTileY = tileY(Math.min((y - radius) / near, (y - radius) / far) * projectionY);
+            int maxTileY = tileY(Math.max((y + radius) / near, (y + radius) / far) * projectionY);
+
+            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                    if (!intersects(tileX, tileY, slice, x, y, -depth, radius)) {
+                        continue;
+                    }
+                    int cluster = slice * tilesPerSlice + tileY * tilesX + tileX;
+                    if (pairCount + 2 > pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                        slicePairs[slice] = pairs;
+                    }
+                    pairs[pairCount++] = cluster;
+                    pairs[pairCount++] = light;
+                    clusters[cluster * 2 + 1]++;
+                }
+            }
+        }
+        slicePairCounts[slice] = pairCount;
+    }
+
+    private void scatterSlice(int slice) {
+        int[] pairs = slicePairs[slice];
+        int pairCount = slicePairCounts[slice];
+        for (int i = 0; i < pairCount; i += 2) {
+            int cluster = pairs[i] * 2;
+            if (clusters[cluster + 1] < MAX_LIGHTS_PER_CLUSTER) {
+                lightIndices[clusters[cluster] + clusters[cluster + 1]++] = pairs[i + 1];
+            }
+        }
+    }
+
+    private int tileX(float ndc) {
+        return clamp((int) Math.floor((ndc + 1) * 0.5f * tilesX), tilesX);
+    }
+
+    private int tileY(float ndc) {
+        return clamp((int) Math.floor((ndc + 1) * 0.5f * tilesY), tilesY);
+    }
+
+    private static int clamp(int tile, int tiles) {
+        return Math.max(0, Math.min(tile, tiles - 1));
+    }
+
+    /**
+     * Whether a view space sphere touches the bounding box of a cluster.
+     */
+    public boolean intersects(int tileX, int tileY, int slice, float x, float y, float z, float radius) {
+        float near = sliceDepths[slice];
+        float far = sliceDepths[slice + 1];
+
+        // A tile's side planes pass through the eye, so its box spans them at the slice's near and far depth
+        float left = tileNdcX[tileX] / projectionX;
+        float right = tileNdcX[tileX + 1] / projectionX;
+        float bottom = tileNdcY[tileY] / projectionY;
+        float top = tileNdcY[tileY + 1] / projectionY;
+
+        float dx = distance(x, Math.min(left * near, left * far), Math.max(right * near, right * far));
+        float dy = distance(y, Math.min(bottom * near, bottom * far), Math.max(top * near, top * far));
+        float dz = distance(z, -far, -near);
+        return dx * dx + dy * dy + dz * dz <= radius * radius;
+    }
+
+    private static float distance(float value, float min, float max) {
+        if (value < min) {
+            return min - value;
+        }
+        if (value > max) {
+            return value - max;
+        }
+        return 0;
+    }
+
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    public int getTilesY() {
+        return tilesY;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public int getClusterCount() {
+        return tilesPerSlice * slices;
+    }
+
+    public float getSliceScale() {
+        return sliceScale;
+    }
+
+    public float getSliceBias() {
+        return sliceBias;
+    }
+
+    /**
+     * Lights passed to the last {@link #assign(float[], int)}.
+     */
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    /**
+     * {@code (offset, count)} per cluster into {@link #getLightIndices()}.
+     */
+    public int[] getClusters() {
+        return clusters;
+    }
+
+    public int getClusterOffset(int cluster) {
+        return clusters[cluster * 2];
+    }
+
+    public int getClusterLightCount(int cluster) {
+        return clusters[cluster * 2 + 1];
+    }
+
+    /**
+     * The light lists of all clusters back to back; only the first {@link #getLightIndexCount()} entries are valid.
+     */
+    public int[] getLightIndices() {
+        return lightIndices;
+    }
+
+    public int getLightIndexCount() {
+        return lightIndexCount;
+    }
+
+    private class BinTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        BinTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                binSlice(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BinTask(from, middle), new BinTask(middle, to));
+        }
+    }
+
+    private class ScatterTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        ScatterTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                scatterSlice(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScatterTask(from, middle), new ScatterTask(middle, to));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.amoghbhagwat.engine.light;
+
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The point and spot lights of a frame in world space, kept in parallel primitive arrays of four floats per light:
+ * <pre>
+ *   spheres       position, range
+ *   colors        color, intensity
+ *   attenuations  constant, linear, exponent, cosine of the cut off angle (below -1 for point lights)
+ *   directions    cone direction, 0
+ * </pre>
+ * The range is where the light's contribution falls below the threshold (see {@link PointLight#getRange(float)}), so
+ * it bounds everything the light can reach. Spot lights use the range of their point light and ignore the cone.
+ */
+public class LightStore {
+    /**
+     * Contribution below which a light is treated as out of range, one step of an 8 bit color channel.
+     */
+    public static final float DEFAULT_THRESHOLD = 1 / 256f;
+
+    public static final float POINT_LIGHT_CUT_OFF = -2;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private float threshold;
+    private float[] spheres;
+    private float[] colors;
+    private float[] attenuations;
+    private float[] directions;
+    private int size;
+
+    public LightStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LightStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.threshold = DEFAULT_THRESHOLD;
+        this.spheres = new float[capacity * 4];
+        this.colors = new float[capacity * 4];
+        this.attenuations = new float[capacity * 4];
+        this.directions = new float[capacity * 4];
+    }
+
+    public void setThreshold(float threshold) {
+        this.threshold = threshold;
+    }
+
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Replaces the stored lights, point lights first, skipping the ones that are off.
+     */
+    public void set(List<PointLight> pointLights, List<SpotLight> spotLights) {
+        size = 0;
+        ensureCapacity(pointLights.size() + spotLights.size());
+
+        for (int i = 0; i < pointLights.size(); i++) {
+            PointLight pointLight = pointLights.get(i);
+            if (pointLight.getIntensity() > 0) {
+                add(pointLight, null, POINT_LIGHT_CUT_OFF);
+            }
+        }
+        for (int i = 0; i < spotLights.size(); i++) {
+            SpotLight spotLight = spotLights.get(i);
+            if (spotLight.getPointLight().getIntensity() > 0) {
+                add(spotLight.getPointLight(), spotLight.getConeDirection(), spotLight.getCutOffAngle());
+            }
+        }
+    }
+
+    private void add(PointLight light, Vector3f coneDirection, float cutOff) {
+        int offset = size * 4;
+
+        Vector3f position = light.getPosition();
+        spheres[offset] = position.x;
+        spheres[offset + 1] = position.y;
+        spheres[offset + 2] = position.z;
+        spheres[offset + 3] = light.getRange(threshold);
+
+        Vector3f color = light.getColor();
+        colors[offset] = color.x;
+        colors[offset + 1] = color.y;
+        colors[offset + 2] = color.z;
+        colors[offset + 3] = light.getIntensity();
+
+        PointLight.Attenuation attenuation = light.getAttenuation();
+        attenuations[offset] = attenuation.getConstant();
+        attenuations[offset + 1] = attenuation.getLinear();
+        attenuations[offset + 2] = attenuation.getExponent();
+        attenuations[offset + 3] = cutOff;
+
+        if (coneDirection != null) {
+            directions[offset] = coneDirection.x;
+            directions[offset + 1] = coneDirection.y;
+            directions[offset + 2] = coneDirection.z;
+        } else {
+            directions[offset] = directions[offset + 1] = directions[offset + 2] = 0;
+        }
+        directions[offset + 3] = 0;
+        size++;
+    }
+
+    private void ensureCapacity(int lights) {
+        if (lights * 4 > spheres.length) {
+            int capacity = Math.max(lights, spheres.length / 4 * 2) * 4;
+            spheres = Arrays.copyOf(spheres, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+            attenuations = Arrays.copyOf(attenuations, capacity);
+            directions = Arrays.copyOf(directions, capacity);
+        }
+    }
+
+    /**
+     * How much the light adds at {@code distance}, by its brightest color channel.
+     */
+    public float getContribution(int light, float distance) {
+        int offset = light * 4;
+        float brightness = colors[offset + 3] * Math.max(colors[offset], Math.max(colors[offset + 1], colors[offset + 2]));
+        return brightness / (attenuations[offset] + (attenuations[offset + 1] + attenuations[offset + 2] * distance) * distance);
+    }
+
+    public boolean isSpotLight(int light) {
+        return attenuations[light * 4 + 3] >= -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public float[] getSpheres() {
+        return spheres;
+    }
+
+    public float[] getColors() {
+        return colors;
+    }
+
+    public float[] getAttenuations() {
+        return attenuations;
+    }
+
+    public float[] getDirections() {
+        return directions;
+    }
+}
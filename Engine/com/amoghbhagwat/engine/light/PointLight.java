@@ -26,6 +26,51 @@ public class PointLight {
         this(pointLight.getIntensity(), new Vector3f(pointLight.getColor()), new Vector3f(pointLight.getPosition()), pointLight.getAttenuation());
     }
 
+    /**
+     * Copies the values of another light into this one, keeping this light's own vectors and attenuation.
+     */
+    public PointLight set(PointLight pointLight) {
+        this.intensity = pointLight.getIntensity();
+        this.color.set(pointLight.getColor());
+        this.position.set(pointLight.getPosition());
+        this.attenuation.set(pointLight.getAttenuation());
+        return this;
+    }
+
+    /**
+     * Sets this light to the blend of two others at {@code alpha} in [0, 1], without allocating.
+     */
+    public PointLight interpolate(PointLight from, PointLight to, float alpha) {
+        this.intensity = from.getIntensity() + (to.getIntensity() - from.getIntensity()) * alpha;
+        from.getColor().lerp(to.getColor(), alpha, this.color);
+        from.getPosition().lerp(to.getPosition(), alpha, this.position);
+        this.attenuation.set(to.getAttenuation());
+        return this;
+    }
+
+    /**
+     * Distance beyond which the light adds less than {@code threshold} to any color channel, solving
+     * {@code intensity * color / (constant + linear * d + exponent * d^2) = threshold} for {@code d}. Infinite when the
+     * attenuation does not fall off with distance.
+     */
+    public float getRange(float threshold) {
+        float brightness = intensity * Math.max(color.x, Math.max(color.y, color.z));
+        float c = attenuation.getConstant() - brightness / threshold;
+        if (c >= 0) {
+            return 0;
+        }
+
+        float linear = attenuation.getLinear();
+        float exponent = attenuation.getExponent();
+        if (exponent > 0) {
+            return (float) ((-linear + Math.sqrt(linear * linear - 4 * exponent * c)) / (2 * exponent));
+        }
+        if (linear > 0) {
+            return -c / linear;
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+
     public float getIntensity() {
         return intensity;
     }
@@ -69,6 +114,13 @@ public class PointLight {
             this.exponent = exponent;
         }
 
+        public Attenuation set(Attenuation attenuation) {
+            this.constant = attenuation.getConstant();
+            this.linear = attenuation.getLinear();
+            this.exponent = attenuation.getExponent();
+            return this;
+        }
+
         public float getConstant() {
             return constant;
         }
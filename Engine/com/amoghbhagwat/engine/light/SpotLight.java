@@ -14,7 +14,29 @@ public class SpotLight {
     }
 
     public SpotLight(SpotLight spotLight) {
-        this(spotLight.getPointLight(), spotLight.getConeDirection(), spotLight.getCutOffAngle());
+        this.pointLight = new PointLight(spotLight.getPointLight());
+        this.coneDirection = new Vector3f(spotLight.getConeDirection());
+        this.cutOffAngle = spotLight.getCutOffAngle();
+    }
+
+    /**
+     * Copies the values of another light into this one, keeping this light's own point light and direction.
+     */
+    public SpotLight set(SpotLight spotLight) {
+        this.pointLight.set(spotLight.getPointLight());
+        this.coneDirection.set(spotLight.getConeDirection());
+        this.cutOffAngle = spotLight.getCutOffAngle();
+        return this;
+    }
+
+    /**
+     * Sets this light to the blend of two others at {@code alpha} in [0, 1], without allocating.
+     */
+    public SpotLight interpolate(SpotLight from, SpotLight to, float alpha) {
+        this.pointLight.interpolate(from.getPointLight(), to.getPointLight(), alpha);
+        from.getConeDirection().lerp(to.getConeDirection(), alpha, this.coneDirection);
+        this.cutOffAngle = from.getCutOffAngle() + (to.getCutOffAngle() - from.getCutOffAngle()) * alpha;
+        return this;
     }
 
     public final void calculateCutOffAngle(float cutOffAngle) {
@@ -3,8 +3,13 @@ package com.amoghbhagwat.engine.models;
 import com.amoghbhagwat.game.entities.Texture;
 import org.joml.Vector4f;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Material {
     private static final Vector4f DEFAULT_COLOR = new Vector4f(0.0f, 0.0f, 0.0f, 0.0f);
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id = NEXT_ID.getAndIncrement();
 
     private Vector4f ambientColor;
     private Vector4f diffuseColor;
@@ -40,6 +45,13 @@ public class Material {
         this.texture = texture;
     }
 
+    /**
+     * Small sequential id, used to sort draws by material.
+     */
+    public int getId() {
+        return id;
+    }
+
     public Vector4f getAmbientColor() {
         return ambientColor;
     }
@@ -0,0 +1,75 @@
+package com.amoghbhagwat.engine.models;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Bakes OBJ resources into the {@link MeshCache} format ahead of time.
+ * <p>
+ * Usage: {@code MeshBaker [--benchmark] <resource root> <cache dir> <resource>...}, e.g.
+ * {@code MeshBaker Resources cache/meshes /models/cube.obj}. With {@code --benchmark} the time to parse the OBJ is
+ * compared against a warm {@link MeshCache#loadBakedMesh(URL, Path)}, the same path the game takes: checking the OBJ's
+ * size and modification time, then mapping and verifying the baked file.
+ */
+public class MeshBaker {
+    private static final int BENCHMARK_ITERATIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        boolean benchmark = args.length > 0 && args[0].equals("--benchmark");
+        int first = benchmark ? 1 : 0;
+        if (args.length - first < 3) {
+            System.err.println("Usage: MeshBaker [--benchmark] <resource root> <cache dir> <resource>...");
+            System.exit(1);
+        }
+
+        Path resourceRoot = Paths.get(args[first]);
+        MeshCache cache = new MeshCache(Paths.get(args[first + 1]));
+
+        for (int i = first + 2; i < args.length; i++) {
+            String resource = args[i];
+            URL source = resourceRoot.resolve(resource.replaceAll("^[/\\\\]+", "")).toUri().toURL();
+            Path file = cache.getCacheFile(resource);
+
+            long start = System.nanoTime();
+            MeshData meshData = loadMeshData(source);
+            long parsed = System.nanoTime();
+            MeshCache.bake(meshData, MeshCache.SourceStamp.of(source), file);
+            long baked = System.nanoTime();
+
+            System.out.printf("%s -> %s: %d vertices, %d indices, reuse %.2f, parsed in %.2f ms, baked in %.2f ms%n",
+                    resource, file, meshData.getVertexCount(), meshData.getIndices().length, meshData.getVertexReuseRatio(),
+                    (parsed - start) / 1e6, (baked - parsed) / 1e6);
+
+            if (benchmark) {
+                benchmark(source, file);
+            }
+        }
+    }
+
+    private static MeshData loadMeshData(URL source) throws Exception {
+        try (InputStream in = source.openStream()) {
+            return OBJLoader.loadMeshData(Channels.newChannel(in), true);
+        }
+    }
+
+    private static void benchmark(URL source, Path file) throws Exception {
+        long coldTotal = 0;
+        long warmTotal = 0;
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            loadMeshData(source);
+            long parsed = System.nanoTime();
+            MeshCache.loadBakedMesh(source, file);
+            long mapped = System.nanoTime();
+
+            coldTotal += parsed - start;
+            warmTotal += mapped - parsed;
+        }
+
+        System.out.printf("  cold (OBJ read + parse + weld): %.3f ms, warm (stamp + map + verify): %.3f ms%n",
+                coldTotal / 1e6 / BENCHMARK_ITERATIONS, warmTotal / 1e6 / BENCHMARK_ITERATIONS);
+    }
+}
@@ -0,0 +1,260 @@
+package com.amoghbhagwat.engine.models;
+
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.VertexFormat;
+import com.amoghbhagwat.engine.graph.VertexPacker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Binary cache of welded OBJ meshes. A baked file is laid out as
+ * <pre>
+ *   header   magic, version, byte order mark, vertex stride, vertex count, index count, source size, source stamp
+ *   vertices interleaved position/texture coordinate/normal floats ({@link #BAKED_FORMAT})
+ *   indices  32 bit unsigned ints
+ *   checksum CRC32 of everything before it
+ * </pre>
+ * in native byte order, so the mapped blocks can be handed to GL untouched. A baked file is only used while the OBJ
+ * has the size and modification time it was baked from, so a warm load reads the file's metadata, not its contents.
+ */
+public class MeshCache {
+    public static final String FILE_EXTENSION = ".mesh";
+    public static final VertexFormat BAKED_FORMAT = VertexFormat.POSITION_TEXTURE_NORMAL;
+
+    private static final int MAGIC = 0x424D574C; // "LWMB"
+    private static final int VERSION = 2;
+    private static final int BYTE_ORDER_MARK = 0x01020304;
+    private static final int HEADER_SIZE = 40;
+    private static final int CHECKSUM_SIZE = 8;
+
+    private final Path directory;
+
+    public MeshCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Mesh loadMesh(String fileName) throws Exception {
+        BakedMesh bakedMesh = loadBakedMesh(fileName);
+        return new Mesh(bakedMesh.getVertices(), BAKED_FORMAT, bakedMesh.getIndices());
+    }
+
+    /**
+     * Maps the baked form of an OBJ resource, baking it first when there is no valid baked file for it. Does not touch
+     * GL, so it can run on any thread.
+     */
+    public BakedMesh loadBakedMesh(String fileName) throws Exception {
+        URL source = MeshCache.class.getResource(fileName);
+        if (source == null) {
+            throw new Exception("Could not find resource: " + fileName);
+        }
+        return loadBakedMesh(source, getCacheFile(fileName));
+    }
+
+    public static BakedMesh loadBakedMesh(URL source, Path file) throws Exception {
+        SourceStamp stamp = SourceStamp.of(source);
+        BakedMesh bakedMesh = map(file, stamp);
+        if (bakedMesh == null) {
+            MeshData meshData;
+            try (InputStream in = source.openStream()) {
+                meshData = OBJLoader.loadMeshData(Channels.newChannel(in), true);
+            }
+            bake(meshData, stamp, file);
+            bakedMesh = map(file, stamp);
+            if (bakedMesh == null) {
+                throw new Exception("Could not read back baked mesh: " + file);
+            }
+        }
+
+        return bakedMesh;
+    }
+
+    public Path getCacheFile(String fileName) {
+        String name = fileName.replaceAll("^[/\\\\]+", "").replaceAll("[/\\\\:]", "_");
+        return directory.resolve(name + FILE_EXTENSION);
+    }
+
+    public static void bake(MeshData meshData, SourceStamp stamp, Path file) throws IOException {
+        int vertexCount = meshData.getVertexCount();
+        int[] indices = meshData.getIndices();
+        int size = HEADER_SIZE + vertexCount * BAKED_FORMAT.getStride() + indices.length * 4 + CHECKSUM_SIZE;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(BYTE_ORDER_MARK);
+        buffer.putInt(BAKED_FORMAT.getStride());
+        buffer.putInt(vertexCount);
+        buffer.putInt(indices.length);
+        buffer.putLong(stamp.getSize());
+        buffer.putLong(stamp.getStamp());
+
+        VertexPacker.pack(meshData, BAKED_FORMAT, buffer);
+        for (int index : indices) {
+            buffer.putInt(index);
+        }
+
+        ByteBuffer payload = buffer.duplicate();
+        payload.flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a baked file, returning {@code null} when it is missing, stale, corrupt or was baked on a machine with a
+     * different byte order.
+     */
+    public static BakedMesh map(Path file, SourceStamp expectedStamp) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + CHECKSUM_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        mapped.order(ByteOrder.nativeOrder());
+
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION || mapped.getInt(8) != BYTE_ORDER_MARK
+                || mapped.getInt(12) != BAKED_FORMAT.getStride() || mapped.getLong(24) != expectedStamp.getSize()
+                || mapped.getLong(32) != expectedStamp.getStamp()) {
+            return null;
+        }
+
+        int vertexCount = mapped.getInt(16);
+        int indexCount = mapped.getInt(20);
+        long vertexBytes = (long) vertexCount * BAKED_FORMAT.getStride();
+        long indexBytes = (long) indexCount * 4;
+        if (vertexCount < 0 || indexCount < 0 || HEADER_SIZE + vertexBytes + indexBytes + CHECKSUM_SIZE != mapped.capacity()) {
+            return null;
+        }
+
+        int checksumOffset = mapped.capacity() - CHECKSUM_SIZE;
+        ByteBuffer payload = mapped.duplicate();
+        payload.position(0).limit(checksumOffset);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if (crc.getValue() != mapped.getLong(checksumOffset)) {
+            return null;
+        }
+
+        ByteBuffer vertices = slice(mapped, HEADER_SIZE, (int) vertexBytes);
+        ByteBuffer indices = slice(mapped, HEADER_SIZE + (int) vertexBytes, (int) indexBytes);
+        return new BakedMesh(vertices, indices, vertexCount, indexCount);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset).limit(offset + length);
+        return duplicate.slice().order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Identifies a version of an OBJ file by its size and modification time. Sources that report neither, e.g. some
+     * remote URLs, are read once and stamped with their CRC32 instead.
+     */
+    public static class SourceStamp {
+        private final long size;
+        private final long stamp;
+
+        public SourceStamp(long size, long stamp) {
+            this.size = size;
+            this.stamp = stamp;
+        }
+
+        public static SourceStamp of(URL source) throws Exception {
+            if ("file".equals(source.getProtocol())) {
+                Path path = Paths.get(source.toURI());
+                return new SourceStamp(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+            }
+
+            URLConnection connection = source.openConnection();
+            try (InputStream in = connection.getInputStream()) {
+                long size = connection.getContentLengthLong();
+                long lastModified = connection.getLastModified();
+                if (size >= 0 && lastModified != 0) {
+                    return new SourceStamp(size, lastModified);
+                }
+
+                CheckedInputStream checked = new CheckedInputStream(in, new CRC32());
+                byte[] buffer = new byte[8192];
+                long read = 0;
+                for (int n; (n = checked.read(buffer)) != -1; ) {
+                    read += n;
+                }
+                return new SourceStamp(read, checked.getChecksum().getValue());
+            }
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Modification time in milliseconds, or the CRC32 of the contents when there is none.
+         */
+        public long getStamp() {
+            return stamp;
+        }
+    }
+
+    public static class BakedMesh {
+        private final ByteBuffer vertices;
+        private final ByteBuffer indices;
+        private final int vertexCount;
+        private final int indexCount;
+
+        public BakedMesh(ByteBuffer vertices, ByteBuffer indices, int vertexCount, int indexCount) {
+            this.vertices = vertices;
+            this.indices = indices;
+            this.vertexCount = vertexCount;
+            this.indexCount = indexCount;
+        }
+
+        public ByteBuffer getVertices() {
+            return vertices;
+        }
+
+        public ByteBuffer getIndices() {
+            return indices;
+        }
+
+        public int getVertexCount() {
+            return vertexCount;
+        }
+
+        public int getIndexCount() {
+            return indexCount;
+        }
+    }
+}
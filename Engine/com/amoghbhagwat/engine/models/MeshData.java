@@ -0,0 +1,43 @@
+package com.amoghbhagwat.engine.models;
+
+public class MeshData {
+    private final float[] positions;
+    private final float[] textCoords;
+    private final float[] normals;
+    private final int[] indices;
+
+    public MeshData(float[] positions, float[] textCoords, float[] normals, int[] indices) {
+        this.positions = positions;
+        this.textCoords = textCoords;
+        this.normals = normals;
+        this.indices = indices;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getTextCoords() {
+        return textCoords;
+    }
+
+    public float[] getNormals() {
+        return normals;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /**
+     * Number of indices referencing each unique vertex on average. Higher means more sharing between triangles.
+     */
+    public float getVertexReuseRatio() {
+        int vertexCount = getVertexCount();
+        return vertexCount == 0 ? 0 : (float) indices.length / vertexCount;
+    }
+}
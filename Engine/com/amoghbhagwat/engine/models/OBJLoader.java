@@ -2,147 +2,114 @@ package com.amoghbhagwat.engine.models;
 
 import com.amoghbhagwat.engine.Utils;
 import com.amoghbhagwat.engine.graph.Mesh;
-import org.joml.Vector2f;
-import org.joml.Vector3f;
+import com.amoghbhagwat.engine.graph.VertexFormat;
+import com.amoghbhagwat.engine.utils.FloatList;
+import com.amoghbhagwat.engine.utils.IntList;
+import com.amoghbhagwat.engine.utils.IntTripleMap;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.channels.ReadableByteChannel;
 
 public class OBJLoader {
     public static Mesh loadMesh(String fileName) throws Exception {
-        List<String> lines = Utils.readAllLines(fileName);
-
-        List<Vector3f> vertices = new ArrayList<>();
-        List<Vector2f> textures = new ArrayList<>();
-        List<Vector3f> normals = new ArrayList<>();
-        List<Face> faces = new ArrayList<>();
-
-        for (String line : lines) {
-            String[] tokens = line.split("\\s+");
-            switch (tokens[0]) {
-                case "v":
-                    Vector3f vec3f = new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3]));
-                    vertices.add(vec3f);
-                    break;
-                case "vt":
-                    Vector2f vec2f = new Vector2f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]));
-                    textures.add(vec2f);
-                    break;
-                case "vn":
-                    Vector3f vec3fNorm = new Vector3f(
-                            Float.parseFloat(tokens[1]),
-                            Float.parseFloat(tokens[2]),
-                            Float.parseFloat(tokens[3]));
-                    normals.add(vec3fNorm);
-                    break;
-                case "f":
-                    Face face = new Face(tokens[1], tokens[2], tokens[3]);
-                    faces.add(face);
-                    break;
-                default:
-                    break;
-            }
-        }
-        return reorderLists(vertices, textures, normals, faces);
+        return loadMesh(fileName, false);
     }
 
-    private static Mesh reorderLists(List<Vector3f> posList, List<Vector2f> textCoordList, List<Vector3f> normList, List<Face> facesList) {
-
-        List<Integer> indices = new ArrayList<>();
-
-        float[] posArr = new float[posList.size() * 3];
-        int i = 0;
-        for (Vector3f pos : posList) {
-            posArr[i * 3] = pos.x;
-            posArr[i * 3 + 1] = pos.y;
-            posArr[i * 3 + 2] = pos.z;
-            i++;
-        }
-
-        float[] textCoordArr = new float[posList.size() * 2];
-        float[] normArr = new float[posList.size() * 3];
-
-        for (Face face : facesList) {
-            IdxGroup[] faceVertexIndices = face.getFaceVertexIndices();
-            for (IdxGroup indValue : faceVertexIndices) {
-                processFaceVertex(indValue, textCoordList, normList, indices, textCoordArr, normArr);
-            }
-        }
-
-        int[] indicesArr = indices.stream().mapToInt((Integer v) -> v).toArray();
-        return new Mesh(posArr, textCoordArr, normArr, indicesArr);
+    public static Mesh loadMesh(String fileName, boolean weldVertices) throws Exception {
+        MeshData meshData = loadMeshData(fileName, weldVertices);
+        return new Mesh(meshData, VertexFormat.POSITION_TEXTURE_NORMAL);
     }
 
-    private static void processFaceVertex(IdxGroup indices, List<Vector2f> textCoordList, List<Vector3f> normList, List<Integer> indicesList, float[] texCoordArr, float[] normArr) {
-        int posIndex = indices.idxPos;
-        indicesList.add(posIndex);
-
-        if (indices.idxTextCoord >= 0) {
-            Vector2f textCoord = textCoordList.get(indices.idxTextCoord);
-            texCoordArr[posIndex * 2] = textCoord.x;
-            texCoordArr[posIndex * 2 + 1] = 1 - textCoord.y;
-        }
-        if (indices.idxVecNormal >= 0) {
-            Vector3f vecNorm = normList.get(indices.idxVecNormal);
-            normArr[posIndex * 3] = vecNorm.x;
-            normArr[posIndex * 3 + 1] = vecNorm.y;
-            normArr[posIndex * 3 + 2] = vecNorm.z;
+    public static MeshData loadMeshData(String fileName, boolean weldVertices) throws Exception {
+        try (ReadableByteChannel channel = Utils.openResourceChannel(fileName)) {
+            return loadMeshData(channel, weldVertices);
         }
     }
 
-    protected static class Face {
-        private IdxGroup[] idxGroups = new IdxGroup[3];
+    /**
+     * When {@code weldVertices} is set every unique (position, texture coordinate, normal) combination becomes its
+     * own vertex, so shared positions with different UVs or normals are split instead of overwritten, and the
+     * resulting indices are reordered for the vertex cache.
+     */
+    public static MeshData loadMeshData(ReadableByteChannel channel, boolean weldVertices) throws Exception {
+        OBJParser parser = new OBJParser();
+        parser.parse(channel);
+        return weldVertices ? weldVertices(parser) : reorderLists(parser);
+    }
 
-        public Face(String v1, String v2, String v3) {
-            idxGroups = new IdxGroup[3];
-            idxGroups[0] = parseLine(v1);
-            idxGroups[1] = parseLine(v2);
-            idxGroups[2] = parseLine(v3);
+    private static MeshData weldVertices(OBJParser parser) {
+        FloatList positions = parser.getPositions();
+        FloatList textCoords = parser.getTextureCoords();
+        FloatList normals = parser.getNormals();
+        IntList faceVertices = parser.getFaceVertices();
+
+        int cornerCount = parser.getFaceVertexCount();
+        IntTripleMap vertexMap = new IntTripleMap(cornerCount);
+        FloatList posList = new FloatList(cornerCount * 3);
+        FloatList textCoordList = new FloatList(cornerCount * 2);
+        FloatList normList = new FloatList(cornerCount * 3);
+        int[] indicesArr = new int[cornerCount];
+
+        int vertexCount = 0;
+        for (int i = 0; i < cornerCount; i++) {
+            int posIndex = faceVertices.get(i * 3);
+            int textCoordIndex = faceVertices.get(i * 3 + 1);
+            int normalIndex = faceVertices.get(i * 3 + 2);
+
+            int vertex = vertexMap.putIfAbsent(posIndex, textCoordIndex, normalIndex, vertexCount);
+            if (vertex == IntTripleMap.NOT_FOUND) {
+                vertex = vertexCount++;
+                posList.add(positions.get(posIndex * 3), positions.get(posIndex * 3 + 1), positions.get(posIndex * 3 + 2));
+                if (textCoordIndex >= 0) {
+                    textCoordList.add(textCoords.get(textCoordIndex * 2), 1 - textCoords.get(textCoordIndex * 2 + 1));
+                } else {
+                    textCoordList.add(0, 0);
+                }
+                if (normalIndex >= 0) {
+                    normList.add(normals.get(normalIndex * 3), normals.get(normalIndex * 3 + 1), normals.get(normalIndex * 3 + 2));
+                } else {
+                    normList.add(0, 0, 0);
+                }
+            }
+            indicesArr[i] = vertex;
         }
 
-        private IdxGroup parseLine(String line) {
-            IdxGroup idxGroup = new IdxGroup();
+        indicesArr = VertexCacheOptimizer.optimize(indicesArr, vertexCount);
+        return new MeshData(posList.toArray(), textCoordList.toArray(), normList.toArray(), indicesArr);
+    }
 
-            String[] lineTokens = line.split("/");
-            int length = lineTokens.length;
-            idxGroup.idxPos = Integer.parseInt(lineTokens[0]) - 1;
+    private static MeshData reorderLists(OBJParser parser) {
+        float[] posArr = parser.getPositions().toArray();
+        int vertexCount = posArr.length / 3;
 
-            if (length > 1) {
-                String textCoord = lineTokens[1];
-                idxGroup.idxTextCoord = textCoord.length() > 0 ? Integer.parseInt(textCoord) - 1 : IdxGroup.NO_VALUE;
+        float[] textCoordArr = new float[vertexCount * 2];
+        float[] normArr = new float[vertexCount * 3];
+        int[] indicesArr = new int[parser.getFaceVertexCount()];
 
-                if (length > 2) {
-                    idxGroup.idxVecNormal = Integer.parseInt(lineTokens[2]) - 1;
-                }
-            }
+        FloatList textCoords = parser.getTextureCoords();
+        FloatList normals = parser.getNormals();
+        IntList faceVertices = parser.getFaceVertices();
 
-            return idxGroup;
+        for (int i = 0; i < indicesArr.length; i++) {
+            processFaceVertex(faceVertices, i, textCoords, normals, indicesArr, textCoordArr, normArr);
         }
 
-        public IdxGroup[] getFaceVertexIndices() {
-            return idxGroups;
-        }
+        return new MeshData(posArr, textCoordArr, normArr, indicesArr);
     }
 
-    protected static class IdxGroup {
-        public static final int NO_VALUE = -1;
-
-        public int idxPos;
-        public int idxTextCoord;
-        public int idxVecNormal;
+    private static void processFaceVertex(IntList faceVertices, int corner, FloatList textCoords, FloatList normals, int[] indicesArr, float[] texCoordArr, float[] normArr) {
+        int posIndex = faceVertices.get(corner * 3);
+        int textCoordIndex = faceVertices.get(corner * 3 + 1);
+        int normalIndex = faceVertices.get(corner * 3 + 2);
+        indicesArr[corner] = posIndex;
 
-        public IdxGroup() {
-            idxPos = NO_VALUE;
-            idxTextCoord = NO_VALUE;
-            idxVecNormal = NO_VALUE;
+        if (textCoordIndex >= 0) {
+            texCoordArr[posIndex * 2] = textCoords.get(textCoordIndex * 2);
+            texCoordArr[posIndex * 2 + 1] = 1 - textCoords.get(textCoordIndex * 2 + 1);
+        }
+        if (normalIndex >= 0) {
+            normArr[posIndex * 3] = normals.get(normalIndex * 3);
+            normArr[posIndex * 3 + 1] = normals.get(normalIndex * 3 + 1);
+            normArr[posIndex * 3 + 2] = normals.get(normalIndex * 3 + 2);
         }
     }
 }
-
-
-
@@ -0,0 +1,334 @@
+package com.amoghbhagwat.engine.models;
+
+import com.amoghbhagwat.engine.utils.FloatList;
+import com.amoghbhagwat.engine.utils.IntList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming Wavefront OBJ parser. Bytes are scanned straight out of the channel and numbers are parsed in place,
+ * so the only allocations are the growable primitive buffers holding the result.
+ */
+public class OBJParser {
+    public static final int NO_VALUE = -1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    /**
+     * Largest mantissa that is an exact float, 2^24.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 24;
+    /**
+     * Powers of ten that are exact floats, 10^10 being the last one whose odd part (5^10) fits in 24 bits.
+     */
+    private static final float[] POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private final byte[] readBuffer;
+    private final FloatList positions;
+    private final FloatList textureCoords;
+    private final FloatList normals;
+    private final IntList faceVertices;
+
+    private byte[] line;
+    private int lineLength;
+    private int cursor;
+
+    public OBJParser() {
+        this.readBuffer = new byte[BUFFER_SIZE];
+        this.line = new byte[256];
+        this.positions = new FloatList(1024);
+        this.textureCoords = new FloatList(1024);
+        this.normals = new FloatList(1024);
+        this.faceVertices = new IntList(4096);
+    }
+
+    public void parse(ReadableByteChannel channel) throws IOException {
+        positions.clear();
+        textureCoords.clear();
+        normals.clear();
+        faceVertices.clear();
+        lineLength = 0;
+
+        ByteBuffer buffer = ByteBuffer.wrap(readBuffer);
+        int read;
+        while ((read = channel.read(buffer)) != -1) {
+            if (read == 0) {
+                continue;
+            }
+
+            for (int i = 0; i < read; i++) {
+                byte b = readBuffer[i];
+                if (b == '\n') {
+                    parseLine();
+                    lineLength = 0;
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+            buffer.clear();
+        }
+
+        if (lineLength > 0) {
+            parseLine();
+            lineLength = 0;
+        }
+    }
+
+    /**
+     * Vertex positions, three floats per vertex in file order.
+     */
+    public FloatList getPositions() {
+        return positions;
+    }
+
+    /**
+     * Texture coordinates, two floats per entry in file order (not flipped).
+     */
+    public FloatList getTextureCoords() {
+        return textureCoords;
+    }
+
+    public FloatList getNormals() {
+        return normals;
+    }
+
+    /**
+     * Triangulated face corners as (position, texture coordinate, normal) index triples. Indices are zero based and
+     * already resolved when the file uses relative indices; missing components are {@link #NO_VALUE}.
+     */
+    public IntList getFaceVertices() {
+        return faceVertices;
+    }
+
+    public int getFaceVertexCount() {
+        return faceVertices.size() / 3;
+    }
+
+    private void parseLine() {
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+
+        cursor = 0;
+        skipWhitespace();
+        if (cursor >= lineLength) {
+            return;
+        }
+
+        byte first = line[cursor];
+        byte second = cursor + 1 < lineLength ? line[cursor + 1] : (byte) ' ';
+
+        if (first == 'v' && isWhitespace(second)) {
+            cursor += 1;
+            positions.add(parseFloat(), parseFloat(), parseFloat());
+        } else if (first == 'v' && second == 't' && isSeparator(cursor + 2)) {
+            cursor += 2;
+            textureCoords.add(parseFloat(), parseFloat());
+        } else if (first == 'v' && second == 'n' && isSeparator(cursor + 2)) {
+            cursor += 2;
+            normals.add(parseFloat(), parseFloat(), parseFloat());
+        } else if (first == 'f' && isWhitespace(second)) {
+            cursor += 1;
+            parseFace();
+        }
+    }
+
+    private void parseFace() {
+        int corners = 0;
+        int firstPos = 0, firstText = 0, firstNorm = 0;
+        int prevPos = 0, prevText = 0, prevNorm = 0;
+
+        skipWhitespace();
+        while (cursor < lineLength) {
+            int pos = resolveIndex(parseInt(), positions.size() / 3);
+            int text = NO_VALUE;
+            int norm = NO_VALUE;
+
+            if (cursor < lineLength && line[cursor] == '/') {
+                cursor++;
+                if (cursor < lineLength && isDigitOrSign(line[cursor])) {
+                    text = resolveIndex(parseInt(), textureCoords.size() / 2);
+                }
+                if (cursor < lineLength && line[cursor] == '/') {
+                    cursor++;
+                    norm = resolveIndex(parseInt(), normals.size() / 3);
+                }
+            }
+
+            if (corners == 0) {
+                firstPos = pos;
+                firstText = text;
+                firstNorm = norm;
+            } else if (corners >= 2) {
+                // Fan triangulation for quads and larger polygons
+                faceVertices.add(firstPos, firstText, firstNorm);
+                faceVertices.add(prevPos, prevText, prevNorm);
+                faceVertices.add(pos, text, norm);
+            }
+
+            prevPos = pos;
+            prevText = text;
+            prevNorm = norm;
+            corners++;
+
+            skipWhitespace();
+        }
+
+        if (corners < 3) {
+            throw new NumberFormatException("Face with less than three vertices: " + currentLine());
+        }
+    }
+
+    private static int resolveIndex(int index, int count) {
+        return index < 0 ? count + index : index - 1;
+    }
+
+    private int parseInt() {
+        int start = cursor;
+        boolean negative = false;
+        if (cursor < lineLength && (line[cursor] == '-' || line[cursor] == '+')) {
+            negative = line[cursor] == '-';
+            cursor++;
+        }
+
+        int value = 0;
+        int digitsStart = cursor;
+        while (cursor < lineLength && isDigit(line[cursor])) {
+            value = value * 10 + (line[cursor] - '0');
+            cursor++;
+        }
+
+        if (cursor == digitsStart) {
+            throw new NumberFormatException("Invalid index at column " + start + ": " + currentLine());
+        }
+
+        return negative ? -value : value;
+    }
+
+    private float parseFloat() {
+        skipWhitespace();
+        int start = cursor;
+
+        boolean negative = false;
+        if (cursor < lineLength && (line[cursor] == '-' || line[cursor] == '+')) {
+            negative = line[cursor] == '-';
+            cursor++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        boolean exact = true;
+
+        while (cursor < lineLength && isDigit(line[cursor])) {
+            anyDigits = true;
+            if (significantDigits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + (line[cursor] - '0');
+                if (mantissa != 0) {
+                    significantDigits++;
+                }
+            } else {
+                exact = false;
+            }
+            cursor++;
+        }
+
+        if (cursor < lineLength && line[cursor] == '.') {
+            cursor++;
+            while (cursor < lineLength && isDigit(line[cursor])) {
+                anyDigits = true;
+                if (significantDigits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (line[cursor] - '0');
+                    if (mantissa != 0) {
+                        significantDigits++;
+                    }
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+                cursor++;
+            }
+        }
+
+        if (anyDigits && cursor < lineLength && (line[cursor] == 'e' || line[cursor] == 'E')) {
+            cursor++;
+            boolean negativeExponent = false;
+            if (cursor < lineLength && (line[cursor] == '-' || line[cursor] == '+')) {
+                negativeExponent = line[cursor] == '-';
+                cursor++;
+            }
+            int exponentValue = 0;
+            int exponentStart = cursor;
+            while (cursor < lineLength && isDigit(line[cursor])) {
+                if (exponentValue < 10000) {
+                    exponentValue = exponentValue * 10 + (line[cursor] - '0');
+                }
+                cursor++;
+            }
+            if (cursor == exponentStart) {
+                exact = false;
+            }
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+
+        if (!anyDigits || !exact || (cursor < lineLength && !isWhitespace(line[cursor])) || mantissa > MAX_EXACT_MANTISSA
+                || exponent < -POWERS_OF_TEN.length + 1 || exponent > POWERS_OF_TEN.length - 1) {
+            return parseFloatSlow(start);
+        }
+
+        // Both operands are exact floats, so the one float operation rounds correctly, as Float.parseFloat does.
+        // Going through double would round twice
+        float value = mantissa;
+        if (exponent < 0) {
+            value /= POWERS_OF_TEN[-exponent];
+        } else if (exponent > 0) {
+            value *= POWERS_OF_TEN[exponent];
+        }
+
+        return negative ? -value : value;
+    }
+
+    private float parseFloatSlow(int start) {
+        cursor = start;
+        while (cursor < lineLength && !isWhitespace(line[cursor])) {
+            cursor++;
+        }
+        return Float.parseFloat(new String(line, start, cursor - start, StandardCharsets.US_ASCII));
+    }
+
+    private void skipWhitespace() {
+        while (cursor < lineLength && isWhitespace(line[cursor])) {
+            cursor++;
+        }
+    }
+
+    private boolean isSeparator(int index) {
+        return index >= lineLength || isWhitespace(line[index]);
+    }
+
+    private String currentLine() {
+        return new String(line, 0, lineLength, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isDigitOrSign(byte b) {
+        return isDigit(b) || b == '-' || b == '+';
+    }
+}
@@ -0,0 +1,180 @@
+package com.amoghbhagwat.engine.models;
+
+import java.util.Arrays;
+
+/**
+ * Reorders triangle indices for the post-transform vertex cache using Tom Forsyth's linear-speed algorithm.
+ */
+public class VertexCacheOptimizer {
+    private static final int CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    private VertexCacheOptimizer() {
+    }
+
+    public static int[] optimize(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+        if (triangleCount == 0) {
+            return indices.clone();
+        }
+
+        // Vertex -> triangle adjacency in CSR form
+        int[] valence = new int[vertexCount];
+        for (int index : indices) {
+            valence[index]++;
+        }
+        int[] adjacencyOffset = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyOffset[v + 1] = adjacencyOffset[v] + valence[v];
+        }
+        int[] adjacency = new int[indices.length];
+        int[] fill = Arrays.copyOf(adjacencyOffset, vertexCount);
+        for (int i = 0; i < indices.length; i++) {
+            adjacency[fill[indices[i]]++] = i / 3;
+        }
+
+        int[] remaining = valence.clone();
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScore[v] = score(-1, remaining[v]);
+        }
+
+        float[] triangleScore = new float[triangleCount];
+        boolean[] emitted = new boolean[triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            triangleScore[t] = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]] + vertexScore[indices[t * 3 + 2]];
+        }
+
+        int[] cache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int[] newCache = new int[CACHE_SIZE + 3];
+
+        int[] output = new int[triangleCount * 3];
+        int scanCursor = 0;
+        int bestTriangle = -1;
+
+        for (int emittedCount = 0; emittedCount < triangleCount; emittedCount++) {
+            if (bestTriangle < 0) {
+                float bestScore = -1;
+                for (int t = scanCursor; t < triangleCount; t++) {
+                    if (!emitted[t] && triangleScore[t] > bestScore) {
+                        bestScore = triangleScore[t];
+                        bestTriangle = t;
+                    }
+                }
+                while (scanCursor < triangleCount && emitted[scanCursor]) {
+                    scanCursor++;
+                }
+            }
+
+            emitted[bestTriangle] = true;
+            int base = bestTriangle * 3;
+            output[emittedCount * 3] = indices[base];
+            output[emittedCount * 3 + 1] = indices[base + 1];
+            output[emittedCount * 3 + 2] = indices[base + 2];
+
+            // The emitted triangle's vertices move to the front of the LRU cache
+            int newCount = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[base + k];
+                newCache[newCount++] = v;
+                removeTriangle(adjacency, adjacencyOffset[v], remaining[v], bestTriangle);
+                remaining[v]--;
+            }
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                if (v != indices[base] && v != indices[base + 1] && v != indices[base + 2]) {
+                    newCache[newCount++] = v;
+                }
+            }
+
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+            cacheCount = newCount;
+
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                cachePosition[v] = i < CACHE_SIZE ? i : -1;
+                vertexScore[v] = score(cachePosition[v], remaining[v]);
+            }
+
+            // Rescore triangles touching the cache and pick the best candidate among them
+            bestTriangle = -1;
+            float bestScore = -1;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                int start = adjacencyOffset[v];
+                for (int j = start; j < start + remaining[v]; j++) {
+                    int t = adjacency[j];
+                    float s = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]] + vertexScore[indices[t * 3 + 2]];
+                    triangleScore[t] = s;
+                    if (s > bestScore) {
+                        bestScore = s;
+                        bestTriangle = t;
+                    }
+                }
+            }
+
+            cacheCount = Math.min(cacheCount, CACHE_SIZE);
+        }
+
+        return output;
+    }
+
+    /**
+     * Average number of vertex shader invocations per triangle for a FIFO cache of the given size.
+     */
+    public static float averageCacheMissRatio(int[] indices, int vertexCount, int cacheSize) {
+        int triangleCount = indices.length / 3;
+        if (triangleCount == 0) {
+            return 0;
+        }
+
+        int[] insertedAt = new int[vertexCount];
+        Arrays.fill(insertedAt, Integer.MIN_VALUE / 2);
+        int misses = 0;
+        for (int index : indices) {
+            if (misses - insertedAt[index] >= cacheSize) {
+                insertedAt[index] = misses;
+                misses++;
+            }
+        }
+
+        return (float) misses / triangleCount;
+    }
+
+    private static void removeTriangle(int[] adjacency, int start, int count, int triangle) {
+        for (int i = start; i < start + count; i++) {
+            if (adjacency[i] == triangle) {
+                adjacency[i] = adjacency[start + count - 1];
+                adjacency[start + count - 1] = triangle;
+                return;
+            }
+        }
+    }
+
+    private static float score(int cachePosition, int remainingValence) {
+        if (remainingValence == 0) {
+            return -1;
+        }
+
+        float score = 0;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                score = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1.0f / (CACHE_SIZE - 3);
+                score = (float) Math.pow(1.0f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+
+        score += VALENCE_BOOST_SCALE * (float) Math.pow(remainingValence, -VALENCE_BOOST_POWER);
+        return score;
+    }
+}
@@ -0,0 +1,84 @@
+package com.amoghbhagwat.engine.profiler;
+
+import java.io.IOException;
+
+/**
+ * Exports the events kept by {@link FrameProfiler}s in the Chrome trace event format, which chrome://tracing and
+ * Perfetto open directly. Each profiler becomes one named thread, and its GPU scopes a second one next to it.
+ */
+public final class ChromeTrace {
+    private ChromeTrace() {
+    }
+
+    /**
+     * Writes one JSON document. The profilers must not be recording frames meanwhile.
+     */
+    public static void write(Appendable out, FrameProfiler... profilers) throws IOException {
+        long base = Long.MAX_VALUE;
+        for (FrameProfiler profiler : profilers) {
+            base = Math.min(base, profiler.getOldestEventStart());
+        }
+
+        out.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        boolean first = true;
+        for (int i = 0; i < profilers.length; i++) {
+            FrameProfiler profiler = profilers[i];
+            int cpuThreadId = i * 2 + 1;
+            int gpuThreadId = i * 2 + 2;
+
+            if (!first) {
+                out.append(",\n");
+            }
+            appendThreadName(out, cpuThreadId, profiler.getThreadName());
+            out.append(",\n");
+            appendThreadName(out, gpuThreadId, profiler.getThreadName() + " GPU");
+            first = false;
+
+            if (profiler.hasEvents()) {
+                profiler.writeTraceEvents(out, base, cpuThreadId, gpuThreadId, false);
+            }
+        }
+        out.append("\n]}\n");
+    }
+
+    private static void appendThreadName(Appendable out, int threadId, String name) throws IOException {
+        out.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(Integer.toString(threadId));
+        out.append(",\"args\":{\"name\":");
+        appendString(out, name);
+        out.append("}}");
+    }
+
+    static void appendString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Trace timestamps are in microseconds; nanosecond precision is kept as three decimals.
+     */
+    static void appendMicros(Appendable out, long nanos) throws IOException {
+        if (nanos < 0) {
+            out.append('-');
+            nanos = -nanos;
+        }
+        long fraction = nanos % 1000;
+        out.append(Long.toString(nanos / 1000)).append('.');
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(Long.toString(fraction));
+    }
+}
@@ -0,0 +1,394 @@
+package com.amoghbhagwat.engine.profiler;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Hierarchical scope profiler for one thread. Scopes are registered by name up front with {@link #scope(String)} and
+ * timed with {@link #begin(int)} and {@link #end(int)} between {@link #beginFrame()} and {@link #endFrame()}; scopes
+ * may nest and may run several times a frame, e.g. once per update tick.
+ * <p>
+ * Per frame, the time of every scope is summed and kept for the last {@code window} frames, from which
+ * {@link #getMinNanos(int)}, {@link #getAverageNanos(int)} and {@link #getPercentileNanos(int, double)} are computed.
+ * Every individual scope run is also kept in a ring of the latest events for {@link ChromeTrace} export. GPU times
+ * come from an optional {@link GpuTimer} and are kept the same way, a few frames late.
+ * <p>
+ * All storage is allocated up front, so neither the frame path nor the statistics allocate, whether the profiler is
+ * enabled or not. A profiler belongs to the thread that runs its frames; statistics read from other threads may be
+ * slightly stale.
+ */
+public class FrameProfiler {
+    public static final int FRAME_SCOPE = 0;
+    public static final int DEFAULT_MAX_SCOPES = 64;
+    public static final int DEFAULT_WINDOW = 240;
+    public static final int DEFAULT_EVENT_CAPACITY = 1 << 16;
+
+    private static final int MAX_DEPTH = 32;
+    private static final long NOT_RUN = -1;
+    private static final int GPU_EVENT = 1 << 31;
+    private static final int DEPTH_SHIFT = 16;
+    private static final int SCOPE_MASK = (1 << DEPTH_SHIFT) - 1;
+
+    private final String threadName;
+    private final int maxScopes;
+    private final int window;
+
+    private final String[] scopeNames;
+    private final int[] scopeDepths;
+    private int scopeCount;
+
+    private final int[] stackScopes;
+    private final long[] stackStarts;
+    private int depth;
+
+    private final long[] frameTotals;
+    private final int[] frameCalls;
+    private final long[] history;
+    private final long[] gpuFrameTotals;
+    private final long[] gpuHistory;
+    private final long[] sortedHistory;
+    private int historyCursor;
+    private int historyCount;
+
+    private final long[] eventStarts;
+    private final long[] eventDurations;
+    private final int[] eventInfo;
+    private int eventCursor;
+    private int eventCount;
+
+    private volatile boolean enabledRequested;
+    private boolean enabled;
+    private boolean inFrame;
+    private long frames;
+    private GpuTimer gpuTimer;
+
+    public FrameProfiler(String threadName) {
+        this(threadName, DEFAULT_MAX_SCOPES, DEFAULT_WINDOW, DEFAULT_EVENT_CAPACITY);
+    }
+
+    /**
+     * @param window        frames the statistics are computed over
+     * @param eventCapacity scope runs kept for trace export
+     */
+    public FrameProfiler(String threadName, int maxScopes, int window, int eventCapacity) {
+        this.threadName = threadName;
+        this.maxScopes = Math.min(Math.max(maxScopes, 1), SCOPE_MASK);
+        this.window = Math.max(window, 1);
+        this.scopeNames = new String[this.maxScopes];
+        this.scopeDepths = new int[this.maxScopes];
+        this.stackScopes = new int[MAX_DEPTH];
+        this.stackStarts = new long[MAX_DEPTH];
+        this.frameTotals = new long[this.maxScopes];
+        this.frameCalls = new int[this.maxScopes];
+        this.history = new long[this.maxScopes * this.window];
+        this.gpuFrameTotals = new long[this.maxScopes];
+        this.gpuHistory = new long[this.maxScopes * this.window];
+        this.sortedHistory = new long[this.window];
+        this.eventStarts = new long[Math.max(eventCapacity, 1)];
+        this.eventDurations = new long[eventStarts.length];
+        this.eventInfo = new int[eventStarts.length];
+        Arrays.fill(history, NOT_RUN);
+        Arrays.fill(gpuHistory, NOT_RUN);
+        Arrays.fill(gpuFrameTotals, NOT_RUN);
+        scope("frame");
+    }
+
+    /**
+     * Returns the id of the scope with this name, registering it the first time. Not meant for the frame path.
+     */
+    public synchronized int scope(String name) {
+        for (int i = 0; i < scopeCount; i++) {
+            if (scopeNames[i].equals(name)) {
+                return i;
+            }
+        }
+        if (scopeCount == maxScopes) {
+            throw new IllegalStateException("Too many profiler scopes, cannot add " + name);
+        }
+        scopeNames[scopeCount] = name;
+        return scopeCount++;
+    }
+
+    /**
+     * Takes effect from the next {@link #beginFrame()}, so a frame is never half recorded.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabledRequested = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabledRequested;
+    }
+
+    /**
+     * Times GPU scopes with the given timer, or stops doing so when {@code null}.
+     */
+    public void setGpuTimer(GpuTimer gpuTimer) {
+        this.gpuTimer = gpuTimer;
+    }
+
+    public GpuTimer getGpuTimer() {
+        return gpuTimer;
+    }
+
+    public void beginFrame() {
+        enabled = enabledRequested;
+        if (!enabled) {
+            return;
+        }
+
+        inFrame = true;
+        depth = 0;
+        Arrays.fill(frameTotals, 0, scopeCount, 0);
+        Arrays.fill(frameCalls, 0, scopeCount, 0);
+        if (gpuTimer != null) {
+            gpuTimer.beginFrame(this);
+        }
+        begin(FRAME_SCOPE);
+    }
+
+    public void endFrame() {
+        if (!enabled || !inFrame) {
+            return;
+        }
+
+        end(FRAME_SCOPE);
+        if (depth != 0) {
+            throw new IllegalStateException("Profiler scope " + scopeNames[stackScopes[depth - 1]] + " was not ended");
+        }
+        if (gpuTimer != null) {
+            gpuTimer.endFrame();
+        }
+
+        for (int scope = 0; scope < scopeCount; scope++) {
+            int offset = scope * window + historyCursor;
+            history[offset] = frameCalls[scope] > 0 ? frameTotals[scope] : NOT_RUN;
+            gpuHistory[offset] = gpuFrameTotals[scope];
+            gpuFrameTotals[scope] = NOT_RUN;
+        }
+        historyCursor = (historyCursor + 1) % window;
+        if (historyCount < window) {
+            historyCount++;
+        }
+        frames++;
+        inFrame = false;
+    }
+
+    public void begin(int scope) {
+        if (!enabled) {
+            return;
+        }
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("Profiler scopes nested deeper than " + MAX_DEPTH);
+        }
+
+        stackScopes[depth] = scope;
+        stackStarts[depth] = System.nanoTime();
+        depth++;
+    }
+
+    public void end(int scope) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (depth == 0 || stackScopes[depth - 1] != scope) {
+            throw new IllegalStateException("Profiler scope " + scopeNames[scope] + " ended out of order");
+        }
+
+        depth--;
+        long duration = now - stackStarts[depth];
+        frameTotals[scope] += duration;
+        frameCalls[scope]++;
+        scopeDepths[scope] = depth;
+        recordEvent(scope, depth, stackStarts[depth], duration, false);
+    }
+
+    /**
+     * Starts a GPU timestamp pair around the commands issued until {@link #endGpu(int)}. Does nothing without a
+     * {@link GpuTimer}.
+     */
+    public void beginGpu(int scope) {
+        if (enabled && gpuTimer != null) {
+            gpuTimer.begin(scope, depth);
+        }
+    }
+
+    public void endGpu(int scope) {
+        if (enabled && gpuTimer != null) {
+            gpuTimer.end(scope);
+        }
+    }
+
+    /**
+     * Adds a GPU time that was read back for an earlier frame. Called by the {@link GpuTimer}.
+     */
+    void recordGpu(int scope, int depth, long start, long duration) {
+        gpuFrameTotals[scope] = Math.max(gpuFrameTotals[scope], 0) + duration;
+        recordEvent(scope, depth, start, duration, true);
+    }
+
+    private void recordEvent(int scope, int depth, long start, long duration, boolean gpu) {
+        eventStarts[eventCursor] = start;
+        eventDurations[eventCursor] = duration;
+        eventInfo[eventCursor] = scope | depth << DEPTH_SHIFT | (gpu ? GPU_EVENT : 0);
+        eventCursor = (eventCursor + 1) % eventStarts.length;
+        if (eventCount < eventStarts.length) {
+            eventCount++;
+        }
+    }
+
+    public long getMinNanos(int scope) {
+        return min(history, scope);
+    }
+
+    public long getAverageNanos(int scope) {
+        return average(history, scope);
+    }
+
+    /**
+     * Per-frame time of a scope at the given percentile of the window, e.g. {@code getPercentileNanos(scope, 99)}.
+     * Frames the scope did not run in are left out; returns 0 if it did not run at all.
+     */
+    public long getPercentileNanos(int scope, double percentile) {
+        return percentile(history, scope, percentile);
+    }
+
+    public long getGpuMinNanos(int scope) {
+        return min(gpuHistory, scope);
+    }
+
+    public long getGpuAverageNanos(int scope) {
+        return average(gpuHistory, scope);
+    }
+
+    public long getGpuPercentileNanos(int scope, double percentile) {
+        return percentile(gpuHistory, scope, percentile);
+    }
+
+    /**
+     * Times the scope ran in the last completed frame.
+     */
+    public int getCalls(int scope) {
+        return enabled && !inFrame ? frameCalls[scope] : 0;
+    }
+
+    private long min(long[] samples, int scope) {
+        long min = Long.MAX_VALUE;
+        for (int i = scope * window, end = i + historyCount; i < end; i++) {
+            if (samples[i] >= 0 && samples[i] < min) {
+                min = samples[i];
+            }
+        }
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    private long average(long[] samples, int scope) {
+        long sum = 0;
+        int count = 0;
+        for (int i = scope * window, end = i + historyCount; i < end; i++) {
+            if (samples[i] >= 0) {
+                sum += samples[i];
+                count++;
+            }
+        }
+        return count > 0 ? sum / count : 0;
+    }
+
+    private long percentile(long[] samples, int scope, double percentile) {
+        int count = 0;
+        for (int i = scope * window, end = i + historyCount; i < end; i++) {
+            if (samples[i] >= 0) {
+                sortedHistory[count++] = samples[i];
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        Arrays.sort(sortedHistory, 0, count);
+        int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sortedHistory[Math.max(0, Math.min(rank, count - 1))];
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public int getScopeCount() {
+        return scopeCount;
+    }
+
+    public String getScopeName(int scope) {
+        return scopeNames[scope];
+    }
+
+    /**
+     * Nesting depth the scope last ran at, 0 for the frame itself, for indenting an overlay.
+     */
+    public int getScopeDepth(int scope) {
+        return scopeDepths[scope];
+    }
+
+    /**
+     * Frames the statistics currently cover, at most the window size.
+     */
+    public int getSampledFrames() {
+        return historyCount;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public void clear() {
+        Arrays.fill(history, NOT_RUN);
+        Arrays.fill(gpuHistory, NOT_RUN);
+        historyCursor = 0;
+        historyCount = 0;
+        eventCursor = 0;
+        eventCount = 0;
+    }
+
+    /**
+     * Writes the kept events, oldest first, as Chrome trace events with times relative to {@code baseNanos}. Must not
+     * run while frames are being recorded.
+     */
+    void writeTraceEvents(Appendable out, long baseNanos, int cpuThreadId, int gpuThreadId, boolean first) throws IOException {
+        int capacity = eventStarts.length;
+        int oldest = (eventCursor - eventCount + capacity) % capacity;
+        for (int n = 0; n < eventCount; n++) {
+            int i = (oldest + n) % capacity;
+            int info = eventInfo[i];
+            boolean gpu = (info & GPU_EVENT) != 0;
+
+            if (!first) {
+                out.append(",\n");
+            }
+            first = false;
+            out.append("{\"name\":");
+            ChromeTrace.appendString(out, scopeNames[info & SCOPE_MASK]);
+            out.append(",\"cat\":\"").append(gpu ? "gpu" : "cpu").append("\",\"ph\":\"X\",\"ts\":");
+            ChromeTrace.appendMicros(out, eventStarts[i] - baseNanos);
+            out.append(",\"dur\":");
+            ChromeTrace.appendMicros(out, eventDurations[i]);
+            out.append(",\"pid\":1,\"tid\":").append(Integer.toString(gpu ? gpuThreadId : cpuThreadId)).append('}');
+        }
+    }
+
+    /**
+     * Start of the oldest kept event, or {@link Long#MAX_VALUE} if there is none.
+     */
+    long getOldestEventStart() {
+        long oldest = Long.MAX_VALUE;
+        int capacity = eventStarts.length;
+        for (int n = 0, i = (eventCursor - eventCount + capacity) % capacity; n < eventCount; n++, i = (i + 1) % capacity) {
+            oldest = Math.min(oldest, eventStarts[i]);
+        }
+        return oldest;
+    }
+
+    boolean hasEvents() {
+        return eventCount > 0;
+    }
+}
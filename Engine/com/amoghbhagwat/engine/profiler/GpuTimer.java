@@ -0,0 +1,128 @@
+package com.amoghbhagwat.engine.profiler;
+
+import com.amoghbhagwat.engine.graph.GLBackend;
+import com.amoghbhagwat.engine.graph.LwjglGLBackend;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import static org.lwjgl.opengl.GL15.GL_QUERY_RESULT;
+import static org.lwjgl.opengl.GL15.GL_QUERY_RESULT_AVAILABLE;
+import static org.lwjgl.opengl.GL33.GL_TIMESTAMP;
+
+/**
+ * Times GPU work with timestamp queries. Query objects for {@link #FRAME_LATENCY} frames are created up front and
+ * reused round robin, and a frame's results are only read when its queries come round again, by which time the GPU
+ * has normally finished with them, so reading never stalls. Results that are still not available then are dropped
+ * instead of waited for.
+ * <p>
+ * GPU timestamps are moved onto the {@link System#nanoTime()} clock with an offset measured when the timer is created.
+ * Needs OpenGL 3.3 or ARB_timer_query and must be used on the thread that owns the context.
+ */
+public class GpuTimer {
+    public static final int FRAME_LATENCY = 4;
+    public static final int MAX_SCOPES_PER_FRAME = 32;
+
+    private static final int MAX_DEPTH = 8;
+
+    private final GLBackend backend;
+    private final int[] queries;
+    private final int[] scopes;
+    private final int[] depths;
+    private final int[] counts;
+    private final int[] lastQueries;
+    private final int[] openPairs;
+    private final long gpuToCpuOffset;
+
+    private FrameProfiler profiler;
+    private int openCount;
+    private long frame;
+    private long droppedFrames;
+
+    public GpuTimer() {
+        this(new LwjglGLBackend());
+    }
+
+    public GpuTimer(GLBackend backend) {
+        this.backend = backend;
+        int pairs = FRAME_LATENCY * MAX_SCOPES_PER_FRAME;
+        this.queries = new int[pairs * 2];
+        this.scopes = new int[pairs];
+        this.depths = new int[pairs];
+        this.counts = new int[FRAME_LATENCY];
+        this.lastQueries = new int[FRAME_LATENCY];
+        this.openPairs = new int[MAX_DEPTH];
+        backend.genQueries(queries);
+        this.gpuToCpuOffset = System.nanoTime() - backend.getInteger64(GL_TIMESTAMP);
+    }
+
+    public static boolean isSupported() {
+        GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL33 || capabilities.GL_ARB_timer_query;
+    }
+
+    /**
+     * Reads back the frame that used this frame's queries before, and reports its times to the profiler.
+     */
+    void beginFrame(FrameProfiler profiler) {
+        this.profiler = profiler;
+        this.openCount = 0;
+
+        int slot = (int) (frame % FRAME_LATENCY);
+        int count = counts[slot];
+        counts[slot] = 0;
+        if (count == 0) {
+            return;
+        }
+
+        // Queries complete in order, so the one issued last tells whether the whole frame is ready
+        if (backend.getQueryObjecti(lastQueries[slot], GL_QUERY_RESULT_AVAILABLE) == 0) {
+            droppedFrames++;
+            return;
+        }
+        for (int pair = slot * MAX_SCOPES_PER_FRAME, last = pair + count; pair < last; pair++) {
+            long start = backend.getQueryObjectui64(queries[pair * 2], GL_QUERY_RESULT);
+            long end = backend.getQueryObjectui64(queries[pair * 2 + 1], GL_QUERY_RESULT);
+            profiler.recordGpu(scopes[pair], depths[pair], start + gpuToCpuOffset, end - start);
+        }
+    }
+
+    void endFrame() {
+        if (openCount != 0) {
+            throw new IllegalStateException("GPU scope " + profiler.getScopeName(scopes[openPairs[openCount - 1]]) + " was not ended");
+        }
+        frame++;
+    }
+
+    void begin(int scope, int depth) {
+        int slot = (int) (frame % FRAME_LATENCY);
+        if (counts[slot] == MAX_SCOPES_PER_FRAME || openCount == MAX_DEPTH) {
+            throw new IllegalStateException("Too many GPU scopes in one frame");
+        }
+
+        int pair = slot * MAX_SCOPES_PER_FRAME + counts[slot]++;
+        scopes[pair] = scope;
+        depths[pair] = depth;
+        openPairs[openCount++] = pair;
+        backend.queryCounter(queries[pair * 2], GL_TIMESTAMP);
+    }
+
+    void end(int scope) {
+        if (openCount == 0 || scopes[openPairs[openCount - 1]] != scope) {
+            throw new IllegalStateException("GPU scope " + profiler.getScopeName(scope) + " ended out of order");
+        }
+        int query = queries[openPairs[--openCount] * 2 + 1];
+        backend.queryCounter(query, GL_TIMESTAMP);
+        lastQueries[(int) (frame % FRAME_LATENCY)] = query;
+    }
+
+    /**
+     * Frames whose results were not ready in time and were left out.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public void cleanUp() {
+        backend.deleteQueries(queries);
+    }
+}
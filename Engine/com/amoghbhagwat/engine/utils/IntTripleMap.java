@@ -0,0 +1,108 @@
+package com.amoghbhagwat.engine.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from an (int, int, int) key to a non negative int value, stored in flat primitive arrays.
+ */
+public class IntTripleMap {
+    public static final int NOT_FOUND = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntTripleMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int get(int a, int b, int c) {
+        int slot = hash(a, b, c) & mask;
+        while (values[slot] != NOT_FOUND) {
+            int key = slot * 3;
+            if (keys[key] == a && keys[key + 1] == b && keys[key + 2] == c) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return NOT_FOUND;
+    }
+
+    /**
+     * Returns the value already mapped to the key, or maps the key to {@code value} and returns {@link #NOT_FOUND}.
+     */
+    public int putIfAbsent(int a, int b, int c, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non negative: " + value);
+        }
+
+        if ((size + 1) * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+
+        int slot = hash(a, b, c) & mask;
+        while (values[slot] != NOT_FOUND) {
+            int key = slot * 3;
+            if (keys[key] == a && keys[key + 1] == b && keys[key + 2] == c) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int key = slot * 3;
+        keys[key] = a;
+        keys[key + 1] = b;
+        keys[key + 2] = c;
+        values[slot] = value;
+        size++;
+
+        return NOT_FOUND;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, NOT_FOUND);
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity * 3];
+        values = new int[capacity];
+        Arrays.fill(values, NOT_FOUND);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == NOT_FOUND) {
+                continue;
+            }
+            int a = oldKeys[i * 3], b = oldKeys[i * 3 + 1], c = oldKeys[i * 3 + 2];
+            int slot = hash(a, b, c) & mask;
+            while (values[slot] != NOT_FOUND) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot * 3] = a;
+            keys[slot * 3 + 1] = b;
+            keys[slot * 3 + 2] = c;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1;
+        h = (h ^ (h >>> 15)) + b * 0x85EBCA77;
+        h = (h ^ (h >>> 13)) + c * 0xC2B2AE3D;
+        return h ^ (h >>> 16);
+    }
+}
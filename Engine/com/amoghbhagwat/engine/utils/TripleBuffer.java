@@ -0,0 +1,60 @@
+package com.amoghbhagwat.engine.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free handoff of the latest value from one writer thread to one reader thread through three preallocated
+ * buffers. The writer fills {@link #getWriteBuffer()} and calls {@link #publish()}; the reader calls
+ * {@link #acquire()} to get the newest published buffer. Neither side ever waits, and a buffer is never written while
+ * the reader holds it.
+ */
+public class TripleBuffer<T> {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final Object[] buffers;
+    // Index of the buffer between writer and reader, plus FRESH if it was published but not yet acquired
+    private final AtomicInteger middle;
+    private int writeIndex;
+    private int readIndex;
+
+    public TripleBuffer(Supplier<T> factory) {
+        this.buffers = new Object[]{factory.get(), factory.get(), factory.get()};
+        this.writeIndex = 0;
+        this.readIndex = 1;
+        this.middle = new AtomicInteger(2);
+    }
+
+    /**
+     * Buffer owned by the writer until the next {@link #publish()}.
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) buffers[writeIndex];
+    }
+
+    /**
+     * Makes the write buffer the newest value and hands the writer a free buffer. Values the reader never acquired
+     * are overwritten.
+     */
+    public void publish() {
+        writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+    }
+
+    public boolean hasNewValue() {
+        return (middle.get() & FRESH) != 0;
+    }
+
+    /**
+     * Newest published buffer, owned by the reader until the next call. Returns the previous buffer again when nothing
+     * was published since.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+        }
+        return (T) buffers[readIndex];
+    }
+}
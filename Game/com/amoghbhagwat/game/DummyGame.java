@@ -1,37 +1,54 @@
 package com.amoghbhagwat.game;
 
 import com.amoghbhagwat.engine.GameLogic;
+import com.amoghbhagwat.engine.InputSnapshot;
 import com.amoghbhagwat.engine.Window;
+import com.amoghbhagwat.engine.assets.AssetLoader;
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.engine.jobs.UpdateJob;
 import com.amoghbhagwat.engine.graph.Mesh;
 import com.amoghbhagwat.engine.light.DirectionalLight;
 import com.amoghbhagwat.engine.light.PointLight;
 import com.amoghbhagwat.engine.light.SpotLight;
 import com.amoghbhagwat.engine.models.Material;
-import com.amoghbhagwat.engine.models.OBJLoader;
+import com.amoghbhagwat.engine.models.MeshCache;
+import com.amoghbhagwat.engine.profiler.FrameProfiler;
+import com.amoghbhagwat.engine.utils.TripleBuffer;
 import com.amoghbhagwat.game.entities.Camera;
 import com.amoghbhagwat.game.entities.GameItem;
 import com.amoghbhagwat.game.entities.Texture;
+import com.amoghbhagwat.game.scene.FrameSnapshot;
+import com.amoghbhagwat.game.scene.TransformStore;
 import com.amoghbhagwat.game.utils.MouseInput;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.lwjgl.glfw.GLFW.*;
 
 public class DummyGame implements GameLogic {
     private static final float MOUSE_SENSITIVITY = 0.2f;
     private static final float CAMERA_POS_STEP = 0.5f;
+    private static final long UPLOAD_BUDGET_NANOS = 2_000_000L;
+    private static final float WORLD_HALF_SIZE = 512f;
 
     private final Renderer renderer;
+    private final AssetLoader assetLoader;
     private final Vector3f cameraInc;
     private final Camera camera;
+    private final TransformStore transformStore;
+    private final TripleBuffer<FrameSnapshot> snapshots;
 
     private List<GameItem> gameItems = new ArrayList<>();
 
     private Vector3f ambientLight;
-    private PointLight pointLight;
+    private final List<PointLight> pointLights = new ArrayList<>();
+    private final List<SpotLight> spotLights = new ArrayList<>();
     private SpotLight spotLight;
     private DirectionalLight directionalLight;
 
@@ -40,25 +57,46 @@ public class DummyGame implements GameLogic {
     private float spotAngle = 0;
     private float spotInc = 1;
 
+    private long tick;
+    private FrameSnapshot lastSnapshot;
+
     public DummyGame() {
         renderer = new Renderer();
+        assetLoader = new AssetLoader(new MeshCache(Paths.get("cache", "meshes")));
         cameraInc = new Vector3f();
         camera = new Camera(new Vector3f(), new Vector3f());
+        transformStore = new TransformStore();
+        snapshots = new TripleBuffer<>(() -> new FrameSnapshot(WORLD_HALF_SIZE));
         lightAngle = -90;
     }
 
+    /**
+     * Loads shaders from {@code directory} and reloads them on edit, for working on them while the game runs.
+     */
+    public void setShaderSourceDirectory(Path directory) {
+        renderer.setShaderSourceDirectory(directory);
+    }
+
+    @Override
+    public void attachProfiler(FrameProfiler profiler) {
+        renderer.setProfiler(profiler);
+    }
+
     @Override
     public void init(Window window) throws Exception {
         renderer.init(window);
 
         float reflectance = 1f;
 
-        Mesh mesh = OBJLoader.loadMesh("/models/cube.obj");
-        Texture texture = new Texture("/textures/grassblock.png");
+        CompletableFuture<Mesh> meshFuture = assetLoader.loadMesh("/models/cube.obj");
+        CompletableFuture<Texture> textureFuture = assetLoader.loadTexture("/textures/grassblock.png");
+
+        Mesh mesh = assetLoader.await(meshFuture);
+        Texture texture = assetLoader.await(textureFuture);
         Material material = new Material(reflectance, texture);
         mesh.setMaterial(material);
 
-        GameItem gameItem = new GameItem(mesh);
+        GameItem gameItem = new GameItem(mesh, transformStore);
         gameItem.setScale(1.5f);
         gameItem.setPosition(1, -1, 1);
 
@@ -70,9 +108,10 @@ public class DummyGame implements GameLogic {
         Vector3f lightColor = new Vector3f(1, 1, 1);
         Vector3f lightPosition = new Vector3f(0, 0, 1);
         float lightIntensity = 0f;
-        pointLight = new PointLight(lightIntensity, lightColor, lightPosition);
+        PointLight pointLight = new PointLight(lightIntensity, lightColor, lightPosition);
         PointLight.Attenuation attenuation = new PointLight.Attenuation(0, 0, 1);
         pointLight.setAttenuation(attenuation);
+        pointLights.add(pointLight);
 
         // Spot Light
         lightPosition = new Vector3f(0.0f, 0.0f, 10f);
@@ -82,6 +121,7 @@ public class DummyGame implements GameLogic {
         Vector3f coneDirection = new Vector3f(0, 0, -1);
         float cutOffAngle = (float) Math.cos(Math.toRadians(140));
         spotLight = new SpotLight(pointLight, coneDirection, cutOffAngle);
+        spotLights.add(spotLight);
 
         // Directional Light
         lightPosition = new Vector3f(-1, 0, 0);
@@ -90,21 +130,39 @@ public class DummyGame implements GameLogic {
     }
 
     @Override
-    public void input(Window window, MouseInput mouseInput) {
+    public void registerUpdateJobs(JobSystem jobSystem) {
+        renderer.setJobSystem(jobSystem);
+
+        // Rebuild moved items' world matrices in parallel instead of lazily while rendering
+        jobSystem.addUpdateJob(new UpdateJob() {
+            @Override
+            public int getSize() {
+                return transformStore.size();
+            }
+
+            @Override
+            public void update(int from, int to, float interval) {
+                transformStore.updateWorldMatrices(from, to);
+            }
+        });
+    }
+
+    @Override
+    public void input(InputSnapshot input, MouseInput mouseInput) {
         cameraInc.set(0, 0, 0);
-        if (window.isKeyPressed(GLFW_KEY_W)) {
+        if (input.isKeyPressed(GLFW_KEY_W)) {
             cameraInc.z = -1;
-        } else if (window.isKeyPressed(GLFW_KEY_S)) {
+        } else if (input.isKeyPressed(GLFW_KEY_S)) {
             cameraInc.z = 1;
         }
-        if (window.isKeyPressed(GLFW_KEY_A)) {
+        if (input.isKeyPressed(GLFW_KEY_A)) {
             cameraInc.x = -1;
-        } else if (window.isKeyPressed(GLFW_KEY_D)) {
+        } else if (input.isKeyPressed(GLFW_KEY_D)) {
             cameraInc.x = 1;
         }
-        if (window.isKeyPressed(GLFW_KEY_Z)) {
+        if (input.isKeyPressed(GLFW_KEY_Z)) {
             cameraInc.y = -1;
-        } else if (window.isKeyPressed(GLFW_KEY_X)) {
+        } else if (input.isKeyPressed(GLFW_KEY_X)) {
             cameraInc.y = 1;
         }
     }
@@ -155,13 +213,34 @@ public class DummyGame implements GameLogic {
         directionalLight.getDirection().y = (float) Math.cos(angRad);
     }
 
+    @Override
+    public void publish() {
+        FrameSnapshot snapshot = snapshots.getWriteBuffer();
+        snapshot.capture(++tick, transformStore, gameItems, camera, ambientLight, pointLights, spotLights, directionalLight,
+                lastSnapshot);
+        snapshots.publish();
+        lastSnapshot = snapshot;
+    }
+
     @Override
     public void render(Window window) {
-        renderer.render(window, gameItems, camera, ambientLight, pointLight, spotLight, directionalLight);
+        render(window, 1);
+    }
+
+    @Override
+    public void render(Window window, float alpha) {
+        assetLoader.drain(UPLOAD_BUDGET_NANOS);
+
+        FrameSnapshot snapshot = snapshots.acquire();
+        snapshot.interpolate(alpha);
+        renderer.setSceneIndex(snapshot.getSceneIndex());
+        renderer.render(window, snapshot.getGameItems(), snapshot.getCamera(), snapshot.getAmbientLight(),
+                snapshot.getPointLights(), snapshot.getSpotLights(), snapshot.getDirectionalLight());
     }
 
     @Override
     public void cleanUp() {
+        assetLoader.cleanUp();
         renderer.cleanUp();
         for (GameItem gameItem : gameItems) {
             gameItem.getMesh().cleanUp();
@@ -0,0 +1,591 @@
+package com.amoghbhagwat.game;
+
+import com.amoghbhagwat.engine.Window;
+import com.amoghbhagwat.engine.benchmark.BenchmarkRunner;
+import com.amoghbhagwat.engine.benchmark.NoOpGLBackend;
+import com.amoghbhagwat.engine.graph.Bounds;
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.RenderQueue;
+import com.amoghbhagwat.engine.graph.RenderState;
+import com.amoghbhagwat.engine.graph.ShaderProgram;
+import com.amoghbhagwat.engine.graph.Std140Writer;
+import com.amoghbhagwat.engine.graph.UniformBlocks;
+import com.amoghbhagwat.engine.graph.VertexFormat;
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.engine.light.DirectionalLight;
+import com.amoghbhagwat.engine.light.ItemLights;
+import com.amoghbhagwat.engine.light.LightClusters;
+import com.amoghbhagwat.engine.light.LightStore;
+import com.amoghbhagwat.engine.light.PointLight;
+import com.amoghbhagwat.engine.light.SpotLight;
+import com.amoghbhagwat.engine.models.Material;
+import com.amoghbhagwat.engine.models.MeshData;
+import com.amoghbhagwat.engine.models.OBJLoader;
+import com.amoghbhagwat.game.entities.Camera;
+import com.amoghbhagwat.game.entities.GameItem;
+import com.amoghbhagwat.game.scene.LooseOctree;
+import com.amoghbhagwat.game.scene.TransformStore;
+import com.amoghbhagwat.game.utils.Transformation;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Headless benchmarks of the engine's hot paths, runnable on a machine without a GPU.
+ * <p>
+ * Usage: {@code EngineBenchmark [--filter <text>] [--save <file>] [--baseline <file>] [--threshold <percent>]}. Save a
+ * baseline once, e.g. {@code --save benchmarks.properties}, and later runs with {@code --baseline} exit with 1 when a
+ * case got slower than the threshold. GL calls go to a {@link NoOpGLBackend}, so the driver's side of them is not
+ * measured. Shader compilation and the mesh upload of {@link OBJLoader#loadMesh} need a context and are left out.
+ */
+public class EngineBenchmark {
+    private static final int OBJ_GRID_SIZE = 100;
+    private static final int ITEMS = 10_000;
+    private static final int MATERIALS = 8;
+    private static final int MESHES = 4;
+    private static final int LONE_ITEMS = 100;
+    private static final int LIGHT_UPDATES = 1000;
+    private static final int[] CLUSTER_LIGHTS = {16, 256, 1024};
+    private static final int[] ITEM_LIGHTS = {256, 1024};
+    private static final int[] QUEUE_SIZES = {10_000, 100_000};
+    private static final int[] TRANSFORM_COUNTS = {10_000, 100_000};
+    private static final int[] SCENE_INDEX_COUNTS = {10_000, 100_000};
+    /**
+     * One in this many items moves each tick in the scene index update case.
+     */
+    private static final int MOVING_FRACTION = 10;
+    private static final int QUERY_POINTS = 1024;
+    private static final float QUERY_RADIUS = 5;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        addObjCases(runner);
+        addTransformationCases(runner);
+        addTransformStoreCases(runner);
+        addSceneIndexCases(runner);
+        addRenderQueueCases(runner);
+        addUniformCases(runner);
+        addLightCases(runner);
+        addClusterCases(runner);
+        addItemLightCases(runner);
+        addRenderCase(runner);
+        runner.runCommandLine(args);
+    }
+
+    private static void addObjCases(BenchmarkRunner runner) {
+        byte[] obj = createGridObj(OBJ_GRID_SIZE);
+        runner.add("obj.loadMeshData", () -> {
+            MeshData meshData = OBJLoader.loadMeshData(Channels.newChannel(new ByteArrayInputStream(obj)), false);
+            return meshData.getVertexCount();
+        });
+        runner.add("obj.loadMeshData.weld", () -> {
+            MeshData meshData = OBJLoader.loadMeshData(Channels.newChannel(new ByteArrayInputStream(obj)), true);
+            return meshData.getVertexCount();
+        });
+    }
+
+    private static void addTransformationCases(BenchmarkRunner runner) {
+        Transformation transformation = new Transformation();
+        Camera camera = new Camera(new Vector3f(1, 2, 3), new Vector3f(10, 20, 0));
+        List<GameItem> items = createItems(ITEMS);
+
+        runner.add("transformation.viewMatrix", () -> {
+            camera.getRotation().y += 0.1f;
+            return Float.floatToRawIntBits(transformation.getViewMatrix(camera).m00());
+        });
+        runner.add("transformation.modelView." + ITEMS, () -> {
+            Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+            long result = 0;
+            for (int i = 0; i < items.size(); i++) {
+                GameItem item = items.get(i);
+                // Invalidates the cached world matrix so it is rebuilt, as for an item that moved
+                item.setScale(item.getScale());
+                result += Float.floatToRawIntBits(transformation.getModelViewMatrix(item, viewMatrix).m30());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Moving every item and rebuilding its world matrix, once with a {@link TransformStore} and once the way items did it
+     * before the store: position and Euler angles in their own vectors, matrix built per item from the angles.
+     */
+    private static void addTransformStoreCases(BenchmarkRunner runner) {
+        for (int count : TRANSFORM_COUNTS) {
+            Random random = new Random(count);
+            float[] offsets = new float[count];
+            TransformStore transformStore = new TransformStore(count);
+            ItemTransform[] itemTransforms = new ItemTransform[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = random.nextFloat() * 100;
+                float angleX = random.nextFloat() * 360;
+                float angleY = random.nextFloat() * 360;
+                float scale = 0.5f + random.nextFloat();
+
+                transformStore.allocate();
+                transformStore.setRotationXYZ(i, (float) Math.toRadians(-angleX), (float) Math.toRadians(-angleY), 0);
+                transformStore.setScale(i, scale);
+                itemTransforms[i] = new ItemTransform(new Vector3f(angleX, angleY, 0), scale);
+            }
+
+            float[] time = new float[1];
+            runner.add("transform.store." + count, () -> {
+                float t = time[0] += 0.01f;
+                for (int i = 0; i < count; i++) {
+                    transformStore.setPosition(i, offsets[i], t, 0);
+                }
+                transformStore.updateWorldMatrices(0, count);
+                return Float.floatToRawIntBits(transformStore.getWorldMatrices()[(count - 1) * TransformStore.MATRIX_SIZE + 12]);
+            });
+
+            Matrix4f matrix = new Matrix4f();
+            runner.add("transform.perItem." + count, () -> {
+                float t = time[0] += 0.01f;
+                long result = 0;
+                for (int i = 0; i < count; i++) {
+                    ItemTransform itemTransform = itemTransforms[i];
+                    itemTransform.position.set(offsets[i], t, 0);
+                    Vector3f rotation = itemTransform.rotation;
+                    matrix.identity().translate(itemTransform.position).rotateX((float) Math.toRadians(-rotation.x))
+                            .rotateY((float) Math.toRadians(-rotation.y)).rotateZ((float) Math.toRadians(-rotation.z))
+                            .scale(itemTransform.scale);
+                    result += Float.floatToRawIntBits(matrix.m30());
+                }
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Frustum culling by testing every item against querying a {@link LooseOctree}, for a camera turning on the spot
+     * in the middle of the items.
+     */
+    /**
+     * Culling by testing every item against the frustum and through the octree, then what else the octree costs as
+     * the scene grows: building it serially and on the job system, keeping it current while a tenth of the items
+     * move each tick, and single ray and radius queries.
+     */
+    private static void addSceneIndexCases(BenchmarkRunner runner) {
+        Transformation transformation = new Transformation();
+        Camera camera = new Camera(new Vector3f(), new Vector3f());
+        Matrix4f projectionMatrix = new Matrix4f().perspective((float) Math.toRadians(60), 16 / 9f, 0.01f, 1000);
+        Matrix4f projectionViewMatrix = new Matrix4f();
+        FrustumIntersection frustum = new FrustumIntersection();
+        JobSystem jobSystem = new JobSystem();
+
+        for (int count : SCENE_INDEX_COUNTS) {
+            List<GameItem> items = createItems(count);
+            LooseOctree octree = new LooseOctree(0, 0, 0, 64);
+            octree.build(items);
+            List<GameItem> result = new ArrayList<>(count);
+            Vector4f sphere = new Vector4f();
+
+            runner.add("sceneIndex.frustum.linear." + count, () -> {
+                camera.getRotation().y += 7;
+                frustum.set(projectionMatrix.mul(transformation.getViewMatrix(camera), projectionViewMatrix));
+                result.clear();
+                for (int i = 0; i < items.size(); i++) {
+                    GameItem item = items.get(i);
+                    item.getWorldBoundingSphere(sphere);
+                    if (frustum.testSphere(sphere.x, sphere.y, sphere.z, sphere.w)) {
+                        result.add(item);
+                    }
+                }
+                return result.size();
+            });
+            runner.add("sceneIndex.frustum.octree." + count, () -> {
+                camera.getRotation().y += 7;
+                frustum.set(projectionMatrix.mul(transformation.getViewMatrix(camera), projectionViewMatrix));
+                result.clear();
+                octree.queryFrustum(frustum, result);
+                return result.size();
+            });
+
+            LooseOctree built = new LooseOctree(0, 0, 0, 64);
+            runner.add("sceneIndex.build.serial." + count, () -> {
+                built.build(items);
+                return built.size();
+            });
+            runner.add("sceneIndex.build.jobs." + count, () -> {
+                built.build(items, jobSystem);
+                return built.size();
+            });
+
+            // Items step back and forth, so the scene stays where it was however long the case runs
+            Vector3f position = new Vector3f();
+            float[] step = {0.5f};
+            runner.add("sceneIndex.update.moving." + count, () -> {
+                step[0] = -step[0];
+                for (int i = 0; i < items.size(); i += MOVING_FRACTION) {
+                    GameItem item = items.get(i);
+                    item.getPosition(position);
+                    item.setPosition(position.x + step[0], position.y, position.z + step[0]);
+                    octree.update(item);
+                }
+                return octree.size();
+            });
+
+            Random random = new Random(count);
+            float[] points = new float[QUERY_POINTS * 3];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = random.nextFloat() * 100 - 50;
+            }
+            int[] next = new int[1];
+            Vector3f origin = new Vector3f();
+            Vector3f direction = new Vector3f();
+            LooseOctree.RayHit hit = new LooseOctree.RayHit();
+            runner.add("sceneIndex.raycast." + count, () -> {
+                // From a point on the scene's edge through one inside it
+                int point = next[0] * 3;
+                next[0] = (next[0] + 1) % QUERY_POINTS;
+                origin.set(-60, points[point + 1], points[point + 2]);
+                direction.set(points[point], points[point + 1], points[point + 2]).sub(origin).normalize();
+                return octree.raycast(origin, direction, 200, hit) ? Float.floatToRawIntBits(hit.getDistance()) : 0;
+            });
+            runner.add("sceneIndex.queryRadius." + count, () -> {
+                int point = next[0] * 3;
+                next[0] = (next[0] + 1) % QUERY_POINTS;
+                result.clear();
+                octree.queryRadius(points[point], points[point + 1], points[point + 2], QUERY_RADIUS, result);
+                return result.size();
+            });
+        }
+    }
+
+    private static void addRenderQueueCases(BenchmarkRunner runner) {
+        for (int size : QUEUE_SIZES) {
+            Random random = new Random(size);
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = RenderQueue.opaqueKey(0, random.nextInt(4), random.nextInt(MATERIALS * 16),
+                        random.nextInt(MESHES * 64), random.nextFloat());
+            }
+
+            RenderQueue renderQueue = new RenderQueue(size);
+            runner.add("renderQueue.sort." + size, () -> {
+                renderQueue.clear();
+                for (int i = 0; i < size; i++) {
+                    renderQueue.submit(keys[i], i);
+                }
+                renderQueue.sort();
+                return renderQueue.getItem(0) + renderQueue.getItem(size - 1);
+            });
+        }
+    }
+
+    private static void addUniformCases(BenchmarkRunner runner) throws Exception {
+        RenderState renderState = new RenderState(new NoOpGLBackend());
+        ShaderProgram program = createProgram(renderState);
+        Matrix4f projectionMatrix = new Matrix4f().perspective(1, 1.3f, 0.01f, 1000);
+        Matrix4f modelViewMatrix = new Matrix4f();
+        Vector3f ambientLight = new Vector3f(0.3f);
+        Lights lights = new Lights();
+        Material[] materials = createMaterials();
+        int stride = new ItemLights().getStride();
+
+        runner.add("shader.setUniform.items." + ITEMS, () -> {
+            for (int i = 0; i < ITEMS; i++) {
+                program.setUniform("modelViewMatrix", modelViewMatrix.translation(i, 0, 0));
+                program.setUniform("itemLightList", i * stride);
+            }
+            return renderState.getIssuedCalls();
+        });
+
+        // The same calls through handles resolved once, as the renderer makes them
+        RenderState handleRenderState = new RenderState(new NoOpGLBackend());
+        SceneUniforms uniforms = new SceneUniforms(createProgram(handleRenderState));
+        runner.add("shader.setUniformHandle.items." + ITEMS, () -> {
+            ShaderProgram handleProgram = uniforms.program;
+            for (int i = 0; i < ITEMS; i++) {
+                handleProgram.setUniform(uniforms.modelViewMatrix, modelViewMatrix.translation(i, 0, 0));
+                handleProgram.setUniform(uniforms.itemLightList, i * stride);
+            }
+            return handleRenderState.getIssuedCalls();
+        });
+
+        // What the renderer writes per frame instead: the scene blocks plus one block per material
+        ByteBuffer blocks = ByteBuffer.allocateDirect(UniformBlocks.CAMERA_SIZE + UniformBlocks.LIGHTS_SIZE
+                + MATERIALS * UniformBlocks.MATERIAL_SIZE).order(ByteOrder.nativeOrder());
+        Std140Writer writer = new Std140Writer();
+        LightClusters clusters = new LightClusters();
+        clusters.setProjection(1, 1.3f, 0.01f, 1000);
+        runner.add("uniformBlocks.write", () -> {
+            lights.pointLight.getPosition().x += 0.01f;
+            UniformBlocks.writeCamera(writer.begin(blocks, 0), projectionMatrix, modelViewMatrix);
+            UniformBlocks.writeLights(writer.begin(blocks, UniformBlocks.CAMERA_SIZE), ambientLight, 10f,
+                    lights.directionalLight, clusters, 2, 1280, 720);
+            for (int i = 0; i < MATERIALS; i++) {
+                int offset = UniformBlocks.CAMERA_SIZE + UniformBlocks.LIGHTS_SIZE + i * UniformBlocks.MATERIAL_SIZE;
+                UniformBlocks.writeMaterial(writer.begin(blocks, offset), materials[i]);
+            }
+            return blocks.getInt(0);
+        });
+    }
+
+    private static void addLightCases(BenchmarkRunner runner) {
+        Renderer renderer = new Renderer();
+        Matrix4f viewMatrix = new Transformation().getViewMatrix(new Camera(new Vector3f(1, 2, 3), new Vector3f(10, 20, 0)));
+        Lights lights = new Lights();
+
+        runner.add("renderer.updateViewLights." + LIGHT_UPDATES, () -> {
+            for (int i = 0; i < LIGHT_UPDATES; i++) {
+                renderer.updateViewLights(viewMatrix, lights.pointLights, lights.spotLights, lights.directionalLight);
+            }
+            return LIGHT_UPDATES;
+        });
+    }
+
+    private static void addClusterCases(BenchmarkRunner runner) {
+        JobSystem jobSystem = new JobSystem();
+        for (int lightCount : CLUSTER_LIGHTS) {
+            LightClusters clusters = new LightClusters();
+            clusters.setProjection((float) Math.toRadians(60), 16 / 9f, 0.01f, 1000);
+            clusters.setJobSystem(jobSystem);
+            float[] lights = createLightSpheres(lightCount, 100, new Random(lightCount));
+            runner.add("lights.cluster." + lightCount, () -> {
+                clusters.assign(lights, lightCount);
+                return clusters.getLightIndexCount();
+            });
+        }
+    }
+
+    /**
+     * Random view space spheres in front of the camera, {@code x, y, z, radius} each.
+     */
+    private static float[] createLightSpheres(int count, float depth, Random random) {
+        float[] lights = new float[count * 4];
+        for (int i = 0; i < count; i++) {
+            float z = -(0.5f + random.nextFloat() * depth);
+            lights[i * 4] = (random.nextFloat() * 2 - 1) * -z;
+            lights[i * 4 + 1] = (random.nextFloat() * 2 - 1) * -z * 0.6f;
+            lights[i * 4 + 2] = z;
+            lights[i * 4 + 3] = 0.5f + random.nextFloat() * 10;
+        }
+        return lights;
+    }
+
+    private static void addItemLightCases(BenchmarkRunner runner) {
+        Random random = new Random(ITEMS);
+        float[] items = new float[ITEMS * 4];
+        for (int i = 0; i < ITEMS; i++) {
+            items[i * 4] = (random.nextFloat() * 2 - 1) * 100;
+            items[i * 4 + 1] = random.nextFloat() * 10;
+            items[i * 4 + 2] = (random.nextFloat() * 2 - 1) * 100;
+            items[i * 4 + 3] = 0.5f + random.nextFloat() * 2;
+        }
+
+        JobSystem jobSystem = new JobSystem();
+        for (int lightCount : ITEM_LIGHTS) {
+            LightStore lights = createLightStore(lightCount, 100, new Random(lightCount));
+            ItemLights itemLights = new ItemLights();
+            itemLights.setJobSystem(jobSystem);
+            runner.add("lights.itemLights." + ITEMS + "x" + lightCount, () -> {
+                itemLights.assign(items, ITEMS, lights);
+                return itemLights.getLightCount(0);
+            });
+        }
+    }
+
+    /**
+     * Point lights scattered over a square of {@code size * 2}, with ranges of a few units to a few tens.
+     */
+    private static LightStore createLightStore(int count, float size, Random random) {
+        List<PointLight> pointLights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Vector3f position = new Vector3f((random.nextFloat() * 2 - 1) * size, random.nextFloat() * 10,
+                    (random.nextFloat() * 2 - 1) * size);
+            PointLight pointLight = new PointLight(0.2f + random.nextFloat(), new Vector3f(1, 1, 1), position);
+            pointLight.setAttenuation(new PointLight.Attenuation(1, 0, 0.1f + random.nextFloat()));
+            pointLights.add(pointLight);
+        }
+        LightStore lights = new LightStore(count);
+        lights.set(pointLights, Collections.emptyList());
+        return lights;
+    }
+
+    /**
+     * A whole {@link Renderer#render} frame: culling, the render queue, light binning, the block uploads and both draw
+     * passes. Most items share a few meshes and are drawn instanced, the rest have a mesh each and are drawn alone.
+     */
+    private static void addRenderCase(BenchmarkRunner runner) throws Exception {
+        Renderer renderer = new Renderer(new NoOpGLBackend());
+        RenderState renderState = renderer.getRenderState();
+        renderer.initHeadless(variant -> createHeadlessProgram(renderState, variant + 1));
+        Window window = new Window("benchmark", 1280, 720, false);
+        Camera camera = new Camera(new Vector3f(0, 0, 50), new Vector3f());
+        Vector3f ambientLight = new Vector3f(0.3f);
+        Lights lights = new Lights();
+
+        Material[] materials = createMaterials();
+        List<GameItem> items = createItems(ITEMS - LONE_ITEMS);
+        TransformStore transformStore = new TransformStore(LONE_ITEMS);
+        for (int i = 0; i < LONE_ITEMS; i++) {
+            Mesh mesh = createCubeMesh(materials[i % MATERIALS]);
+            GameItem item = new GameItem(mesh, transformStore);
+            item.setPosition(i % 10 * 4 - 20, i / 10 * 4 - 20, 0);
+            items.add(item);
+        }
+
+        runner.add("renderer.render." + ITEMS, () -> {
+            renderer.render(window, items, camera, ambientLight, lights.pointLights, lights.spotLights,
+                    lights.directionalLight);
+            return renderState.getIssuedCalls();
+        });
+    }
+
+    /**
+     * A scene program without GL: uniforms get locations in the order they are created and blocks are not checked.
+     */
+    private static ShaderProgram createHeadlessProgram(RenderState renderState, int programId) {
+        try {
+            Map<String, Integer> locations = new HashMap<>();
+            return new ShaderProgram(renderState, programId) {
+                @Override
+                protected int findUniformLocation(String uniformName) {
+                    return locations.computeIfAbsent(uniformName, name -> locations.size());
+                }
+
+                @Override
+                public void bindUniformBlock(String blockName, int binding, int expectedSize) {
+                }
+            };
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A program with the per-item uniforms of the lone draw pass; everything else is in uniform blocks.
+     */
+    private static ShaderProgram createProgram(RenderState renderState) throws Exception {
+        ShaderProgram program = createHeadlessProgram(renderState, 1);
+        program.createUniform("modelViewMatrix");
+        program.createUniform("itemLightList");
+        return program;
+    }
+
+    /**
+     * Handles of the uniforms {@link #createProgram} creates, looked up once.
+     */
+    private static class SceneUniforms {
+        private final ShaderProgram program;
+        private final int modelViewMatrix;
+        private final int itemLightList;
+
+        private SceneUniforms(ShaderProgram program) throws Exception {
+            this.program = program;
+            modelViewMatrix = program.createUniform("modelViewMatrix");
+            itemLightList = program.createUniform("itemLightList");
+        }
+    }
+
+    private static Material[] createMaterials() {
+        Material[] materials = new Material[MATERIALS];
+        for (int i = 0; i < MATERIALS; i++) {
+            materials[i] = new Material(new Vector4f(i / (float) MATERIALS, 0.5f, 0.5f, 1), 1);
+        }
+        return materials;
+    }
+
+    private static List<GameItem> createItems(int count) {
+        TransformStore transformStore = new TransformStore(count);
+        Random random = new Random(42);
+        Material[] materials = createMaterials();
+        Mesh[] meshes = new Mesh[MESHES];
+        for (int i = 0; i < MESHES; i++) {
+            meshes[i] = createCubeMesh(materials[i % MATERIALS]);
+        }
+        List<GameItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GameItem item = new GameItem(meshes[i % MESHES], transformStore);
+            item.setPosition(random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50);
+            item.setRotation(random.nextFloat() * 360, random.nextFloat() * 360, 0);
+            item.setScale(0.5f + random.nextFloat());
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * A unit cube mesh without GL objects.
+     */
+    private static Mesh createCubeMesh(Material material) {
+        Mesh mesh = new Mesh(Bounds.fromPositions(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}),
+                VertexFormat.POSITION_TEXTURE_NORMAL, 36);
+        mesh.setMaterial(material);
+        return mesh;
+    }
+
+    /**
+     * A flat grid of {@code size} x {@code size} vertices with texture coordinates and normals, two triangles per cell.
+     */
+    private static byte[] createGridObj(int size) {
+        StringBuilder obj = new StringBuilder();
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                obj.append("v ").append(x * 0.1f).append(" 0.0 ").append(z * 0.1f).append('\n');
+                obj.append("vt ").append(x / (float) size).append(' ').append(z / (float) size).append('\n');
+            }
+        }
+        obj.append("vn 0.0 1.0 0.0\n");
+        for (int z = 0; z < size - 1; z++) {
+            for (int x = 0; x < size - 1; x++) {
+                int a = z * size + x + 1;
+                int b = a + 1;
+                int c = a + size;
+                int d = c + 1;
+                obj.append("f ").append(a).append('/').append(a).append("/1 ").append(c).append('/').append(c).append("/1 ")
+                        .append(b).append('/').append(b).append("/1\n");
+                obj.append("f ").append(b).append('/').append(b).append("/1 ").append(c).append('/').append(c).append("/1 ")
+                        .append(d).append('/').append(d).append("/1\n");
+            }
+        }
+        return obj.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A game item's transform as it was kept before {@link TransformStore}.
+     */
+    private static class ItemTransform {
+        private final Vector3f position;
+        private final Vector3f rotation;
+        private final float scale;
+
+        private ItemTransform(Vector3f rotation, float scale) {
+            this.position = new Vector3f();
+            this.rotation = rotation;
+            this.scale = scale;
+        }
+    }
+
+    private static class Lights {
+        private final PointLight pointLight;
+        private final List<PointLight> pointLights;
+        private final SpotLight spotLight;
+        private final List<SpotLight> spotLights;
+        private final DirectionalLight directionalLight;
+
+        private Lights() {
+            pointLight = new PointLight(1, new Vector3f(1, 1, 1), new Vector3f(0, 0, 1));
+            pointLight.setAttenuation(new PointLight.Attenuation(0, 0, 1));
+            pointLights = Collections.singletonList(pointLight);
+            spotLight = new SpotLight(new PointLight(1, new Vector3f(1, 1, 1), new Vector3f(0, 0, 10)), new Vector3f(0, 0, -1),
+                    (float) Math.cos(Math.toRadians(140)));
+            spotLights = Collections.singletonList(spotLight);
+            directionalLight = new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(-1, 0, 0), 1);
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package com.amoghbhagwat.game;
 
 import com.amoghbhagwat.engine.GameEngine;
-import com.amoghbhagwat.engine.GameLogic;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 public class Main {
     public static void main(String[] args) {
         try {
             boolean vSync = true;
-            GameLogic gameLogic = new DummyGame();
-            GameEngine gameEngine = new GameEngine("Game", 600, 480, vSync, gameLogic);
+            boolean threadedSimulation = Arrays.asList(args).contains("--threaded");
+            boolean profile = Arrays.asList(args).contains("--profile");
+            boolean shaderDev = Arrays.asList(args).contains("--dev");
+            DummyGame gameLogic = new DummyGame();
+            if (shaderDev) {
+                gameLogic.setShaderSourceDirectory(Paths.get("Shaders"));
+            }
+            GameEngine gameEngine = new GameEngine("Game", 600, 480, vSync, gameLogic, threadedSimulation);
+            if (profile) {
+                gameEngine.setProfilingEnabled(true);
+                gameEngine.setChromeTraceFile("profile.json");
+            }
             gameEngine.start();
         } catch (Exception e) {
             e.printStackTrace();
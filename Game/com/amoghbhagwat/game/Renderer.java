@@ -1,129 +1,546 @@
 package com.amoghbhagwat.game;
 
-import com.amoghbhagwat.engine.Utils;
 import com.amoghbhagwat.engine.Window;
+import com.amoghbhagwat.engine.graph.ClusteredLights;
+import com.amoghbhagwat.engine.graph.GLBackend;
+import com.amoghbhagwat.engine.graph.LwjglGLBackend;
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.RenderQueue;
+import com.amoghbhagwat.engine.graph.RenderState;
+import com.amoghbhagwat.engine.graph.SceneVariants;
+import com.amoghbhagwat.engine.graph.ShaderCache;
+import com.amoghbhagwat.engine.graph.ShaderManager;
 import com.amoghbhagwat.engine.graph.ShaderProgram;
+import com.amoghbhagwat.engine.graph.Std140Writer;
+import com.amoghbhagwat.engine.graph.TextureBuffer;
+import com.amoghbhagwat.engine.graph.UniformBlocks;
+import com.amoghbhagwat.engine.graph.UniformBuffer;
+import com.amoghbhagwat.engine.jobs.JobSystem;
 import com.amoghbhagwat.engine.light.DirectionalLight;
+import com.amoghbhagwat.engine.light.ItemLights;
+import com.amoghbhagwat.engine.light.LightStore;
 import com.amoghbhagwat.engine.light.PointLight;
 import com.amoghbhagwat.engine.light.SpotLight;
+import com.amoghbhagwat.engine.models.Material;
+import com.amoghbhagwat.engine.profiler.FrameProfiler;
+import com.amoghbhagwat.engine.utils.FloatList;
+import com.amoghbhagwat.engine.utils.IntList;
 import com.amoghbhagwat.game.entities.Camera;
 import com.amoghbhagwat.game.entities.GameItem;
+import com.amoghbhagwat.game.scene.LooseOctree;
+import com.amoghbhagwat.game.utils.InstanceBatcher;
 import com.amoghbhagwat.game.utils.Transformation;
+import org.joml.FrustumIntersection;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
-import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
 
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntFunction;
 
+import static org.lwjgl.opengl.GL11.GL_COLOR_BUFFER_BIT;
+import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.GL_DEPTH_TEST;
-import static org.lwjgl.opengl.GL11.glEnable;
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.GL_STREAM_DRAW;
+import static org.lwjgl.opengl.GL30.GL_R32UI;
 
 public class Renderer {
     private static final float FOV = (float) Math.toRadians(60.0f);
     private static final float Z_NEAR = 0.01f;
     private static final float Z_FAR = 1000.0f;
+    private static final int INSTANCING_THRESHOLD = 2;
+    private static final int INITIAL_MATERIAL_BLOCKS = 16;
+    private static final int ITEM_LIGHTS_UNIT = 4;
 
-    private ShaderProgram shaderProgram;
+    private final GLBackend backend;
+    private final RenderState renderState;
+
+    private ShaderManager shaderManager;
+    private IntFunction<ShaderProgram> scenePrograms;
+    private Path shaderSourceDirectory;
     private Transformation transformation;
+    private InstanceBatcher instanceBatcher;
+    private RenderQueue renderQueue;
+    private final FrustumIntersection frustum;
+    private final Matrix4f projectionViewMatrix;
+    private final Vector4f boundingSphere;
+    private final List<GameItem> queriedItems;
+    private final LightStore lightStore;
+    private final ClusteredLights clusteredLights;
+    private final ItemLights itemLights;
+    private final FloatList loneItemSpheres;
+    private final DirectionalLight viewDirectionalLight;
+    private final Std140Writer std140Writer;
+    private final IntList runMaterialOffsets;
+    private final int[] modelViewMatrixUniforms;
+    private final int[] itemLightListUniforms;
+
+    private LooseOctree sceneIndex;
+    private FrameProfiler profiler;
+    private int cullScope;
+    private int drawScope;
+    private int lightScope;
+    private int lonePassScope;
+    private int instancedPassScope;
+    private int visibleItems;
+    private int culledItems;
+
+    private int instanceVboId;
+    private FloatBuffer instanceBuffer;
+
+    private UniformBuffer cameraBuffer;
+    private UniformBuffer lightsBuffer;
+    private UniformBuffer materialBuffer;
+    private TextureBuffer itemLightsBuffer;
+    private int materialStride;
 
     private float specularPower;
 
     public Renderer() {
+        this(new LwjglGLBackend());
+    }
+
+    /**
+     * A renderer whose frame path goes to the given backend. Shaders are still compiled with GL by
+     * {@link #init(Window)}.
+     */
+    public Renderer(GLBackend backend) {
+        this.backend = backend;
+        renderState = new RenderState(backend);
         transformation = new Transformation();
+        instanceBatcher = new InstanceBatcher();
+        renderQueue = new RenderQueue();
+        frustum = new FrustumIntersection();
+        projectionViewMatrix = new Matrix4f();
+        boundingSphere = new Vector4f();
+        queriedItems = new ArrayList<>();
+        lightStore = new LightStore();
+        clusteredLights = new ClusteredLights();
+        itemLights = new ItemLights();
+        loneItemSpheres = new FloatList();
+        viewDirectionalLight = new DirectionalLight(new Vector3f(), new Vector3f(), 0);
+        std140Writer = new Std140Writer();
+        runMaterialOffsets = new IntList();
+        modelViewMatrixUniforms = new int[SceneVariants.COUNT];
+        itemLightListUniforms = new int[SceneVariants.COUNT];
         specularPower = 10f;
     }
 
     public void init(Window window) throws Exception {
-        shaderProgram = new ShaderProgram();
-        shaderProgram.createVertexShader(Utils.loadResource("/shaders/vertex.glsl"));
-        shaderProgram.createFragmentShader(Utils.loadResource("/shaders/fragment.glsl"));
-        shaderProgram.link();
+        shaderManager = new ShaderManager(renderState, new ShaderCache(Paths.get("cache", "shaders")));
+        if (shaderSourceDirectory != null) {
+            shaderManager.watchSourceDirectory(shaderSourceDirectory);
+        }
+
+        scenePrograms = shaderManager.loadVariants("scene", "/shaders/vertex.glsl", "/shaders/fragment.glsl",
+                SceneVariants.COUNT, SceneVariants::getDefines, this::createSceneUniforms)::get;
+        initBuffers();
+    }
+
+    /**
+     * Sets up with the given scene programs instead of compiling shaders, so the frame path can run without a
+     * context. Shaders are not reloaded.
+     */
+    void initHeadless(IntFunction<ShaderProgram> programs) throws Exception {
+        ShaderProgram[] scenePrograms = new ShaderProgram[SceneVariants.COUNT];
+        for (int variant = 0; variant < SceneVariants.COUNT; variant++) {
+            scenePrograms[variant] = programs.apply(variant);
+            createSceneUniforms(scenePrograms[variant], variant);
+        }
+        this.scenePrograms = variant -> scenePrograms[variant];
+        initBuffers();
+    }
+
+    private void initBuffers() {
+        instanceVboId = backend.genBuffer();
+        backend.bindBuffer(GL_ARRAY_BUFFER, instanceVboId);
+        backend.bufferData(GL_ARRAY_BUFFER, (long) InstanceBatcher.MAX_INSTANCES * InstanceBatcher.MATRIX_SIZE * 4, GL_STREAM_DRAW);
+        backend.bindBuffer(GL_ARRAY_BUFFER, 0);
+        instanceBuffer = MemoryUtil.memAllocFloat(InstanceBatcher.MAX_INSTANCES * InstanceBatcher.MATRIX_SIZE);
+
+        cameraBuffer = new UniformBuffer(backend, UniformBlocks.CAMERA_BINDING, UniformBlocks.CAMERA_SIZE);
+        lightsBuffer = new UniformBuffer(backend, UniformBlocks.LIGHTS_BINDING, UniformBlocks.LIGHTS_SIZE);
+        materialStride = Std140Writer.alignUp(UniformBlocks.MATERIAL_SIZE, UniformBuffer.getOffsetAlignment(backend));
+        materialBuffer = new UniformBuffer(backend, UniformBlocks.MATERIAL_BINDING, materialStride * INITIAL_MATERIAL_BLOCKS);
 
-        shaderProgram.createUniform("projectionMatrix");
-        shaderProgram.createUniform("modelViewMatrix");
-        shaderProgram.createUniform("textureSampler");
-        shaderProgram.createMaterialUniform("material");
-        shaderProgram.createUniform("specularPower");
-        shaderProgram.createUniform("ambientLight");
-        shaderProgram.createPointLightUniform("pointLight");
-        shaderProgram.createSpotLightUniform("spotLight");
-        shaderProgram.createDirectionalLightUniform("directionalLight");
+        clusteredLights.init(backend);
+        itemLightsBuffer = new TextureBuffer(backend, GL_R32UI, 1024 * itemLights.getStride() * 4);
 
-        glEnable(GL_DEPTH_TEST);
+        backend.enable(GL_DEPTH_TEST);
     }
 
-    public void render(Window window, List<GameItem> gameItems, Camera camera, Vector3f ambientLight, PointLight pointLight, SpotLight spotLight, DirectionalLight directionalLight) {
+    /**
+     * Reads shaders from {@code directory} instead of the classpath and reloads them when they are edited. Call
+     * before {@link #init(Window)}.
+     */
+    public void setShaderSourceDirectory(Path directory) {
+        this.shaderSourceDirectory = directory;
+    }
+
+    private void createSceneUniforms(ShaderProgram program, int variant) throws Exception {
+        if ((variant & SceneVariants.INSTANCED) == 0) {
+            modelViewMatrixUniforms[variant] = program.createUniform("modelViewMatrix");
+        }
+
+        // Samplers keep their unit, so they are set once per program
+        program.bind();
+        if ((variant & SceneVariants.TEXTURED) != 0) {
+            program.setUniform(program.createUniform("textureSampler"), 0);
+        }
+        if ((variant & SceneVariants.CLUSTERED_LIGHTS) != 0) {
+            program.setUniform(program.createUniform("lightData"), ClusteredLights.LIGHT_DATA_UNIT);
+            program.setUniform(program.createUniform("clusterGrid"), ClusteredLights.CLUSTER_GRID_UNIT);
+            program.setUniform(program.createUniform("lightIndices"), ClusteredLights.LIGHT_INDICES_UNIT);
+        }
+        if ((variant & SceneVariants.ITEM_LIGHTS) != 0) {
+            program.setUniform(program.createUniform("lightData"), ClusteredLights.LIGHT_DATA_UNIT);
+            program.setUniform(program.createUniform("itemLights"), ITEM_LIGHTS_UNIT);
+            itemLightListUniforms[variant] = program.createUniform("itemLightList");
+        }
+        program.bindUniformBlock(UniformBlocks.CAMERA_BLOCK, UniformBlocks.CAMERA_BINDING, UniformBlocks.CAMERA_SIZE);
+        program.bindUniformBlock(UniformBlocks.LIGHTS_BLOCK, UniformBlocks.LIGHTS_BINDING, UniformBlocks.LIGHTS_SIZE);
+        program.bindUniformBlock(UniformBlocks.MATERIAL_BLOCK, UniformBlocks.MATERIAL_BINDING, UniformBlocks.MATERIAL_SIZE);
+    }
+
+    public void render(Window window, List<GameItem> gameItems, Camera camera, Vector3f ambientLight, List<PointLight> pointLights,
+                       List<SpotLight> spotLights, DirectionalLight directionalLight) {
+        renderState.beginFrame();
+        if (shaderManager != null) {
+            shaderManager.processReloads();
+        }
         clear();
 
         if (window.isResized()) {
-            GL11.glViewport(0, 0, window.getWidth(), window.getHeight());
+            backend.viewport(0, 0, window.getWidth(), window.getHeight());
             window.setResized(false);
         }
 
-        shaderProgram.bind();
-
-        // update projection matrix
         Matrix4f projectionMatrix = transformation.getProjectionMatrix(FOV, window.getWidth(), window.getHeight(), Z_NEAR, Z_FAR);
-        shaderProgram.setUniform("projectionMatrix", projectionMatrix);
-
-        // update view matrix
         Matrix4f viewMatrix = transformation.getViewMatrix(camera);
-        shaderProgram.setUniform("textureSampler", 0);
 
-        shaderProgram.setUniform("ambientLight", ambientLight);
-        shaderProgram.setUniform("specularPower", specularPower);
+        begin(cullScope);
+        frustum.set(projectionMatrix.mul(viewMatrix, projectionViewMatrix));
+        if (sceneIndex != null) {
+            queriedItems.clear();
+            sceneIndex.queryFrustum(frustum, queriedItems);
+            culledItems = gameItems.size() - queriedItems.size();
+            gameItems = queriedItems;
+        } else {
+            culledItems = 0;
+        }
+        buildRenderQueue(gameItems, viewMatrix);
+        end(cullScope);
+
+        begin(drawScope);
+        begin(lightScope);
+        updateViewLights(viewMatrix, pointLights, spotLights, directionalLight);
+        clusteredLights.setProjection(FOV, (float) window.getWidth() / window.getHeight(), Z_NEAR, Z_FAR);
+        clusteredLights.assign();
+        assignItemLights(gameItems);
+        end(lightScope);
+        if (clusteredLights.getLightCount() > 0) {
+            clusteredLights.upload();
+            clusteredLights.bind(renderState);
+            uploadItemLights();
+        }
+        uploadSceneBlocks(projectionMatrix, viewMatrix, ambientLight, window.getWidth(), window.getHeight());
+        uploadMaterialBlocks(gameItems);
+
+        // Lone draws first, then instanced runs. The queue is sorted by variant, so each pass binds each variant once.
+        // Lone draws light with their own few lights instead of looking up clusters
+        int lightVariant = getLightVariant();
+        int loneLightVariant = (lightVariant & SceneVariants.CLUSTERED_LIGHTS) != 0
+                ? lightVariant & ~SceneVariants.CLUSTERED_LIGHTS | SceneVariants.ITEM_LIGHTS : lightVariant;
+        ShaderProgram shaderProgram = null;
+        int modelViewMatrixUniform = -1;
+        int itemLightListUniform = -1;
+        int boundVariant = -1;
+        int loneItem = 0;
+        beginGpu(lonePassScope);
+        for (int start = 0, end, run = 0; start < renderQueue.size(); start = end, run++) {
+            end = instanceBatcher.findRunEnd(gameItems, renderQueue, start);
+            if (end - start >= INSTANCING_THRESHOLD) {
+                continue;
+            }
+
+            int variant = loneLightVariant | RenderQueue.opaqueShader(renderQueue.getKey(start));
+            if (variant != boundVariant) {
+                shaderProgram = scenePrograms.apply(variant);
+                shaderProgram.bind();
+                modelViewMatrixUniform = modelViewMatrixUniforms[variant];
+                itemLightListUniform = (variant & SceneVariants.ITEM_LIGHTS) != 0 ? itemLightListUniforms[variant] : -1;
+                boundVariant = variant;
+            }
+
+            Mesh mesh = gameItems.get(renderQueue.getItem(start)).getMesh();
+            materialBuffer.bind(runMaterialOffsets.get(run), UniformBlocks.MATERIAL_SIZE);
+            for (int i = start; i < end; i++, loneItem++) {
+                GameItem gameItem = gameItems.get(renderQueue.getItem(i));
+                Matrix4f modelViewMatrix = transformation.getModelViewMatrix(gameItem, viewMatrix);
+                shaderProgram.setUniform(modelViewMatrixUniform, modelViewMatrix);
+                if (itemLightListUniform != -1) {
+                    shaderProgram.setUniform(itemLightListUniform, loneItem * itemLights.getStride());
+                }
+                mesh.render(renderState);
+            }
+        }
+        endGpu(lonePassScope);
+
+        beginGpu(instancedPassScope);
+        boundVariant = -1;
+        for (int start = 0, end, run = 0; start < renderQueue.size(); start = end, run++) {
+            end = instanceBatcher.findRunEnd(gameItems, renderQueue, start);
+            if (end - start < INSTANCING_THRESHOLD) {
+                continue;
+            }
+
+            int variant = lightVariant | SceneVariants.INSTANCED | RenderQueue.opaqueShader(renderQueue.getKey(start));
+            if (variant != boundVariant) {
+                scenePrograms.apply(variant).bind();
+                boundVariant = variant;
+            }
+
+            Mesh mesh = gameItems.get(renderQueue.getItem(start)).getMesh();
+            materialBuffer.bind(runMaterialOffsets.get(run), UniformBlocks.MATERIAL_SIZE);
+            mesh.setInstanceBuffer(renderState, instanceVboId);
+            for (int chunk = start, count; chunk < end; chunk += count) {
+                instanceBuffer.clear();
+                count = instanceBatcher.fillInstanceBuffer(gameItems, renderQueue, chunk, end, instanceBuffer);
+                instanceBuffer.flip();
+
+                backend.bindBuffer(GL_ARRAY_BUFFER, instanceVboId);
+                backend.bufferData(GL_ARRAY_BUFFER, (long) InstanceBatcher.MAX_INSTANCES * InstanceBatcher.MATRIX_SIZE * 4, GL_STREAM_DRAW);
+                backend.bufferSubData(GL_ARRAY_BUFFER, 0, instanceBuffer);
+                backend.bindBuffer(GL_ARRAY_BUFFER, 0);
+
+                mesh.renderInstanced(renderState, count);
+            }
+        }
+        endGpu(instancedPassScope);
+        end(drawScope);
+    }
+
+    private void buildRenderQueue(List<GameItem> gameItems, Matrix4f viewMatrix) {
+        renderQueue.clear();
+        visibleItems = 0;
+
+        for (int i = 0; i < gameItems.size(); i++) {
+            GameItem gameItem = gameItems.get(i);
+            Mesh mesh = gameItem.getMesh();
+
+            Vector4f sphere = gameItem.getWorldBoundingSphere(boundingSphere);
+            if (sceneIndex == null && !frustum.testSphere(sphere.x, sphere.y, sphere.z, sphere.w)) {
+                culledItems++;
+                continue;
+            }
+            visibleItems++;
 
-        // update point light uniforms
-        PointLight currentPointLight = new PointLight(pointLight);
-        Vector3f lightPosition = currentPointLight.getPosition();
-        Vector4f aux = new Vector4f(lightPosition, 1.0f);
-        aux.mul(viewMatrix);
-        lightPosition.x = aux.x;
-        lightPosition.y = aux.y;
-        lightPosition.z = aux.z;
-        shaderProgram.setUniform("pointLight", currentPointLight);
+            float viewDepth = -(viewMatrix.m02() * sphere.x + viewMatrix.m12() * sphere.y + viewMatrix.m22() * sphere.z + viewMatrix.m32());
+            Material material = mesh.getMaterial();
+            int materialVariant = material.isTextured() ? SceneVariants.TEXTURED : 0;
+            long key = RenderQueue.opaqueKey(0, materialVariant, material.getId(), mesh.getId(), viewDepth / Z_FAR);
+            renderQueue.submit(key, i);
+        }
+        renderQueue.sort();
+    }
 
-        // update spot light uniforms
-        SpotLight currentSpotLight = new SpotLight(spotLight);
-        Vector4f spotLightDirection = new Vector4f(currentSpotLight.getConeDirection(), 0);
-        spotLightDirection.mul(viewMatrix);
-        currentSpotLight.setConeDirection(new Vector3f(spotLightDirection.x, spotLightDirection.y, spotLightDirection.z));
+    /**
+     * Culls against the given index instead of testing every item. The index has to hold the same items as the list
+     * passed to {@link #render}, and be updated whenever they move.
+     */
+    public void setSceneIndex(LooseOctree sceneIndex) {
+        this.sceneIndex = sceneIndex;
+    }
 
-        Vector3f spotLightPosition = currentSpotLight.getPointLight().getPosition();
-        Vector4f auxSpot = new Vector4f(spotLightPosition, 1);
-        auxSpot.mul(viewMatrix);
-        spotLightPosition.x = auxSpot.x;
-        spotLightPosition.y = auxSpot.y;
-        spotLightPosition.z = auxSpot.z;
-        shaderProgram.setUniform("spotLight", currentSpotLight);
+    /**
+     * Bins large light sets and picks the lights of many lone draws in parallel on the given workers instead of on the
+     * render thread.
+     */
+    public void setJobSystem(JobSystem jobSystem) {
+        clusteredLights.getClusters().setJobSystem(jobSystem);
+        itemLights.setJobSystem(jobSystem);
+    }
 
-        // update directional light uniforms
-        DirectionalLight currentDirectionalLight = new DirectionalLight(directionalLight);
-        Vector4f directionalLightDirection = new Vector4f(currentDirectionalLight.getDirection(), 0);
-        directionalLightDirection.mul(viewMatrix);
-        currentDirectionalLight.setDirection(new Vector3f(directionalLightDirection.x, directionalLightDirection.y, directionalLightDirection.z));
-        shaderProgram.setUniform("directionalLight", currentDirectionalLight);
+    /**
+     * Times culling and draw submission on the CPU, and each render pass on the GPU when the profiler has a GPU timer.
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+        this.cullScope = profiler.scope("culling");
+        this.drawScope = profiler.scope("draw submission");
+        this.lightScope = profiler.scope("light binning");
+        this.lonePassScope = profiler.scope("lone draw pass");
+        this.instancedPassScope = profiler.scope("instanced draw pass");
+    }
 
-        for (GameItem gameItem : gameItems) {
-            Matrix4f modelViewMatrix = transformation.getModelViewMatrix(gameItem, viewMatrix);
+    private void begin(int scope) {
+        if (profiler != null) {
+            profiler.begin(scope);
+        }
+    }
 
-            shaderProgram.setUniform("modelViewMatrix", modelViewMatrix);
-            shaderProgram.setUniform("material", gameItem.getMesh().getMaterial());
+    private void end(int scope) {
+        if (profiler != null) {
+            profiler.end(scope);
+        }
+    }
+
+    private void beginGpu(int scope) {
+        if (profiler != null) {
+            profiler.beginGpu(scope);
+        }
+    }
 
-            gameItem.getMesh().render();
+    private void endGpu(int scope) {
+        if (profiler != null) {
+            profiler.endGpu(scope);
         }
+    }
+
+    /**
+     * Items that passed the frustum test during the last frame.
+     */
+    public int getVisibleItems() {
+        return visibleItems;
+    }
+
+    public int getCulledItems() {
+        return culledItems;
+    }
 
-        shaderProgram.unbind();
+    /**
+     * Bind and uniform calls issued and skipped during the last frame.
+     */
+    public RenderState getRenderState() {
+        return renderState;
+    }
+
+    /**
+     * Copies the lights into view space, shared by all programs for the frame.
+     */
+    void updateViewLights(Matrix4f viewMatrix, List<PointLight> pointLights, List<SpotLight> spotLights,
+                          DirectionalLight directionalLight) {
+        lightStore.set(pointLights, spotLights);
+        clusteredLights.setLights(viewMatrix, lightStore);
+
+        viewDirectionalLight.set(directionalLight);
+        viewMatrix.transformDirection(viewDirectionalLight.getDirection());
+    }
+
+    /**
+     * Picks the strongest lights of every lone draw, in the order the lone pass draws them.
+     */
+    private void assignItemLights(List<GameItem> gameItems) {
+        loneItemSpheres.clear();
+        if (lightStore.size() > 0) {
+            for (int start = 0, end; start < renderQueue.size(); start = end) {
+                end = instanceBatcher.findRunEnd(gameItems, renderQueue, start);
+                if (end - start >= INSTANCING_THRESHOLD) {
+                    continue;
+                }
+                for (int i = start; i < end; i++) {
+                    Vector4f sphere = gameItems.get(renderQueue.getItem(i)).getWorldBoundingSphere(boundingSphere);
+                    loneItemSpheres.add(sphere.x, sphere.y, sphere.z);
+                    loneItemSpheres.add(sphere.w);
+                }
+            }
+        }
+        itemLights.assign(loneItemSpheres.array(), loneItemSpheres.size() / 4, lightStore);
+    }
+
+    private void uploadItemLights() {
+        int size = itemLights.getItemCount() * itemLights.getStride();
+        itemLightsBuffer.ensureCapacity(size * 4);
+        itemLightsBuffer.getData().asIntBuffer().put(itemLights.getLists(), 0, size);
+        itemLightsBuffer.upload(size * 4);
+        itemLightsBuffer.bind(renderState, ITEM_LIGHTS_UNIT);
+    }
+
+    /**
+     * Variant bits for the lights of the frame, leaving out lights at zero intensity.
+     */
+    private int getLightVariant() {
+        int variant = 0;
+        if (clusteredLights.getLightCount() > 0) {
+            variant |= SceneVariants.CLUSTERED_LIGHTS;
+        }
+        if (viewDirectionalLight.getIntensity() > 0) {
+            variant |= SceneVariants.DIRECTIONAL_LIGHT;
+        }
+        return variant;
+    }
+
+    /**
+     * Writes the camera and the view space lights into their uniform blocks, one buffer update each for the frame.
+     */
+    private void uploadSceneBlocks(Matrix4f projectionMatrix, Matrix4f viewMatrix, Vector3f ambientLight, int width,
+                                   int height) {
+        UniformBlocks.writeCamera(std140Writer.begin(cameraBuffer.getData(), 0), projectionMatrix, viewMatrix);
+        cameraBuffer.upload(UniformBlocks.CAMERA_SIZE);
+        cameraBuffer.bind();
+
+        UniformBlocks.writeLights(std140Writer.begin(lightsBuffer.getData(), 0), ambientLight, specularPower,
+                viewDirectionalLight, clusteredLights.getClusters(), clusteredLights.getLightCount(), width, height);
+        lightsBuffer.upload(UniformBlocks.LIGHTS_SIZE);
+        lightsBuffer.bind();
+    }
+
+    /**
+     * Writes one material block per material change along the sorted queue into a single buffer update, and records
+     * for every state run the offset of its block.
+     */
+    private void uploadMaterialBlocks(List<GameItem> gameItems) {
+        runMaterialOffsets.clear();
+        Material previous = null;
+        int size = 0;
+        for (int start = 0; start < renderQueue.size(); start = instanceBatcher.findRunEnd(gameItems, renderQueue, start)) {
+            Material material = gameItems.get(renderQueue.getItem(start)).getMesh().getMaterial();
+            if (material != previous) {
+                materialBuffer.ensureCapacity(size + materialStride);
+                UniformBlocks.writeMaterial(std140Writer.begin(materialBuffer.getData(), size), material);
+                size += materialStride;
+                previous = material;
+            }
+            runMaterialOffsets.add(size - materialStride);
+        }
+
+        if (size > 0) {
+            materialBuffer.upload(size);
+        }
     }
 
     public void clear() {
-        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT);
+        backend.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
     }
 
     public void cleanUp() {
-        if (shaderProgram != null) {
-            shaderProgram.cleanUp();
+        if (shaderManager != null) {
+            shaderManager.cleanUp();
+        }
+        if (instanceVboId != 0) {
+            backend.deleteBuffer(instanceVboId);
+        }
+        if (instanceBuffer != null) {
+            MemoryUtil.memFree(instanceBuffer);
+        }
+        if (cameraBuffer != null) {
+            cameraBuffer.cleanUp();
+        }
+        if (lightsBuffer != null) {
+            lightsBuffer.cleanUp();
+        }
+        if (materialBuffer != null) {
+            materialBuffer.cleanUp();
+        }
+        clusteredLights.cleanUp();
+        if (itemLightsBuffer != null) {
+            itemLightsBuffer.cleanUp();
         }
     }
 }
@@ -16,6 +16,21 @@ public class Camera {
         this.rotation = rotation;
     }
 
+    public Camera set(Camera camera) {
+        position.set(camera.getPosition());
+        rotation.set(camera.getRotation());
+        return this;
+    }
+
+    /**
+     * Sets this camera to the blend of two others at {@code alpha} in [0, 1], without allocating.
+     */
+    public Camera interpolate(Camera from, Camera to, float alpha) {
+        from.getPosition().lerp(to.getPosition(), alpha, position);
+        from.getRotation().lerp(to.getRotation(), alpha, rotation);
+        return this;
+    }
+
     public Vector3f getPosition() {
         return position;
     }
@@ -1,50 +1,103 @@
 package com.amoghbhagwat.game.entities;
 
+import com.amoghbhagwat.engine.graph.Bounds;
 import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.game.scene.TransformStore;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
 import org.joml.Vector3f;
+import org.joml.Vector4f;
 
+/**
+ * A mesh placed in the world. The transform lives in a slot of a {@link TransformStore}; items created without a
+ * store get one of their own.
+ */
 public class GameItem {
     private final Mesh mesh;
-    private final Vector3f position;
-    private final Vector3f rotation;
-    private float scale;
+    private final TransformStore transformStore;
+    private final int index;
 
     public GameItem(Mesh mesh) {
-        this.position = new Vector3f();
+        this(mesh, new TransformStore(1));
+    }
+
+    public GameItem(Mesh mesh, TransformStore transformStore) {
+        this(mesh, transformStore, transformStore.allocate());
+    }
+
+    /**
+     * Handle to an existing slot, e.g. to view a copy of another store.
+     */
+    public GameItem(Mesh mesh, TransformStore transformStore, int index) {
         this.mesh = mesh;
-        this.scale = 1;
-        this.rotation = new Vector3f();
+        this.transformStore = transformStore;
+        this.index = index;
     }
 
     public Mesh getMesh() {
         return mesh;
     }
 
-    public Vector3f getPosition() {
-        return position;
+    public TransformStore getTransformStore() {
+        return transformStore;
+    }
+
+    /**
+     * Slot of this item in its transform store.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Vector3f getPosition(Vector3f dest) {
+        return transformStore.getPosition(index, dest);
     }
 
     public void setPosition(float x, float y, float z) {
-        this.position.x = x;
-        this.position.y = y;
-        this.position.z = z;
+        transformStore.setPosition(index, x, y, z);
     }
 
-    public Vector3f getRotation() {
-        return rotation;
+    public Quaternionf getRotation(Quaternionf dest) {
+        return transformStore.getRotation(index, dest);
     }
 
+    public void setRotation(Quaternionfc rotation) {
+        transformStore.setRotation(index, rotation);
+    }
+
+    /**
+     * Sets the rotation from Euler angles in degrees, applied as rotations by the negated angles about X, Y then Z.
+     */
     public void setRotation(float x, float y, float z) {
-        this.rotation.x = x;
-        this.rotation.y = y;
-        this.rotation.z = z;
+        transformStore.setRotationXYZ(index, (float) Math.toRadians(-x), (float) Math.toRadians(-y), (float) Math.toRadians(-z));
     }
 
     public float getScale() {
-        return scale;
+        return transformStore.getScale(index);
     }
 
     public void setScale(float scale) {
-        this.scale = scale;
+        transformStore.setScale(index, scale);
+    }
+
+    public Matrix4f getWorldMatrix(Matrix4f dest) {
+        return transformStore.getWorldMatrix(index, dest);
+    }
+
+    /**
+     * World space bounding sphere as (centre x, y, z, radius).
+     */
+    public Vector4f getWorldBoundingSphere(Vector4f dest) {
+        Bounds bounds = mesh.getBounds();
+        Vector3f center = bounds.getCenter();
+        float[] m = transformStore.getWorldMatrices();
+        int o = transformStore.updateWorldMatrix(index);
+
+        return dest.set(
+                m[o] * center.x + m[o + 4] * center.y + m[o + 8] * center.z + m[o + 12],
+                m[o + 1] * center.x + m[o + 5] * center.y + m[o + 9] * center.z + m[o + 13],
+                m[o + 2] * center.x + m[o + 6] * center.y + m[o + 10] * center.z + m[o + 14],
+                bounds.getRadius() * Math.abs(getScale()));
     }
 }
@@ -1,9 +1,5 @@
 package com.amoghbhagwat.game.entities;
 
-import de.matthiasmann.twl.utils.PNGDecoder;
-
-import java.nio.ByteBuffer;
-
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30.glGenerateMipmap;
 
@@ -11,26 +7,24 @@ public class Texture {
     private final int id;
 
     public Texture(String fileName) throws Exception {
-        this(loadTexture(fileName));
+        this(TextureData.decode(fileName));
+    }
+
+    public Texture(TextureData textureData) {
+        this(uploadTexture(textureData));
     }
 
     public Texture(int id) {
         this.id = id;
     }
 
-    private static int loadTexture(String fileName) throws Exception {
-        PNGDecoder decoder = new PNGDecoder(Texture.class.getResourceAsStream(fileName));
-
-        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * decoder.getWidth() * decoder.getHeight());
-        decoder.decode(buffer, decoder.getWidth() * 4, PNGDecoder.Format.RGBA);
-        buffer.flip();
-
+    private static int uploadTexture(TextureData textureData) {
         int textureId = glGenTextures();
         glBindTexture(GL_TEXTURE_2D, textureId);
 
         glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
 
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, decoder.getWidth(), decoder.getHeight(), 0, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, textureData.getWidth(), textureData.getHeight(), 0, GL_RGBA, GL_UNSIGNED_BYTE, textureData.getPixels());
 
         glGenerateMipmap(GL_TEXTURE_2D);
 
@@ -0,0 +1,48 @@
+package com.amoghbhagwat.game.entities;
+
+import de.matthiasmann.twl.utils.PNGDecoder;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+public class TextureData {
+    private final int width;
+    private final int height;
+    private final ByteBuffer pixels;
+
+    public TextureData(int width, int height, ByteBuffer pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public static TextureData decode(String fileName) throws Exception {
+        try (InputStream in = TextureData.class.getResourceAsStream(fileName)) {
+            if (in == null) {
+                throw new Exception("Could not find texture: " + fileName);
+            }
+
+            PNGDecoder decoder = new PNGDecoder(in);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(4 * decoder.getWidth() * decoder.getHeight());
+            decoder.decode(buffer, decoder.getWidth() * 4, PNGDecoder.Format.RGBA);
+            buffer.flip();
+
+            return new TextureData(decoder.getWidth(), decoder.getHeight(), buffer);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Tightly packed RGBA rows.
+     */
+    public ByteBuffer getPixels() {
+        return pixels;
+    }
+}
@@ -0,0 +1,239 @@
+package com.amoghbhagwat.game.scene;
+
+import com.amoghbhagwat.engine.light.DirectionalLight;
+import com.amoghbhagwat.engine.light.PointLight;
+import com.amoghbhagwat.engine.light.SpotLight;
+import com.amoghbhagwat.engine.utils.IntList;
+import com.amoghbhagwat.game.entities.Camera;
+import com.amoghbhagwat.game.entities.GameItem;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copy of everything rendering needs from one simulation tick: transforms, camera and lights. Snapshots are reused
+ * through a {@link com.amoghbhagwat.engine.utils.TripleBuffer}, so capturing only copies values into objects owned
+ * by the snapshot, and its items are handles into the snapshot's own transform store.
+ * <p>
+ * A snapshot also keeps the state of the tick before it, and {@link #interpolate(float)} blends the two into the
+ * objects returned by the getters, so rendering between ticks stays smooth. Until then the getters return the
+ * captured tick.
+ * <p>
+ * Each snapshot keeps its own {@link LooseOctree} over its items, relinking only the items whose transform changed
+ * since the snapshot was last captured, and the items that moved during the tick when interpolating.
+ */
+public class FrameSnapshot {
+    private final TransformStore previousTransforms;
+    private final TransformStore currentTransforms;
+    private final TransformStore transforms;
+    private final List<GameItem> gameItems;
+    private final IntList movedItems;
+    private final LooseOctree sceneIndex;
+    private int[] capturedVersions;
+
+    private final Camera previousCamera;
+    private final Camera currentCamera;
+    private final Camera camera;
+    private final Vector3f ambientLight;
+    private final List<PointLight> previousPointLights;
+    private final List<PointLight> currentPointLights;
+    private final List<PointLight> pointLights;
+    private final List<SpotLight> previousSpotLights;
+    private final List<SpotLight> currentSpotLights;
+    private final List<SpotLight> spotLights;
+    private final DirectionalLight previousDirectionalLight;
+    private final DirectionalLight currentDirectionalLight;
+    private final DirectionalLight directionalLight;
+    private long tick;
+
+    public FrameSnapshot(float worldHalfSize) {
+        this.previousTransforms = new TransformStore();
+        this.currentTransforms = new TransformStore();
+        this.transforms = new TransformStore();
+        this.gameItems = new ArrayList<>();
+        this.movedItems = new IntList();
+        this.sceneIndex = new LooseOctree(0, 0, 0, worldHalfSize);
+        this.capturedVersions = new int[0];
+        this.previousCamera = new Camera();
+        this.currentCamera = new Camera();
+        this.camera = new Camera();
+        this.ambientLight = new Vector3f();
+        this.previousPointLights = new ArrayList<>();
+        this.currentPointLights = new ArrayList<>();
+        this.pointLights = new ArrayList<>();
+        this.previousSpotLights = new ArrayList<>();
+        this.currentSpotLights = new ArrayList<>();
+        this.spotLights = new ArrayList<>();
+        this.previousDirectionalLight = new DirectionalLight(new Vector3f(), new Vector3f(), 0);
+        this.currentDirectionalLight = new DirectionalLight(new Vector3f(), new Vector3f(), 0);
+        this.directionalLight = new DirectionalLight(new Vector3f(), new Vector3f(), 0);
+    }
+
+    private static PointLight createPointLight() {
+        return new PointLight(0, new Vector3f(), new Vector3f());
+    }
+
+    private static SpotLight createSpotLight() {
+        return new SpotLight(createPointLight(), new Vector3f(), 0);
+    }
+
+    /**
+     * Copies the lights into {@code target}, reusing its lights and only allocating for new ones.
+     */
+    private static void copyPointLights(List<PointLight> source, List<PointLight> target) {
+        while (target.size() > source.size()) {
+            target.remove(target.size() - 1);
+        }
+        for (int i = 0; i < source.size(); i++) {
+            if (i == target.size()) {
+                target.add(createPointLight());
+            }
+            target.get(i).set(source.get(i));
+        }
+    }
+
+    private static void copySpotLights(List<SpotLight> source, List<SpotLight> target) {
+        while (target.size() > source.size()) {
+            target.remove(target.size() - 1);
+        }
+        for (int i = 0; i < source.size(); i++) {
+            if (i == target.size()) {
+                target.add(createSpotLight());
+            }
+            target.get(i).set(source.get(i));
+        }
+    }
+
+    /**
+     * Copies the state of a tick. All items have to live in {@code transformStore}.
+     *
+     * @param previous the snapshot published for the tick before, whose state this one interpolates from; may be
+     *                 {@code null}. It is only read, so it may be in use by the renderer.
+     */
+    public void capture(long tick, TransformStore transformStore, List<GameItem> items, Camera camera, Vector3f ambientLight,
+                        List<PointLight> pointLights, List<SpotLight> spotLights, DirectionalLight directionalLight,
+                        FrameSnapshot previous) {
+        boolean hasPrevious = previous != null && previous.tick > 0;
+        this.tick = tick;
+        currentTransforms.copyFrom(transformStore);
+        previousTransforms.copyFrom(hasPrevious ? previous.currentTransforms : transformStore);
+        transforms.copyFrom(transformStore);
+        if (capturedVersions.length < transforms.size()) {
+            capturedVersions = Arrays.copyOf(capturedVersions, Math.max(transforms.size(), capturedVersions.length * 2));
+        }
+
+        // Items interpolated while this snapshot was last rendered are indexed at in-between positions
+        for (int i = 0; i < movedItems.size(); i++) {
+            if (movedItems.get(i) < gameItems.size()) {
+                sceneIndex.update(gameItems.get(movedItems.get(i)));
+            }
+        }
+        movedItems.clear();
+
+        for (int i = gameItems.size() - 1; i >= items.size(); i--) {
+            sceneIndex.remove(gameItems.remove(i));
+        }
+        for (int i = 0; i < items.size(); i++) {
+            GameItem item = items.get(i);
+            int index = item.getIndex();
+
+            GameItem copy = i < gameItems.size() ? gameItems.get(i) : null;
+            if (copy == null || copy.getIndex() != index || copy.getMesh() != item.getMesh()) {
+                if (copy != null) {
+                    sceneIndex.remove(copy);
+                }
+                copy = new GameItem(item.getMesh(), transforms, index);
+                if (i < gameItems.size()) {
+                    gameItems.set(i, copy);
+                } else {
+                    gameItems.add(copy);
+                }
+                sceneIndex.insert(copy);
+            } else if (capturedVersions[index] != transforms.getVersion(index)) {
+                sceneIndex.update(copy);
+            }
+            capturedVersions[index] = transforms.getVersion(index);
+
+            if (index < previousTransforms.size() && previousTransforms.getVersion(index) != currentTransforms.getVersion(index)) {
+                movedItems.add(i);
+            }
+        }
+
+        this.ambientLight.set(ambientLight);
+        currentCamera.set(camera);
+        copyPointLights(pointLights, currentPointLights);
+        copySpotLights(spotLights, currentSpotLights);
+        currentDirectionalLight.set(directionalLight);
+        previousCamera.set(hasPrevious ? previous.currentCamera : camera);
+        copyPointLights(hasPrevious ? previous.currentPointLights : pointLights, previousPointLights);
+        copySpotLights(hasPrevious ? previous.currentSpotLights : spotLights, previousSpotLights);
+        previousDirectionalLight.set(hasPrevious ? previous.currentDirectionalLight : directionalLight);
+        this.camera.set(camera);
+        copyPointLights(pointLights, this.pointLights);
+        copySpotLights(spotLights, this.spotLights);
+        this.directionalLight.set(directionalLight);
+    }
+
+    /**
+     * Blends the previous and the captured tick at {@code alpha} in [0, 1] into the state returned by the getters.
+     * Only items that moved during the tick are touched. Does not allocate.
+     */
+    public void interpolate(float alpha) {
+        alpha = Math.max(0, Math.min(alpha, 1));
+
+        for (int i = 0; i < movedItems.size(); i++) {
+            GameItem item = gameItems.get(movedItems.get(i));
+            transforms.interpolate(item.getIndex(), previousTransforms, currentTransforms, alpha);
+            sceneIndex.update(item);
+        }
+
+        camera.interpolate(previousCamera, currentCamera, alpha);
+        // Lights pair up by index; ones added during the tick have no previous state and stay where they are
+        int interpolatedPointLights = Math.min(pointLights.size(), previousPointLights.size());
+        for (int i = 0; i < interpolatedPointLights; i++) {
+            pointLights.get(i).interpolate(previousPointLights.get(i), currentPointLights.get(i), alpha);
+        }
+        int interpolatedSpotLights = Math.min(spotLights.size(), previousSpotLights.size());
+        for (int i = 0; i < interpolatedSpotLights; i++) {
+            spotLights.get(i).interpolate(previousSpotLights.get(i), currentSpotLights.get(i), alpha);
+        }
+        directionalLight.interpolate(previousDirectionalLight, currentDirectionalLight, alpha);
+    }
+
+    /**
+     * Tick the snapshot was captured at, 0 if it was never captured.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    public List<GameItem> getGameItems() {
+        return gameItems;
+    }
+
+    public LooseOctree getSceneIndex() {
+        return sceneIndex;
+    }
+
+    public Camera getCamera() {
+        return camera;
+    }
+
+    public Vector3f getAmbientLight() {
+        return ambientLight;
+    }
+
+    public List<PointLight> getPointLights() {
+        return pointLights;
+    }
+
+    public List<SpotLight> getSpotLights() {
+        return spotLights;
+    }
+
+    public DirectionalLight getDirectionalLight() {
+        return directionalLight;
+    }
+}
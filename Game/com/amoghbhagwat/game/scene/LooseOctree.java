@@ -0,0 +1,473 @@
+package com.amoghbhagwat.game.scene;
+
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.game.entities.GameItem;
+import org.joml.FrustumIntersection;
+import org.joml.Intersectionf;
+import org.joml.Vector2f;
+import org.joml.Vector3fc;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loose octree over the world bounding spheres of game items, used for culling, picking and proximity queries.
+ * <p>
+ * Every node's loose bounds are twice the size of its cell, so an item lives in the deepest node whose cell contains
+ * its centre and whose half size is at least its radius, and never has to straddle a split. Items centred outside the
+ * root cell stay in the root, which is always visited. Moving an item only relinks it when it changes node.
+ */
+public class LooseOctree {
+    public static final int DEFAULT_MAX_DEPTH = 8;
+
+    private static final int PARALLEL_BUILD_THRESHOLD = 4096;
+
+    private final Node root;
+    private final int maxDepth;
+    private final Map<GameItem, Entry> entries;
+    private final Vector4f sphere;
+    private final Vector2f range;
+
+    public LooseOctree(float centerX, float centerY, float centerZ, float halfSize) {
+        this(centerX, centerY, centerZ, halfSize, DEFAULT_MAX_DEPTH);
+    }
+
+    public LooseOctree(float centerX, float centerY, float centerZ, float halfSize, int maxDepth) {
+        this.root = new Node(null, centerX, centerY, centerZ, halfSize, 0);
+        this.maxDepth = maxDepth;
+        this.entries = new IdentityHashMap<>();
+        this.sphere = new Vector4f();
+        this.range = new Vector2f();
+    }
+
+    /**
+     * Adds an item, or relinks it if it is already indexed.
+     */
+    public void insert(GameItem item) {
+        Entry entry = entries.get(item);
+        if (entry != null) {
+            update(item);
+            return;
+        }
+
+        entry = new Entry(item);
+        entry.setSphere(item.getWorldBoundingSphere(sphere));
+        entries.put(item, entry);
+        findNode(entry).add(entry);
+    }
+
+    public boolean remove(GameItem item) {
+        Entry entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        entry.node.remove(entry);
+        return true;
+    }
+
+    /**
+     * Refreshes the bounds of an item after it moved, rotated or was rescaled.
+     */
+    public void update(GameItem item) {
+        Entry entry = entries.get(item);
+        if (entry == null) {
+            insert(item);
+            return;
+        }
+
+        entry.setSphere(item.getWorldBoundingSphere(sphere));
+        Node node = findNode(entry);
+        if (node != entry.node) {
+            entry.node.remove(entry);
+            node.add(entry);
+        }
+    }
+
+    /**
+     * Replaces the contents of the tree with the given items, which is the way to load large static scenes.
+     */
+    public void build(Collection<GameItem> items) {
+        build(items, null);
+    }
+
+    /**
+     * Like {@link #build(Collection)}, with large octants partitioned in parallel on the job system's workers.
+     */
+    public void build(Collection<GameItem> items, JobSystem jobSystem) {
+        clear();
+
+        Entry[] built = new Entry[items.size()];
+        int count = 0;
+        for (GameItem item : items) {
+            if (entries.containsKey(item)) {
+                continue;
+            }
+            Entry entry = new Entry(item);
+            entry.setSphere(item.getWorldBoundingSphere(sphere));
+            entries.put(item, entry);
+            built[count++] = entry;
+        }
+
+        BuildTask task = new BuildTask(root, built, 0, count, jobSystem != null);
+        if (jobSystem != null) {
+            jobSystem.invoke(task);
+        } else {
+            task.compute();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        root.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(GameItem item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Appends the items whose bounding sphere is at least partly inside the frustum.
+     */
+    public void queryFrustum(FrustumIntersection frustum, List<GameItem> result) {
+        queryFrustum(root, frustum, false, result);
+    }
+
+    /**
+     * Appends the items whose bounding sphere touches the given sphere.
+     */
+    public void queryRadius(float x, float y, float z, float radius, List<GameItem> result) {
+        queryRadius(root, x, y, z, radius, result);
+    }
+
+    /**
+     * Finds the item whose bounding sphere is hit first by the ray. Distances are in multiples of the direction's
+     * length, and a ray starting inside a sphere hits it at distance 0.
+     *
+     * @return whether anything was hit within {@code maxDistance}
+     */
+    public boolean raycast(Vector3fc origin, Vector3fc direction, float maxDistance, RayHit hit) {
+        hit.item = null;
+        hit.distance = maxDistance;
+        raycast(root, origin.x(), origin.y(), origin.z(), direction.x(), direction.y(), direction.z(), hit);
+        return hit.item != null;
+    }
+
+    private void queryFrustum(Node node, FrustumIntersection frustum, boolean inside, List<GameItem> result) {
+        if (node.count == 0) {
+            return;
+        }
+
+        if (!inside && node != root) {
+            float extent = node.halfSize * 2;
+            int test = frustum.intersectAab(node.centerX - extent, node.centerY - extent, node.centerZ - extent,
+                    node.centerX + extent, node.centerY + extent, node.centerZ + extent);
+            if (test == FrustumIntersection.INSIDE) {
+                inside = true;
+            } else if (test != FrustumIntersection.INTERSECT) {
+                return;
+            }
+        }
+
+        ArrayList<Entry> nodeEntries = node.entries;
+        for (int i = 0; i < nodeEntries.size(); i++) {
+            Entry entry = nodeEntries.get(i);
+            if (inside || frustum.testSphere(entry.x, entry.y, entry.z, entry.radius)) {
+                result.add(entry.item);
+            }
+        }
+
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child != null) {
+                    queryFrustum(child, frustum, inside, result);
+                }
+            }
+        }
+    }
+
+    private void queryRadius(Node node, float x, float y, float z, float radius, List<GameItem> result) {
+        if (node.count == 0) {
+            return;
+        }
+
+        if (node != root) {
+            float extent = node.halfSize * 2;
+            if (!Intersectionf.testAabSphere(node.centerX - extent, node.centerY - extent, node.centerZ - extent,
+                    node.centerX + extent, node.centerY + extent, node.centerZ + extent, x, y, z, radius * radius)) {
+                return;
+            }
+        }
+
+        ArrayList<Entry> nodeEntries = node.entries;
+        for (int i = 0; i < nodeEntries.size(); i++) {
+            Entry entry = nodeEntries.get(i);
+            float dx = entry.x - x;
+            float dy = entry.y - y;
+            float dz = entry.z - z;
+            float reach = entry.radius + radius;
+            if (dx * dx + dy * dy + dz * dz <= reach * reach) {
+                result.add(entry.item);
+            }
+        }
+
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child != null) {
+                    queryRadius(child, x, y, z, radius, result);
+                }
+            }
+        }
+    }
+
+    private void raycast(Node node, float originX, float originY, float originZ, float dirX, float dirY, float dirZ, RayHit hit) {
+        if (node.count == 0) {
+            return;
+        }
+
+        if (node != root) {
+            float extent = node.halfSize * 2;
+            if (!Intersectionf.intersectRayAab(originX, originY, originZ, dirX, dirY, dirZ,
+                    node.centerX - extent, node.centerY - extent, node.centerZ - extent,
+                    node.centerX + extent, node.centerY + extent, node.centerZ + extent, range)
+                    || range.y < 0 || range.x > hit.distance) {
+                return;
+            }
+        }
+
+        ArrayList<Entry> nodeEntries = node.entries;
+        for (int i = 0; i < nodeEntries.size(); i++) {
+            Entry entry = nodeEntries.get(i);
+            if (!Intersectionf.intersectRaySphere(originX, originY, originZ, dirX, dirY, dirZ,
+                    entry.x, entry.y, entry.z, entry.radius * entry.radius, range) || range.y < 0) {
+                continue;
+            }
+            float distance = Math.max(range.x, 0);
+            if (distance <= hit.distance) {
+                hit.item = entry.item;
+                hit.distance = distance;
+            }
+        }
+
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child != null) {
+                    raycast(child, originX, originY, originZ, dirX, dirY, dirZ, hit);
+                }
+            }
+        }
+    }
+
+    private Node findNode(Entry entry) {
+        Node node = root;
+        int octant;
+        while ((octant = childOctant(node, entry)) >= 0) {
+            node = node.getOrCreateChild(octant);
+        }
+        return node;
+    }
+
+    /**
+     * Octant of the child the entry fits into, or -1 if it has to stay in this node.
+     */
+    private int childOctant(Node node, Entry entry) {
+        if (node.depth >= maxDepth || entry.radius > node.halfSize * 0.5f) {
+            return -1;
+        }
+
+        float dx = entry.x - node.centerX;
+        float dy = entry.y - node.centerY;
+        float dz = entry.z - node.centerZ;
+        if (node == root && (Math.abs(dx) > node.halfSize || Math.abs(dy) > node.halfSize || Math.abs(dz) > node.halfSize)) {
+            return -1;
+        }
+
+        return (dx >= 0 ? 1 : 0) | (dy >= 0 ? 2 : 0) | (dz >= 0 ? 4 : 0);
+    }
+
+    public static class RayHit {
+        private GameItem item;
+        private float distance;
+
+        public GameItem getItem() {
+            return item;
+        }
+
+        public float getDistance() {
+            return distance;
+        }
+    }
+
+    private static class Entry {
+        private final GameItem item;
+        private float x;
+        private float y;
+        private float z;
+        private float radius;
+        private Node node;
+        private int slot;
+
+        Entry(GameItem item) {
+            this.item = item;
+        }
+
+        void setSphere(Vector4f sphere) {
+            x = sphere.x;
+            y = sphere.y;
+            z = sphere.z;
+            radius = sphere.w;
+        }
+    }
+
+    private static class Node {
+        private final Node parent;
+        private final float centerX;
+        private final float centerY;
+        private final float centerZ;
+        private final float halfSize;
+        private final int depth;
+        private final ArrayList<Entry> entries;
+        private Node[] children;
+        // Entries in this node and all of its descendants, so empty branches are skipped
+        private int count;
+
+        Node(Node parent, float centerX, float centerY, float centerZ, float halfSize, int depth) {
+            this.parent = parent;
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.centerZ = centerZ;
+            this.halfSize = halfSize;
+            this.depth = depth;
+            this.entries = new ArrayList<>();
+        }
+
+        Node getOrCreateChild(int octant) {
+            if (children == null) {
+                children = new Node[8];
+            }
+            Node child = children[octant];
+            if (child == null) {
+                float quarter = halfSize * 0.5f;
+                child = new Node(this,
+                        centerX + ((octant & 1) != 0 ? quarter : -quarter),
+                        centerY + ((octant & 2) != 0 ? quarter : -quarter),
+                        centerZ + ((octant & 4) != 0 ? quarter : -quarter),
+                        quarter, depth + 1);
+                children[octant] = child;
+            }
+            return child;
+        }
+
+        void add(Entry entry) {
+            entry.node = this;
+            entry.slot = entries.size();
+            entries.add(entry);
+            for (Node node = this; node != null; node = node.parent) {
+                node.count++;
+            }
+        }
+
+        void remove(Entry entry) {
+            Entry last = entries.remove(entries.size() - 1);
+            if (last != entry) {
+                entries.set(entry.slot, last);
+                last.slot = entry.slot;
+            }
+            entry.node = null;
+            for (Node node = this; node != null; node = node.parent) {
+                node.count--;
+            }
+        }
+
+        void clear() {
+            entries.clear();
+            children = null;
+            count = 0;
+        }
+    }
+
+    /**
+     * Distributes a range of entries between a node and its octants, forking a task per large octant. Each task owns
+     * its node exclusively, so no locking is needed; counts are filled in directly instead of walking up the parents.
+     */
+    private class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Node node;
+        private final Entry[] source;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        BuildTask(Node node, Entry[] source, int from, int to, boolean parallel) {
+            this.node = node;
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            node.count = to - from;
+
+            int[] octants = new int[to - from];
+            int[] offsets = new int[9];
+            for (int i = from; i < to; i++) {
+                int octant = childOctant(node, source[i]);
+                octants[i - from] = octant;
+                if (octant < 0) {
+                    Entry entry = source[i];
+                    entry.node = node;
+                    entry.slot = node.entries.size();
+                    node.entries.add(entry);
+                } else {
+                    offsets[octant + 1]++;
+                }
+            }
+
+            int childEntries = to - from - node.entries.size();
+            if (childEntries == 0) {
+                return;
+            }
+
+            for (int octant = 0; octant < 8; octant++) {
+                offsets[octant + 1] += offsets[octant];
+            }
+            Entry[] partitioned = new Entry[childEntries];
+            int[] fill = offsets.clone();
+            for (int i = from; i < to; i++) {
+                int octant = octants[i - from];
+                if (octant >= 0) {
+                    partitioned[fill[octant]++] = source[i];
+                }
+            }
+
+            List<BuildTask> forked = new ArrayList<>();
+            for (int octant = 0; octant < 8; octant++) {
+                int start = offsets[octant];
+                int end = offsets[octant + 1];
+                if (start == end) {
+                    continue;
+                }
+                BuildTask task = new BuildTask(node.getOrCreateChild(octant), partitioned, start, end, parallel);
+                if (parallel && end - start >= PARALLEL_BUILD_THRESHOLD) {
+                    forked.add(task);
+                } else {
+                    task.compute();
+                }
+            }
+            if (!forked.isEmpty()) {
+                invokeAll(forked);
+            }
+        }
+    }
+}
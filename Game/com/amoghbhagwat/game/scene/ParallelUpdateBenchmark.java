@@ -0,0 +1,84 @@
+package com.amoghbhagwat.game.scene;
+
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.engine.jobs.UpdateJob;
+
+import java.util.Random;
+
+/**
+ * Measures how the update phase scales with worker threads, without a window.
+ * <p>
+ * Usage: {@code ParallelUpdateBenchmark [entities] [ticks]}. Every tick each entity moves by its velocity, spins, and
+ * gets its world matrix rebuilt; the time per tick is printed for 1, 2, 4... up to the number of cores.
+ */
+public class ParallelUpdateBenchmark {
+    private static final int DEFAULT_ENTITIES = 100_000;
+    private static final int DEFAULT_TICKS = 200;
+    private static final int WARM_UP_TICKS = 50;
+    private static final float INTERVAL = 1f / 30;
+
+    public static void main(String[] args) {
+        int entities = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTITIES;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TICKS;
+
+        TransformStore transformStore = new TransformStore(entities);
+        float[] velocities = new float[entities * 3];
+        float[] angles = new float[entities];
+        Random random = new Random(42);
+        for (int i = 0; i < entities; i++) {
+            transformStore.allocate();
+            transformStore.setPosition(i, random.nextFloat() * 100, random.nextFloat() * 100, random.nextFloat() * 100);
+            velocities[i * 3] = random.nextFloat() - 0.5f;
+            velocities[i * 3 + 1] = random.nextFloat() - 0.5f;
+            velocities[i * 3 + 2] = random.nextFloat() - 0.5f;
+        }
+
+        UpdateJob motion = new UpdateJob() {
+            @Override
+            public int getSize() {
+                return transformStore.size();
+            }
+
+            @Override
+            public void update(int from, int to, float interval) {
+                float[] matrices = transformStore.getWorldMatrices();
+                for (int i = from; i < to; i++) {
+                    int offset = transformStore.updateWorldMatrix(i) + 12;
+                    transformStore.setPosition(i,
+                            matrices[offset] + velocities[i * 3] * interval,
+                            matrices[offset + 1] + velocities[i * 3 + 1] * interval,
+                            matrices[offset + 2] + velocities[i * 3 + 2] * interval);
+                    angles[i] += interval;
+                    transformStore.setRotationXYZ(i, 0, angles[i], 0);
+                }
+                transformStore.updateWorldMatrices(from, to);
+            }
+        };
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double singleThreaded = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            JobSystem jobSystem = new JobSystem(threads, JobSystem.DEFAULT_MIN_BATCH_SIZE);
+            jobSystem.addUpdateJob(motion);
+
+            for (int i = 0; i < WARM_UP_TICKS; i++) {
+                jobSystem.runUpdateJobs(INTERVAL);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ticks; i++) {
+                jobSystem.runUpdateJobs(INTERVAL);
+            }
+            double millisPerTick = (System.nanoTime() - start) / 1e6 / ticks;
+            jobSystem.cleanUp();
+
+            if (threads == 1) {
+                singleThreaded = millisPerTick;
+            }
+            System.out.printf("%2d threads: %.3f ms/tick, speedup %.2fx%n", threads, millisPerTick, singleThreaded / millisPerTick);
+
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+}
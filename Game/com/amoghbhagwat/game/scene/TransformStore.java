@@ -0,0 +1,262 @@
+package com.amoghbhagwat.game.scene;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Quaternionfc;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+/**
+ * Transforms of many game items kept in parallel primitive arrays: positions (3 floats), rotation quaternions
+ * (x, y, z, w), uniform scales and cached column-major world matrices (16 floats), indexed by slot.
+ * <p>
+ * Setters only mark a slot dirty; its world matrix is rebuilt the next time it is read or when
+ * {@link #updateWorldMatrices(int, int)} runs. Different slots may be written from different threads as long as no
+ * slot is being allocated at the same time.
+ */
+public class TransformStore {
+    public static final int MATRIX_SIZE = 16;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private float[] positions;
+    private float[] rotations;
+    private float[] scales;
+    private float[] worldMatrices;
+    private boolean[] dirty;
+    private int[] versions;
+    private int size;
+
+    public TransformStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TransformStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.positions = new float[capacity * 3];
+        this.rotations = new float[capacity * 4];
+        this.scales = new float[capacity];
+        this.worldMatrices = new float[capacity * MATRIX_SIZE];
+        this.dirty = new boolean[capacity];
+        this.versions = new int[capacity];
+    }
+
+    /**
+     * Adds an identity transform and returns its slot.
+     */
+    public int allocate() {
+        if (size == scales.length) {
+            grow(size * 2);
+        }
+
+        int index = size++;
+        rotations[index * 4 + 3] = 1;
+        scales[index] = 1;
+        dirty[index] = true;
+        versions[index]++;
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setPosition(int index, float x, float y, float z) {
+        int offset = index * 3;
+        positions[offset] = x;
+        positions[offset + 1] = y;
+        positions[offset + 2] = z;
+        dirty[index] = true;
+        versions[index]++;
+    }
+
+    public Vector3f getPosition(int index, Vector3f dest) {
+        int offset = index * 3;
+        return dest.set(positions[offset], positions[offset + 1], positions[offset + 2]);
+    }
+
+    public void setRotation(int index, float x, float y, float z, float w) {
+        int offset = index * 4;
+        rotations[offset] = x;
+        rotations[offset + 1] = y;
+        rotations[offset + 2] = z;
+        rotations[offset + 3] = w;
+        dirty[index] = true;
+        versions[index]++;
+    }
+
+    public void setRotation(int index, Quaternionfc rotation) {
+        setRotation(index, rotation.x(), rotation.y(), rotation.z(), rotation.w());
+    }
+
+    /**
+     * Sets the rotation from angles in radians, applied about X, then Y, then Z in the item's local frame.
+     */
+    public void setRotationXYZ(int index, float angleX, float angleY, float angleZ) {
+        float sx = (float) Math.sin(angleX * 0.5f), cx = (float) Math.cos(angleX * 0.5f);
+        float sy = (float) Math.sin(angleY * 0.5f), cy = (float) Math.cos(angleY * 0.5f);
+        float sz = (float) Math.sin(angleZ * 0.5f), cz = (float) Math.cos(angleZ * 0.5f);
+
+        // (X * Y) * Z
+        float x = cy * sx;
+        float y = cx * sy;
+        float z = sx * sy;
+        float w = cx * cy;
+        setRotation(index, x * cz + y * sz, y * cz - x * sz, w * sz + z * cz, w * cz - z * sz);
+    }
+
+    public Quaternionf getRotation(int index, Quaternionf dest) {
+        int offset = index * 4;
+        return dest.set(rotations[offset], rotations[offset + 1], rotations[offset + 2], rotations[offset + 3]);
+    }
+
+    public void setScale(int index, float scale) {
+        scales[index] = scale;
+        dirty[index] = true;
+        versions[index]++;
+    }
+
+    public float getScale(int index) {
+        return scales[index];
+    }
+
+    public boolean isDirty(int index) {
+        return dirty[index];
+    }
+
+    /**
+     * Counter bumped whenever the slot's transform is set, so copies can tell which slots changed.
+     */
+    public int getVersion(int index) {
+        return versions[index];
+    }
+
+    /**
+     * Makes this store an exact copy of another one, reusing its arrays when they are large enough.
+     */
+    public void copyFrom(TransformStore source) {
+        int count = source.size;
+        if (count > scales.length) {
+            grow(Math.max(count, scales.length * 2));
+        }
+
+        System.arraycopy(source.positions, 0, positions, 0, count * 3);
+        System.arraycopy(source.rotations, 0, rotations, 0, count * 4);
+        System.arraycopy(source.scales, 0, scales, 0, count);
+        System.arraycopy(source.worldMatrices, 0, worldMatrices, 0, count * MATRIX_SIZE);
+        System.arraycopy(source.dirty, 0, dirty, 0, count);
+        System.arraycopy(source.versions, 0, versions, 0, count);
+        size = count;
+    }
+
+    /**
+     * Sets a slot to the blend of the same slot in two other stores at {@code alpha} in [0, 1]. Positions and scales
+     * are interpolated linearly, rotations by normalised lerp along the shorter arc.
+     */
+    public void interpolate(int index, TransformStore from, TransformStore to, float alpha) {
+        int p = index * 3;
+        for (int i = p; i < p + 3; i++) {
+            positions[i] = from.positions[i] + (to.positions[i] - from.positions[i]) * alpha;
+        }
+
+        int r = index * 4;
+        float ax = from.rotations[r], ay = from.rotations[r + 1], az = from.rotations[r + 2], aw = from.rotations[r + 3];
+        float bx = to.rotations[r], by = to.rotations[r + 1], bz = to.rotations[r + 2], bw = to.rotations[r + 3];
+        if (ax * bx + ay * by + az * bz + aw * bw < 0) {
+            bx = -bx;
+            by = -by;
+            bz = -bz;
+            bw = -bw;
+        }
+        float x = ax + (bx - ax) * alpha;
+        float y = ay + (by - ay) * alpha;
+        float z = az + (bz - az) * alpha;
+        float w = aw + (bw - aw) * alpha;
+        float invLength = (float) (1.0 / Math.sqrt(x * x + y * y + z * z + w * w));
+        rotations[r] = x * invLength;
+        rotations[r + 1] = y * invLength;
+        rotations[r + 2] = z * invLength;
+        rotations[r + 3] = w * invLength;
+
+        scales[index] = from.scales[index] + (to.scales[index] - from.scales[index]) * alpha;
+        dirty[index] = true;
+        versions[index]++;
+    }
+
+    /**
+     * Rebuilds the world matrix of a slot if it is dirty.
+     *
+     * @return the offset of the slot's matrix in {@link #getWorldMatrices()}
+     */
+    public int updateWorldMatrix(int index) {
+        if (dirty[index]) {
+            buildWorldMatrix(index);
+            dirty[index] = false;
+        }
+        return index * MATRIX_SIZE;
+    }
+
+    /**
+     * Rebuilds the dirty world matrices of slots {@code [from, to)}. Disjoint ranges can be updated in parallel.
+     */
+    public void updateWorldMatrices(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (dirty[i]) {
+                buildWorldMatrix(i);
+                dirty[i] = false;
+            }
+        }
+    }
+
+    public Matrix4f getWorldMatrix(int index, Matrix4f dest) {
+        return dest.set(worldMatrices, updateWorldMatrix(index));
+    }
+
+    /**
+     * Backing array of the world matrices. Only slots that have been updated since their last change are current.
+     */
+    public float[] getWorldMatrices() {
+        return worldMatrices;
+    }
+
+    private void buildWorldMatrix(int index) {
+        int r = index * 4;
+        float qx = rotations[r], qy = rotations[r + 1], qz = rotations[r + 2], qw = rotations[r + 3];
+        float s = scales[index];
+        int p = index * 3;
+
+        float dqx = qx + qx, dqy = qy + qy, dqz = qz + qz;
+        float q00 = dqx * qx, q11 = dqy * qy, q22 = dqz * qz;
+        float q01 = dqx * qy, q02 = dqx * qz, q03 = dqx * qw;
+        float q12 = dqy * qz, q13 = dqy * qw, q23 = dqz * qw;
+
+        float[] m = worldMatrices;
+        int o = index * MATRIX_SIZE;
+        m[o] = (1 - q11 - q22) * s;
+        m[o + 1] = (q01 + q23) * s;
+        m[o + 2] = (q02 - q13) * s;
+        m[o + 3] = 0;
+        m[o + 4] = (q01 - q23) * s;
+        m[o + 5] = (1 - q22 - q00) * s;
+        m[o + 6] = (q12 + q03) * s;
+        m[o + 7] = 0;
+        m[o + 8] = (q02 + q13) * s;
+        m[o + 9] = (q12 - q03) * s;
+        m[o + 10] = (1 - q11 - q00) * s;
+        m[o + 11] = 0;
+        m[o + 12] = positions[p];
+        m[o + 13] = positions[p + 1];
+        m[o + 14] = positions[p + 2];
+        m[o + 15] = 1;
+    }
+
+    private void grow(int capacity) {
+        positions = Arrays.copyOf(positions, capacity * 3);
+        rotations = Arrays.copyOf(rotations, capacity * 4);
+        scales = Arrays.copyOf(scales, capacity);
+        worldMatrices = Arrays.copyOf(worldMatrices, capacity * MATRIX_SIZE);
+        dirty = Arrays.copyOf(dirty, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+}
@@ -0,0 +1,51 @@
+package com.amoghbhagwat.game.utils;
+
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.RenderQueue;
+import com.amoghbhagwat.game.entities.GameItem;
+import com.amoghbhagwat.game.scene.TransformStore;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+/**
+ * Fills instance buffers for runs of sorted render queue entries that share a mesh and material.
+ */
+public class InstanceBatcher {
+    public static final int MATRIX_SIZE = 16;
+    /**
+     * Instances per draw; longer runs are drawn in chunks.
+     */
+    public static final int MAX_INSTANCES = 4096;
+
+    /**
+     * End of the state run starting at {@code start}. Material and mesh ids only keep their low bits in the sort key,
+     * so a run also ends where the mesh itself changes; otherwise two meshes whose ids collide would share a draw.
+     */
+    public int findRunEnd(List<GameItem> gameItems, RenderQueue renderQueue, int start) {
+        int end = renderQueue.findStateRunEnd(start);
+        Mesh mesh = gameItems.get(renderQueue.getItem(start)).getMesh();
+        for (int i = start + 1; i < end; i++) {
+            if (gameItems.get(renderQueue.getItem(i)).getMesh() != mesh) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Copies the cached world matrices of the next chunk of queue entries {@code [start, end)}, at most
+     * {@link #MAX_INSTANCES}, into the buffer at its position. Returns the chunk's size, so the next one starts at
+     * {@code start} plus the result.
+     */
+    public int fillInstanceBuffer(List<GameItem> gameItems, RenderQueue renderQueue, int start, int end, FloatBuffer buffer) {
+        int count = Math.min(MAX_INSTANCES, end - start);
+        for (int i = 0; i < count; i++) {
+            GameItem gameItem = gameItems.get(renderQueue.getItem(start + i));
+            TransformStore transformStore = gameItem.getTransformStore();
+            int offset = transformStore.updateWorldMatrix(gameItem.getIndex());
+            buffer.put(transformStore.getWorldMatrices(), offset, MATRIX_SIZE);
+        }
+        return count;
+    }
+}
@@ -1,17 +1,26 @@
 package com.amoghbhagwat.game.utils;
 
+import com.amoghbhagwat.engine.InputSnapshot;
 import com.amoghbhagwat.engine.Window;
 import org.joml.Vector2d;
 import org.joml.Vector2f;
 
 import static org.lwjgl.glfw.GLFW.*;
 
+/**
+ * Mouse state in two halves. The GLFW callbacks and {@link #capture(InputSnapshot)} run on the thread that polls
+ * events; {@link #input(InputSnapshot)} and the getters run wherever the game updates, and only see snapshots.
+ */
 public class MouseInput {
-    private final Vector2d previousPosition;
+    // Written by the callbacks on the event thread
     private final Vector2d currentPosition;
-    private final Vector2f displayVector;
-
     private boolean inWindow = false;
+    private boolean leftButtonDown = false;
+    private boolean rightButtonDown = false;
+
+    // Derived from snapshots on the update thread
+    private final Vector2d previousPosition;
+    private final Vector2f displayVector;
     private boolean leftButtonPressed = false;
     private boolean rightButtonPressed = false;
 
@@ -32,22 +41,37 @@ public class MouseInput {
         });
 
         glfwSetMouseButtonCallback(window.getWindowHandle(), (windowHandle, button, action, mode) -> {
-            leftButtonPressed = button == GLFW_MOUSE_BUTTON_1 && action == GLFW_PRESS;
-            rightButtonPressed = button == GLFW_MOUSE_BUTTON_2 && action == GLFW_PRESS;
+            leftButtonDown = button == GLFW_MOUSE_BUTTON_1 && action == GLFW_PRESS;
+            rightButtonDown = button == GLFW_MOUSE_BUTTON_2 && action == GLFW_PRESS;
         });
     }
 
+    /**
+     * Copies what the callbacks saw into a snapshot. Call on the thread that polls events.
+     */
+    public void capture(InputSnapshot snapshot) {
+        snapshot.setCursor(currentPosition.x, currentPosition.y);
+        snapshot.setInWindow(inWindow);
+        snapshot.setButtons(leftButtonDown, rightButtonDown);
+    }
+
     public Vector2f getDisplayVector() {
         return displayVector;
     }
 
-    public void input(Window window) {
+    /**
+     * Moves on to a snapshot: the display vector becomes the cursor movement since the previous one, so a snapshot
+     * seen twice moves nothing the second time.
+     */
+    public void input(InputSnapshot snapshot) {
         displayVector.x = 0;
         displayVector.y = 0;
+        leftButtonPressed = snapshot.isLeftButtonPressed();
+        rightButtonPressed = snapshot.isRightButtonPressed();
 
-        if (previousPosition.x > 0 && previousPosition.y > 0 && inWindow) {
-            double deltaX = currentPosition.x - previousPosition.x;
-            double deltaY = currentPosition.y - previousPosition.y;
+        if (previousPosition.x > 0 && previousPosition.y > 0 && snapshot.isInWindow()) {
+            double deltaX = snapshot.getCursorX() - previousPosition.x;
+            double deltaY = snapshot.getCursorY() - previousPosition.y;
 
             boolean rotateX = deltaX != 0;
             boolean rotateY = deltaY != 0;
@@ -60,8 +84,8 @@ public class MouseInput {
             }
         }
 
-        previousPosition.x = currentPosition.x;
-        previousPosition.y = currentPosition.y;
+        previousPosition.x = snapshot.getCursorX();
+        previousPosition.y = snapshot.getCursorY();
     }
 
     public boolean isLeftButtonPressed() {
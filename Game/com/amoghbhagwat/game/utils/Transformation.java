@@ -7,11 +7,13 @@ import org.joml.Vector3f;
 
 public class Transformation {
     private final Matrix4f projectionMatrix;
+    private final Matrix4f modelMatrix;
     private final Matrix4f modelViewMatrix;
     private final Matrix4f viewMatrix;
 
     public Transformation() {
         this.projectionMatrix = new Matrix4f();
+        this.modelMatrix = new Matrix4f();
         this.modelViewMatrix = new Matrix4f();
         this.viewMatrix = new Matrix4f();
     }
@@ -24,11 +26,12 @@ public class Transformation {
     }
 
     public Matrix4f getModelViewMatrix(GameItem gameItem, Matrix4f viewMatrix) {
-        Vector3f rotation = gameItem.getRotation();
-        modelViewMatrix.identity().translate(gameItem.getPosition()).rotateX((float) Math.toRadians(-rotation.x)).rotateY((float) Math.toRadians(-rotation.y)).rotateZ((float) Math.toRadians(-rotation.z)).scale(gameItem.getScale());
+        buildModelMatrix(gameItem, modelMatrix);
+        return viewMatrix.mul(modelMatrix, modelViewMatrix);
+    }
 
-        Matrix4f viewCurr = new Matrix4f(viewMatrix);
-        return viewCurr.mul(modelViewMatrix);
+    public Matrix4f buildModelMatrix(GameItem gameItem, Matrix4f dest) {
+        return gameItem.getWorldMatrix(dest);
     }
 
     public Matrix4f getViewMatrix(Camera camera) {
@@ -36,7 +39,7 @@ public class Transformation {
         Vector3f cameraRotation = camera.getRotation();
 
         viewMatrix.identity();
-        viewMatrix.rotate((float) Math.toRadians(cameraRotation.x), new Vector3f(1, 0, 0)).rotate((float) Math.toRadians(cameraRotation.y), new Vector3f(0, 1, 0));
+        viewMatrix.rotateX((float) Math.toRadians(cameraRotation.x)).rotateY((float) Math.toRadians(cameraRotation.y));
         viewMatrix.translate(-cameraPosition.x, -cameraPosition.y, -cameraPosition.z);
 
         return viewMatrix;
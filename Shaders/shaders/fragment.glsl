@@ -1,35 +1,14 @@
 #version 330
 
+// Compiled per scene variant: TEXTURED, DIRECTIONAL_LIGHT and CLUSTERED_LIGHTS or ITEM_LIGHTS select what is evaluated
+
 in vec2 outTextureCoord;
 in vec3 mvVertexNormal;
 in vec3 mvVertexPosition;
 
 out vec4 fragmentColor;
 
-struct Attenuation {
-    float constant;
-    float linear;
-    float exponent;
-};
-
-struct PointLight {
-    vec3 color;
-    vec3 position;
-    float intensity;
-    Attenuation attenuation;
-};
-
-struct SpotLight {
-    PointLight pointLight;
-    vec3 coneDirection;
-    float cutOffAngle;
-};
-
-struct DirectionalLight {
-    vec3 color;
-    vec3 direction;
-    float intensity;
-};
+#include "lights.glsl"
 
 struct Material {
     vec4 diffuse;
@@ -39,31 +18,28 @@ struct Material {
     float reflectance;
 };
 
+layout (std140) uniform MaterialBlock {
+    Material material;
+};
+
+#ifdef TEXTURED
 uniform sampler2D textureSampler;
-uniform vec3 ambientLight;
-uniform float specularPower;
-uniform Material material;
-uniform PointLight pointLight;
-uniform SpotLight spotLight;
-uniform DirectionalLight directionalLight;
+#endif
 
 vec4 ambientC;
 vec4 diffuseC;
 vec4 speculrC;
 
 void setUpColors(Material material, vec2 textCoord) {
-    if (material.hasTexture == 1)
-    {
-        ambientC = texture(textureSampler, textCoord);
-        diffuseC = ambientC;
-        speculrC = ambientC;
-    }
-    else
-    {
-        ambientC = material.ambient;
-        diffuseC = material.diffuse;
-        speculrC = material.specular;
-    }
+#ifdef TEXTURED
+    ambientC = texture(textureSampler, textCoord);
+    diffuseC = ambientC;
+    speculrC = ambientC;
+#else
+    ambientC = material.ambient;
+    diffuseC = material.diffuse;
+    speculrC = material.specular;
+#endif
 }
 
 vec4 calculateLightColor(vec3 lightColor, float lightIntensity, vec3 position, vec3 toLightDirection, vec3 normal) {
@@ -117,13 +93,63 @@ vec4 calculateDirectionalLight(DirectionalLight light, vec3 position, vec3 norma
     return calculateLightColor(light.color, light.intensity, position, normalize(light.direction), normal);
 }
 
+#if defined(CLUSTERED_LIGHTS) || defined(ITEM_LIGHTS)
+vec4 calculateStoredLight(int light, vec3 position, vec3 normal) {
+    int texel = light * 4;
+    vec4 positionRange = texelFetch(lightData, texel);
+    vec4 colorIntensity = texelFetch(lightData, texel + 1);
+    vec4 attenuationCutOff = texelFetch(lightData, texel + 2);
+
+    PointLight pointLight = PointLight(colorIntensity.rgb, positionRange.xyz, colorIntensity.a,
+            Attenuation(attenuationCutOff.x, attenuationCutOff.y, attenuationCutOff.z));
+    if (attenuationCutOff.w < -1.0) {
+        return calculatePointLight(pointLight, position, normal);
+    }
+    vec3 coneDirection = texelFetch(lightData, texel + 3).xyz;
+    return calculateSpotLight(SpotLight(pointLight, coneDirection, attenuationCutOff.w), position, normal);
+}
+#endif
+
+#ifdef CLUSTERED_LIGHTS
+vec4 calculateClusteredLights(vec3 position, vec3 normal) {
+    ivec3 cluster = ivec3(gl_FragCoord.xy / clusterParams.xy, log(-position.z) * clusterParams.z - clusterParams.w);
+    cluster = clamp(cluster, ivec3(0), ivec3(clusterCounts.xyz) - 1);
+    int clusterIndex = (cluster.z * int(clusterCounts.y) + cluster.y) * int(clusterCounts.x) + cluster.x;
+    uvec2 lights = texelFetch(clusterGrid, clusterIndex).xy;
+
+    vec4 color = vec4(0, 0, 0, 0);
+    for (uint i = 0u; i < lights.y; i++) {
+        color += calculateStoredLight(int(texelFetch(lightIndices, int(lights.x + i)).x), position, normal);
+    }
+    return color;
+}
+#endif
+
+#ifdef ITEM_LIGHTS
+vec4 calculateItemLights(vec3 position, vec3 normal) {
+    int count = int(texelFetch(itemLights, itemLightList).x);
+
+    vec4 color = vec4(0, 0, 0, 0);
+    for (int i = 1; i <= count; i++) {
+        color += calculateStoredLight(int(texelFetch(itemLights, itemLightList + i).x), position, normal);
+    }
+    return color;
+}
+#endif
+
 void main() {
     setUpColors(material, outTextureCoord);
 
-    vec4 diffuseSpecularComp;
-    diffuseSpecularComp = calculateDirectionalLight(directionalLight, mvVertexPosition, mvVertexNormal);
-    diffuseSpecularComp += calculatePointLight(pointLight, mvVertexPosition, mvVertexNormal);
-    diffuseSpecularComp += calculateSpotLight(spotLight, mvVertexNormal, mvVertexNormal);
+    vec4 diffuseSpecularComp = vec4(0, 0, 0, 0);
+#ifdef DIRECTIONAL_LIGHT
+    diffuseSpecularComp += calculateDirectionalLight(directionalLight, mvVertexPosition, mvVertexNormal);
+#endif
+#ifdef CLUSTERED_LIGHTS
+    diffuseSpecularComp += calculateClusteredLights(mvVertexPosition, mvVertexNormal);
+#endif
+#ifdef ITEM_LIGHTS
+    diffuseSpecularComp += calculateItemLights(mvVertexPosition, mvVertexNormal);
+#endif
 
     fragmentColor = ambientC * vec4(ambientLight, 1.0) + diffuseSpecularComp;
 }
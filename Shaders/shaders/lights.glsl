@@ -0,0 +1,52 @@
+struct Attenuation {
+    float constant;
+    float linear;
+    float exponent;
+};
+
+struct PointLight {
+    vec3 color;
+    vec3 position;
+    float intensity;
+    Attenuation attenuation;
+};
+
+struct SpotLight {
+    PointLight pointLight;
+    vec3 coneDirection;
+    float cutOffAngle;
+};
+
+struct DirectionalLight {
+    vec3 color;
+    vec3 direction;
+    float intensity;
+};
+
+layout (std140) uniform LightsBlock {
+    vec3 ambientLight;
+    float specularPower;
+    DirectionalLight directionalLight;
+    // tiles x, tiles y, slices, light count
+    uvec4 clusterCounts;
+    // tile width and height in pixels, slice scale and bias
+    vec4 clusterParams;
+};
+
+#if defined(CLUSTERED_LIGHTS) || defined(ITEM_LIGHTS)
+// Four texels per light: position and range, color and intensity, attenuation and cut off, cone direction
+uniform samplerBuffer lightData;
+#endif
+
+#ifdef CLUSTERED_LIGHTS
+// Offset and count per cluster into lightIndices
+uniform usamplerBuffer clusterGrid;
+uniform usamplerBuffer lightIndices;
+#endif
+
+#ifdef ITEM_LIGHTS
+// Per drawn item the number of its lights, then their indices into lightData
+uniform usamplerBuffer itemLights;
+// Where the list of the current item starts
+uniform int itemLightList;
+#endif
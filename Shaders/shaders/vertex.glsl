@@ -3,16 +3,25 @@
 layout (location = 0) in vec3 position;
 layout (location = 1) in vec2 textureCoord;
 layout (location = 2) in vec3 vertexNormal;
+#ifdef INSTANCED
+layout (location = 3) in mat4 instanceModelMatrix;
+#endif
 
 out vec2 outTextureCoord;
 out vec3 mvVertexNormal;
 out vec3 mvVertexPosition;
 
+#include "camera.glsl"
+
+#ifndef INSTANCED
 uniform mat4 modelViewMatrix;
-uniform mat4 projectionMatrix;
+#endif
 
 void main()
 {
+#ifdef INSTANCED
+    mat4 modelViewMatrix = viewMatrix * instanceModelMatrix;
+#endif
     vec4 mvPosition = modelViewMatrix * vec4(position, 1.0);
     gl_Position = projectionMatrix * mvPosition;
     outTextureCoord = textureCoord;
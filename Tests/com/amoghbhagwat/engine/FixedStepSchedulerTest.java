@@ -0,0 +1,170 @@
+package com.amoghbhagwat.engine;
+
+import com.amoghbhagwat.test.Test;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+/**
+ * Injects stalls and slow ticks into a frame loop driven by a simulated clock, so the results do not depend on the
+ * machine. The last test runs a real {@link SimulationLoop}.
+ */
+public class FixedStepSchedulerTest {
+    private static final int UPS = 60;
+    private static final long INTERVAL = 1_000_000_000L / UPS;
+    private static final long FRAME = 1_000_000_000L / 144;
+    private static final long STALL = 500_000_000L;
+    private static final long STALL_AT_TICK = 5;
+
+    @Test
+    public void steadyFramesRunEveryTick() {
+        FixedStepScheduler scheduler = new FixedStepScheduler(UPS);
+        int ticks = 0;
+        for (int frame = 0; frame < 144 * 10; frame++) {
+            int steps = scheduler.advance(FRAME);
+            assertTrue("at most one tick per frame at 144 FPS", steps <= 1);
+            ticks += steps;
+            assertTrue("alpha in [0, 1]", scheduler.getAlpha() >= 0 && scheduler.getAlpha() <= 1);
+        }
+
+        assertEquals("ticks in 10 s", UPS * 10, ticks, 1);
+        assertEquals("dropped", 0, scheduler.getDroppedTicks());
+    }
+
+    @Test
+    public void stallIsCappedAndDropped() {
+        FixedStepScheduler scheduler = new FixedStepScheduler(UPS);
+
+        assertEquals("ticks after the stall", FixedStepScheduler.DEFAULT_MAX_STEPS_PER_FRAME, scheduler.advance(STALL));
+        assertEquals("dropped", STALL / INTERVAL - FixedStepScheduler.DEFAULT_MAX_STEPS_PER_FRAME, scheduler.getDroppedTicks());
+        assertEquals("next frame runs on time", 1, scheduler.advance(INTERVAL));
+    }
+
+    @Test
+    public void slowMotionCarriesTheStallOver() {
+        FixedStepScheduler scheduler = new FixedStepScheduler(UPS);
+        scheduler.setCatchUpStrategy(FixedStepScheduler.CatchUpStrategy.SLOW_MOTION);
+
+        long due = STALL / INTERVAL;
+        int ticks = scheduler.advance(STALL);
+        int frames = 0;
+        while (ticks < due) {
+            int steps = scheduler.advance(INTERVAL);
+            assertTrue("at most the maximum per frame", steps <= FixedStepScheduler.DEFAULT_MAX_STEPS_PER_FRAME);
+            ticks += steps;
+            due++;
+            assertTrue("caught up within a second", ++frames < UPS);
+        }
+
+        assertEquals("dropped", 0, scheduler.getDroppedTicks());
+        assertEquals("back to one tick per frame", 1, scheduler.advance(INTERVAL));
+    }
+
+    @Test
+    public void slowMotionDropsBeyondTheBacklog() {
+        FixedStepScheduler scheduler = new FixedStepScheduler(UPS);
+        scheduler.setCatchUpStrategy(FixedStepScheduler.CatchUpStrategy.SLOW_MOTION);
+        scheduler.setMaxBacklogSteps(10);
+
+        scheduler.advance(STALL);
+
+        assertEquals("dropped", STALL / INTERVAL - FixedStepScheduler.DEFAULT_MAX_STEPS_PER_FRAME - 10,
+                scheduler.getDroppedTicks());
+    }
+
+    /**
+     * Ticks that take longer than their interval would make every frame longer than the last without the bound.
+     */
+    @Test
+    public void slowTicksDoNotSnowball() {
+        FixedStepScheduler scheduler = new FixedStepScheduler(UPS);
+        long tickCost = INTERVAL * 3 / 2;
+        long maxFrame = FRAME + FixedStepScheduler.DEFAULT_MAX_STEPS_PER_FRAME * tickCost;
+
+        long elapsed = FRAME;
+        for (int frame = 0; frame < 1000; frame++) {
+            int steps = scheduler.advance(elapsed);
+            elapsed = FRAME + steps * tickCost;
+            assertTrue("frame " + frame + " took " + elapsed / 1e6 + " ms", elapsed <= maxFrame);
+        }
+        assertTrue("ticks were dropped", scheduler.getDroppedTicks() > 0);
+    }
+
+    @Test
+    public void adaptiveRateDropsUnderLoadAndRecovers() {
+        FixedStepScheduler scheduler = new FixedStepScheduler(UPS);
+        scheduler.setAdaptive(true, UPS / 2);
+
+        runFrames(scheduler, 20_000_000L, 300);
+        int loweredUps = scheduler.getCurrentUps();
+        assertTrue("rate lowered from " + UPS + " to " + loweredUps, loweredUps < UPS);
+        assertTrue("rate stays at or above the minimum", loweredUps >= UPS / 2);
+        long loweredLoad = 20_000_000L * loweredUps;
+        assertTrue("lowered rate fits the tick cost", loweredLoad < 1_000_000_000L);
+
+        runFrames(scheduler, 2_000_000L, 2000);
+        assertEquals("rate back at the target", UPS, scheduler.getCurrentUps());
+        assertTrue("rate changed both ways", scheduler.getRateChanges() >= 2);
+    }
+
+    @Test
+    public void nonPositiveRatesAreRejected() {
+        assertThrows("zero at construction", IllegalArgumentException.class, () -> new FixedStepScheduler(0));
+        assertThrows("negative at construction", IllegalArgumentException.class, () -> new FixedStepScheduler(-60));
+
+        FixedStepScheduler scheduler = new FixedStepScheduler(UPS);
+        assertThrows("zero", IllegalArgumentException.class, () -> scheduler.setTargetUps(0));
+        assertThrows("negative", IllegalArgumentException.class, () -> scheduler.setTargetUps(-1));
+        assertEquals("target kept", UPS, scheduler.getTargetUps());
+        assertEquals("interval kept", INTERVAL, scheduler.getIntervalNanos());
+        assertEquals("still ticks", 1, scheduler.advance(INTERVAL));
+    }
+
+    /**
+     * The same stall on a real simulation thread, which has to keep running with its ticks capped.
+     */
+    @Test
+    public void simulationLoopSurvivesAStall() throws Exception {
+        SimulationLoop[] loop = new SimulationLoop[1];
+        loop[0] = new SimulationLoop(interval -> {
+            if (loop[0].getTicks() == STALL_AT_TICK) {
+                try {
+                    Thread.sleep(STALL / 1_000_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, UPS, "TEST_SIMULATION");
+
+        loop[0].start();
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (loop[0].getScheduler().getDroppedTicks() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long ticksAfterStall = loop[0].getTicks();
+        Thread.sleep(200);
+        boolean running = loop[0].isRunning();
+        long ticksLater = loop[0].getTicks();
+        loop[0].stop();
+
+        assertNull("failure", loop[0].getFailure());
+        assertTrue("still running", running);
+        // The 30 ticks due after the stall are not all run
+        assertTrue("dropped " + loop[0].getScheduler().getDroppedTicks() + " ticks",
+                loop[0].getScheduler().getDroppedTicks() >= STALL / INTERVAL / 2);
+        assertTrue("ticking after the stall", ticksLater > ticksAfterStall);
+    }
+
+    /**
+     * Runs frames whose ticks each take {@code tickCost}, with the frame time following from the ticks run.
+     */
+    private static void runFrames(FixedStepScheduler scheduler, long tickCost, int frames) {
+        long elapsed = FRAME;
+        for (int frame = 0; frame < frames; frame++) {
+            int steps = scheduler.advance(elapsed);
+            for (int i = 0; i < steps; i++) {
+                scheduler.recordTickCost(tickCost);
+            }
+            elapsed = Math.max(FRAME, steps * tickCost);
+        }
+    }
+}
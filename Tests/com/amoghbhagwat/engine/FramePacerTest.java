@@ -0,0 +1,142 @@
+package com.amoghbhagwat.engine;
+
+import com.amoghbhagwat.test.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+/**
+ * Paces real frames, so the results depend on the machine. A loaded CI machine can miss a wake-up now and then, so
+ * timing checks take the best of a few runs, and the p99 bound can be raised with
+ * {@code -Dtest.framePacer.p99Nanos=...}.
+ */
+public class FramePacerTest {
+    private static final int FPS = 144;
+    private static final long FRAME_NANOS = 1_000_000_000L / FPS;
+    private static final int FRAMES = 300;
+    private static final int REFERENCE_FRAMES = 150;
+    private static final int ATTEMPTS = 5;
+    private static final long P99_NANOS = Long.getLong("test.framePacer.p99Nanos", 500_000L);
+    private static final long QUIET_NANOS = P99_NANOS / 5;
+    private static final long REFERENCE_PARK_NANOS = 1_000_000L;
+
+    /**
+     * Only counts against the pacer when the machine was quiet around the run, i.e. just before and just after it a
+     * thread that spins for its deadlines was on time, and parked threads all woke up within the bound. Otherwise no pacer
+     * could meet the bound, and the test is skipped.
+     */
+    @Test
+    public void framesStartWithinHalfAMillisecondOfTheirDeadlines() {
+        long best = Long.MAX_VALUE;
+        boolean quiet = false;
+        boolean before = isQuiet();
+        for (int attempt = 0; attempt < ATTEMPTS && best >= P99_NANOS; attempt++) {
+            FramePacer pacer = new FramePacer(FPS);
+            pacer.reset();
+            for (int i = 0; i < FRAMES; i++) {
+                pacer.sync();
+            }
+            long p99 = pacer.getJitterPercentile(99);
+            boolean after = isQuiet();
+            if (before && after) {
+                quiet = true;
+                best = Math.min(best, p99);
+            } else if (p99 < P99_NANOS) {
+                best = p99;
+            }
+            before = after;
+        }
+
+        assumeTrue("spinning threads were more than " + QUIET_NANOS / 1e6 + " ms late at p99 or parked threads more than "
+                + P99_NANOS / 1e6 + " ms late on this machine", best < P99_NANOS || quiet);
+        assertTrue("p99 lateness " + best / 1e6 + " ms, bound " + P99_NANOS / 1e6 + " ms", best < P99_NANOS);
+    }
+
+    /**
+     * The pacer's own statistics could hide drift, so the rate is also checked against the clock.
+     */
+    @Test
+    public void averageRateMatchesTarget() {
+        double bestError = Double.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS && bestError >= 0.01; attempt++) {
+            FramePacer pacer = new FramePacer(FPS);
+            pacer.reset();
+            long first = pacer.sync();
+            long last = first;
+            for (int i = 0; i < FRAMES; i++) {
+                last = pacer.sync();
+            }
+            double error = Math.abs((double) (last - first) / FRAMES - FRAME_NANOS) / FRAME_NANOS;
+            bestError = Math.min(bestError, error);
+        }
+
+        assertTrue("average frame time off by " + bestError * 100 + "%", bestError < 0.01);
+    }
+
+    @Test
+    public void missedFrameRestartsTheSchedule() throws Exception {
+        FramePacer pacer = new FramePacer(FPS);
+        pacer.reset();
+        pacer.sync();
+        Thread.sleep(5 * FRAME_NANOS / 1_000_000);
+
+        long late = pacer.sync();
+        long next = pacer.sync();
+        // Without the restart the missed deadlines would all be due at once
+        assertTrue("frame after a stall waited " + (next - late) / 1e6 + " ms", next - late >= FRAME_NANOS - 50_000);
+    }
+
+    @Test
+    public void unlimitedDoesNotWait() {
+        FramePacer pacer = new FramePacer(0);
+        pacer.reset();
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            pacer.sync();
+        }
+        assertTrue("unlimited frames waited", System.nanoTime() - start < FRAMES * FRAME_NANOS / 10);
+        assertEquals("no jitter recorded", 0, pacer.getJitterPercentile(99));
+    }
+
+    private static boolean isQuiet() {
+        return spinReferenceP99() < QUIET_NANOS && parkReferenceMax() < P99_NANOS;
+    }
+
+    /**
+     * Latest wake-up of a series of parks. The pacer spins through the usual overshoot, but wake-ups later than the
+     * bound make frames late whatever it does, and they come in bursts, so a single one counts.
+     */
+    private static long parkReferenceMax() {
+        long[] overshoot = new long[REFERENCE_FRAMES];
+        for (int i = 0; i < REFERENCE_FRAMES; i++) {
+            long start = System.nanoTime();
+            LockSupport.parkNanos(REFERENCE_PARK_NANOS);
+            overshoot[i] = System.nanoTime() - start - REFERENCE_PARK_NANOS;
+        }
+        Arrays.sort(overshoot);
+        return overshoot[REFERENCE_FRAMES - 1];
+    }
+
+    /**
+     * p99 lateness of pacing by spinning alone, the best any pacer can do on this machine right now.
+     */
+    private static long spinReferenceP99() {
+        long[] lateness = new long[REFERENCE_FRAMES];
+        long deadline = System.nanoTime() + FRAME_NANOS;
+        for (int i = 0; i < REFERENCE_FRAMES; i++) {
+            long now;
+            while ((now = System.nanoTime()) - deadline < 0) {
+                // Spin
+            }
+            lateness[i] = now - deadline;
+            deadline += FRAME_NANOS;
+            if (now - deadline >= 0) {
+                deadline = now + FRAME_NANOS;
+            }
+        }
+        Arrays.sort(lateness);
+        return lateness[(int) Math.ceil(0.99 * REFERENCE_FRAMES) - 1];
+    }
+}
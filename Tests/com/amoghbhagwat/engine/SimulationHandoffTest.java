@@ -0,0 +1,143 @@
+package com.amoghbhagwat.engine;
+
+import com.amoghbhagwat.engine.utils.TripleBuffer;
+import com.amoghbhagwat.test.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.amoghbhagwat.test.Assert.*;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_A;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_D;
+
+public class SimulationHandoffTest {
+    private static final int UPS = 30;
+    private static final int TICKS = 200_000;
+
+    @Test
+    public void runTicksRunsEveryTickInOrder() {
+        List<Float> intervals = new ArrayList<>();
+        long[] seen = new long[1];
+        SimulationLoop[] loop = new SimulationLoop[1];
+        loop[0] = new SimulationLoop(interval -> {
+            assertEquals("ticks finished before this one", seen[0], loop[0].getTicks());
+            seen[0]++;
+            intervals.add(interval);
+        }, UPS, "TEST_SIMULATION");
+
+        loop[0].runTicks(10);
+        loop[0].runTicks(5);
+
+        assertEquals("ticks", 15, loop[0].getTicks());
+        assertEquals("tick calls", 15, intervals.size());
+        for (float interval : intervals) {
+            assertEquals("interval", 1.0f / UPS, interval, 0);
+        }
+    }
+
+    /**
+     * A render thread publishes a snapshot per frame while the simulation ticks. Each snapshot holds its frame number
+     * in the cursor and in which of two keys is down, so a snapshot the writer was still filling would not agree with
+     * itself.
+     */
+    @Test
+    public void inputSnapshotsArriveWholeAndInOrder() throws Exception {
+        TripleBuffer<InputSnapshot> snapshots = new TripleBuffer<>(InputSnapshot::new);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread render = new Thread(() -> {
+            for (long frame = 1; !done.get(); frame++) {
+                InputSnapshot snapshot = snapshots.getWriteBuffer();
+                snapshot.setFrame(frame);
+                snapshot.setCursor(frame, -frame);
+                snapshot.setKeyPressed(GLFW_KEY_A, frame % 2 == 0);
+                snapshot.setKeyPressed(GLFW_KEY_D, frame % 2 != 0);
+                snapshots.publish();
+            }
+        }, "TEST_RENDER");
+
+        long[] lastFrame = new long[1];
+        long[] distinct = new long[1];
+        AtomicReference<String> torn = new AtomicReference<>();
+        SimulationLoop loop = new SimulationLoop(interval -> {
+            InputSnapshot snapshot = snapshots.acquire();
+            long frame = snapshot.getFrame();
+            boolean even = frame % 2 == 0;
+            if (frame == 0) {
+                // Nothing published yet
+                return;
+            }
+            if (snapshot.getCursorX() != frame || snapshot.getCursorY() != -frame
+                    || snapshot.isKeyPressed(GLFW_KEY_A) != even || snapshot.isKeyPressed(GLFW_KEY_D) == even) {
+                torn.compareAndSet(null, "torn snapshot of frame " + frame);
+            }
+            if (frame < lastFrame[0]) {
+                torn.compareAndSet(null, "frame " + frame + " after frame " + lastFrame[0]);
+            }
+            if (frame != lastFrame[0]) {
+                distinct[0]++;
+            }
+            lastFrame[0] = frame;
+        }, UPS, "TEST_SIMULATION");
+
+        render.start();
+        try {
+            loop.runTicks(TICKS);
+        } finally {
+            done.set(true);
+            render.join();
+        }
+
+        assertNull("input handoff", torn.get());
+        assertEquals("ticks", TICKS, loop.getTicks());
+        assertTrue("simulation saw new frames", distinct[0] > 1);
+    }
+
+    /**
+     * The other direction: ticks publish their number for the renderer, which sees them in order and ends up with the
+     * last one.
+     */
+    @Test
+    public void publishedTicksArriveInOrder() throws Exception {
+        TripleBuffer<long[]> states = new TripleBuffer<>(() -> new long[2]);
+        SimulationLoop[] loop = new SimulationLoop[1];
+        loop[0] = new SimulationLoop(interval -> {
+            long[] state = states.getWriteBuffer();
+            state[0] = loop[0].getTicks() + 1;
+            state[1] = -state[0];
+            states.publish();
+        }, UPS, "TEST_SIMULATION");
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        long[] last = new long[1];
+        Thread render = new Thread(() -> {
+            while (true) {
+                boolean finished = done.get();
+                long[] state = states.acquire();
+                if (state[1] != -state[0]) {
+                    failure.compareAndSet(null, "torn state of tick " + state[0]);
+                }
+                if (state[0] < last[0]) {
+                    failure.compareAndSet(null, "tick " + state[0] + " after tick " + last[0]);
+                }
+                last[0] = state[0];
+                if (finished) {
+                    return;
+                }
+            }
+        }, "TEST_RENDER");
+
+        render.start();
+        try {
+            loop[0].runTicks(TICKS);
+        } finally {
+            done.set(true);
+            render.join();
+        }
+
+        assertNull("state handoff", failure.get());
+        assertEquals("last tick seen", TICKS, last[0]);
+    }
+}
@@ -0,0 +1,149 @@
+package com.amoghbhagwat.engine.assets;
+
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.models.MeshCache;
+import com.amoghbhagwat.game.entities.Texture;
+import com.amoghbhagwat.game.entities.TextureData;
+import com.amoghbhagwat.test.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class AssetLoaderTest {
+    private static final String MESH = "/models/cube.obj";
+    private static final String TEXTURE = "/textures/grassblock.png";
+
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void uploadsRunOnTheDrainingThreadInSubmissionOrder() throws Exception {
+        AssetLoader loader = createLoader(Executors.newSingleThreadExecutor());
+        List<CompletableFuture<?>> futures = Arrays.asList(
+                loader.loadMesh(MESH), loader.loadTexture(TEXTURE), loader.loadMesh(MESH));
+
+        for (CompletableFuture<?> future : futures) {
+            loader.await(future);
+        }
+        loader.cleanUp();
+
+        assertEquals("upload order", Arrays.asList("mesh 24", "texture 1024x1024", "mesh 24"), sink.uploads);
+        for (Thread thread : sink.threads) {
+            assertSame("upload thread", Thread.currentThread(), thread);
+        }
+    }
+
+    @Test
+    public void drainStopsWhenTheQueueIsEmpty() throws Exception {
+        AssetLoader loader = createLoader(Executors.newSingleThreadExecutor());
+        CompletableFuture<Mesh> mesh = loader.loadMesh(MESH);
+        waitForPendingUploads(loader, 1);
+
+        assertFalse("not uploaded before draining", mesh.isDone());
+        assertEquals("drained", 1, loader.drain(TimeUnit.SECONDS.toNanos(1)));
+        assertTrue("uploaded", mesh.isDone());
+        assertEquals("nothing left", 0, loader.drain(TimeUnit.SECONDS.toNanos(1)));
+        loader.cleanUp();
+    }
+
+    @Test
+    public void decodeFailureReachesTheCaller() throws Exception {
+        AssetLoader loader = createLoader(Executors.newSingleThreadExecutor());
+        CompletableFuture<Texture> texture = loader.loadTexture("/textures/missing.png");
+
+        Exception error = assertThrows("missing texture", Exception.class, () -> loader.await(texture));
+        assertTrue("names the file: " + error.getMessage(), error.getMessage().contains("missing.png"));
+        assertTrue("nothing uploaded", sink.uploads.isEmpty());
+        loader.cleanUp();
+    }
+
+    @Test
+    public void uploadFailureReachesTheCaller() throws Exception {
+        sink.failing = true;
+        AssetLoader loader = createLoader(Executors.newSingleThreadExecutor());
+        CompletableFuture<Mesh> mesh = loader.loadMesh(MESH);
+
+        assertThrows("upload failed", IllegalStateException.class, () -> loader.await(mesh));
+        loader.cleanUp();
+    }
+
+    @Test
+    public void cleanUpCancelsQueuedAndUndecodedAssets() throws Exception {
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        AssetLoader loader = createLoader(workers);
+        CompletableFuture<Mesh> decoded = loader.loadMesh(MESH);
+        waitForPendingUploads(loader, 1);
+
+        // Keeps the only worker busy, so the texture is never decoded
+        CountDownLatch blocker = new CountDownLatch(1);
+        workers.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Texture> undecoded = loader.loadTexture(TEXTURE);
+
+        loader.cleanUp();
+        assertTrue("queued upload cancelled", decoded.isCancelled());
+        assertTrue("undecoded asset cancelled", undecoded.isCancelled());
+        assertThrows("await after clean up", CancellationException.class, () -> loader.await(undecoded));
+        assertEquals("queue cleared", 0, loader.getPendingUploads());
+        assertTrue("rejected after clean up", loader.loadMesh(MESH).isCompletedExceptionally());
+    }
+
+    private AssetLoader createLoader(ExecutorService workers) throws Exception {
+        MeshCache meshCache = new MeshCache(Files.createTempDirectory("asset-loader"));
+        return new AssetLoader(meshCache, sink, workers, AssetLoader.DEFAULT_QUEUE_CAPACITY);
+    }
+
+    private static void waitForPendingUploads(AssetLoader loader, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (loader.getPendingUploads() < count) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Timed out waiting for " + count + " decoded assets");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Records what would be uploaded and from which thread, without GL.
+     */
+    private static class RecordingSink implements UploadSink {
+        private final List<String> uploads = Collections.synchronizedList(new ArrayList<>());
+        private final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        private boolean failing;
+
+        @Override
+        public Mesh createMesh(MeshCache.BakedMesh bakedMesh) {
+            record("mesh " + bakedMesh.getVertexCount());
+            return null;
+        }
+
+        @Override
+        public Texture createTexture(TextureData textureData) {
+            record("texture " + textureData.getWidth() + "x" + textureData.getHeight());
+            return null;
+        }
+
+        private void record(String upload) {
+            if (failing) {
+                throw new IllegalStateException("Upload failed: " + upload);
+            }
+            uploads.add(upload);
+            threads.add(Thread.currentThread());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.amoghbhagwat.engine.benchmark;
+
+import com.amoghbhagwat.test.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class BenchmarkRunnerTest {
+    private static final double[] STEADY = {100, 100, 100, 100, 100, 100, 100, 100};
+
+    @Test
+    public void medianAndSpreadOfTheRounds() {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.record("case", new double[]{130, 70, 100, 90, 110, 100, 120, 80});
+
+        Properties baseline = baseline("case", 100, 0);
+        assertEquals("no regression at the baseline", 0, runner.compare(baseline, 10).size());
+
+        // Median 100 with quartiles 90 and 120, a spread of 30%, so only a drop beyond 60% counts
+        assertEquals("within twice the spread", 0, runner.compare(baseline("case", 160, 0), 10).size());
+        assertEquals("beyond twice the spread", 1, runner.compare(baseline("case", 260, 0), 10).size());
+    }
+
+    @Test
+    public void slowerThanTheThresholdIsARegression() {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.record("case", STEADY.clone());
+
+        assertEquals("9% slower", 0, runner.compare(baseline("case", 109, 0), 10).size());
+        List<String> regressions = runner.compare(baseline("case", 125, 0), 10);
+        assertEquals("20% slower", 1, regressions.size());
+        assertTrue(regressions.get(0), regressions.get(0).startsWith("case:"));
+        assertEquals("faster", 0, runner.compare(baseline("case", 50, 0), 10).size());
+    }
+
+    @Test
+    public void noisyBaselineWidensTheThreshold() {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.record("case", STEADY.clone());
+
+        assertEquals("20% slower, baseline spread 15%", 0, runner.compare(baseline("case", 125, 15), 10).size());
+        assertEquals("20% slower, baseline spread 5%", 1, runner.compare(baseline("case", 125, 5), 10).size());
+    }
+
+    @Test
+    public void caseMissingFromTheBaselineFails() {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.record("case", STEADY.clone());
+        runner.record("added", STEADY.clone());
+
+        List<String> regressions = runner.compare(baseline("case", 100, 0), 10);
+        assertEquals("regressions", 1, regressions.size());
+        assertTrue(regressions.get(0), regressions.get(0).startsWith("added:"));
+    }
+
+    @Test
+    public void baselineCasesThatWereNotRunAreSkipped() {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.record("case", STEADY.clone());
+
+        Properties baseline = baseline("case", 100, 0);
+        baseline.setProperty("filtered", "100");
+        assertEquals("regressions", 0, runner.compare(baseline, 10).size());
+    }
+
+    private static Properties baseline(String name, double opsPerSecond, double spreadPercent) {
+        Properties baseline = new Properties();
+        baseline.setProperty(name, Double.toString(opsPerSecond));
+        baseline.setProperty(name + ".spread", Double.toString(spreadPercent));
+        return baseline;
+    }
+}
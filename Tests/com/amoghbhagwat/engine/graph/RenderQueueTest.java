@@ -0,0 +1,83 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.test.Test;
+
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class RenderQueueTest {
+    @Test
+    public void radixSortOrdersUnsignedAndKeepsSubmissionOrder() {
+        Random random = new Random(3);
+        RenderQueue queue = new RenderQueue(16);
+        for (int i = 0; i < 20_000; i++) {
+            // Few distinct keys, with the top bit set on some, to exercise ties and unsigned order
+            long key = (long) random.nextInt(64) << 58 | random.nextInt(8);
+            queue.submit(key, i);
+        }
+        queue.sort();
+        assertSorted(queue);
+    }
+
+    @Test
+    public void insertionSortOrdersSmallQueues() {
+        RenderQueue queue = new RenderQueue();
+        long[] keys = {-1L, 5, 0, 5, Long.MIN_VALUE, 3};
+        for (int i = 0; i < keys.length; i++) {
+            queue.submit(keys[i], i);
+        }
+        queue.sort();
+        assertSorted(queue);
+        assertEquals("first", 2, queue.getItem(0));
+        assertEquals("last", 0, queue.getItem(keys.length - 1));
+    }
+
+    @Test
+    public void opaqueDrawsGroupByStateThenGoFrontToBack() {
+        RenderQueue queue = new RenderQueue();
+        queue.submit(RenderQueue.opaqueKey(0, 1, 2, 3, 0.9f), 0);
+        queue.submit(RenderQueue.opaqueKey(0, 0, 7, 3, 0.5f), 1);
+        queue.submit(RenderQueue.opaqueKey(0, 1, 2, 3, 0.1f), 2);
+        queue.submit(RenderQueue.opaqueKey(0, 0, 7, 3, 0.2f), 3);
+        queue.sort();
+
+        int[] expected = {3, 1, 2, 0};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("draw " + i, expected[i], queue.getItem(i));
+        }
+        assertEquals("first run", 2, queue.findStateRunEnd(0));
+        assertEquals("second run", 4, queue.findStateRunEnd(2));
+        assertEquals("shader", 1, RenderQueue.opaqueShader(queue.getKey(2)));
+    }
+
+    @Test
+    public void transparentDrawsGoBackToFront() {
+        RenderQueue queue = new RenderQueue();
+        queue.submit(RenderQueue.transparentKey(0, 0, 1, 1, 0.2f), 0);
+        queue.submit(RenderQueue.transparentKey(0, 5, 9, 9, 0.8f), 1);
+        queue.submit(RenderQueue.transparentKey(0, 0, 1, 1, 0.5f), 2);
+        queue.sort();
+
+        assertEquals("farthest", 1, queue.getItem(0));
+        assertEquals("nearest", 0, queue.getItem(2));
+    }
+
+    @Test
+    public void idsWrapAtTheirFieldWidth() {
+        int wrapped = 1 << RenderQueue.MESH_BITS;
+        assertEquals("mesh ids 0 and 2^16 share state bits",
+                RenderQueue.opaqueState(RenderQueue.opaqueKey(0, 0, 0, 0, 0.5f)),
+                RenderQueue.opaqueState(RenderQueue.opaqueKey(0, 0, 0, wrapped, 0.5f)));
+    }
+
+    private static void assertSorted(RenderQueue queue) {
+        for (int i = 1; i < queue.size(); i++) {
+            int order = Long.compareUnsigned(queue.getKey(i - 1), queue.getKey(i));
+            assertTrue("key " + i + " in order", order <= 0);
+            if (order == 0) {
+                assertTrue("tie " + i + " keeps submission order", queue.getItem(i - 1) < queue.getItem(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.engine.benchmark.NoOpGLBackend;
+import com.amoghbhagwat.test.Test;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.amoghbhagwat.test.Assert.*;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+
+public class RenderStateTest {
+    private final RecordingBackend backend = new RecordingBackend();
+    private final RenderState renderState = new RenderState(backend);
+
+    @Test
+    public void redundantBindingsAreSkipped() {
+        renderState.useProgram(3);
+        renderState.useProgram(3);
+        renderState.bindVertexArray(7);
+        renderState.bindVertexArray(7);
+        renderState.bindTexture(0, 11);
+        renderState.bindTexture(0, 11);
+        renderState.bindTexture(1, 11);
+        renderState.bindVertexArray(8);
+
+        assertEquals("calls", Arrays.asList("useProgram 3", "bindVertexArray 7", "activeTexture " + GL_TEXTURE0,
+                "bindTexture " + GL_TEXTURE_2D + " 11", "activeTexture " + (GL_TEXTURE0 + 1), "bindTexture " + GL_TEXTURE_2D + " 11",
+                "bindVertexArray 8"), backend.calls);
+        assertEquals("issued", 7, renderState.getIssuedCalls());
+        assertEquals("elided", 3, renderState.getElidedCalls());
+    }
+
+    @Test
+    public void beginFrameForgetsBindingsButKeepsUniforms() {
+        ShaderProgram program = createProgram(4);
+        int sampler = createUniform(program, "sampler");
+        program.bind();
+        program.setUniform(sampler, 0);
+
+        renderState.beginFrame();
+        program.bind();
+        program.setUniform(sampler, 0);
+
+        assertEquals("calls", Arrays.asList("useProgram 4", "uniform1i 0 0", "useProgram 4"), backend.calls);
+        assertEquals("issued this frame", 1, renderState.getIssuedCalls());
+        assertEquals("elided this frame", 1, renderState.getElidedCalls());
+    }
+
+    @Test
+    public void unchangedUniformsAreSkipped() {
+        ShaderProgram program = createProgram(1);
+        int count = createUniform(program, "count");
+        int scale = createUniform(program, "scale");
+        int color = createUniform(program, "color");
+        int plane = createUniform(program, "plane");
+        int matrix = createUniform(program, "matrix");
+
+        for (int frame = 0; frame < 3; frame++) {
+            program.setUniform(count, 2);
+            program.setUniform(scale, 0.5f);
+            program.setUniform(color, new Vector3f(1, 2, 3));
+            program.setUniform(plane, new Vector4f(1, 2, 3, 4));
+            program.setUniform(matrix, new Matrix4f().translate(1, 2, 3));
+        }
+        assertEquals("uploaded once", 5, backend.calls.size());
+        assertEquals("elided", 10, renderState.getElidedCalls());
+
+        program.setUniform(count, 3);
+        program.setUniform(scale, -0.5f);
+        program.setUniform(color, new Vector3f(1, 2, 4));
+        program.setUniform(plane, new Vector4f(1, 2, 3, 5));
+        program.setUniform(matrix, new Matrix4f().translate(1, 2, 4));
+        assertEquals("every change uploaded", 10, backend.calls.size());
+        assertEquals("last call", "uniformMatrix4fv 4", backend.calls.get(9));
+    }
+
+    @Test
+    public void zeroSignsAreDifferentValues() {
+        ShaderProgram program = createProgram(1);
+        int scale = createUniform(program, "scale");
+        program.setUniform(scale, 0f);
+        program.setUniform(scale, -0f);
+        assertEquals("both uploaded", 2, backend.calls.size());
+    }
+
+    @Test
+    public void programsCacheTheirOwnValues() {
+        ShaderProgram first = createProgram(1);
+        ShaderProgram second = createProgram(2);
+        int firstSampler = createUniform(first, "sampler");
+        int secondSampler = createUniform(second, "sampler");
+
+        first.bind();
+        first.setUniform(firstSampler, 1);
+        second.bind();
+        second.setUniform(secondSampler, 1);
+        first.bind();
+        first.setUniform(firstSampler, 1);
+
+        assertEquals("calls", Arrays.asList("useProgram 1", "uniform1i 0 1", "useProgram 2", "uniform1i 0 1", "useProgram 1"), backend.calls);
+    }
+
+    @Test
+    public void sparseLocationsGetCompactSlots() {
+        int[] locations = {1_000_000, 5, 70_000};
+        ShaderProgram program = createProgram(1, locations);
+        int far = createUniform(program, "far");
+        int near = createUniform(program, "near");
+        int middle = createUniform(program, "middle");
+
+        assertEquals("first slot", 0, far);
+        assertEquals("second slot", 1, near);
+        assertEquals("third slot", 2, middle);
+
+        program.setUniform(far, 1);
+        program.setUniform(near, 2f);
+        program.setUniform(middle, new Vector3f(3, 4, 5));
+        assertEquals("uploaded at the GL locations",
+                Arrays.asList("uniform1i 1000000 1", "uniform1f 5 2.0", "uniform3f 70000 3.0 4.0 5.0"), backend.calls);
+    }
+
+    @Test
+    public void missingUniformIsIgnored() {
+        ShaderProgram program = createProgram(1);
+        program.setUniform(UniformCache.NO_SLOT, 1);
+        program.setUniform(UniformCache.NO_SLOT, new Matrix4f());
+
+        UniformCache cache = new UniformCache();
+        assertEquals("location -1", UniformCache.NO_SLOT, cache.addUniform(-1));
+        assertEquals("no slot added", 0, cache.size());
+        assertTrue("nothing uploaded", backend.calls.isEmpty());
+    }
+
+    @Test
+    public void sameLocationSharesASlot() {
+        UniformCache cache = new UniformCache();
+        for (int i = 0; i < 100; i++) {
+            assertEquals("slot " + i, i, cache.addUniform(i * 3));
+        }
+        assertEquals("existing location", 7, cache.addUniform(21));
+        assertEquals("slots", 100, cache.size());
+        assertEquals("location of slot 99", 297, cache.getLocation(99));
+    }
+
+    private ShaderProgram createProgram(int programId) {
+        return createProgram(programId, null);
+    }
+
+    /**
+     * A program with no GL behind it. Uniforms get the given locations in creation order, or 0, 1, 2... without them.
+     */
+    private ShaderProgram createProgram(int programId, int[] locations) {
+        try {
+            return new ShaderProgram(renderState, programId) {
+                private int created;
+
+                @Override
+                protected int findUniformLocation(String uniformName) {
+                    int index = created++;
+                    return locations != null ? locations[index] : index;
+                }
+            };
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static int createUniform(ShaderProgram program, String name) {
+        try {
+            return program.createUniform(name);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class RecordingBackend extends NoOpGLBackend {
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void useProgram(int programId) {
+            calls.add("useProgram " + programId);
+        }
+
+        @Override
+        public void bindVertexArray(int vaoId) {
+            calls.add("bindVertexArray " + vaoId);
+        }
+
+        @Override
+        public void activeTexture(int textureUnit) {
+            calls.add("activeTexture " + textureUnit);
+        }
+
+        @Override
+        public void bindTexture(int target, int textureId) {
+            calls.add("bindTexture " + target + " " + textureId);
+        }
+
+        @Override
+        public void uniform1i(int location, int value) {
+            calls.add("uniform1i " + location + " " + value);
+        }
+
+        @Override
+        public void uniform1f(int location, float value) {
+            calls.add("uniform1f " + location + " " + value);
+        }
+
+        @Override
+        public void uniform3f(int location, float x, float y, float z) {
+            calls.add("uniform3f " + location + " " + x + " " + y + " " + z);
+        }
+
+        @Override
+        public void uniform4f(int location, float x, float y, float z, float w) {
+            calls.add("uniform4f " + location + " " + x + " " + y + " " + z + " " + w);
+        }
+
+        @Override
+        public void uniformMatrix4fv(int location, FloatBuffer value) {
+            calls.add("uniformMatrix4fv " + location);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.test.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class ShaderCacheTest {
+    private static final int FORMAT = 0x8741;
+
+    @Test
+    public void binaryRoundTrips() throws Exception {
+        ShaderCache cache = new ShaderCache(Files.createTempDirectory("shader-cache"));
+        long key = ShaderCache.computeKey("vertex", "fragment", "#define A");
+        byte[] bytes = createBinary(1000);
+        cache.store("scene", key, binary(bytes));
+
+        ShaderCache.ProgramBinary loaded = cache.load("scene", key);
+        assertEquals("format", FORMAT, loaded.getFormat());
+        ByteBuffer data = loaded.getData();
+        assertEquals("length", bytes.length, data.remaining());
+        for (int i = 0; i < bytes.length; i++) {
+            assertEquals("byte " + i, bytes[i], data.get(data.position() + i));
+        }
+    }
+
+    @Test
+    public void storeReplacesTheCachedBinary() throws Exception {
+        ShaderCache cache = new ShaderCache(Files.createTempDirectory("shader-cache"));
+        cache.store("scene", 1, binary(createBinary(100)));
+        cache.store("scene", 2, binary(createBinary(50)));
+
+        assertEquals("new key", 50, cache.load("scene", 2).getData().remaining());
+        assertNull("old key", cache.load("scene", 1));
+    }
+
+    @Test
+    public void staleFileIsDeleted() throws Exception {
+        ShaderCache cache = new ShaderCache(Files.createTempDirectory("shader-cache"));
+        long key = ShaderCache.computeKey("vertex", "fragment", "#define A");
+        cache.store("scene", key, binary(createBinary(100)));
+
+        long editedKey = ShaderCache.computeKey("vertex", "fragment", "#define B");
+        assertNull("edited defines", cache.load("scene", editedKey));
+        assertFalse("stale file deleted", Files.exists(cache.getCacheFile("scene")));
+        assertNull("nothing left to load", cache.load("scene", key));
+    }
+
+    @Test
+    public void corruptFileIsDeleted() throws Exception {
+        ShaderCache cache = new ShaderCache(Files.createTempDirectory("shader-cache"));
+        Path file = cache.getCacheFile("scene");
+
+        cache.store("scene", 7, binary(createBinary(100)));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(file, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+        assertNull("flipped bit", cache.load("scene", 7));
+        assertFalse("corrupt file deleted", Files.exists(file));
+
+        cache.store("scene", 7, binary(createBinary(100)));
+        bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 20), StandardOpenOption.TRUNCATE_EXISTING);
+        assertNull("truncated", cache.load("scene", 7));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertNull("shorter than the header", cache.load("scene", 7));
+        assertFalse("short file deleted", Files.exists(file));
+    }
+
+    @Test
+    public void keyDependsOnHowTextIsSplit() {
+        assertFalse("moved text", ShaderCache.computeKey("ab", "c") == ShaderCache.computeKey("a", "bc"));
+        assertFalse("null and empty", ShaderCache.computeKey((String) null) == ShaderCache.computeKey(""));
+        assertEquals("same parts", ShaderCache.computeKey("a", "b"), ShaderCache.computeKey("a", "b"));
+    }
+
+    @Test
+    public void programNamesMapToFilesInTheDirectory() throws Exception {
+        Path directory = Files.createTempDirectory("shader-cache");
+        ShaderCache cache = new ShaderCache(directory);
+
+        assertEquals("resource path", directory.resolve("shaders_scene" + ShaderCache.FILE_EXTENSION),
+                cache.getCacheFile("/shaders/scene"));
+        assertEquals("drive letter", directory.resolve("c__scene" + ShaderCache.FILE_EXTENSION),
+                cache.getCacheFile("c:\\scene"));
+    }
+
+    private static byte[] createBinary(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+
+    private static ShaderCache.ProgramBinary binary(byte[] bytes) {
+        ByteBuffer data = ByteBuffer.allocateDirect(bytes.length);
+        data.put(bytes).flip();
+        return new ShaderCache.ProgramBinary(FORMAT, data);
+    }
+}
@@ -0,0 +1,108 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.test.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class ShaderPreprocessorTest {
+    @Test
+    public void definesFollowTheVersionLine() throws Exception {
+        Map<String, String> defines = new LinkedHashMap<>();
+        defines.put("TEXTURED", "");
+        defines.put("MAX_LIGHTS", "8");
+
+        String output = process(sources("/shaders/main.glsl", "// header\n#version 330\nvoid main() {}\n"),
+                "/shaders/main.glsl", defines, new LinkedHashSet<>());
+        assertEquals("output", "// header\n#version 330\n#define TEXTURED\n#define MAX_LIGHTS 8\n#line 3 0\n"
+                + "void main() {}\n\n", output);
+    }
+
+    @Test
+    public void includesAreExpandedOnceWithLineDirectives() throws Exception {
+        Map<String, String> sources = sources(
+                "/shaders/main.glsl", "#version 330\n#include \"common.glsl\"\nvoid main() {}\n#include \"/shaders/common.glsl\"",
+                "/shaders/common.glsl", "float f;");
+
+        String output = process(sources, "/shaders/main.glsl", Collections.<String, String>emptyMap(), new LinkedHashSet<>());
+        assertEquals("output", "#version 330\n#line 2 0\n#line 1 1\nfloat f;\n#line 3 0\nvoid main() {}\n#line 5 0\n", output);
+    }
+
+    /**
+     * Source numbers in {@code #line} follow the order files were first read, which is also the order of the set.
+     */
+    @Test
+    public void nestedIncludesResolveRelativeToTheIncludingFile() throws Exception {
+        Map<String, String> sources = sources(
+                "/shaders/main.glsl", "#version 330\n#include \"lights.glsl\"",
+                "/shaders/lights.glsl", "#include \"lib/brdf.glsl\"\nfloat light;",
+                "/shaders/lib/brdf.glsl", "#include \"../lights.glsl\" // cycle\n#include \"/shaders/camera.glsl\"\nfloat brdf;",
+                "/shaders/camera.glsl", "float camera;");
+
+        Set<String> included = new LinkedHashSet<>();
+        String output = process(sources, "/shaders/main.glsl", Collections.<String, String>emptyMap(), included);
+        assertEquals("included", Arrays.asList("/shaders/main.glsl", "/shaders/lights.glsl", "/shaders/lib/brdf.glsl",
+                "/shaders/camera.glsl"), new ArrayList<>(included));
+        assertEquals("output", "#version 330\n#line 2 0\n"
+                + "#line 1 1\n"
+                + "#line 1 2\n"
+                + "#line 2 2\n"
+                + "#line 1 3\nfloat camera;\n#line 3 2\n"
+                + "float brdf;\n#line 2 1\n"
+                + "float light;\n#line 3 0\n", output);
+    }
+
+    @Test
+    public void malformedSourcesAreRejected() {
+        Map<String, String> sources = sources(
+                "/missing-version.glsl", "void main() {}",
+                "/code-before-version.glsl", "float f;\n#version 330",
+                "/includes-version.glsl", "#version 330\n#include \"version.glsl\"",
+                "/version.glsl", "#version 330");
+
+        Map<String, String> noDefines = Collections.emptyMap();
+        assertThrows("missing #version", Exception.class,
+                () -> process(sources, "/missing-version.glsl", noDefines, new LinkedHashSet<>()));
+        assertThrows("code before #version", Exception.class,
+                () -> process(sources, "/code-before-version.glsl", noDefines, new LinkedHashSet<>()));
+        assertThrows("#version in an include", Exception.class,
+                () -> process(sources, "/includes-version.glsl", noDefines, new LinkedHashSet<>()));
+        assertThrows("define name", IllegalArgumentException.class,
+                () -> process(sources, "/version.glsl", Collections.singletonMap("NOT A NAME", ""), new LinkedHashSet<>()));
+    }
+
+    @Test
+    public void pathsResolveAgainstTheIncludingDirectory() {
+        assertEquals("relative", "/shaders/common.glsl", ShaderPreprocessor.resolve("/shaders/main.glsl", "common.glsl"));
+        assertEquals("parent", "/common.glsl", ShaderPreprocessor.resolve("/shaders/main.glsl", "../common.glsl"));
+        assertEquals("absolute", "/lib/common.glsl", ShaderPreprocessor.resolve("/shaders/main.glsl", "/lib/common.glsl"));
+    }
+
+    private static String process(Map<String, String> sources, String resource, Map<String, String> defines,
+                                  Set<String> included) throws Exception {
+        ShaderPreprocessor preprocessor = new ShaderPreprocessor(name -> {
+            String source = sources.get(name);
+            if (source == null) {
+                throw new Exception("No source " + name);
+            }
+            return source;
+        });
+        return preprocessor.process(resource, defines, included);
+    }
+
+    private static Map<String, String> sources(String... namesAndSources) {
+        Map<String, String> sources = new HashMap<>();
+        for (int i = 0; i < namesAndSources.length; i += 2) {
+            sources.put(namesAndSources[i], namesAndSources[i + 1]);
+        }
+        return sources;
+    }
+}
@@ -0,0 +1,292 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.engine.Utils;
+import com.amoghbhagwat.engine.light.DirectionalLight;
+import com.amoghbhagwat.engine.light.LightClusters;
+import com.amoghbhagwat.engine.models.Material;
+import com.amoghbhagwat.test.Test;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+/**
+ * Checks the block writers against the declarations in the shaders. The offsets GLSL expects are worked out from the
+ * shader sources with the std140 rules by {@link Layout}, compared with the offsets written down here, and then
+ * looked up in what the writers produced.
+ */
+public class UniformBlocksTest {
+    /**
+     * Blocks are written at a nonzero base, as they are when several share one buffer.
+     */
+    private static final int BASE = 256;
+
+    @Test
+    public void cameraBlockMatchesTheShader() throws Exception {
+        Layout layout = Layout.parse(source("/shaders/camera.glsl"), "CameraBlock");
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("projectionMatrix", 0);
+        expected.put("viewMatrix", 64);
+        assertEquals("offsets", expected, layout.offsets);
+        assertEquals("size", UniformBlocks.CAMERA_SIZE, layout.size);
+
+        Matrix4f projection = new Matrix4f().perspective(1.0f, 1.5f, 0.01f, 1000.0f);
+        Matrix4f view = new Matrix4f().translate(1, 2, 3).rotateY(0.5f);
+        ByteBuffer buffer = buffer();
+        Std140Writer writer = new Std140Writer().begin(buffer, BASE);
+        UniformBlocks.writeCamera(writer, projection, view);
+
+        assertEquals("written size", layout.size, writer.getOffset());
+        assertMat4(buffer, layout.offsetOf("projectionMatrix"), projection);
+        assertMat4(buffer, layout.offsetOf("viewMatrix"), view);
+    }
+
+    @Test
+    public void lightsBlockMatchesTheShader() throws Exception {
+        Layout layout = Layout.parse(source("/shaders/lights.glsl"), "LightsBlock");
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("ambientLight", 0);
+        expected.put("specularPower", 12);
+        expected.put("directionalLight", 16);
+        expected.put("directionalLight.color", 16);
+        expected.put("directionalLight.direction", 32);
+        expected.put("directionalLight.intensity", 44);
+        expected.put("clusterCounts", 48);
+        expected.put("clusterParams", 64);
+        assertEquals("offsets", expected, layout.offsets);
+        assertEquals("size", UniformBlocks.LIGHTS_SIZE, layout.size);
+
+        LightClusters clusters = new LightClusters(4, 3, 8);
+        clusters.setProjection((float) Math.toRadians(60.0f), 1.5f, 0.01f, 1000.0f);
+        DirectionalLight directionalLight = new DirectionalLight(new Vector3f(0.1f, 0.2f, 0.3f),
+                new Vector3f(0.4f, 0.5f, 0.6f), 0.7f);
+        ByteBuffer buffer = buffer();
+        Std140Writer writer = new Std140Writer().begin(buffer, BASE);
+        UniformBlocks.writeLights(writer, new Vector3f(0.8f, 0.9f, 1.0f), 10.0f, directionalLight, clusters, 5,
+                800, 600);
+
+        assertEquals("written size", layout.size, writer.getOffset());
+        assertFloats(buffer, layout.offsetOf("ambientLight"), 0.8f, 0.9f, 1.0f);
+        assertFloats(buffer, layout.offsetOf("specularPower"), 10.0f);
+        assertFloats(buffer, layout.offsetOf("directionalLight.color"), 0.1f, 0.2f, 0.3f);
+        assertFloats(buffer, layout.offsetOf("directionalLight.direction"), 0.4f, 0.5f, 0.6f);
+        assertFloats(buffer, layout.offsetOf("directionalLight.intensity"), 0.7f);
+        int counts = BASE + layout.offsetOf("clusterCounts");
+        assertEquals("tiles x", 4, buffer.getInt(counts));
+        assertEquals("tiles y", 3, buffer.getInt(counts + 4));
+        assertEquals("slices", 8, buffer.getInt(counts + 8));
+        assertEquals("light count", 5, buffer.getInt(counts + 12));
+        assertFloats(buffer, layout.offsetOf("clusterParams"), 200.0f, 200.0f, clusters.getSliceScale(),
+                clusters.getSliceBias());
+    }
+
+    @Test
+    public void materialBlockMatchesTheShader() throws Exception {
+        Layout layout = Layout.parse(source("/shaders/fragment.glsl"), "MaterialBlock");
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("material", 0);
+        expected.put("material.diffuse", 0);
+        expected.put("material.ambient", 16);
+        expected.put("material.specular", 32);
+        expected.put("material.hasTexture", 48);
+        expected.put("material.reflectance", 52);
+        assertEquals("offsets", expected, layout.offsets);
+        assertEquals("size", UniformBlocks.MATERIAL_SIZE, layout.size);
+
+        Material material = new Material(new Vector4f(0.1f, 0.2f, 0.3f, 0.4f), new Vector4f(0.5f, 0.6f, 0.7f, 0.8f),
+                new Vector4f(0.9f, 1.0f, 1.1f, 1.2f), null, 1.3f);
+        ByteBuffer buffer = buffer();
+        Std140Writer writer = new Std140Writer().begin(buffer, BASE);
+        UniformBlocks.writeMaterial(writer, material);
+
+        assertEquals("written size", layout.size, writer.getOffset());
+        assertFloats(buffer, layout.offsetOf("material.diffuse"), 0.5f, 0.6f, 0.7f, 0.8f);
+        assertFloats(buffer, layout.offsetOf("material.ambient"), 0.1f, 0.2f, 0.3f, 0.4f);
+        assertFloats(buffer, layout.offsetOf("material.specular"), 0.9f, 1.0f, 1.1f, 1.2f);
+        assertEquals("hasTexture", 0, buffer.getInt(BASE + layout.offsetOf("material.hasTexture")));
+        assertFloats(buffer, layout.offsetOf("material.reflectance"), 1.3f);
+    }
+
+    @Test
+    public void scalarsPackIntoTheTailOfAVec3() {
+        ByteBuffer buffer = buffer();
+        Std140Writer writer = new Std140Writer().begin(buffer, BASE);
+
+        writer.putVec3(1, 2, 3).putFloat(4);
+        assertEquals("vec3 and float share a slot", 16, writer.getOffset());
+        assertFloats(buffer, 0, 1, 2, 3, 4);
+
+        writer.putFloat(5).putVec3(6, 7, 8);
+        assertEquals("vec3 after a float starts a new slot", 44, writer.getOffset());
+        assertFloats(buffer, 16, 5);
+        assertFloats(buffer, 32, 6, 7, 8);
+    }
+
+    @Test
+    public void structsStartAndEndOnSixteenBytes() {
+        ByteBuffer buffer = buffer();
+        Std140Writer writer = new Std140Writer().begin(buffer, BASE);
+
+        writer.putFloat(1).beginStruct();
+        assertEquals("struct start", 16, writer.getOffset());
+        writer.putFloat(2).endStruct();
+        assertEquals("struct end", 32, writer.getOffset());
+        writer.putInt(3);
+        assertEquals("member after the struct", 3, buffer.getInt(BASE + 32));
+        assertEquals("empty end", 36, writer.getOffset());
+        writer.endStruct().endStruct();
+        assertEquals("aligned end is idempotent", 48, writer.getOffset());
+    }
+
+    @Test
+    public void writesLeaveTheBufferPositionAlone() {
+        ByteBuffer buffer = buffer();
+        buffer.position(12);
+        new Std140Writer().begin(buffer, BASE).putMat4(new Matrix4f()).putVec4(1, 2, 3, 4).putIVec4(1, 2, 3, 4);
+
+        assertEquals("position", 12, buffer.position());
+        assertEquals("limit", buffer.capacity(), buffer.limit());
+        assertEquals("below the base", 0, buffer.getInt(BASE - 4));
+    }
+
+    @Test
+    public void arraysAndNestedStructsRoundUpToSixteen() {
+        String source = "struct Attenuation { float constant; float linear; float exponent; };\n"
+                + "struct PointLight { vec3 color; vec3 position; float intensity; Attenuation attenuation; };\n"
+                + "layout (std140) uniform Test { float weights[3]; PointLight lights[2]; int count; };";
+        Layout layout = Layout.parse(source, "Test");
+
+        assertEquals("weights", 0, layout.offsetOf("weights"));
+        assertEquals("lights", 48, layout.offsetOf("lights"));
+        assertEquals("lights.attenuation", 48 + 32, layout.offsetOf("lights.attenuation"));
+        assertEquals("lights.attenuation.exponent", 48 + 40, layout.offsetOf("lights.attenuation.exponent"));
+        assertEquals("count", 48 + 2 * 48, layout.offsetOf("count"));
+        assertEquals("size", 160, layout.size);
+
+        assertEquals("alignUp", 32, Std140Writer.alignUp(17, 16));
+        assertEquals("alignUp aligned", 32, Std140Writer.alignUp(32, 16));
+    }
+
+    private static String source(String fileName) throws Exception {
+        return new String(Utils.readAllBytes(fileName), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Direct, as JOML writes matrices through the buffer's address.
+     */
+    private static ByteBuffer buffer() {
+        return ByteBuffer.allocateDirect(BASE + 512).order(ByteOrder.nativeOrder());
+    }
+
+    private static void assertFloats(ByteBuffer buffer, int offset, float... values) {
+        for (int i = 0; i < values.length; i++) {
+            assertBitsEqual("float at " + (offset + i * 4), values[i], buffer.getFloat(BASE + offset + i * 4));
+        }
+    }
+
+    private static void assertMat4(ByteBuffer buffer, int offset, Matrix4f matrix) {
+        float[] columnMajor = matrix.get(new float[16]);
+        for (int i = 0; i < 16; i++) {
+            assertBitsEqual("m" + i / 4 + i % 4, columnMajor[i], buffer.getFloat(BASE + offset + i * 4));
+        }
+    }
+
+    /**
+     * Offsets of a uniform block's members by the std140 rules, keyed by dotted path; array members map to their
+     * first element. Understands the scalar, vector and mat4 types the shaders use, structs and arrays.
+     */
+    private static final class Layout {
+        private static final Pattern COMMENT = Pattern.compile("//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+        private static final Pattern STRUCT = Pattern.compile("struct\\s+(\\w+)\\s*\\{([^}]*)\\}");
+        private static final Pattern MEMBER = Pattern.compile("(\\w+)\\s+(\\w+)\\s*(?:\\[(\\d+)\\])?");
+
+        private final Map<String, String> structs = new HashMap<>();
+        private final Map<String, Integer> offsets = new LinkedHashMap<>();
+        private int size;
+
+        static Layout parse(String source, String blockName) {
+            source = COMMENT.matcher(source).replaceAll("");
+            Layout layout = new Layout();
+            Matcher structs = STRUCT.matcher(source);
+            while (structs.find()) {
+                layout.structs.put(structs.group(1), structs.group(2));
+            }
+
+            Matcher block = Pattern.compile("uniform\\s+" + blockName + "\\s*\\{([^}]*)\\}").matcher(source);
+            assertTrue("block " + blockName + " declared", block.find());
+            layout.size = Std140Writer.alignUp(layout.layOut(block.group(1), "", 0), 16);
+            return layout;
+        }
+
+        int offsetOf(String path) {
+            Integer offset = offsets.get(path);
+            assertTrue("member " + path + " declared", offset != null);
+            return offset;
+        }
+
+        /**
+         * Lays out the members starting at {@code offset} and returns the offset after the last one.
+         */
+        private int layOut(String members, String prefix, int offset) {
+            Matcher member = MEMBER.matcher(members);
+            while (member.find()) {
+                String type = member.group(1);
+                String path = prefix + member.group(2);
+                int count = member.group(3) == null ? 0 : Integer.parseInt(member.group(3));
+
+                int alignment = count > 0 ? 16 : alignmentOf(type);
+                offset = Std140Writer.alignUp(offset, alignment);
+                offsets.put(path, offset);
+                int elementSize = structs.containsKey(type)
+                        ? Std140Writer.alignUp(layOut(structs.get(type), path + ".", offset) - offset, 16)
+                        : sizeOf(type);
+                offset += count > 0 ? Std140Writer.alignUp(elementSize, 16) * count : elementSize;
+            }
+            return offset;
+        }
+
+        private int alignmentOf(String type) {
+            if (structs.containsKey(type)) {
+                return 16;
+            }
+            return sizeOf(type) == 8 ? 8 : sizeOf(type) == 4 ? 4 : 16;
+        }
+
+        private int sizeOf(String type) {
+            switch (type) {
+                case "float":
+                case "int":
+                case "uint":
+                case "bool":
+                    return 4;
+                case "vec2":
+                case "ivec2":
+                case "uvec2":
+                    return 8;
+                case "vec3":
+                case "ivec3":
+                case "uvec3":
+                    return 12;
+                case "vec4":
+                case "ivec4":
+                case "uvec4":
+                    return 16;
+                case "mat4":
+                    return 64;
+                default:
+                    fail("unknown type " + type);
+                    return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.amoghbhagwat.engine.graph;
+
+import com.amoghbhagwat.engine.models.MeshData;
+import com.amoghbhagwat.test.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Assert.*;
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL30.GL_HALF_FLOAT;
+
+public class VertexPackerTest {
+    // Half a quantization step, plus float rounding
+    private static final float SNORM_ERROR = 0.5f / 511 + 1e-6f;
+
+    @Test
+    public void everyHalfFloatRoundTrips() {
+        for (int bits = 0; bits <= 0xFFFF; bits++) {
+            short half = (short) bits;
+            float value = VertexPacker.fromHalfFloat(half);
+            if (Float.isNaN(value)) {
+                assertTrue("NaN stays NaN: " + Integer.toHexString(bits), Float.isNaN(VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(value))));
+                continue;
+            }
+            assertEquals("half " + Integer.toHexString(bits), bits, VertexPacker.toHalfFloat(value) & 0xFFFF);
+        }
+    }
+
+    @Test
+    public void halfFloatRoundsToNearest() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            float value = (random.nextFloat() * 2 - 1) * (float) Math.pow(2, random.nextInt(40) - 24);
+            short half = VertexPacker.toHalfFloat(value);
+            int sign = half & 0x8000;
+            int magnitude = half & 0x7FFF;
+            float error = Math.abs(VertexPacker.fromHalfFloat(half) - value);
+            float below = Math.abs(VertexPacker.fromHalfFloat((short) (sign | Math.max(magnitude - 1, 0))) - value);
+            float above = Math.abs(VertexPacker.fromHalfFloat((short) (sign | magnitude + 1)) - value);
+            assertTrue(value + " rounded to " + VertexPacker.fromHalfFloat(half), error <= below && error <= above);
+        }
+    }
+
+    @Test
+    public void halfFloatTiesRoundToEven() {
+        // Halves between 1 and 2 are 2^-10 apart
+        assertBitsEqual("down to even", 1.0f, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(1 + 0x1p-11f)));
+        assertBitsEqual("up to even", 1 + 0x1p-9f, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(1 + 3 * 0x1p-11f)));
+        assertBitsEqual("subnormal tie", 0x1p-23f, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(3 * 0x1p-25f)));
+    }
+
+    @Test
+    public void halfFloatOverflowAndUnderflow() {
+        assertBitsEqual("largest half", 65504f, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(65519f)));
+        assertBitsEqual("overflow", Float.POSITIVE_INFINITY, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(65520f)));
+        assertBitsEqual("negative overflow", Float.NEGATIVE_INFINITY, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(-1e10f)));
+        assertBitsEqual("smallest subnormal", 0x1p-24f, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(0x1p-24f)));
+        assertBitsEqual("underflow", 0f, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(0x1p-26f)));
+        assertBitsEqual("negative zero", -0f, VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(-0f)));
+    }
+
+    @Test
+    public void everySnorm10RoundTrips() {
+        for (int value = -511; value <= 511; value++) {
+            float component = value / 511.0f;
+            int packed = VertexPacker.packSnorm1010102(component, -component, component * 0.5f);
+            assertBitsEqual("x " + value, component, VertexPacker.unpackSnorm10(packed, 0));
+            assertEquals("y " + value, -component, VertexPacker.unpackSnorm10(packed, 1), 0);
+            assertEquals("z " + value, component * 0.5f, VertexPacker.unpackSnorm10(packed, 2), SNORM_ERROR);
+            assertEquals("w " + value, 0, packed >>> 30);
+        }
+    }
+
+    @Test
+    public void snorm10ClampsOutOfRangeComponents() {
+        int packed = VertexPacker.packSnorm1010102(2, -2, Float.NEGATIVE_INFINITY);
+        assertBitsEqual("x", 1, VertexPacker.unpackSnorm10(packed, 0));
+        assertBitsEqual("y", -1, VertexPacker.unpackSnorm10(packed, 1));
+        assertBitsEqual("z", -1, VertexPacker.unpackSnorm10(packed, 2));
+        // -512 is the one bit pattern below -1 and decodes to -1 as well
+        assertBitsEqual("most negative", -1, VertexPacker.unpackSnorm10(0x200, 0));
+    }
+
+    @Test
+    public void compactVerticesUnpackToTheMesh() {
+        float[] positions = {1.5f, -2, 3, 0, 0.25f, -0.125f};
+        float[] textCoords = {0.5f, 0.75f, 1, 0.1f};
+        float[] normals = {0, 0, 1, 0.6f, -0.8f, 0};
+        MeshData meshData = new MeshData(positions, textCoords, normals, new int[]{0, 1, 0});
+        VertexFormat format = VertexFormat.COMPACT;
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + VertexPacker.getPackedSize(meshData, format)).order(ByteOrder.BIG_ENDIAN);
+        buffer.position(4);
+        VertexPacker.pack(meshData, format, buffer);
+        assertEquals("position advanced", buffer.capacity(), buffer.position());
+        assertSame("byte order restored", ByteOrder.BIG_ENDIAN, buffer.order());
+
+        buffer.order(ByteOrder.nativeOrder());
+        for (int vertex = 0; vertex < 2; vertex++) {
+            int base = 4 + vertex * format.getStride();
+            int position = base + format.getOffset(VertexFormat.Usage.POSITION);
+            int textureCoords = base + format.getOffset(VertexFormat.Usage.TEXTURE_COORDS);
+            int normal = buffer.getInt(base + format.getOffset(VertexFormat.Usage.NORMAL));
+            for (int c = 0; c < 3; c++) {
+                assertBitsEqual("position " + vertex, positions[vertex * 3 + c], buffer.getFloat(position + c * 4));
+                assertEquals("normal " + vertex, normals[vertex * 3 + c], VertexPacker.unpackSnorm10(normal, c), SNORM_ERROR);
+            }
+            for (int c = 0; c < 2; c++) {
+                float expected = VertexPacker.fromHalfFloat(VertexPacker.toHalfFloat(textCoords[vertex * 2 + c]));
+                assertBitsEqual("texture coordinates " + vertex, expected, VertexPacker.fromHalfFloat(buffer.getShort(textureCoords + c * 2)));
+            }
+        }
+    }
+
+    @Test
+    public void sharedAttributesKeepAnOffsetPerFormat() {
+        VertexFormat.Attribute position = new VertexFormat.Attribute(VertexFormat.Usage.POSITION, 0, 3, GL_FLOAT, false);
+        VertexFormat.Attribute textureCoords = new VertexFormat.Attribute(VertexFormat.Usage.TEXTURE_COORDS, 1, 2, GL_HALF_FLOAT, false);
+
+        VertexFormat positionFirst = new VertexFormat(position, textureCoords);
+        VertexFormat positionLast = new VertexFormat(textureCoords, position);
+
+        assertEquals("position first", 0, positionFirst.getOffset(VertexFormat.Usage.POSITION));
+        assertEquals("texture coordinates second", 12, positionFirst.getOffset(VertexFormat.Usage.TEXTURE_COORDS));
+        assertEquals("position last", 4, positionLast.getOffset(VertexFormat.Usage.POSITION));
+        assertEquals("texture coordinates first", 0, positionLast.getOffset(VertexFormat.Usage.TEXTURE_COORDS));
+        assertEquals("same stride", positionFirst.getStride(), positionLast.getStride());
+        assertEquals("missing usage", -1, positionFirst.getOffset(VertexFormat.Usage.NORMAL));
+    }
+}
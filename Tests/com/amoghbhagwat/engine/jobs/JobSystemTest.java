@@ -0,0 +1,89 @@
+package com.amoghbhagwat.engine.jobs;
+
+import com.amoghbhagwat.test.Test;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class JobSystemTest {
+    @Test
+    public void everyElementIsUpdatedOnce() {
+        JobSystem jobSystem = new JobSystem(4, 16);
+        AtomicIntegerArray updates = new AtomicIntegerArray(10_000);
+        jobSystem.addUpdateJob(new UpdateJob() {
+            @Override
+            public int getSize() {
+                return updates.length();
+            }
+
+            @Override
+            public void update(int from, int to, float interval) {
+                for (int i = from; i < to; i++) {
+                    updates.incrementAndGet(i);
+                }
+            }
+        });
+
+        jobSystem.runUpdateJobs(1 / 30f);
+        jobSystem.cleanUp();
+        for (int i = 0; i < updates.length(); i++) {
+            assertEquals("updates of " + i, 1, updates.get(i));
+        }
+    }
+
+    @Test
+    public void batchFailureIsRethrown() {
+        JobSystem jobSystem = new JobSystem(2, 1);
+        UpdateJob failing = new UpdateJob() {
+            @Override
+            public int getSize() {
+                return 100;
+            }
+
+            @Override
+            public void update(int from, int to, float interval) {
+                if (from <= 50 && 50 < to) {
+                    throw new IllegalStateException("element 50");
+                }
+            }
+        };
+
+        assertThrows("failing batch", IllegalStateException.class, () -> jobSystem.run(failing, 0));
+        jobSystem.cleanUp();
+    }
+
+    @Test
+    public void invokedTasksRunOnTheWorkers() {
+        JobSystem jobSystem = new JobSystem(2, JobSystem.DEFAULT_MIN_BATCH_SIZE);
+        String thread = jobSystem.invoke(new ThreadName(3));
+        jobSystem.cleanUp();
+        assertTrue("ran on " + thread, thread.startsWith("UPDATE_WORKER_"));
+    }
+
+    /**
+     * Forks a few levels deep and reports the thread of the deepest subtask.
+     */
+    private static class ThreadName extends RecursiveTask<String> {
+        private static final long serialVersionUID = 1L;
+
+        private final int depth;
+
+        ThreadName(int depth) {
+            this.depth = depth;
+        }
+
+        @Override
+        protected String compute() {
+            if (depth == 0) {
+                return Thread.currentThread().getName();
+            }
+            ThreadName left = new ThreadName(depth - 1);
+            left.fork();
+            String right = new ThreadName(depth - 1).compute();
+            String leftName = left.join();
+            return leftName.startsWith("UPDATE_WORKER_") ? right : leftName;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.amoghbhagwat.engine.light;
+
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.test.Test;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+/**
+ * Checks the ranking against sorting every light by its contribution.
+ */
+public class ItemLightsTest {
+    private static final int ITEMS = 2000;
+    private static final int[] LIGHT_COUNTS = {16, 256, 1024};
+
+    @Test
+    public void serialAssignmentKeepsTheStrongestLights() {
+        float[] items = createItems(ITEMS, new Random(ITEMS));
+        for (int lightCount : LIGHT_COUNTS) {
+            LightStore lights = createLightStore(lightCount, 100, new Random(lightCount));
+            ItemLights itemLights = new ItemLights();
+            itemLights.assign(items, ITEMS, lights);
+            assertStrongest(itemLights, items, ITEMS, lights);
+        }
+    }
+
+    @Test
+    public void parallelAssignmentKeepsTheStrongestLights() {
+        float[] items = createItems(ITEMS, new Random(ITEMS));
+        JobSystem jobSystem = new JobSystem(4, JobSystem.DEFAULT_MIN_BATCH_SIZE);
+        try {
+            for (int lightCount : LIGHT_COUNTS) {
+                LightStore lights = createLightStore(lightCount, 100, new Random(lightCount));
+                ItemLights itemLights = new ItemLights();
+                itemLights.setJobSystem(jobSystem);
+                itemLights.assign(items, ITEMS, lights);
+                assertStrongest(itemLights, items, ITEMS, lights);
+            }
+        } finally {
+            jobSystem.cleanUp();
+        }
+    }
+
+    @Test
+    public void listsGrowWithTheItems() {
+        LightStore lights = createLightStore(64, 20, new Random(5));
+        ItemLights itemLights = new ItemLights(4);
+        float[] items = createItems(ITEMS, new Random(6));
+
+        itemLights.assign(items, 10, lights);
+        assertStrongest(itemLights, items, 10, lights);
+        itemLights.assign(items, ITEMS, lights);
+        assertEquals("items", ITEMS, itemLights.getItemCount());
+        assertStrongest(itemLights, items, ITEMS, lights);
+    }
+
+    @Test
+    public void itemOutOfReachGetsNoLights() {
+        LightStore lights = createLightStore(64, 20, new Random(7));
+        ItemLights itemLights = new ItemLights();
+        itemLights.assign(new float[]{10_000, 0, 10_000, 1}, 1, lights);
+
+        assertEquals("lights", 0, itemLights.getLightCount(0));
+    }
+
+    /**
+     * Items scattered over the same square as the lights, with radii of a few units.
+     */
+    private static float[] createItems(int count, Random random) {
+        float[] items = new float[count * 4];
+        for (int i = 0; i < count; i++) {
+            items[i * 4] = (random.nextFloat() * 2 - 1) * 100;
+            items[i * 4 + 1] = random.nextFloat() * 10;
+            items[i * 4 + 2] = (random.nextFloat() * 2 - 1) * 100;
+            items[i * 4 + 3] = 0.5f + random.nextFloat() * 2;
+        }
+        return items;
+    }
+
+    /**
+     * Point lights scattered over a square of {@code size * 2}, with ranges of a few units to a few tens.
+     */
+    private static LightStore createLightStore(int count, float size, Random random) {
+        List<PointLight> pointLights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Vector3f position = new Vector3f((random.nextFloat() * 2 - 1) * size, random.nextFloat() * 10,
+                    (random.nextFloat() * 2 - 1) * size);
+            PointLight pointLight = new PointLight(0.2f + random.nextFloat(), new Vector3f(1, 1, 1), position);
+            pointLight.setAttenuation(new PointLight.Attenuation(1, 0, 0.1f + random.nextFloat()));
+            pointLights.add(pointLight);
+        }
+        LightStore lights = new LightStore(count);
+        lights.set(pointLights, Collections.emptyList());
+        return lights;
+    }
+
+    private static void assertStrongest(ItemLights itemLights, float[] items, int itemCount, LightStore lights) {
+        float[] contributions = new float[lights.size()];
+        for (int item = 0; item < itemCount; item++) {
+            float x = items[item * 4];
+            float y = items[item * 4 + 1];
+            float z = items[item * 4 + 2];
+            float radius = items[item * 4 + 3];
+            int reaching = 0;
+            for (int light = 0; light < lights.size(); light++) {
+                float contribution = ItemLights.getContribution(lights, light, x, y, z, radius);
+                if (contribution > 0) {
+                    contributions[reaching++] = contribution;
+                }
+            }
+            Arrays.sort(contributions, 0, reaching);
+
+            String name = lights.size() + " lights, item " + item;
+            int count = itemLights.getLightCount(item);
+            assertEquals(name, Math.min(reaching, itemLights.getMaxLights()), count);
+            for (int i = 0; i < count; i++) {
+                float contribution = ItemLights.getContribution(lights, itemLights.getLight(item, i), x, y, z, radius);
+                assertBitsEqual(name + ", light " + i, contributions[reaching - 1 - i], contribution);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.amoghbhagwat.engine.light;
+
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.test.Test;
+
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+/**
+ * Checks the binning against testing every light against every cluster.
+ */
+public class LightClustersTest {
+    private static final int[] LIGHT_COUNTS = {16, 256, 1024};
+
+    @Test
+    public void serialBinningMatchesBruteForce() {
+        for (int lightCount : LIGHT_COUNTS) {
+            LightClusters clusters = createClusters();
+            float[] lights = createLightSpheres(lightCount, 100, new Random(lightCount));
+            clusters.assign(lights, lightCount);
+            assertClusters(clusters, lights, lightCount);
+        }
+    }
+
+    @Test
+    public void parallelBinningMatchesBruteForce() {
+        JobSystem jobSystem = new JobSystem(4, JobSystem.DEFAULT_MIN_BATCH_SIZE);
+        try {
+            for (int lightCount : LIGHT_COUNTS) {
+                LightClusters clusters = createClusters();
+                clusters.setJobSystem(jobSystem);
+                float[] lights = createLightSpheres(lightCount, 100, new Random(lightCount));
+                clusters.assign(lights, lightCount);
+                assertClusters(clusters, lights, lightCount);
+            }
+        } finally {
+            jobSystem.cleanUp();
+        }
+    }
+
+    /**
+     * Every light covers the whole view, so every cluster is over the cap and keeps the lowest indices.
+     */
+    @Test
+    public void crowdedClustersKeepTheLowestIndices() {
+        int lightCount = LightClusters.MAX_LIGHTS_PER_CLUSTER + 40;
+        float[] lights = new float[lightCount * 4];
+        for (int i = 0; i < lightCount; i++) {
+            lights[i * 4 + 2] = -10;
+            lights[i * 4 + 3] = 10_000;
+        }
+        LightClusters clusters = createClusters();
+        clusters.assign(lights, lightCount);
+
+        assertClusters(clusters, lights, lightCount);
+        int cluster = clusters.getClusterCount() - 1;
+        assertEquals("capped", LightClusters.MAX_LIGHTS_PER_CLUSTER, clusters.getClusterLightCount(cluster));
+        assertEquals("last kept", LightClusters.MAX_LIGHTS_PER_CLUSTER - 1,
+                clusters.getLightIndices()[clusters.getClusterOffset(cluster) + LightClusters.MAX_LIGHTS_PER_CLUSTER - 1]);
+    }
+
+    @Test
+    public void assignReplacesThePreviousResult() {
+        LightClusters clusters = createClusters();
+        float[] lights = createLightSpheres(256, 100, new Random(1));
+        clusters.assign(lights, 256);
+        clusters.assign(lights, 0);
+
+        assertEquals("light indices", 0, clusters.getLightIndexCount());
+        for (int cluster = 0; cluster < clusters.getClusterCount(); cluster++) {
+            assertEquals("lights of cluster " + cluster, 0, clusters.getClusterLightCount(cluster));
+        }
+    }
+
+    private static LightClusters createClusters() {
+        LightClusters clusters = new LightClusters();
+        clusters.setProjection((float) Math.toRadians(60), 16 / 9f, 0.01f, 1000);
+        return clusters;
+    }
+
+    /**
+     * Random view space spheres in front of the camera, {@code x, y, z, radius} each.
+     */
+    private static float[] createLightSpheres(int count, float depth, Random random) {
+        float[] lights = new float[count * 4];
+        for (int i = 0; i < count; i++) {
+            float z = -(0.5f + random.nextFloat() * depth);
+            lights[i * 4] = (random.nextFloat() * 2 - 1) * -z;
+            lights[i * 4 + 1] = (random.nextFloat() * 2 - 1) * -z * 0.6f;
+            lights[i * 4 + 2] = z;
+            lights[i * 4 + 3] = 0.5f + random.nextFloat() * 10;
+        }
+        return lights;
+    }
+
+    private static void assertClusters(LightClusters clusters, float[] lights, int lightCount) {
+        int[] expected = new int[LightClusters.MAX_LIGHTS_PER_CLUSTER];
+        int total = 0;
+        for (int slice = 0; slice < clusters.getSlices(); slice++) {
+            for (int tileY = 0; tileY < clusters.getTilesY(); tileY++) {
+                for (int tileX = 0; tileX < clusters.getTilesX(); tileX++) {
+                    int expectedCount = 0;
+                    for (int light = 0; light < lightCount && expectedCount < expected.length; light++) {
+                        int base = light * 4;
+                        if (clusters.intersects(tileX, tileY, slice, lights[base], lights[base + 1], lights[base + 2],
+                                lights[base + 3])) {
+                            expected[expectedCount++] = light;
+                        }
+                    }
+
+                    int cluster = (slice * clusters.getTilesY() + tileY) * clusters.getTilesX() + tileX;
+                    String name = lightCount + " lights, cluster " + cluster;
+                    assertEquals(name, expectedCount, clusters.getClusterLightCount(cluster));
+                    int offset = clusters.getClusterOffset(cluster);
+                    for (int i = 0; i < expectedCount; i++) {
+                        assertEquals(name + ", light " + i, expected[i], clusters.getLightIndices()[offset + i]);
+                    }
+                    total += expectedCount;
+                }
+            }
+        }
+        assertEquals(lightCount + " lights, index count", total, clusters.getLightIndexCount());
+    }
+}
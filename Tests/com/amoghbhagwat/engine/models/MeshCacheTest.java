@@ -0,0 +1,75 @@
+package com.amoghbhagwat.engine.models;
+
+import com.amoghbhagwat.engine.Utils;
+import com.amoghbhagwat.test.Test;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class MeshCacheTest {
+    @Test
+    public void bakedMeshRoundTrips() throws Exception {
+        Path directory = Files.createTempDirectory("mesh-cache");
+        URL source = copyCube(directory);
+        Path file = directory.resolve("cube" + MeshCache.FILE_EXTENSION);
+
+        MeshCache.BakedMesh baked = MeshCache.loadBakedMesh(source, file);
+        MeshData meshData = OBJLoader.loadMeshData("/models/cube.obj", true);
+        assertEquals("vertices", meshData.getVertexCount(), baked.getVertexCount());
+        assertEquals("indices", meshData.getIndices().length, baked.getIndexCount());
+        for (int i = 0; i < baked.getIndexCount(); i++) {
+            assertEquals("index " + i, meshData.getIndices()[i], baked.getIndices().getInt(i * 4));
+        }
+
+        ByteBuffer vertices = baked.getVertices();
+        for (int vertex = 0; vertex < meshData.getVertexCount(); vertex++) {
+            int offset = vertex * MeshCache.BAKED_FORMAT.getStride();
+            assertBitsEqual("x of vertex " + vertex, meshData.getPositions()[vertex * 3], vertices.getFloat(offset));
+        }
+
+        assertTrue("warm load maps the baked file", MeshCache.map(file, MeshCache.SourceStamp.of(source)) != null);
+    }
+
+    @Test
+    public void editedSourceIsRebaked() throws Exception {
+        Path directory = Files.createTempDirectory("mesh-cache");
+        URL source = copyCube(directory);
+        Path file = directory.resolve("cube" + MeshCache.FILE_EXTENSION);
+        MeshCache.loadBakedMesh(source, file);
+
+        Path obj = directory.resolve("cube.obj");
+        Files.setLastModifiedTime(obj, FileTime.fromMillis(Files.getLastModifiedTime(obj).toMillis() + 5000));
+        assertNull("stale baked file", MeshCache.map(file, MeshCache.SourceStamp.of(source)));
+
+        MeshCache.loadBakedMesh(source, file);
+        assertTrue("rebaked for the new stamp", MeshCache.map(file, MeshCache.SourceStamp.of(source)) != null);
+    }
+
+    @Test
+    public void corruptBakedFileIsRejected() throws Exception {
+        Path directory = Files.createTempDirectory("mesh-cache");
+        URL source = copyCube(directory);
+        Path file = directory.resolve("cube" + MeshCache.FILE_EXTENSION);
+        MeshCache.loadBakedMesh(source, file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(file, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+        assertNull("flipped bit", MeshCache.map(file, MeshCache.SourceStamp.of(source)));
+
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.TRUNCATE_EXISTING);
+        assertNull("truncated", MeshCache.map(file, MeshCache.SourceStamp.of(source)));
+    }
+
+    private static URL copyCube(Path directory) throws Exception {
+        Path obj = directory.resolve("cube.obj");
+        Files.write(obj, Utils.readAllBytes("/models/cube.obj"));
+        return obj.toUri().toURL();
+    }
+}
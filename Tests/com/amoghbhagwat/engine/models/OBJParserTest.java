@@ -0,0 +1,220 @@
+package com.amoghbhagwat.engine.models;
+
+import com.amoghbhagwat.engine.Utils;
+import com.amoghbhagwat.engine.utils.FloatList;
+import com.amoghbhagwat.engine.utils.IntList;
+import com.amoghbhagwat.test.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class OBJParserTest {
+    private static final String CUBE = "/models/cube.obj";
+
+    @Test
+    public void cubeMatchesLineByLineParse() throws Exception {
+        String obj = new String(Utils.readAllBytes(CUBE), StandardCharsets.US_ASCII);
+        OBJParser parser = parse(obj);
+
+        Reference reference = new Reference(obj);
+        assertFloatsEqual("positions", reference.positions, parser.getPositions());
+        assertFloatsEqual("texture coordinates", reference.textureCoords, parser.getTextureCoords());
+        assertFloatsEqual("normals", reference.normals, parser.getNormals());
+        assertIntsEqual("face vertices", reference.faceVertices, parser.getFaceVertices());
+        assertEquals("corners", 36, parser.getFaceVertexCount());
+    }
+
+    @Test
+    public void cubeLoadsThroughOBJLoader() throws Exception {
+        MeshData meshData = OBJLoader.loadMeshData(CUBE, false);
+        assertEquals("indices", 36, meshData.getIndices().length);
+
+        MeshData welded = OBJLoader.loadMeshData(CUBE, true);
+        assertEquals("welded indices", 36, welded.getIndices().length);
+        assertEquals("welded vertices, one per distinct position/uv/normal triple", 24, welded.getVertexCount());
+    }
+
+    /**
+     * Large enough to cross the parser's read buffer many times, with the number formats exporters write.
+     */
+    @Test
+    public void largeObjMatchesFloatParseFloat() throws Exception {
+        Random random = new Random(42);
+        List<String> numbers = new ArrayList<>();
+        StringBuilder obj = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            obj.append('v');
+            for (int component = 0; component < 3; component++) {
+                String number = randomNumber(random);
+                numbers.add(number);
+                obj.append(' ').append(number);
+            }
+            obj.append(i % 7 == 0 ? "\r\n" : "\n");
+        }
+
+        FloatList positions = parse(obj.toString()).getPositions();
+        assertEquals("positions", numbers.size(), positions.size());
+        for (int i = 0; i < numbers.size(); i++) {
+            assertBitsEqual(numbers.get(i), Float.parseFloat(numbers.get(i)), positions.get(i));
+        }
+    }
+
+    /**
+     * Mantissas up to 2^24 with exponents up to 10 take the fast path, which has to round exactly like
+     * {@link Float#parseFloat}. Rounding through double first gets some of these wrong by one ulp.
+     */
+    @Test
+    public void fastPathRoundsLikeFloatParseFloat() throws Exception {
+        Random random = new Random(7);
+        StringBuilder obj = new StringBuilder();
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            String digits = Integer.toString(1 + random.nextInt(1 << 24));
+            int point = random.nextInt(digits.length() + 1);
+            String number = digits.substring(0, point) + "." + digits.substring(point);
+            if (random.nextBoolean()) {
+                number += "e" + (random.nextInt(21) - 10);
+            }
+            numbers.add(number);
+            obj.append("vt ").append(number).append(" 0\n");
+        }
+
+        FloatList textureCoords = parse(obj.toString()).getTextureCoords();
+        for (int i = 0; i < numbers.size(); i++) {
+            assertBitsEqual(numbers.get(i), Float.parseFloat(numbers.get(i)), textureCoords.get(i * 2));
+        }
+    }
+
+    /**
+     * Decimals just off the midpoint between two floats: rounded to double they land on the midpoint, and rounding
+     * that to float again picks the wrong neighbour.
+     */
+    @Test
+    public void doubleRoundingCasesMatchFloatParseFloat() throws Exception {
+        String[] numbers = {"1.26789790391922", "1.34213525056839", "1.91924387216568", "1.80870920419693"};
+        StringBuilder obj = new StringBuilder();
+        for (String number : numbers) {
+            obj.append("vn ").append(number).append(' ').append('-').append(number).append(" 0\n");
+        }
+
+        FloatList normals = parse(obj.toString()).getNormals();
+        for (int i = 0; i < numbers.length; i++) {
+            assertBitsEqual(numbers[i], Float.parseFloat(numbers[i]), normals.get(i * 3));
+            assertBitsEqual("-" + numbers[i], Float.parseFloat("-" + numbers[i]), normals.get(i * 3 + 1));
+        }
+    }
+
+    @Test
+    public void polygonsAreFanTriangulated() throws Exception {
+        OBJParser parser = parse("v 0 0 0\nv 1 0 0\nv 1 1 0\nv 0 1 0\nv -1 1 0\nf 1 2 3 4 5\n");
+
+        int[] expected = {0, 1, 2, 0, 2, 3, 0, 3, 4};
+        assertEquals("corners", expected.length, parser.getFaceVertexCount());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("position of corner " + i, expected[i], parser.getFaceVertices().get(i * 3));
+            assertEquals("texture coordinate of corner " + i, OBJParser.NO_VALUE, parser.getFaceVertices().get(i * 3 + 1));
+        }
+    }
+
+    @Test
+    public void relativeIndicesResolveAgainstEarlierVertices() throws Exception {
+        OBJParser parser = parse("v 0 0 0\nv 1 0 0\nv 1 1 0\nvt 0 0\nvn 0 0 1\nf -3/-1/-1 -2/-1/-1 -1/-1/-1\n");
+
+        int[] expected = {0, 0, 0, 1, 0, 0, 2, 0, 0};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("index " + i, expected[i], parser.getFaceVertices().get(i));
+        }
+    }
+
+    @Test
+    public void malformedFaceIsRejected() {
+        assertThrows("two corners", NumberFormatException.class, () -> parse("v 0 0 0\nv 1 0 0\nf 1 2\n"));
+    }
+
+    private static String randomNumber(Random random) {
+        float value = (random.nextFloat() * 2 - 1) * (float) Math.pow(10, random.nextInt(7) - 3);
+        switch (random.nextInt(6)) {
+            case 0:
+                return String.format(Locale.ROOT, "%.6f", value);
+            case 1:
+                return Float.toString(value);
+            case 2:
+                return String.format(Locale.ROOT, "%.9e", value);
+            case 3:
+                return Double.toString(random.nextDouble() * 1000 - 500);
+            case 4:
+                return Integer.toString(random.nextInt(2001) - 1000);
+            default:
+                return String.format(Locale.ROOT, "%+.3f", value);
+        }
+    }
+
+    private static OBJParser parse(String obj) throws Exception {
+        OBJParser parser = new OBJParser();
+        parser.parse(Channels.newChannel(new ByteArrayInputStream(obj.getBytes(StandardCharsets.US_ASCII))));
+        return parser;
+    }
+
+    private static void assertFloatsEqual(String message, List<Float> expected, FloatList actual) {
+        assertEquals(message + " size", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertBitsEqual(message + " [" + i + "]", expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertIntsEqual(String message, List<Integer> expected, IntList actual) {
+        assertEquals(message + " size", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(message + " [" + i + "]", (int) expected.get(i), actual.get(i));
+        }
+    }
+
+    /**
+     * The OBJ read the way the loader did before the byte parser, with line splitting and {@link Float#parseFloat}.
+     */
+    private static class Reference {
+        private final List<Float> positions = new ArrayList<>();
+        private final List<Float> textureCoords = new ArrayList<>();
+        private final List<Float> normals = new ArrayList<>();
+        private final List<Integer> faceVertices = new ArrayList<>();
+
+        Reference(String obj) {
+            for (String line : obj.split("\n")) {
+                String[] tokens = line.trim().split("\\s+");
+                switch (tokens[0]) {
+                    case "v":
+                        addFloats(positions, tokens, 3);
+                        break;
+                    case "vt":
+                        addFloats(textureCoords, tokens, 2);
+                        break;
+                    case "vn":
+                        addFloats(normals, tokens, 3);
+                        break;
+                    case "f":
+                        for (int i = 1; i < tokens.length; i++) {
+                            for (String index : tokens[i].split("/")) {
+                                faceVertices.add(Integer.parseInt(index) - 1);
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private static void addFloats(List<Float> list, String[] tokens, int count) {
+            for (int i = 1; i <= count; i++) {
+                list.add(Float.parseFloat(tokens[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.amoghbhagwat.engine.models;
+
+import com.amoghbhagwat.test.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class VertexCacheOptimizerTest {
+    private static final int GRID_SIZE = 40;
+    private static final int CACHE_SIZE = 32;
+
+    @Test
+    public void missRatioCountsFifoMisses() {
+        assertEquals("lone triangle", 3.0f, VertexCacheOptimizer.averageCacheMissRatio(new int[]{0, 1, 2}, 3, 16), 0);
+        assertEquals("quad", 2.0f, VertexCacheOptimizer.averageCacheMissRatio(new int[]{0, 1, 2, 2, 1, 3}, 4, 16), 0);
+        assertEquals("evicted before reuse", 3.0f,
+                VertexCacheOptimizer.averageCacheMissRatio(new int[]{0, 1, 2, 3, 4, 5, 0, 1, 2}, 6, 3), 0);
+        assertEquals("no triangles", 0.0f, VertexCacheOptimizer.averageCacheMissRatio(new int[0], 0, 16), 0);
+    }
+
+    /**
+     * Corners that repeat a position/uv/normal triple become one vertex. The last row of cells uses a second normal, so
+     * the row of positions it shares with the cells below is split into two vertices each.
+     */
+    @Test
+    public void weldingSharesIdenticalCorners() throws Exception {
+        MeshData meshData = OBJLoader.loadMeshData(Channels.newChannel(new ByteArrayInputStream(createGridObj(GRID_SIZE))),
+                true);
+
+        int quads = (GRID_SIZE - 1) * (GRID_SIZE - 1);
+        assertEquals("indices", quads * 6, meshData.getIndices().length);
+        assertEquals("one vertex per triple", GRID_SIZE * GRID_SIZE + GRID_SIZE, meshData.getVertexCount());
+
+        MeshData unwelded = OBJLoader.loadMeshData(Channels.newChannel(new ByteArrayInputStream(createGridObj(GRID_SIZE))),
+                false);
+        List<String> expected = positionTriangles(unwelded);
+        List<String> actual = positionTriangles(meshData);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals("triangles by position", expected, actual);
+    }
+
+    @Test
+    public void reorderingKeepsEveryTriangleAndItsWinding() {
+        int[] indices = shuffleTriangles(createGridIndices(GRID_SIZE), new Random(42));
+        int[] optimized = VertexCacheOptimizer.optimize(indices, GRID_SIZE * GRID_SIZE);
+
+        assertEquals("index count", indices.length, optimized.length);
+        List<String> expected = triangles(indices);
+        List<String> actual = triangles(optimized);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals("triangles", expected, actual);
+    }
+
+    @Test
+    public void reorderingDoesNotRaiseTheMissRatio() {
+        int vertexCount = GRID_SIZE * GRID_SIZE;
+        int[] rows = createGridIndices(GRID_SIZE);
+        int[] shuffled = shuffleTriangles(rows, new Random(42));
+
+        for (int[] indices : new int[][]{rows, shuffled}) {
+            float before = VertexCacheOptimizer.averageCacheMissRatio(indices, vertexCount, CACHE_SIZE);
+            float after = VertexCacheOptimizer.averageCacheMissRatio(VertexCacheOptimizer.optimize(indices, vertexCount),
+                    vertexCount, CACHE_SIZE);
+            assertTrue("miss ratio went from " + before + " to " + after, after <= before);
+        }
+        float shuffledBefore = VertexCacheOptimizer.averageCacheMissRatio(shuffled, vertexCount, CACHE_SIZE);
+        float shuffledAfter = VertexCacheOptimizer.averageCacheMissRatio(
+                VertexCacheOptimizer.optimize(shuffled, vertexCount), vertexCount, CACHE_SIZE);
+        assertTrue("shuffled order improved from " + shuffledBefore + " to " + shuffledAfter,
+                shuffledAfter < shuffledBefore / 2);
+    }
+
+    /**
+     * Two triangles per cell of a {@code size} by {@code size} vertex grid, row by row.
+     */
+    private static int[] createGridIndices(int size) {
+        int[] indices = new int[(size - 1) * (size - 1) * 6];
+        int i = 0;
+        for (int z = 0; z < size - 1; z++) {
+            for (int x = 0; x < size - 1; x++) {
+                int a = z * size + x;
+                int b = a + 1;
+                int c = a + size;
+                int d = c + 1;
+                indices[i++] = a;
+                indices[i++] = c;
+                indices[i++] = b;
+                indices[i++] = b;
+                indices[i++] = c;
+                indices[i++] = d;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * The same grid as an OBJ, with the faces of the last row of cells using a second normal.
+     */
+    private static byte[] createGridObj(int size) {
+        StringBuilder obj = new StringBuilder();
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                obj.append("v ").append(x * 0.1f).append(" 0.0 ").append(z * 0.1f).append('\n');
+                obj.append("vt ").append(x / (float) size).append(' ').append(z / (float) size).append('\n');
+            }
+        }
+        obj.append("vn 0.0 1.0 0.0\n");
+        obj.append("vn 0.0 0.0 1.0\n");
+        int[] indices = createGridIndices(size);
+        for (int i = 0; i < indices.length; i += 3) {
+            int normal = i / 6 / (size - 1) == size - 2 ? 2 : 1;
+            obj.append('f');
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[i + k];
+                obj.append(' ').append(vertex + 1).append('/').append(vertex + 1).append('/').append(normal);
+            }
+            obj.append('\n');
+        }
+        return obj.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int[] shuffleTriangles(int[] indices, Random random) {
+        int[] shuffled = indices.clone();
+        for (int t = shuffled.length / 3 - 1; t > 0; t--) {
+            int other = random.nextInt(t + 1);
+            for (int k = 0; k < 3; k++) {
+                int swap = shuffled[t * 3 + k];
+                shuffled[t * 3 + k] = shuffled[other * 3 + k];
+                shuffled[other * 3 + k] = swap;
+            }
+        }
+        return shuffled;
+    }
+
+    private static List<String> triangles(int[] indices) {
+        List<String> triangles = new ArrayList<>();
+        for (int i = 0; i < indices.length; i += 3) {
+            triangles.add(indices[i] + "," + indices[i + 1] + "," + indices[i + 2]);
+        }
+        return triangles;
+    }
+
+    /**
+     * Triangles as the positions of their corners in order, which do not depend on how vertices are numbered.
+     */
+    private static List<String> positionTriangles(MeshData meshData) {
+        float[] positions = meshData.getPositions();
+        int[] indices = meshData.getIndices();
+        List<String> triangles = new ArrayList<>();
+        for (int i = 0; i < indices.length; i += 3) {
+            StringBuilder triangle = new StringBuilder();
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[i + k];
+                triangle.append('(').append(positions[vertex * 3]).append(' ').append(positions[vertex * 3 + 1])
+                        .append(' ').append(positions[vertex * 3 + 2]).append(')');
+            }
+            triangles.add(triangle.toString());
+        }
+        return triangles;
+    }
+}
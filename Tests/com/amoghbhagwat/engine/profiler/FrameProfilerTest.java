@@ -0,0 +1,159 @@
+package com.amoghbhagwat.engine.profiler;
+
+import com.amoghbhagwat.test.Test;
+
+import static com.amoghbhagwat.test.Allocations.assertNoAllocation;
+import static com.amoghbhagwat.test.Assert.*;
+
+public class FrameProfilerTest {
+    private static final int WARM_UP = 5000;
+    private static final int FRAMES = 1000;
+
+    @Test
+    public void enabledFramePathDoesNotAllocate() throws Throwable {
+        // A small event ring, so the measured frames wrap around it
+        FrameProfiler profiler = new FrameProfiler("TEST", 8, 60, 100);
+        Scopes scopes = new Scopes(profiler);
+        profiler.setEnabled(true);
+
+        assertNoAllocation("enabled frames", WARM_UP, FRAMES, scopes::runFrame);
+        assertEquals("update runs per frame", 3, profiler.getCalls(scopes.update));
+    }
+
+    @Test
+    public void disabledFramePathDoesNotAllocate() throws Throwable {
+        FrameProfiler profiler = new FrameProfiler("TEST");
+        Scopes scopes = new Scopes(profiler);
+        profiler.setEnabled(false);
+
+        assertNoAllocation("disabled frames", WARM_UP, FRAMES, scopes::runFrame);
+        assertEquals("frames recorded", 0, profiler.getFrames());
+    }
+
+    @Test
+    public void statisticsDoNotAllocate() throws Throwable {
+        FrameProfiler profiler = new FrameProfiler("TEST");
+        Scopes scopes = new Scopes(profiler);
+        profiler.setEnabled(true);
+        for (int i = 0; i < FrameProfiler.DEFAULT_WINDOW; i++) {
+            scopes.runFrame();
+        }
+
+        long[] sink = new long[1];
+        assertNoAllocation("statistics", WARM_UP, FRAMES, () -> {
+            for (int scope = 0; scope < profiler.getScopeCount(); scope++) {
+                sink[0] += profiler.getMinNanos(scope) + profiler.getAverageNanos(scope)
+                        + profiler.getPercentileNanos(scope, 99) + profiler.getCalls(scope);
+            }
+        });
+    }
+
+    @Test
+    public void scopesNestAndSumPerFrame() {
+        FrameProfiler profiler = new FrameProfiler("TEST");
+        Scopes scopes = new Scopes(profiler);
+        profiler.setEnabled(true);
+        scopes.runFrame();
+
+        assertEquals("frames", 1, profiler.getFrames());
+        assertEquals("frame depth", 0, profiler.getScopeDepth(FrameProfiler.FRAME_SCOPE));
+        assertEquals("update depth", 1, profiler.getScopeDepth(scopes.update));
+        assertEquals("physics depth", 2, profiler.getScopeDepth(scopes.physics));
+        assertEquals("physics calls", 3, profiler.getCalls(scopes.physics));
+        assertTrue("frame covers its scopes",
+                profiler.getAverageNanos(FrameProfiler.FRAME_SCOPE) >= profiler.getAverageNanos(scopes.update));
+        assertTrue("update covers physics", profiler.getAverageNanos(scopes.update) >= profiler.getAverageNanos(scopes.physics));
+    }
+
+    @Test
+    public void framesAScopeSkippedAreLeftOut() {
+        FrameProfiler profiler = new FrameProfiler("TEST");
+        int rare = profiler.scope("rare");
+        profiler.setEnabled(true);
+        for (int i = 0; i < 10; i++) {
+            profiler.beginFrame();
+            if (i == 0) {
+                profiler.begin(rare);
+                spin(100_000);
+                profiler.end(rare);
+            }
+            profiler.endFrame();
+        }
+
+        assertTrue("minimum ignores frames without the scope", profiler.getMinNanos(rare) >= 100_000);
+        assertEquals("calls in the last frame", 0, profiler.getCalls(rare));
+    }
+
+    @Test
+    public void enablingWaitsForTheNextFrame() {
+        FrameProfiler profiler = new FrameProfiler("TEST");
+        int scope = profiler.scope("work");
+        profiler.beginFrame();
+        profiler.setEnabled(true);
+        // This frame started disabled, so the scope is not recorded and ending it is not out of order
+        profiler.begin(scope);
+        profiler.end(scope);
+        profiler.endFrame();
+        assertEquals("frames", 0, profiler.getFrames());
+
+        profiler.beginFrame();
+        profiler.endFrame();
+        assertEquals("frames once enabled", 1, profiler.getFrames());
+    }
+
+    @Test
+    public void scopesEndedOutOfOrderAreRejected() {
+        FrameProfiler profiler = new FrameProfiler("TEST");
+        int outer = profiler.scope("outer");
+        int inner = profiler.scope("inner");
+        profiler.setEnabled(true);
+        profiler.beginFrame();
+        profiler.begin(outer);
+        profiler.begin(inner);
+
+        assertThrows("outer before inner", IllegalStateException.class, () -> profiler.end(outer));
+    }
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() - end < 0) {
+            // Spin
+        }
+    }
+
+    /**
+     * A frame shaped like the engine's: input, then an update with a scope that runs several times, then render.
+     */
+    private static class Scopes {
+        private final FrameProfiler profiler;
+        private final int input;
+        private final int update;
+        private final int physics;
+        private final int render;
+
+        Scopes(FrameProfiler profiler) {
+            this.profiler = profiler;
+            this.input = profiler.scope("input");
+            this.update = profiler.scope("update");
+            this.physics = profiler.scope("physics");
+            this.render = profiler.scope("render");
+        }
+
+        void runFrame() {
+            profiler.beginFrame();
+            profiler.begin(input);
+            profiler.end(input);
+            for (int tick = 0; tick < 3; tick++) {
+                profiler.begin(update);
+                profiler.begin(physics);
+                profiler.end(physics);
+                profiler.end(update);
+            }
+            profiler.begin(render);
+            profiler.beginGpu(render);
+            profiler.endGpu(render);
+            profiler.end(render);
+            profiler.endFrame();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.amoghbhagwat.game;
+
+import com.amoghbhagwat.engine.graph.Bounds;
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.RenderQueue;
+import com.amoghbhagwat.engine.graph.VertexFormat;
+import com.amoghbhagwat.engine.light.DirectionalLight;
+import com.amoghbhagwat.engine.light.PointLight;
+import com.amoghbhagwat.engine.light.SpotLight;
+import com.amoghbhagwat.game.entities.Camera;
+import com.amoghbhagwat.game.entities.GameItem;
+import com.amoghbhagwat.game.scene.LooseOctree;
+import com.amoghbhagwat.game.scene.TransformStore;
+import com.amoghbhagwat.game.utils.Transformation;
+import com.amoghbhagwat.test.Test;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Allocations.assertNoAllocation;
+
+/**
+ * The CPU side of a frame that runs before any GL call must not allocate once it is warm.
+ */
+public class FrameAllocationTest {
+    private static final int ITEMS = 1000;
+    private static final int WARM_UP = 2000;
+    private static final int FRAMES = 200;
+
+    private final Transformation transformation = new Transformation();
+    private final Camera camera = new Camera(new Vector3f(1, 2, 3), new Vector3f(10, 20, 0));
+    private final List<GameItem> items = createItems();
+
+    @Test
+    public void transformsDoNotAllocate() throws Throwable {
+        assertNoAllocation("transforms", WARM_UP, FRAMES, () -> {
+            camera.getRotation().y += 0.1f;
+            transformation.getProjectionMatrix((float) Math.toRadians(60), 1280, 720, 0.01f, 1000);
+            Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+            for (int i = 0; i < items.size(); i++) {
+                GameItem item = items.get(i);
+                // Invalidates the cached world matrix, as for an item that moved
+                item.setScale(item.getScale());
+                transformation.getModelViewMatrix(item, viewMatrix);
+            }
+        });
+    }
+
+    @Test
+    public void viewLightsDoNotAllocate() throws Throwable {
+        Renderer renderer = new Renderer();
+        List<PointLight> pointLights = Arrays.asList(
+                new PointLight(1, new Vector3f(1, 1, 1), new Vector3f(0, 0, 1)),
+                new PointLight(2, new Vector3f(1, 0, 0), new Vector3f(5, 0, 1)));
+        List<SpotLight> spotLights = Arrays.asList(new SpotLight(new PointLight(1, new Vector3f(1, 1, 1),
+                new Vector3f(0, 0, 10)), new Vector3f(0, 0, -1), (float) Math.cos(Math.toRadians(140))));
+        DirectionalLight directionalLight = new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(-1, 0, 0), 1);
+
+        assertNoAllocation("view lights", WARM_UP, FRAMES, () -> {
+            pointLights.get(0).getPosition().x += 0.01f;
+            Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+            renderer.updateViewLights(viewMatrix, pointLights, spotLights, directionalLight);
+        });
+    }
+
+    @Test
+    public void cullingAndSortingDoNotAllocate() throws Throwable {
+        LooseOctree octree = new LooseOctree(0, 0, 0, 64);
+        octree.build(items);
+        Matrix4f projectionMatrix = new Matrix4f().perspective((float) Math.toRadians(60), 16 / 9f, 0.01f, 1000);
+        Matrix4f projectionViewMatrix = new Matrix4f();
+        FrustumIntersection frustum = new FrustumIntersection();
+        List<GameItem> visible = new ArrayList<>(ITEMS);
+        RenderQueue renderQueue = new RenderQueue(ITEMS);
+        Vector4f sphere = new Vector4f();
+
+        assertNoAllocation("culling and sorting", WARM_UP, FRAMES, () -> {
+            camera.getRotation().y += 7;
+            Matrix4f viewMatrix = transformation.getViewMatrix(camera);
+            frustum.set(projectionMatrix.mul(viewMatrix, projectionViewMatrix));
+            visible.clear();
+            octree.queryFrustum(frustum, visible);
+
+            renderQueue.clear();
+            for (int i = 0; i < visible.size(); i++) {
+                GameItem item = visible.get(i);
+                item.getWorldBoundingSphere(sphere);
+                float depth = -(viewMatrix.m02() * sphere.x + viewMatrix.m12() * sphere.y + viewMatrix.m22() * sphere.z + viewMatrix.m32());
+                renderQueue.submit(RenderQueue.opaqueKey(0, 0, i & 7, item.getMesh().getId(), depth / 1000), i);
+            }
+            renderQueue.sort();
+        });
+    }
+
+    private static List<GameItem> createItems() {
+        Mesh mesh = new Mesh(Bounds.fromPositions(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}),
+                VertexFormat.POSITION_TEXTURE_NORMAL, 36);
+        TransformStore transformStore = new TransformStore(ITEMS);
+        Random random = new Random(42);
+        List<GameItem> items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            GameItem item = new GameItem(mesh, transformStore);
+            item.setPosition(random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50);
+            item.setRotation(random.nextFloat() * 360, random.nextFloat() * 360, 0);
+            item.setScale(0.5f + random.nextFloat());
+            items.add(item);
+        }
+        return items;
+    }
+}
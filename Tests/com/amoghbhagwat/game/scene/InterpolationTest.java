@@ -0,0 +1,285 @@
+package com.amoghbhagwat.game.scene;
+
+import com.amoghbhagwat.engine.graph.Bounds;
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.VertexFormat;
+import com.amoghbhagwat.engine.light.DirectionalLight;
+import com.amoghbhagwat.engine.light.PointLight;
+import com.amoghbhagwat.engine.light.SpotLight;
+import com.amoghbhagwat.game.entities.Camera;
+import com.amoghbhagwat.game.entities.GameItem;
+import com.amoghbhagwat.test.Test;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.amoghbhagwat.test.Allocations.assertNoAllocation;
+import static com.amoghbhagwat.test.Assert.*;
+
+/**
+ * The blends {@link FrameSnapshot} renders between two ticks.
+ */
+public class InterpolationTest {
+    private static final float DELTA = 1e-6f;
+    private static final int WARM_UP = 2000;
+    private static final int FRAMES = 200;
+
+    private static final Mesh UNIT_CUBE = new Mesh(Bounds.fromPositions(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}),
+            VertexFormat.POSITION_TEXTURE_NORMAL, 36);
+
+    private final Quaternionf rotation = new Quaternionf();
+    private final Vector3f position = new Vector3f();
+
+    @Test
+    public void transformEndpointsAndMidpoint() {
+        TransformStore from = new TransformStore();
+        TransformStore to = new TransformStore();
+        TransformStore blend = new TransformStore();
+        int index = allocate(from, to, blend);
+        from.setPosition(index, 1, 2, 3);
+        from.setRotation(index, new Quaternionf().rotationX((float) Math.toRadians(10)));
+        from.setScale(index, 1);
+        to.setPosition(index, -3, 4, 7);
+        to.setRotation(index, new Quaternionf().rotationX((float) Math.toRadians(70)));
+        to.setScale(index, 3);
+
+        blend.interpolate(index, from, to, 0);
+        assertTransform("alpha 0", from, blend, index);
+
+        blend.interpolate(index, from, to, 1);
+        assertTransform("alpha 1", to, blend, index);
+
+        blend.interpolate(index, from, to, 0.5f);
+        assertVector("midpoint position", -1, 3, 5, blend.getPosition(index, position));
+        assertEquals("midpoint scale", 2, blend.getScale(index), DELTA);
+        // Halfway between rotations about one axis lies on that axis, at the mean angle
+        assertSameRotation("midpoint rotation", new Quaternionf().rotationX((float) Math.toRadians(40)),
+                blend.getRotation(index, rotation));
+    }
+
+    /**
+     * {@code q} and {@code -q} are the same rotation. Blending towards the one on the far side of the hypersphere would
+     * spin the long way round, and through a zero quaternion halfway.
+     */
+    @Test
+    public void rotationTakesTheShorterArc() {
+        TransformStore from = new TransformStore();
+        TransformStore to = new TransformStore();
+        TransformStore blend = new TransformStore();
+        int index = allocate(from, to, blend);
+        Quaternionf target = new Quaternionf().rotationY((float) Math.toRadians(90));
+        from.setRotation(index, 0, 0, 0, 1);
+        to.setRotation(index, -target.x, -target.y, -target.z, -target.w);
+
+        for (int step = 0; step <= 8; step++) {
+            float alpha = step / 8f;
+            blend.interpolate(index, from, to, alpha);
+            blend.getRotation(index, rotation);
+            assertEquals("unit length at alpha " + alpha, 1, rotation.lengthSquared(), 1e-5f);
+            // Normalised lerp between rotations about one axis stays on that axis
+            float angle = 2 * (float) Math.atan2(rotation.y, rotation.w);
+            assertEquals("x at alpha " + alpha, 0, rotation.x, DELTA);
+            assertEquals("z at alpha " + alpha, 0, rotation.z, DELTA);
+            assertTrue("angle within the quarter turn at alpha " + alpha,
+                    angle >= -DELTA && angle <= Math.toRadians(90) + 1e-5);
+        }
+        blend.interpolate(index, from, to, 0.5f);
+        assertSameRotation("midpoint", new Quaternionf().rotationY((float) Math.toRadians(45)), blend.getRotation(index, rotation));
+    }
+
+    @Test
+    public void interpolatingMarksTheSlotChanged() {
+        TransformStore from = new TransformStore();
+        TransformStore to = new TransformStore();
+        TransformStore blend = new TransformStore();
+        int index = allocate(from, to, blend);
+        to.setPosition(index, 2, 0, 0);
+        blend.updateWorldMatrix(index);
+        int version = blend.getVersion(index);
+
+        blend.interpolate(index, from, to, 0.5f);
+
+        assertTrue("dirty", blend.isDirty(index));
+        assertTrue("version changed", blend.getVersion(index) != version);
+        assertEquals("world matrix translation", 1, blend.getWorldMatrix(index, new Matrix4f()).m30(), DELTA);
+    }
+
+    @Test
+    public void cameraEndpointsAndMidpoint() {
+        Camera from = new Camera(new Vector3f(0, 1, 2), new Vector3f(10, 20, 0));
+        Camera to = new Camera(new Vector3f(4, 1, -2), new Vector3f(30, -20, 0));
+        Camera blend = new Camera();
+
+        blend.interpolate(from, to, 0);
+        assertVector("alpha 0 position", 0, 1, 2, blend.getPosition());
+        assertVector("alpha 0 rotation", 10, 20, 0, blend.getRotation());
+
+        blend.interpolate(from, to, 1);
+        assertVector("alpha 1 position", 4, 1, -2, blend.getPosition());
+        assertVector("alpha 1 rotation", 30, -20, 0, blend.getRotation());
+
+        blend.interpolate(from, to, 0.25f);
+        assertVector("quarter position", 1, 1, 1, blend.getPosition());
+        assertVector("quarter rotation", 15, 10, 0, blend.getRotation());
+    }
+
+    @Test
+    public void lightEndpointsAndMidpoint() {
+        PointLight fromPoint = new PointLight(1, new Vector3f(1, 0, 0), new Vector3f(0, 0, 0), new PointLight.Attenuation(1, 0, 0));
+        PointLight toPoint = new PointLight(3, new Vector3f(0, 1, 0), new Vector3f(2, 4, 6), new PointLight.Attenuation(1, 0.5f, 0.25f));
+        PointLight point = new PointLight(0, new Vector3f(), new Vector3f());
+
+        point.interpolate(fromPoint, toPoint, 0);
+        assertPointLight("point alpha 0", 1, 1, 0, 0, 0, 0, 0, point);
+        point.interpolate(fromPoint, toPoint, 1);
+        assertPointLight("point alpha 1", 3, 0, 1, 0, 2, 4, 6, point);
+        point.interpolate(fromPoint, toPoint, 0.5f);
+        assertPointLight("point midpoint", 2, 0.5f, 0.5f, 0, 1, 2, 3, point);
+        // Attenuation does not blend, it snaps to the newer tick
+        assertEquals("attenuation linear", 0.5f, point.getAttenuation().getLinear(), 0);
+        assertEquals("attenuation exponent", 0.25f, point.getAttenuation().getExponent(), 0);
+
+        SpotLight fromSpot = new SpotLight(new PointLight(fromPoint), new Vector3f(0, 0, -1), 30);
+        SpotLight toSpot = new SpotLight(new PointLight(toPoint), new Vector3f(0, -1, 0), 60);
+        SpotLight spot = new SpotLight(new PointLight(0, new Vector3f(), new Vector3f()), new Vector3f(), 0);
+        spot.interpolate(fromSpot, toSpot, 0);
+        assertVector("spot alpha 0 cone", 0, 0, -1, spot.getConeDirection());
+        assertEquals("spot alpha 0 cut off", fromSpot.getCutOffAngle(), spot.getCutOffAngle(), DELTA);
+        spot.interpolate(fromSpot, toSpot, 1);
+        assertVector("spot alpha 1 cone", 0, -1, 0, spot.getConeDirection());
+        assertEquals("spot alpha 1 cut off", toSpot.getCutOffAngle(), spot.getCutOffAngle(), DELTA);
+        spot.interpolate(fromSpot, toSpot, 0.5f);
+        assertPointLight("spot midpoint light", 2, 0.5f, 0.5f, 0, 1, 2, 3, spot.getPointLight());
+        assertEquals("spot midpoint cut off", (fromSpot.getCutOffAngle() + toSpot.getCutOffAngle()) / 2,
+                spot.getCutOffAngle(), DELTA);
+
+        DirectionalLight fromDirectional = new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(1, 0, 0), 0.5f);
+        DirectionalLight toDirectional = new DirectionalLight(new Vector3f(0, 0, 1), new Vector3f(0, 1, 0), 1.5f);
+        DirectionalLight directional = new DirectionalLight(new Vector3f(), new Vector3f(), 0);
+        directional.interpolate(fromDirectional, toDirectional, 0);
+        assertVector("directional alpha 0 direction", 1, 0, 0, directional.getDirection());
+        assertEquals("directional alpha 0 intensity", 0.5f, directional.getIntensity(), DELTA);
+        directional.interpolate(fromDirectional, toDirectional, 1);
+        assertVector("directional alpha 1 color", 0, 0, 1, directional.getColor());
+        assertEquals("directional alpha 1 intensity", 1.5f, directional.getIntensity(), DELTA);
+        directional.interpolate(fromDirectional, toDirectional, 0.5f);
+        assertVector("directional midpoint color", 0.5f, 0.5f, 1, directional.getColor());
+        assertVector("directional midpoint direction", 0.5f, 0.5f, 0, directional.getDirection());
+        assertEquals("directional midpoint intensity", 1, directional.getIntensity(), DELTA);
+    }
+
+    /**
+     * Frame timing can put alpha a little outside [0, 1]; the snapshot must not extrapolate past either tick.
+     */
+    @Test
+    public void snapshotClampsAlpha() {
+        Ticks ticks = new Ticks(1);
+        ticks.item.setPosition(1, 0, 0);
+        ticks.camera.setPosition(0, 0, 0);
+        ticks.directionalLight.setIntensity(1);
+        FrameSnapshot previous = ticks.capture(1, null);
+        ticks.item.setPosition(3, 0, 0);
+        ticks.camera.setPosition(0, 10, 0);
+        ticks.directionalLight.setIntensity(2);
+        FrameSnapshot snapshot = ticks.capture(2, previous);
+        GameItem item = snapshot.getGameItems().get(0);
+
+        snapshot.interpolate(-0.5f);
+        assertVector("item below 0", 1, 0, 0, item.getPosition(position));
+        assertVector("camera below 0", 0, 0, 0, snapshot.getCamera().getPosition());
+        assertEquals("light below 0", 1, snapshot.getDirectionalLight().getIntensity(), DELTA);
+
+        snapshot.interpolate(1.5f);
+        assertVector("item above 1", 3, 0, 0, item.getPosition(position));
+        assertVector("camera above 1", 0, 10, 0, snapshot.getCamera().getPosition());
+        assertEquals("light above 1", 2, snapshot.getDirectionalLight().getIntensity(), DELTA);
+
+        snapshot.interpolate(0.5f);
+        assertVector("item midpoint", 2, 0, 0, item.getPosition(position));
+    }
+
+    @Test
+    public void interpolationDoesNotAllocate() throws Throwable {
+        Ticks ticks = new Ticks(500);
+        FrameSnapshot previous = ticks.capture(1, null);
+        for (int i = 0; i < ticks.items.size(); i++) {
+            ticks.items.get(i).setPosition(i % 20, i / 20, 1);
+            ticks.items.get(i).setRotation(i, 2 * i, 0);
+        }
+        ticks.camera.setPosition(1, 2, 3);
+        ticks.pointLight.getPosition().set(5, 5, 5);
+        FrameSnapshot snapshot = ticks.capture(2, previous);
+
+        float[] alpha = new float[1];
+        assertNoAllocation("snapshot interpolation", WARM_UP, FRAMES, () -> {
+            alpha[0] = (alpha[0] + 0.37f) % 1;
+            snapshot.interpolate(alpha[0]);
+        });
+    }
+
+    private static int allocate(TransformStore... stores) {
+        int index = 0;
+        for (TransformStore store : stores) {
+            index = store.allocate();
+        }
+        return index;
+    }
+
+    private void assertTransform(String message, TransformStore expected, TransformStore actual, int index) {
+        Vector3f expectedPosition = expected.getPosition(index, new Vector3f());
+        assertVector(message + " position", expectedPosition.x, expectedPosition.y, expectedPosition.z,
+                actual.getPosition(index, position));
+        assertEquals(message + " scale", expected.getScale(index), actual.getScale(index), DELTA);
+        assertSameRotation(message + " rotation", expected.getRotation(index, new Quaternionf()), actual.getRotation(index, rotation));
+    }
+
+    private static void assertSameRotation(String message, Quaternionf expected, Quaternionf actual) {
+        float dot = expected.x * actual.x + expected.y * actual.y + expected.z * actual.z + expected.w * actual.w;
+        assertEquals(message + ": |dot| of " + expected + " and " + actual, 1, Math.abs(dot), 1e-5f);
+    }
+
+    private static void assertPointLight(String message, float intensity, float r, float g, float b, float x, float y,
+                                         float z, PointLight light) {
+        assertEquals(message + " intensity", intensity, light.getIntensity(), DELTA);
+        assertVector(message + " color", r, g, b, light.getColor());
+        assertVector(message + " position", x, y, z, light.getPosition());
+    }
+
+    private static void assertVector(String message, float x, float y, float z, Vector3f actual) {
+        assertEquals(message + " x", x, actual.x, 1e-5f);
+        assertEquals(message + " y", y, actual.y, 1e-5f);
+        assertEquals(message + " z", z, actual.z, 1e-5f);
+    }
+
+    /**
+     * Simulation state that is captured into snapshots one tick after another.
+     */
+    private static class Ticks {
+        private final TransformStore transforms = new TransformStore();
+        private final List<GameItem> items = new ArrayList<>();
+        private final GameItem item;
+        private final Camera camera = new Camera();
+        private final PointLight pointLight = new PointLight(1, new Vector3f(1, 1, 1), new Vector3f());
+        private final SpotLight spotLight = new SpotLight(new PointLight(1, new Vector3f(1, 1, 1), new Vector3f()),
+                new Vector3f(0, 0, -1), 30);
+        private final DirectionalLight directionalLight = new DirectionalLight(new Vector3f(1, 1, 1), new Vector3f(0, -1, 0), 1);
+
+        Ticks(int itemCount) {
+            for (int i = 0; i < itemCount; i++) {
+                items.add(new GameItem(UNIT_CUBE, transforms));
+            }
+            item = items.get(0);
+        }
+
+        FrameSnapshot capture(long tick, FrameSnapshot previous) {
+            FrameSnapshot snapshot = new FrameSnapshot(64);
+            snapshot.capture(tick, transforms, items, camera, new Vector3f(0.3f), Collections.singletonList(pointLight),
+                    Collections.singletonList(spotLight), directionalLight, previous);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.amoghbhagwat.game.scene;
+
+import com.amoghbhagwat.engine.graph.Bounds;
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.VertexFormat;
+import com.amoghbhagwat.engine.jobs.JobSystem;
+import com.amoghbhagwat.game.entities.GameItem;
+import com.amoghbhagwat.test.Test;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class LooseOctreeTest {
+    private static final Mesh UNIT_CUBE = new Mesh(Bounds.fromPositions(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}),
+            VertexFormat.POSITION_TEXTURE_NORMAL, 36);
+
+    private final Vector4f sphere = new Vector4f();
+
+    @Test
+    public void frustumQueryMatchesTestingEveryItem() {
+        List<GameItem> items = createItems(5000, 1);
+        LooseOctree octree = new LooseOctree(0, 0, 0, 64);
+        octree.build(items);
+
+        for (int angle = 0; angle < 360; angle += 45) {
+            FrustumIntersection frustum = createFrustum(angle);
+            List<GameItem> expected = new ArrayList<>();
+            for (GameItem item : items) {
+                item.getWorldBoundingSphere(sphere);
+                if (frustum.testSphere(sphere.x, sphere.y, sphere.z, sphere.w)) {
+                    expected.add(item);
+                }
+            }
+
+            List<GameItem> actual = new ArrayList<>();
+            octree.queryFrustum(frustum, actual);
+            assertSameItems("angle " + angle, expected, actual);
+        }
+    }
+
+    @Test
+    public void parallelBuildMatchesSerialBuild() {
+        // Enough items that octants cross the parallel threshold
+        List<GameItem> items = createItems(40_000, 2);
+        LooseOctree serial = new LooseOctree(0, 0, 0, 64);
+        serial.build(items);
+
+        JobSystem jobSystem = new JobSystem(4, JobSystem.DEFAULT_MIN_BATCH_SIZE);
+        LooseOctree parallel = new LooseOctree(0, 0, 0, 64);
+        parallel.build(items, jobSystem);
+        jobSystem.cleanUp();
+
+        assertEquals("size", items.size(), parallel.size());
+        Random random = new Random(5);
+        for (int i = 0; i < 50; i++) {
+            float x = random.nextFloat() * 120 - 60, y = random.nextFloat() * 120 - 60, z = random.nextFloat() * 120 - 60;
+            List<GameItem> expected = new ArrayList<>();
+            List<GameItem> actual = new ArrayList<>();
+            serial.queryRadius(x, y, z, 10, expected);
+            parallel.queryRadius(x, y, z, 10, actual);
+            assertSameItems("query " + i, expected, actual);
+        }
+    }
+
+    @Test
+    public void movedItemsAreFoundAtTheirNewPosition() {
+        List<GameItem> items = createItems(1000, 3);
+        LooseOctree octree = new LooseOctree(0, 0, 0, 64);
+        octree.build(items);
+
+        GameItem moved = items.get(0);
+        moved.setPosition(200, 0, 0);
+        octree.update(moved);
+
+        List<GameItem> result = new ArrayList<>();
+        octree.queryRadius(200, 0, 0, 1, result);
+        assertEquals("found outside the root cell", Collections.singletonList(moved), result);
+
+        assertTrue("removed", octree.remove(moved));
+        result.clear();
+        octree.queryRadius(200, 0, 0, 1, result);
+        assertTrue("gone", result.isEmpty());
+        assertEquals("size", items.size() - 1, octree.size());
+    }
+
+    private static List<GameItem> createItems(int count, long seed) {
+        TransformStore transformStore = new TransformStore(count);
+        Random random = new Random(seed);
+        List<GameItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GameItem item = new GameItem(UNIT_CUBE, transformStore);
+            item.setPosition(random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50);
+            item.setScale(0.5f + random.nextFloat() * (i % 100 == 0 ? 20 : 1));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static FrustumIntersection createFrustum(int angle) {
+        Matrix4f projectionView = new Matrix4f().perspective((float) Math.toRadians(60), 16 / 9f, 0.01f, 80)
+                .rotateY((float) Math.toRadians(angle)).translate(0, 0, -10);
+        return new FrustumIntersection(projectionView);
+    }
+
+    private static void assertSameItems(String message, List<GameItem> expected, List<GameItem> actual) {
+        assertEquals(message + " count", expected.size(), actual.size());
+        Set<GameItem> remaining = Collections.newSetFromMap(new IdentityHashMap<>());
+        remaining.addAll(expected);
+        for (GameItem item : actual) {
+            assertTrue(message + ": unexpected or duplicate item", remaining.remove(item));
+        }
+    }
+}
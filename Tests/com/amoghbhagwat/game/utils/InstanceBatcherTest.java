@@ -0,0 +1,175 @@
+package com.amoghbhagwat.game.utils;
+
+import com.amoghbhagwat.engine.graph.Bounds;
+import com.amoghbhagwat.engine.graph.Mesh;
+import com.amoghbhagwat.engine.graph.RenderQueue;
+import com.amoghbhagwat.engine.graph.VertexFormat;
+import com.amoghbhagwat.engine.models.Material;
+import com.amoghbhagwat.game.entities.GameItem;
+import com.amoghbhagwat.game.scene.TransformStore;
+import com.amoghbhagwat.test.Test;
+import org.joml.Matrix4f;
+import org.joml.Vector4f;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.amoghbhagwat.test.Assert.*;
+
+public class InstanceBatcherTest {
+    private final InstanceBatcher batcher = new InstanceBatcher();
+    private final TransformStore transformStore = new TransformStore();
+    private final Random random = new Random(42);
+
+    @Test
+    public void runsSplitWhereMeshOrMaterialChanges() {
+        Material red = new Material(new Vector4f(1, 0, 0, 1), 0);
+        Material blue = new Material(new Vector4f(0, 0, 1, 1), 0);
+        Mesh cube = createMesh(red);
+        Mesh sphere = createMesh(red);
+        Mesh blueCube = createMesh(blue);
+        List<GameItem> items = new ArrayList<>();
+        addItems(items, sphere, 2);
+        addItems(items, blueCube, 4);
+        addItems(items, cube, 3);
+        RenderQueue renderQueue = createQueue(items);
+
+        List<Integer> runs = new ArrayList<>();
+        for (int start = 0, end; start < renderQueue.size(); start = end) {
+            end = batcher.findRunEnd(items, renderQueue, start);
+            Mesh mesh = items.get(renderQueue.getItem(start)).getMesh();
+            for (int i = start; i < end; i++) {
+                assertSame("mesh in run", mesh, items.get(renderQueue.getItem(i)).getMesh());
+            }
+            if (end < renderQueue.size()) {
+                assertTrue("next run changes mesh", items.get(renderQueue.getItem(end)).getMesh() != mesh);
+            }
+            runs.add(end - start);
+        }
+        List<Integer> expected = new ArrayList<>();
+        expected.add(3);
+        expected.add(2);
+        expected.add(4);
+        assertEquals("run sizes in key order", expected, runs);
+    }
+
+    /**
+     * Keys only keep the low bits of the ids, so meshes far apart in id can share every key bit.
+     */
+    @Test
+    public void runsSplitWhereMeshIdsCollide() {
+        Material material = new Material(new Vector4f(1, 1, 1, 1), 0);
+        Mesh first = createMesh(material);
+        Mesh second = createMesh(material);
+        List<GameItem> items = new ArrayList<>();
+        addItems(items, first, 3);
+        addItems(items, second, 2);
+        RenderQueue renderQueue = new RenderQueue();
+        for (int i = 0; i < items.size(); i++) {
+            renderQueue.submit(RenderQueue.opaqueKey(0, 0, material.getId(), first.getId(), 0.5f), i);
+        }
+        renderQueue.sort();
+
+        assertEquals("one state run", items.size(), renderQueue.findStateRunEnd(0));
+        int end = batcher.findRunEnd(items, renderQueue, 0);
+        assertEquals("first mesh run", 3, end);
+        assertEquals("second mesh run", items.size(), batcher.findRunEnd(items, renderQueue, end));
+    }
+
+    @Test
+    public void longRunsAreChunked() {
+        Mesh mesh = createMesh(new Material(new Vector4f(1, 1, 1, 1), 0));
+        List<GameItem> items = new ArrayList<>();
+        addItems(items, mesh, 2 * InstanceBatcher.MAX_INSTANCES + 5);
+        RenderQueue renderQueue = createQueue(items);
+        int end = batcher.findRunEnd(items, renderQueue, 0);
+        assertEquals("one run", items.size(), end);
+
+        FloatBuffer buffer = FloatBuffer.allocate(InstanceBatcher.MAX_INSTANCES * InstanceBatcher.MATRIX_SIZE);
+        List<Integer> chunks = new ArrayList<>();
+        for (int chunk = 0, count; chunk < end; chunk += count) {
+            buffer.clear();
+            count = batcher.fillInstanceBuffer(items, renderQueue, chunk, end, buffer);
+            assertEquals("floats written", count * InstanceBatcher.MATRIX_SIZE, buffer.position());
+            assertMatrices(items, renderQueue, chunk, count, buffer);
+            chunks.add(count);
+        }
+        List<Integer> expected = new ArrayList<>();
+        expected.add(InstanceBatcher.MAX_INSTANCES);
+        expected.add(InstanceBatcher.MAX_INSTANCES);
+        expected.add(5);
+        assertEquals("chunk sizes", expected, chunks);
+    }
+
+    @Test
+    public void bufferHoldsTheWorldMatricesInQueueOrder() {
+        Material material = new Material(new Vector4f(1, 1, 1, 1), 0);
+        List<GameItem> items = new ArrayList<>();
+        addItems(items, createMesh(material), 20);
+        addItems(items, createMesh(material), 30);
+        RenderQueue renderQueue = createQueue(items);
+
+        FloatBuffer buffer = FloatBuffer.allocate(64 * InstanceBatcher.MATRIX_SIZE);
+        for (int start = 0, end; start < renderQueue.size(); start = end) {
+            end = batcher.findRunEnd(items, renderQueue, start);
+            buffer.clear();
+            // Matrices go at the buffer's position
+            buffer.position(InstanceBatcher.MATRIX_SIZE);
+            int count = batcher.fillInstanceBuffer(items, renderQueue, start, end, buffer);
+            assertEquals("whole run", end - start, count);
+            buffer.position(InstanceBatcher.MATRIX_SIZE);
+            assertMatrices(items, renderQueue, start, count, buffer.slice());
+        }
+    }
+
+    private Mesh createMesh(Material material) {
+        Mesh mesh = new Mesh(Bounds.fromPositions(new float[]{-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f}),
+                VertexFormat.POSITION_TEXTURE_NORMAL, 36);
+        mesh.setMaterial(material);
+        return mesh;
+    }
+
+    private void addItems(List<GameItem> items, Mesh mesh, int count) {
+        for (int i = 0; i < count; i++) {
+            GameItem item = new GameItem(mesh, transformStore);
+            item.setPosition(random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50, random.nextFloat() * 100 - 50);
+            item.setRotation(random.nextFloat() * 360, random.nextFloat() * 360, 0);
+            item.setScale(0.5f + random.nextFloat());
+            items.add(item);
+        }
+    }
+
+    /**
+     * Keys as the renderer builds them, with random depths so the items of a run end up interleaved.
+     */
+    private RenderQueue createQueue(List<GameItem> items) {
+        RenderQueue renderQueue = new RenderQueue();
+        for (int i = 0; i < items.size(); i++) {
+            Mesh mesh = items.get(i).getMesh();
+            renderQueue.submit(RenderQueue.opaqueKey(0, 0, mesh.getMaterial().getId(), mesh.getId(),
+                    random.nextFloat()), i);
+        }
+        renderQueue.sort();
+        return renderQueue;
+    }
+
+    /**
+     * Compares the column-major matrices at the start of {@code buffer} with those of queue entries
+     * {@code [start, start + count)}.
+     */
+    private static void assertMatrices(List<GameItem> items, RenderQueue renderQueue, int start, int count,
+                                       FloatBuffer buffer) {
+        Matrix4f worldMatrix = new Matrix4f();
+        float[] expected = new float[InstanceBatcher.MATRIX_SIZE];
+        for (int i = 0; i < count; i++) {
+            GameItem item = items.get(renderQueue.getItem(start + i));
+            item.getTransformStore().getWorldMatrix(item.getIndex(), worldMatrix).get(expected);
+            for (int j = 0; j < InstanceBatcher.MATRIX_SIZE; j++) {
+                assertBitsEqual("instance " + (start + i) + " element " + j, expected[j],
+                        buffer.get(i * InstanceBatcher.MATRIX_SIZE + j));
+            }
+        }
+    }
+}
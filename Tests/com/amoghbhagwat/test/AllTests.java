@@ -0,0 +1,61 @@
+package com.amoghbhagwat.test;
+
+import com.amoghbhagwat.engine.FixedStepSchedulerTest;
+import com.amoghbhagwat.engine.FramePacerTest;
+import com.amoghbhagwat.engine.SimulationHandoffTest;
+import com.amoghbhagwat.engine.assets.AssetLoaderTest;
+import com.amoghbhagwat.engine.benchmark.BenchmarkRunnerTest;
+import com.amoghbhagwat.engine.graph.RenderQueueTest;
+import com.amoghbhagwat.engine.graph.RenderStateTest;
+import com.amoghbhagwat.engine.graph.ShaderCacheTest;
+import com.amoghbhagwat.engine.graph.ShaderPreprocessorTest;
+import com.amoghbhagwat.engine.graph.UniformBlocksTest;
+import com.amoghbhagwat.engine.graph.VertexPackerTest;
+import com.amoghbhagwat.engine.jobs.JobSystemTest;
+import com.amoghbhagwat.engine.light.ItemLightsTest;
+import com.amoghbhagwat.engine.light.LightClustersTest;
+import com.amoghbhagwat.engine.models.MeshCacheTest;
+import com.amoghbhagwat.engine.models.OBJParserTest;
+import com.amoghbhagwat.engine.models.VertexCacheOptimizerTest;
+import com.amoghbhagwat.engine.profiler.FrameProfilerTest;
+import com.amoghbhagwat.game.FrameAllocationTest;
+import com.amoghbhagwat.game.scene.InterpolationTest;
+import com.amoghbhagwat.game.scene.LooseOctreeTest;
+import com.amoghbhagwat.game.utils.InstanceBatcherTest;
+
+/**
+ * The test classes run by {@link TestRunner}. Tests need no GL context or window. From the project root:
+ * <pre>
+ *   javac -d out -cp "lib/*" $(find Engine Game Tests -name '*.java')
+ *   java -cp "out:lib/*:Resources:Shaders" com.amoghbhagwat.test.TestRunner
+ * </pre>
+ */
+public final class AllTests {
+    static final Class<?>[] CLASSES = {
+            OBJParserTest.class,
+            MeshCacheTest.class,
+            AssetLoaderTest.class,
+            VertexPackerTest.class,
+            RenderStateTest.class,
+            RenderQueueTest.class,
+            JobSystemTest.class,
+            LooseOctreeTest.class,
+            FrameAllocationTest.class,
+            InterpolationTest.class,
+            SimulationHandoffTest.class,
+            FramePacerTest.class,
+            FixedStepSchedulerTest.class,
+            FrameProfilerTest.class,
+            BenchmarkRunnerTest.class,
+            ShaderCacheTest.class,
+            ShaderPreprocessorTest.class,
+            LightClustersTest.class,
+            ItemLightsTest.class,
+            UniformBlocksTest.class,
+            InstanceBatcherTest.class,
+            VertexCacheOptimizerTest.class,
+    };
+
+    private AllTests() {
+    }
+}
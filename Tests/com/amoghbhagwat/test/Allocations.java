@@ -0,0 +1,49 @@
+package com.amoghbhagwat.test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes the current thread allocates on the heap, through HotSpot's extension of the thread MX bean.
+ */
+public final class Allocations {
+    private static final int ATTEMPTS = 3;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Allocations() {
+    }
+
+    /**
+     * Runs the code {@code warmUp} times so classes are loaded and the hot methods compiled, then returns the bytes
+     * allocated by {@code iterations} more runs. The smallest count of a few attempts is taken, so one-off allocations,
+     * e.g. by a deoptimisation, do not count.
+     */
+    public static long measure(int warmUp, int iterations, Assert.ThrowingRunnable code) throws Throwable {
+        for (int i = 0; i < warmUp; i++) {
+            code.run();
+        }
+
+        long id = Thread.currentThread().getId();
+        long least = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS && least > 0; attempt++) {
+            long overhead = THREADS.getThreadAllocatedBytes(id);
+            long before = THREADS.getThreadAllocatedBytes(id);
+            overhead = before - overhead;
+            for (int i = 0; i < iterations; i++) {
+                code.run();
+            }
+            long after = THREADS.getThreadAllocatedBytes(id);
+            least = Math.min(least, Math.max(0, after - before - overhead));
+        }
+        return least;
+    }
+
+    public static void assertNoAllocation(String message, int warmUp, int iterations, Assert.ThrowingRunnable code)
+            throws Throwable {
+        if (!THREADS.isThreadAllocatedMemorySupported() || !THREADS.isThreadAllocatedMemoryEnabled()) {
+            Assert.fail("This JVM cannot count allocated bytes per thread");
+        }
+        Assert.assertEquals(message + ": bytes allocated in " + iterations + " runs", 0, measure(warmUp, iterations, code));
+    }
+}
@@ -0,0 +1,96 @@
+package com.amoghbhagwat.test;
+
+import java.util.Arrays;
+
+/**
+ * Assertions for tests, throwing {@link AssertionError} with the expected and actual values on failure.
+ */
+public final class Assert {
+    private Assert() {
+    }
+
+    public static void fail(String message) {
+        throw new AssertionError(message);
+    }
+
+    public static void assertTrue(String message, boolean condition) {
+        if (!condition) {
+            fail(message);
+        }
+    }
+
+    public static void assertFalse(String message, boolean condition) {
+        assertTrue(message, !condition);
+    }
+
+    public static void assertEquals(String message, long expected, long actual) {
+        if (expected != actual) {
+            fail(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Compares the float bits, so {@code -0.0} and {@code 0.0} differ and NaN equals NaN.
+     */
+    public static void assertBitsEqual(String message, float expected, float actual) {
+        if (Float.floatToIntBits(expected) != Float.floatToIntBits(actual)) {
+            fail(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    public static void assertEquals(String message, float expected, float actual, float delta) {
+        if (!(Math.abs(expected - actual) <= delta)) {
+            fail(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    public static void assertEquals(String message, Object expected, Object actual) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            fail(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    public static void assertArrayEquals(String message, int[] expected, int[] actual) {
+        if (!Arrays.equals(expected, actual)) {
+            fail(message + ": expected " + Arrays.toString(expected) + " but was " + Arrays.toString(actual));
+        }
+    }
+
+    public static void assertSame(String message, Object expected, Object actual) {
+        if (expected != actual) {
+            fail(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    public static void assertNull(String message, Object value) {
+        if (value != null) {
+            fail(message + ": expected null but was " + value);
+        }
+    }
+
+    /**
+     * Skips the rest of the test unless {@code condition} holds, for checks that only mean something in the right
+     * environment.
+     */
+    public static void assumeTrue(String reason, boolean condition) {
+        if (!condition) {
+            throw new SkippedException(reason);
+        }
+    }
+
+    public static <T extends Throwable> T assertThrows(String message, Class<T> type, ThrowingRunnable runnable) {
+        try {
+            runnable.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return type.cast(e);
+            }
+            throw new AssertionError(message + ": expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(message + ": expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+
+    public interface ThrowingRunnable {
+        void run() throws Throwable;
+    }
+}
@@ -0,0 +1,13 @@
+package com.amoghbhagwat.test;
+
+/**
+ * Ends a test whose check cannot be judged in the current environment. {@link TestRunner} reports it as skipped, not as
+ * passed or failed.
+ */
+public class SkippedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SkippedException(String reason) {
+        super(reason);
+    }
+}
@@ -0,0 +1,87 @@
+package com.amoghbhagwat.test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Runs the {@link Test} methods of test classes and reports every failure, without a test framework on the classpath.
+ * Tests ending with a {@link SkippedException} are reported as skipped.
+ */
+public class TestRunner {
+    private int passed;
+    private final List<String> failures = new ArrayList<>();
+    private final List<String> skipped = new ArrayList<>();
+
+    public void run(Class<?> testClass) {
+        List<Method> tests = new ArrayList<>();
+        for (Method method : testClass.getMethods()) {
+            if (method.isAnnotationPresent(Test.class) && !Modifier.isStatic(method.getModifiers())) {
+                tests.add(method);
+            }
+        }
+        tests.sort(Comparator.comparing(Method::getName));
+
+        for (Method test : tests) {
+            String name = testClass.getSimpleName() + "." + test.getName();
+            try {
+                test.invoke(testClass.getConstructor().newInstance());
+                passed++;
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SkippedException) {
+                    skip(name, e.getCause().getMessage());
+                } else {
+                    fail(name, e.getCause());
+                }
+            } catch (ReflectiveOperationException e) {
+                fail(name, e);
+            }
+        }
+    }
+
+    private void fail(String name, Throwable cause) {
+        failures.add(name);
+        System.out.println("FAIL " + name);
+        cause.printStackTrace(System.out);
+    }
+
+    private void skip(String name, String reason) {
+        skipped.add(name);
+        System.out.println("SKIP " + name + ": " + reason);
+    }
+
+    public int getPassed() {
+        return passed;
+    }
+
+    public List<String> getFailures() {
+        return failures;
+    }
+
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Runs the given test classes, or {@link AllTests} without arguments, and exits with 1 when a test failed.
+     */
+    public static void main(String[] args) throws Exception {
+        TestRunner runner = new TestRunner();
+        if (args.length == 0) {
+            for (Class<?> testClass : AllTests.CLASSES) {
+                runner.run(testClass);
+            }
+        } else {
+            for (String className : args) {
+                runner.run(Class.forName(className));
+            }
+        }
+
+        System.out.println(runner.getPassed() + " passed, " + runner.getFailures().size() + " failed, "
+                + runner.getSkipped().size() + " skipped");
+        System.exit(runner.getFailures().isEmpty() ? 0 : 1);
+    }
+}